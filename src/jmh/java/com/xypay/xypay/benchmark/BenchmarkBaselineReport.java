@@ -0,0 +1,151 @@
+package com.xypay.xypay.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result against the committed baseline and fails the build on regressions.
+ *
+ * Baseline format (src/jmh/resources/benchmark-baseline.json):
+ * <pre>
+ * {
+ *   "recordedAt": "2025-01-31T10:15:00",
+ *   "jvm": "17.0.10",
+ *   "benchmarks": {
+ *     "com.xypay.xypay.benchmark.TransferFeeBenchmark.calculateTransferFees[amount=2500.00,transferType=intra]": {
+ *       "mode": "avgt", "score": 412.7, "scoreError": 6.1, "unit": "ns/op"
+ *     }
+ *   }
+ * }
+ * </pre>
+ * A benchmark regresses when it is slower than its baseline by more than the tolerance (a fraction,
+ * e.g. 0.15). Benchmarks missing from the baseline are reported but never fail the check. When no
+ * baseline has been committed the check is skipped with a message; the current result is written as
+ * the baseline only when updating is requested.
+ *
+ * Usage: BenchmarkBaselineReport &lt;jmh-result.json&gt; &lt;baseline.json&gt; &lt;tolerance&gt; &lt;update&gt;
+ */
+public final class BenchmarkBaselineReport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private BenchmarkBaselineReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: BenchmarkBaselineReport <jmh-result.json> <baseline.json> <tolerance> [update]");
+            System.exit(2);
+        }
+        File resultFile = new File(args[0]);
+        File baselineFile = new File(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+        boolean update = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        Map<String, JsonNode> current = readResult(resultFile);
+
+        if (update) {
+            writeBaseline(baselineFile, current);
+            System.out.printf("Recorded %d benchmarks as baseline in %s%n", current.size(), baselineFile);
+            return;
+        }
+        if (!baselineFile.exists()) {
+            System.out.printf("No benchmark baseline at %s; skipping the regression check. "
+                + "Run with -Dbenchmark.update-baseline=true on the reference machine and commit the file to enable it.%n",
+                baselineFile);
+            return;
+        }
+
+        JsonNode baseline = MAPPER.readTree(baselineFile).path("benchmarks");
+        int regressions = 0;
+
+        System.out.printf("%-110s %14s %14s %9s  %s%n", "Benchmark", "Baseline", "Current", "Change", "");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-110s %14s %14.3f %9s  NEW%n", entry.getKey(), "-", now.get("score").asDouble(), "-");
+                continue;
+            }
+
+            double baseScore = before.get("score").asDouble();
+            double score = now.get("score").asDouble();
+            // Throughput modes are better when higher, time modes when lower
+            boolean higherIsBetter = "thrpt".equals(now.get("mode").asText());
+            double change = (score - baseScore) / baseScore;
+            double slowdown = higherIsBetter ? -change : change;
+            boolean regressed = slowdown > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-110s %14.3f %14.3f %+8.1f%%  %s%n", entry.getKey(), baseScore, score,
+                change * 100, regressed ? "REGRESSION" : "ok");
+        }
+
+        Iterator<String> names = baseline.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!current.containsKey(name)) {
+                System.out.printf("%-110s %14.3f %14s %9s  MISSING%n", name, baseline.get(name).get("score").asDouble(), "-", "-");
+            }
+        }
+
+        if (regressions > 0) {
+            System.err.printf("%d benchmark(s) regressed by more than %.0f%% against %s%n", regressions, tolerance * 100, baselineFile);
+            System.exit(1);
+        }
+        System.out.printf("No regressions beyond %.0f%%%n", tolerance * 100);
+    }
+
+    /**
+     * Flatten a JMH JSON result into name[params] -> {mode, score, scoreError, unit}
+     */
+    private static Map<String, JsonNode> readResult(File resultFile) throws IOException {
+        Map<String, JsonNode> results = new TreeMap<>();
+        for (JsonNode run : MAPPER.readTree(resultFile)) {
+            JsonNode metric = run.path("primaryMetric");
+            ObjectNode entry = MAPPER.createObjectNode();
+            entry.put("mode", run.path("mode").asText());
+            entry.put("score", metric.path("score").asDouble());
+            entry.put("scoreError", metric.path("scoreError").asDouble());
+            entry.put("unit", metric.path("scoreUnit").asText());
+            results.put(nameOf(run), entry);
+        }
+        return results;
+    }
+
+    private static String nameOf(JsonNode run) {
+        StringBuilder name = new StringBuilder(run.path("benchmark").asText());
+        JsonNode params = run.path("params");
+        if (params.size() > 0) {
+            Map<String, String> sorted = new TreeMap<>();
+            params.fields().forEachRemaining(param -> sorted.put(param.getKey(), param.getValue().asText()));
+            name.append('[');
+            sorted.forEach((key, value) -> name.append(key).append('=').append(value).append(','));
+            name.setCharAt(name.length() - 1, ']');
+        }
+        return name.toString();
+    }
+
+    private static void writeBaseline(File baselineFile, Map<String, JsonNode> current) throws IOException {
+        ObjectNode baseline = MAPPER.createObjectNode();
+        baseline.put("recordedAt", LocalDateTime.now().withNano(0).toString());
+        baseline.put("jvm", System.getProperty("java.version"));
+        ObjectNode benchmarks = baseline.putObject("benchmarks");
+        current.forEach(benchmarks::set);
+        File parent = baselineFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        MAPPER.writeValue(baselineFile, baseline);
+    }
+}
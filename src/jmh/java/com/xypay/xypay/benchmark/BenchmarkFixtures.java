@@ -0,0 +1,75 @@
+package com.xypay.xypay.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Wiring helpers for benchmarks: services are built without a Spring context, with their
+ * collaborators replaced by in-memory stand-ins.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Set a private (usually @Autowired or @Value) field on a service
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot set " + fieldName + " on " + target.getClass().getName(), e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " on " + target.getClass().getName());
+    }
+
+    /**
+     * In-memory repository answering only the named methods; any other call fails loudly so a
+     * benchmark never silently measures a code path it did not set up.
+     */
+    @SuppressWarnings("unchecked")
+    static <R> R repository(Class<R> type, Map<String, Function<Object[], Object>> answers) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Function<Object[], Object> answer = answers.get(method.getName());
+                    if (answer == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return answer.apply(args);
+            }
+        });
+    }
+
+    /**
+     * JdbcTemplate with no rows behind it, for services that warm caches from the database
+     */
+    static JdbcTemplate emptyJdbcTemplate() {
+        return new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch, Object... args) {
+                // No history
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.xypay.xypay.benchmark;
+
+import com.xypay.xypay.service.DeviceFingerprintService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fingerprint of a typical browser request arriving through a proxy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeviceFingerprintBenchmark {
+
+    private DeviceFingerprintService deviceFingerprintService;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        deviceFingerprintService = new DeviceFingerprintService();
+
+        request = new MockHttpServletRequest("POST", "/api/transfers");
+        request.addHeader("User-Agent",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36");
+        request.addHeader("Accept-Language", "en-NG,en;q=0.9");
+        request.addHeader("Accept-Encoding", "gzip, deflate, br");
+        request.addHeader("X-Forwarded-For", "102.89.34.12, 10.0.0.4");
+        request.setRemoteAddr("10.0.0.4");
+    }
+
+    @Benchmark
+    public String generateDeviceFingerprint() {
+        return deviceFingerprintService.generateDeviceFingerprint(request);
+    }
+}
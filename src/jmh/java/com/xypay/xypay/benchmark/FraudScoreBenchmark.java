@@ -0,0 +1,81 @@
+package com.xypay.xypay.benchmark;
+
+import com.xypay.xypay.domain.BankTransfer;
+import com.xypay.xypay.domain.User;
+import com.xypay.xypay.service.FraudDetectionService;
+import com.xypay.xypay.service.FraudFeatureStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fraud score of one transfer against a sender with the given number of prior transfers.
+ * History is fed through the feature store's incremental path over an empty in-memory database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FraudScoreBenchmark {
+
+    @Param({ "10", "1000" })
+    private int history;
+
+    private FraudDetectionService fraudDetectionService;
+    private User user;
+    private BigDecimal amount;
+
+    @Setup
+    public void setup() {
+        FraudFeatureStore featureStore = new FraudFeatureStore();
+        BenchmarkFixtures.inject(featureStore, "jdbcTemplate", BenchmarkFixtures.emptyJdbcTemplate());
+        BenchmarkFixtures.inject(featureStore, "maxUsers", 1000L);
+        BenchmarkFixtures.inject(featureStore, "maxRecipients", 1000L);
+        BenchmarkFixtures.inject(featureStore, "refreshMinutes", 60L);
+        featureStore.init();
+
+        fraudDetectionService = new FraudDetectionService();
+        BenchmarkFixtures.inject(fraudDetectionService, "fraudFeatureStore", featureStore);
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+        featureStore.userFeatures(user.getId());
+        featureStore.recipientFeatures("0123456789");
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < history; i++) {
+            BankTransfer transfer = new BankTransfer();
+            transfer.setUser(user);
+            transfer.setAmount(new BigDecimal(5000 + (i % 50) * 100));
+            transfer.setAccountNumber(String.format("%010d", i % 25));
+            transfer.setBankCode("058");
+            transfer.setDeviceFingerprint("device-" + (i % 3));
+            transfer.setIpAddress("102.89.34." + (i % 10));
+            transfer.setCreatedAt(now.minusMinutes(history - i));
+            featureStore.recordCreated(transfer);
+            featureStore.recordCompleted(transfer);
+        }
+
+        amount = new BigDecimal("85000.00");
+    }
+
+    @Benchmark
+    public int calculateFraudScore() {
+        return fraudDetectionService.calculateFraudScore(user, amount, "0123456789", "058", "device-1", "102.89.34.1");
+    }
+}
@@ -0,0 +1,67 @@
+package com.xypay.xypay.benchmark;
+
+import com.xypay.xypay.domain.Loan;
+import com.xypay.xypay.domain.LoanAmortization;
+import com.xypay.xypay.repository.LoanAmortizationRepository;
+import com.xypay.xypay.service.LoanManagementService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Amortization schedule generation; saveAll is an in-memory no-op so only the schedule math is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanAmortizationBenchmark {
+
+    @Param({ "12", "60", "360" })
+    private int termMonths;
+
+    @Param({ "false", "true" })
+    private boolean shariaCompliant;
+
+    private LoanManagementService loanManagementService;
+    private Loan loan;
+
+    @Setup
+    public void setup() {
+        loanManagementService = new LoanManagementService();
+        BenchmarkFixtures.inject(loanManagementService, "loanAmortizationRepository",
+            BenchmarkFixtures.repository(LoanAmortizationRepository.class,
+                Map.of("saveAll", args -> args[0])));
+
+        loan = new Loan();
+        loan.setPrincipalAmount(new BigDecimal("5000000.00"));
+        loan.setInterestRate(new BigDecimal("18.50"));
+        loan.setProfitRate(new BigDecimal("16.00"));
+        loan.setShariaCompliant(shariaCompliant);
+        loan.setLoanTermMonths(termMonths);
+        loan.setRepaymentFrequency(Loan.RepaymentFrequency.MONTHLY);
+        loan.setFirstPaymentDate(LocalDateTime.of(2025, 1, 31, 0, 0));
+        loan.setMonthlyPaymentAmount(loanManagementService.calculateMonthlyPayment(loan));
+    }
+
+    @Benchmark
+    public List<LoanAmortization> generateAmortizationSchedule() {
+        return loanManagementService.generateAmortizationSchedule(loan);
+    }
+}
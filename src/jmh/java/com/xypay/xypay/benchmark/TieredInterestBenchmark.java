@@ -0,0 +1,45 @@
+package com.xypay.xypay.benchmark;
+
+import com.xypay.xypay.util.TieredInterestCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily tiered interest for one balance; the params land in the first, second and third tier.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TieredInterestBenchmark {
+
+    @Param({ "7500.00", "65000.00", "2500000.00" })
+    private String balance;
+
+    private BigDecimal balanceAmount;
+
+    @Setup
+    public void setup() {
+        balanceAmount = new BigDecimal(balance);
+    }
+
+    @Benchmark
+    public Map<String, Object> calculateTieredInterestRate() {
+        return TieredInterestCalculator.calculateTieredInterestRate(balanceAmount);
+    }
+}
@@ -0,0 +1,66 @@
+package com.xypay.xypay.benchmark;
+
+import com.xypay.xypay.domain.TransferChargeControl;
+import com.xypay.xypay.domain.VATCharge;
+import com.xypay.xypay.repository.TransferChargeControlRepository;
+import com.xypay.xypay.repository.VATChargeRepository;
+import com.xypay.xypay.service.TransferFeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fee, VAT and levy calculation for a single transfer, charge settings served from memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferFeeBenchmark {
+
+    @Param({ "2500.00", "35000.00", "1250000.00" })
+    private String amount;
+
+    @Param({ "intra", "inter" })
+    private String transferType;
+
+    private TransferFeeService transferFeeService;
+    private BigDecimal transferAmount;
+
+    @Setup
+    public void setup() {
+        VATCharge vat = new VATCharge();
+        vat.setRate(new BigDecimal("0.075"));
+        TransferChargeControl control = new TransferChargeControl(true, true, true);
+
+        transferFeeService = new TransferFeeService();
+        BenchmarkFixtures.inject(transferFeeService, "transferChargeControlRepository",
+            BenchmarkFixtures.repository(TransferChargeControlRepository.class,
+                Map.of("findFirstByOrderByUpdatedAtDesc", args -> Optional.of(control))));
+        BenchmarkFixtures.inject(transferFeeService, "vatChargeRepository",
+            BenchmarkFixtures.repository(VATChargeRepository.class,
+                Map.of("findFirstByActiveTrueOrderByUpdatedAtDesc", args -> Optional.of(vat))));
+
+        transferAmount = new BigDecimal(amount);
+    }
+
+    @Benchmark
+    public BigDecimal[] calculateTransferFees() {
+        return transferFeeService.calculateTransferFees(transferAmount, transferType);
+    }
+}
@@ -6,6 +6,7 @@ import com.xypay.xypay.domain.Transaction;
 import com.xypay.xypay.repository.UserRepository;
 import com.xypay.xypay.repository.WalletRepository;
 import com.xypay.xypay.repository.TransactionRepository;
+import com.xypay.xypay.service.DashboardService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -28,36 +29,28 @@ public class AdminDashboardController {
     
     @Autowired
     private TransactionRepository transactionRepository;
+
+    @Autowired
+    private DashboardService dashboardService;
+
     @GetMapping("/admin/dashboard")
     public String dashboard(Model model) {
+        // Counts come from the dashboard snapshot, refreshed once a minute for the cluster
+        DashboardService.Totals totals = dashboardService.getTotals();
+
         // Users
-        long totalUsers = userRepository.count();
-        model.addAttribute("totalUsers", totalUsers);
+        model.addAttribute("totalUsers", totals.getUsers());
 
         // Accounts/Wallets
-        java.util.List<Wallet> wallets = walletRepository.findAllWithUser();
-        long totalAccounts = wallets.size();
-        java.math.BigDecimal totalBalance = wallets.stream()
-            .map(Wallet::getBalance)
-            .reduce(java.math.BigDecimal.ZERO, java.math.BigDecimal::add);
-        long activeAccounts = wallets.stream()
-            .filter(w -> w.getBalance() != null && w.getBalance().compareTo(java.math.BigDecimal.ZERO) > 0)
-            .count();
-        model.addAttribute("totalAccounts", totalAccounts);
-        model.addAttribute("totalBalance", totalBalance);
-        model.addAttribute("activeAccounts", activeAccounts);
+        model.addAttribute("totalAccounts", totals.getWallets());
+        model.addAttribute("totalBalance", totals.getWalletBalance());
+        model.addAttribute("activeAccounts", totals.getFundedWallets());
 
         // Transactions
-        long totalTransactions = transactionRepository.count();
-        java.time.LocalDate today = java.time.LocalDate.now();
-        long todayTransactions = transactionRepository.countByCreatedAtBetween(
-            today.atStartOfDay(), today.atTime(23, 59, 59));
-        long pendingTransactions = transactionRepository.countByStatus("PENDING");
-        long failedTransactions = transactionRepository.countByStatus("FAILED");
-        model.addAttribute("todayTransactions", todayTransactions);
-        model.addAttribute("totalTransactions", totalTransactions);
-        model.addAttribute("pendingTransactions", pendingTransactions);
-        model.addAttribute("failedTransactions", failedTransactions);
+        model.addAttribute("todayTransactions", totals.getTodayTransactions());
+        model.addAttribute("totalTransactions", totals.getTransactions());
+        model.addAttribute("pendingTransactions", totals.getPending());
+        model.addAttribute("failedTransactions", totals.getFailed());
 
         // Recent transactions list for dashboard widgets
         org.springframework.data.domain.Pageable recentPageable = org.springframework.data.domain.PageRequest.of(
@@ -4,6 +4,7 @@ import com.xypay.xypay.domain.TransferChargeControl;
 import com.xypay.xypay.domain.VATCharge;
 import com.xypay.xypay.repository.TransferChargeControlRepository;
 import com.xypay.xypay.repository.VATChargeRepository;
+import com.xypay.xypay.service.TransferFeeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,12 +23,16 @@ public class ChargeControlAdminController {
     @Autowired
     private VATChargeRepository vatChargeRepository;
     
+    @Autowired
+    private TransferFeeService transferFeeService;
+    
     // Transfer Charge Control Endpoints
     
     @PostMapping("/transfer-control")
     public ResponseEntity<TransferChargeControl> createTransferControl(
             @RequestBody TransferChargeControl control) {
         TransferChargeControl savedControl = transferChargeControlRepository.save(control);
+        transferFeeService.feeScheduleChanged();
         return ResponseEntity.ok(savedControl);
     }
     
@@ -49,6 +54,7 @@ public class ChargeControlAdminController {
             @RequestBody TransferChargeControl control) {
         control.setId(id);
         TransferChargeControl updatedControl = transferChargeControlRepository.save(control);
+        transferFeeService.feeScheduleChanged();
         return ResponseEntity.ok(updatedControl);
     }
     
@@ -58,6 +64,7 @@ public class ChargeControlAdminController {
     public ResponseEntity<VATCharge> createVatCharge(
             @RequestBody VATCharge vatCharge) {
         VATCharge savedVat = vatChargeRepository.save(vatCharge);
+        transferFeeService.feeScheduleChanged();
         return ResponseEntity.ok(savedVat);
     }
     
@@ -79,6 +86,7 @@ public class ChargeControlAdminController {
             @RequestBody VATCharge vatCharge) {
         vatCharge.setId(id);
         VATCharge updatedVat = vatChargeRepository.save(vatCharge);
+        transferFeeService.feeScheduleChanged();
         return ResponseEntity.ok(updatedVat);
     }
 }
\ No newline at end of file
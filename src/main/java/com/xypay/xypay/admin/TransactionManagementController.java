@@ -6,7 +6,9 @@ import com.xypay.xypay.domain.User;
 import com.xypay.xypay.repository.TransactionRepository;
 import com.xypay.xypay.repository.WalletRepository;
 import com.xypay.xypay.repository.UserRepository;
+import com.xypay.xypay.event.TransactionMetricsEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -36,6 +38,9 @@ public class TransactionManagementController {
     @Autowired
     private TransactionRepository transactionRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Autowired
     private WalletRepository walletRepository;
     
@@ -396,6 +401,7 @@ public class TransactionManagementController {
             tx1.setDirection("DEBIT");
             tx1.setProcessedAt(LocalDateTime.now());
             transactionRepository.save(tx1);
+            eventPublisher.publishEvent(new TransactionMetricsEvent(this, tx1, true));
             
             Transaction tx2 = new Transaction();
             tx2.setWallet(receiverWallet);
@@ -427,6 +433,7 @@ public class TransactionManagementController {
             }
             
             transactionRepository.save(tx2);
+            eventPublisher.publishEvent(new TransactionMetricsEvent(this, tx2, true));
         }
     }
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import com.xypay.xypay.repository.KYCProfileRepository;
 import com.xypay.xypay.repository.UserSessionRepository;
 import com.xypay.xypay.repository.WalletRepository;
 import com.xypay.xypay.repository.BankTransferRepository;
+import com.xypay.xypay.security.PrincipalCache;
 import com.xypay.xypay.service.UserCascadeDeleteService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +64,9 @@ public class UserManagementController {
     @Autowired
     private UserCascadeDeleteService userCascadeDeleteService;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
     @Autowired
     private com.xypay.xypay.service.BankTransferEventPublisher eventPublisher;
     
@@ -96,6 +100,7 @@ public class UserManagementController {
     @PostMapping("/users/{id}")
     public String updateUser(@PathVariable UUID id, @ModelAttribute User user) {
         User existingUser = userRepository.findById(id).orElseThrow();
+        principalCache.invalidateUser(existingUser.getUsername());
         existingUser.setUsername(user.getUsername());
         existingUser.setFirstName(user.getFirstName());
         existingUser.setLastName(user.getLastName());
@@ -103,6 +108,7 @@ public class UserManagementController {
         existingUser.setRoles(user.getRoles());
         existingUser.setEnabled(user.isEnabled());
         userRepository.save(existingUser);
+        principalCache.invalidateUser(existingUser.getUsername());
         return "redirect:/admin/users";
     }
     
@@ -186,6 +192,7 @@ public class UserManagementController {
     @Transactional
     public String deleteUserProfile(@PathVariable UUID id, org.springframework.web.servlet.mvc.support.RedirectAttributes redirectAttributes) {
         try {
+            userRepository.findById(id).ifPresent(existing -> principalCache.invalidateUser(existing.getUsername()));
             // Use the cascade delete service to properly clean up all related data
             boolean deleted = userCascadeDeleteService.deleteUserAndAllRelatedData(id);
             if (deleted) {
@@ -209,6 +216,7 @@ public class UserManagementController {
         auditLogRepository.nullifyUserReferences(id);
         
         // Then delete the user
+        userRepository.findById(id).ifPresent(existing -> principalCache.invalidateUser(existing.getUsername()));
         userRepository.deleteById(id);
         return "redirect:/admin/users";
     }
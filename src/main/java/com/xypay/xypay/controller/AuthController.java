@@ -1,12 +1,19 @@
 package com.xypay.xypay.controller;
 
+import com.xypay.xypay.interceptor.LoginSecurityInterceptor;
 import com.xypay.xypay.security.JwtUtil;
 import com.xypay.xypay.security.CustomUserDetailsService;
+import com.xypay.xypay.security.PrincipalCache;
+import com.xypay.xypay.service.BruteForceDetector;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,6 +33,12 @@ public class AuthController {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private BruteForceDetector bruteForceDetector;
+
     /**
      * JWT Login endpoint
      * Example request body:
@@ -35,13 +48,21 @@ public class AuthController {
      * }
      */
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
         Map<String, Object> response = new HashMap<>();
         
         try {
             String username = request.get("username");
             String password = request.get("password");
             
+            // The username is only known once the body is read, so its failures are checked here
+            httpRequest.setAttribute(LoginSecurityInterceptor.LOGIN_USERNAME, username);
+            if (bruteForceDetector.assess(null, username, null).isBlocked()) {
+                response.put("success", false);
+                response.put("message", "Too many failed login attempts, try again later");
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+            }
+            
             // Authenticate user
             authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(username, password)
@@ -101,7 +122,13 @@ public class AuthController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            String username = jwtUtil.extractUsername(refreshToken);
+            Claims claims = jwtUtil.parseClaims(refreshToken);
+            String username = claims.getSubject();
+            if (principalCache.isRevoked(username, claims)) {
+                response.put("success", false);
+                response.put("message", "Refresh token has been revoked");
+                return ResponseEntity.badRequest().body(response);
+            }
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
             
             // Generate new access token
@@ -161,4 +188,21 @@ public class AuthController {
             return ResponseEntity.badRequest().body(response);
         }
     }
+
+    /**
+     * Logout: revokes every access and refresh token issued to the caller so far
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Map<String, Object>> logout(Authentication authentication) {
+        Map<String, Object> response = new HashMap<>();
+        if (authentication == null) {
+            response.put("success", false);
+            response.put("message", "Not authenticated");
+            return ResponseEntity.badRequest().body(response);
+        }
+        principalCache.revokeUser(authentication.getName());
+        response.put("success", true);
+        response.put("message", "Logged out");
+        return ResponseEntity.ok(response);
+    }
 }
@@ -381,11 +381,16 @@ public class BankingRestController {
             String deviceFingerprint = deviceFingerprintService.generateDeviceFingerprint(httpRequest);
             String ipAddress = getClientIp(httpRequest);
             
-            // Validate transaction PIN
-            Map<String, Object> pinValidation = transactionPinService.verifyTransactionPin(user, transactionPin);
-            if (!(Boolean) pinValidation.get("success")) {
-                return ResponseEntity.badRequest()
-                    .body(ApiResponse.error("Invalid transaction PIN", pinValidation));
+            // Validate transaction PIN; a PIN verified token issued for this flow and amount stands in for it once
+            Object pinVerifiedToken = request.get("pin_verified_token");
+            Object flowId = request.get("flow_id");
+            if (pinVerifiedToken == null || flowId == null || !transactionPinService.consumePinVerifiedToken(
+                    user, pinVerifiedToken.toString(), flowId.toString(), amount)) {
+                Map<String, Object> pinValidation = transactionPinService.verifyTransactionPin(user, transactionPin);
+                if (!(Boolean) pinValidation.get("success")) {
+                    return ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Invalid transaction PIN", pinValidation));
+                }
             }
             
             // Fraud detection
@@ -0,0 +1,61 @@
+package com.xypay.xypay.controller;
+
+import com.xypay.xypay.domain.User;
+import com.xypay.xypay.repository.UserRepository;
+import com.xypay.xypay.service.BulkTransferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/bulk-transfers")
+public class BulkTransferController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkTransferController.class);
+
+    @Autowired
+    private BulkTransferService bulkTransferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Approve the items of a bulk transfer held by the approval matrix and run them. Only items whose
+     * every mandatory level the current user may approve are released; the rest stay held.
+     */
+    @PostMapping("/{id}/approve-held")
+    public ResponseEntity<Map<String, Object>> approveHeldItems(
+            Authentication authentication,
+            @PathVariable UUID id) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (authentication == null || authentication.getName() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            User approver = userRepository.findByUsername(authentication.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            int released = bulkTransferService.approveHeldItems(id, approver);
+
+            response.put("success", true);
+            response.put("released", released);
+            response.put("message", released > 0
+                ? String.format("Released %d held items for processing", released)
+                : "No held items could be released by this user");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error approving held items of bulk transfer {}: {}", id, e.getMessage());
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.xypay.xypay.controller;
 
+import com.xypay.xypay.domain.DataWarehouseHourly;
 import com.xypay.xypay.service.DataWarehouseService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -7,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -50,4 +52,11 @@ public class DataWarehouseController {
         Map<String, Object> analytics = dataWarehouseService.getMonthlyAnalytics(year, month);
         return ResponseEntity.ok(analytics);
     }
+
+    @GetMapping("/analytics/hourly/{date}")
+    public ResponseEntity<List<DataWarehouseHourly>> getHourlyAnalytics(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        
+        return ResponseEntity.ok(dataWarehouseService.getHourlyFacts(date));
+    }
 }
@@ -1,6 +1,7 @@
 package com.xypay.xypay.controller;
 
 import com.xypay.xypay.service.GeneralLedgerService;
+import com.xypay.xypay.service.PostingEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,4 +25,9 @@ public class GeneralLedgerController {
     public ResponseEntity<List<GeneralLedgerService.LedgerEntry>> getLedgerEntries() {
         return ResponseEntity.ok(ledgerService.getLedgerEntries());
     }
+
+    @GetMapping("/trial-balance")
+    public ResponseEntity<PostingEngine.TrialBalance> getTrialBalance() {
+        return ResponseEntity.ok(ledgerService.getTrialBalance());
+    }
 }
@@ -6,6 +6,7 @@ import com.xypay.xypay.domain.NotificationLevel;
 import com.xypay.xypay.domain.NotificationStatus;
 import com.xypay.xypay.domain.User;
 import com.xypay.xypay.service.NotificationService;
+import com.xypay.xypay.service.WebSocketNotificationService;
 import com.xypay.xypay.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,10 +16,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +46,9 @@ public class NotificationController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private WebSocketNotificationService webSocketNotificationService;
+    
     /**
      * Get current user from authentication context.
      */
@@ -61,7 +68,6 @@ public class NotificationController {
      * Get notifications for the current user with pagination and filtering.
      */
     @GetMapping
-    @Cacheable(value = "userNotifications", key = "#authentication.name + '_' + #page + '_' + #size + '_' + #type + '_' + #level + '_' + #status")
     public ResponseEntity<Page<Notification>> getUserNotifications(
             Authentication authentication,
             @RequestParam(defaultValue = "0") int page,
@@ -98,6 +104,58 @@ public class NotificationController {
         }
     }
     
+    /**
+     * Get the current user's notifications newest first, one keyset page at a time.
+     * Omit the cursor for the first page; pass back nextBefore/nextBeforeId for the next one.
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<Map<String, Object>> getNotificationFeed(
+            Authentication authentication,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) UUID beforeId,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        try {
+            User currentUser = getCurrentUser(authentication);
+            int limit = Math.max(1, Math.min(size, 100));
+            LocalDateTime beforeCreatedAt = before != null ? LocalDateTime.parse(before) : null;
+            
+            List<Notification> notifications = notificationService.getUserNotificationsBefore(
+                currentUser, beforeCreatedAt, beforeId, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("notifications", notifications);
+            response.put("hasMore", notifications.size() == limit);
+            if (!notifications.isEmpty()) {
+                Notification last = notifications.get(notifications.size() - 1);
+                response.put("nextBefore", last.getCreatedAt());
+                response.put("nextBeforeId", last.getId());
+            }
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error fetching notification feed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Open a server-sent events stream of live notifications and balance updates for the current user.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamNotifications(Authentication authentication) {
+        try {
+            User currentUser = getCurrentUser(authentication);
+            SseEmitter emitter = webSocketNotificationService.connect(currentUser.getId().toString());
+            if (emitter == null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+            return ResponseEntity.ok(emitter);
+        } catch (Exception e) {
+            logger.error("Error opening notification stream", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
     /**
      * Get a specific notification by ID.
      */
@@ -130,7 +188,6 @@ public class NotificationController {
      * Get unread notifications count for the current user.
      */
     @GetMapping("/unread-count")
-    @Cacheable(value = "unreadCount", key = "#authentication.name")
     public ResponseEntity<Map<String, Long>> getUnreadNotificationsCount(Authentication authentication) {
         try {
             User currentUser = getCurrentUser(authentication);
@@ -147,15 +204,33 @@ public class NotificationController {
     }
     
     /**
-     * Get unread notifications for the current user.
+     * Get the current user's unread notifications newest first, one keyset page at a time.
+     * The body stays a plain list; the cursor for the next page is returned in the X-Next-Before and
+     * X-Next-Before-Id headers, to be passed back as before/beforeId, and X-Has-More says whether to.
      */
     @GetMapping("/unread")
-    @Cacheable(value = "unreadNotifications", key = "#authentication.name")
-    public ResponseEntity<List<Notification>> getUnreadNotifications(Authentication authentication) {
+    public ResponseEntity<List<Notification>> getUnreadNotifications(
+            Authentication authentication,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) UUID beforeId,
+            @RequestParam(defaultValue = "100") int size) {
+        
         try {
             User currentUser = getCurrentUser(authentication);
-            List<Notification> notifications = notificationService.getUnreadNotifications(currentUser);
-            return ResponseEntity.ok(notifications);
+            int limit = Math.max(1, Math.min(size, 100));
+            LocalDateTime beforeCreatedAt = before != null ? LocalDateTime.parse(before) : null;
+            
+            List<Notification> notifications = notificationService.getUnreadNotificationsBefore(
+                currentUser, beforeCreatedAt, beforeId, limit);
+            
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("X-Has-More", String.valueOf(notifications.size() == limit));
+            if (!notifications.isEmpty()) {
+                Notification last = notifications.get(notifications.size() - 1);
+                headers.set("X-Next-Before", String.valueOf(last.getCreatedAt()));
+                headers.set("X-Next-Before-Id", String.valueOf(last.getId()));
+            }
+            return ResponseEntity.ok().headers(headers).body(notifications);
         } catch (Exception e) {
             logger.error("Error fetching unread notifications", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -1,13 +1,24 @@
 package com.xypay.xypay.controller;
 
+import com.xypay.xypay.domain.ReconciliationItem;
+import com.xypay.xypay.domain.ReconciliationRun;
 import com.xypay.xypay.domain.Transaction;
 import com.xypay.xypay.service.ReconciliationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/reconciliation")
@@ -16,13 +27,62 @@ public class ReconciliationController {
     private ReconciliationService reconciliationService;
 
     @PostMapping("/match")
-    public ResponseEntity<Void> matchTransactions(@RequestBody List<Transaction> bankTx, @RequestBody List<Transaction> ledgerTx) {
-        reconciliationService.matchTransactions(bankTx, ledgerTx);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<List<Transaction>> matchTransactions(@RequestBody MatchRequest request) {
+        return ResponseEntity.ok(reconciliationService.matchTransactions(request.getBankTx(), request.getLedgerTx()));
+    }
+
+    /**
+     * Queue an uploaded settlement file for reconciliation against the ledger for a business date.
+     * Responds 202 with the run; poll /runs/{runId} for its outcome.
+     */
+    @PostMapping("/settlement")
+    public ResponseEntity<ReconciliationRun> reconcileSettlementFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.accepted().body(reconciliationService.reconcileSettlementFile(in, file.getOriginalFilename(), businessDate));
+        }
+    }
+
+    @GetMapping("/runs/{runId}")
+    public ResponseEntity<ReconciliationRun> getRun(@PathVariable UUID runId) {
+        return reconciliationService.getRun(runId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/runs/{runId}/breaks")
+    public ResponseEntity<Page<ReconciliationItem>> getBreaks(
+            @PathVariable UUID runId,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(reconciliationService.getBreaks(runId, status, PageRequest.of(page, Math.min(size, 1000))));
+    }
+
+    @GetMapping("/runs/{runId}/summary")
+    public ResponseEntity<Map<String, Long>> getBreakSummary(@PathVariable UUID runId) {
+        return ResponseEntity.ok(reconciliationService.getBreakSummary(runId));
     }
 
     @GetMapping("/unmatched")
-    public ResponseEntity<Set<Transaction>> getUnmatched() {
-        return ResponseEntity.ok(reconciliationService.getUnmatched());
+    public ResponseEntity<Page<ReconciliationItem>> getUnmatched(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(reconciliationService.getUnmatched(PageRequest.of(page, Math.min(size, 1000))));
+    }
+
+    /**
+     * Request DTO for matching two transaction lists
+     */
+    public static class MatchRequest {
+        private List<Transaction> bankTx = new ArrayList<>();
+        private List<Transaction> ledgerTx = new ArrayList<>();
+
+        public List<Transaction> getBankTx() { return bankTx; }
+        public void setBankTx(List<Transaction> bankTx) { this.bankTx = bankTx; }
+
+        public List<Transaction> getLedgerTx() { return ledgerTx; }
+        public void setLedgerTx(List<Transaction> ledgerTx) { this.ledgerTx = ledgerTx; }
     }
-}
\ No newline at end of file
+}
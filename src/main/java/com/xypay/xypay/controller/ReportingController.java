@@ -4,14 +4,17 @@ import com.xypay.xypay.domain.Transaction;
 import com.xypay.xypay.domain.Report;
 import com.xypay.xypay.domain.ReportExecution;
 import com.xypay.xypay.service.TransactionReportingService;
+import com.xypay.xypay.service.ReportExporter;
 import com.xypay.xypay.service.ReportingEngineService;
 import com.xypay.xypay.repository.TransactionRepository;
 import com.xypay.xypay.repository.ReportRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -78,6 +81,27 @@ public class ReportingController {
         return ResponseEntity.ok(execution);
     }
     
+    /**
+     * Stream a report as the response body, without writing a report file or execution record
+     */
+    @PostMapping("/stream/{reportId}")
+    public ResponseEntity<StreamingResponseBody> streamReport(
+            @PathVariable UUID reportId,
+            @RequestBody Map<String, Object> parameters,
+            @RequestParam(required = false) String format) {
+        
+        Report report = reportRepository.findById(reportId)
+            .orElseThrow(() -> new RuntimeException("Report not found"));
+        String outputFormat = format != null ? format : report.getOutputFormat();
+        String fileName = report.getReportName().replaceAll("\\s+", "_") + ReportExporter.extension(outputFormat);
+        
+        StreamingResponseBody body = out -> reportingEngineService.streamReport(report, parameters, outputFormat, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+                .contentType(MediaType.parseMediaType(ReportExporter.contentType(outputFormat)))
+                .body(body);
+    }
+    
     @PostMapping("/execute-async/{reportId}")
     public ResponseEntity<String> executeReportAsync(
             @PathVariable Long reportId,
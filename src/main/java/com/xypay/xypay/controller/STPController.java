@@ -63,6 +63,7 @@ public class STPController {
     @PostMapping("/rules")
     public ResponseEntity<STPRule> createRule(@RequestBody STPRule rule) {
         STPRule savedRule = stpRuleRepository.save(rule);
+        stpService.rulesChanged();
         return ResponseEntity.ok(savedRule);
     }
 
@@ -73,12 +74,14 @@ public class STPController {
         existing.setPriority(rule.getPriority());
         existing.setIsActive(rule.getIsActive());
         STPRule updatedRule = stpRuleRepository.save(existing);
+        stpService.rulesChanged();
         return ResponseEntity.ok(updatedRule);
     }
 
     @DeleteMapping("/rules/{ruleId}")
     public ResponseEntity<String> deleteRule(@PathVariable UUID ruleId) {
         stpRuleRepository.deleteById(ruleId);
+        stpService.rulesChanged();
         return ResponseEntity.ok("Rule deleted successfully");
     }
 
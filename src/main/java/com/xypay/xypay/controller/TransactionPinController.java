@@ -94,10 +94,13 @@ public class TransactionPinController {
     }
     
     /**
-     * Verify transaction PIN
+     * Verify transaction PIN. With a flow id and an amount cap, the response carries a PIN verified
+     * token that stands in for the PIN once in that flow.
      * Example request body:
      * {
-     *   "pin": "1234"
+     *   "pin": "1234",
+     *   "flow_id": "transfer-5f2c",
+     *   "max_amount": "50000.00"
      * }
      */
     @PostMapping("/verify/{userId}")
@@ -113,7 +116,9 @@ public class TransactionPinController {
             }
             
             String pin = request.get("pin");
-            Map<String, Object> response = transactionPinService.verifyTransactionPin(user, pin);
+            String maxAmount = request.get("max_amount");
+            Map<String, Object> response = transactionPinService.verifyTransactionPin(user, pin, request.get("flow_id"),
+                maxAmount != null ? new java.math.BigDecimal(maxAmount) : null);
             
             if ((Boolean) response.get("success")) {
                 return ResponseEntity.ok(response);
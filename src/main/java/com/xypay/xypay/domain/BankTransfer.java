@@ -1,5 +1,7 @@
 package com.xypay.xypay.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.xypay.xypay.listener.BankTransferFeatureListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -19,6 +21,7 @@ import java.time.LocalDateTime;
     @Index(name = "idx_scheduled_at", columnList = "scheduled_at"),
     @Index(name = "idx_fraud_score", columnList = "fraud_score")
 })
+@EntityListeners(BankTransferFeatureListener.class)
 public class BankTransfer extends BaseEntity {
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -180,6 +183,11 @@ public class BankTransfer extends BaseEntity {
     @Column(name = "metadata")
     private String metadata = "{}";
     
+    // Status as last loaded or written; lets entity listeners detect status transitions
+    @Transient
+    @JsonIgnore
+    private String persistedStatus;
+    
     // Constructors
     public BankTransfer() {}
     
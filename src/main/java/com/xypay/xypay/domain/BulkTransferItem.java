@@ -20,6 +20,7 @@ public class BulkTransferItem extends BaseEntity {
     public enum Status {
         PENDING("pending"),
         PROCESSING("processing"),
+        PENDING_APPROVAL("pending_approval"),
         COMPLETED("completed"),
         FAILED("failed"),
         CANCELLED("cancelled");
@@ -76,6 +77,12 @@ public class BulkTransferItem extends BaseEntity {
     @Column(name = "row_number")
     private Integer rowNumber; // Row number in the original file
     
+    @Column(name = "approved_by", length = 100)
+    private String approvedBy; // Approver who released an item held by the approval matrix
+    
+    @Column(name = "approved_at")
+    private LocalDateTime approvedAt;
+    
     // Constructors
     public BulkTransferItem() {}
     
@@ -106,6 +113,18 @@ public class BulkTransferItem extends BaseEntity {
         this.processedAt = LocalDateTime.now();
     }
     
+    public void holdForApproval(String reason) {
+        this.status = Status.PENDING_APPROVAL;
+        this.failureReason = reason;
+    }
+    
+    public void approve(String approver) {
+        this.status = Status.PENDING;
+        this.failureReason = null;
+        this.approvedBy = approver;
+        this.approvedAt = LocalDateTime.now();
+    }
+    
     public void cancel() {
         this.status = Status.CANCELLED;
         this.processedAt = LocalDateTime.now();
@@ -122,4 +141,12 @@ public class BulkTransferItem extends BaseEntity {
     public boolean isProcessing() {
         return status == Status.PROCESSING;
     }
+    
+    public boolean isPendingApproval() {
+        return status == Status.PENDING_APPROVAL;
+    }
+    
+    public boolean isApproved() {
+        return approvedBy != null;
+    }
 }
@@ -0,0 +1,25 @@
+package com.xypay.xypay.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * A user who transacted on a given day; rolling active-customer counts are distinct counts over these.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "data_warehouse_active_users", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_data_warehouse_active_users_day_user", columnNames = {"activity_date", "user_id"})
+})
+public class DataWarehouseActiveUser extends BaseEntity {
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+}
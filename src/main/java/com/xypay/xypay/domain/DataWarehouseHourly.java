@@ -0,0 +1,70 @@
+package com.xypay.xypay.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Hourly transaction and sign-up rollup. Daily facts are summed from these rows.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "data_warehouse_hourly", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_data_warehouse_hourly_fact_hour", columnNames = {"fact_hour"})
+}, indexes = {
+    @Index(name = "idx_data_warehouse_hourly_fact_date", columnList = "fact_date")
+})
+public class DataWarehouseHourly extends BaseEntity {
+
+    @Column(name = "fact_hour", nullable = false)
+    private LocalDateTime factHour;
+
+    @Column(name = "fact_date", nullable = false)
+    private LocalDate factDate;
+
+    @Column(name = "hour_of_day")
+    private Integer hourOfDay;
+
+    @Column(name = "total_transactions")
+    private Long totalTransactions = 0L;
+
+    @Column(name = "total_amount", precision = 19, scale = 4)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "credit_transactions")
+    private Long creditTransactions = 0L;
+
+    @Column(name = "credit_amount", precision = 19, scale = 4)
+    private BigDecimal creditAmount = BigDecimal.ZERO;
+
+    @Column(name = "debit_transactions")
+    private Long debitTransactions = 0L;
+
+    @Column(name = "debit_amount", precision = 19, scale = 4)
+    private BigDecimal debitAmount = BigDecimal.ZERO;
+
+    @Column(name = "mobile_transactions")
+    private Long mobileTransactions = 0L;
+
+    @Column(name = "web_transactions")
+    private Long webTransactions = 0L;
+
+    @Column(name = "api_transactions")
+    private Long apiTransactions = 0L;
+
+    @Column(name = "successful_transactions")
+    private Long successfulTransactions = 0L;
+
+    @Column(name = "failed_transactions")
+    private Long failedTransactions = 0L;
+
+    @Column(name = "pending_transactions")
+    private Long pendingTransactions = 0L;
+
+    @Column(name = "new_customers")
+    private Long newCustomers = 0L;
+}
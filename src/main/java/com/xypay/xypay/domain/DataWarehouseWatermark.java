@@ -0,0 +1,24 @@
+package com.xypay.xypay.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import java.time.LocalDateTime;
+
+/**
+ * How far an incremental warehouse load has read its source, by created_at.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "data_warehouse_watermarks", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_data_warehouse_watermarks_name", columnNames = {"name"})
+})
+public class DataWarehouseWatermark extends BaseEntity {
+
+    @Column(name = "name", nullable = false, length = 50)
+    private String name;
+
+    @Column(name = "watermark", nullable = false)
+    private LocalDateTime watermark;
+}
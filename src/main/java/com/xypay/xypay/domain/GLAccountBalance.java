@@ -0,0 +1,34 @@
+package com.xypay.xypay.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import java.math.BigDecimal;
+
+
+/**
+ * Running debit and credit totals per GL account and currency, maintained by the posting engine.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "gl_account_balances", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_gl_account_balances_account_currency", columnNames = {"gl_account", "currency"})
+})
+public class GLAccountBalance extends BaseEntity {
+    
+    @Column(name = "gl_account", nullable = false, length = 100)
+    private String glAccount;
+    
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+    
+    @Column(name = "debit_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal debitTotal = BigDecimal.ZERO;
+    
+    @Column(name = "credit_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal creditTotal = BigDecimal.ZERO;
+    
+    @Column(name = "entry_count", nullable = false)
+    private long entryCount;
+}
@@ -0,0 +1,53 @@
+package com.xypay.xypay.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Progress of one partition of a daily interest accrual run. The last account id is advanced in the
+ * same transaction as each page of credits, so a restarted run continues after the last committed page.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "interest_accrual_checkpoints",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"run_date", "product", "partition_no"}))
+public class InterestAccrualCheckpoint extends BaseEntity {
+    
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+    
+    @Column(name = "product", length = 30, nullable = false)
+    private String product;
+    
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+    
+    @Column(name = "partition_count", nullable = false)
+    private Integer partitionCount;
+    
+    // Accounts last credited before this instant are due; shared by every attempt of the run
+    @Column(name = "run_started_at", nullable = false)
+    private LocalDateTime runStartedAt;
+    
+    @Column(name = "last_account_id")
+    private UUID lastAccountId;
+    
+    @Column(name = "accounts_credited", nullable = false)
+    private Long accountsCredited = 0L;
+    
+    @Column(name = "interest_credited", precision = 19, scale = 4, nullable = false)
+    private BigDecimal interestCredited = BigDecimal.ZERO;
+    
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+    
+    @Column(name = "completed", nullable = false)
+    private Boolean completed = false;
+}
@@ -10,7 +10,10 @@ import java.util.UUID;
 @Data
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "journal_entries")
+@Table(name = "journal_entries", indexes = {
+    @Index(name = "idx_journal_entries_tx", columnList = "tx_id"),
+    @Index(name = "idx_journal_entries_batch", columnList = "batch_id")
+})
 public class JournalEntry extends BaseEntity {
     
     @Column(name = "tx_id")
@@ -29,6 +32,13 @@ public class JournalEntry extends BaseEntity {
     @Column(name = "gl_account")
     private String glAccount;
     
+    // Balanced posting batch this leg belongs to
+    @Column(name = "batch_id")
+    private UUID batchId;
+    
+    @Column(name = "description", length = 500)
+    private String description;
+    
     
 
     public UUID getTxId() {
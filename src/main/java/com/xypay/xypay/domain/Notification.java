@@ -5,11 +5,17 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.xypay.xypay.listener.NotificationUnreadListener;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    @Index(name = "idx_notifications_recipient_created", columnList = "recipient_id, created_at, id"),
+    @Index(name = "idx_notifications_recipient_unread_created", columnList = "recipient_id, is_read, created_at, id")
+})
+@EntityListeners(NotificationUnreadListener.class)
 public class Notification extends BaseEntity {
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -96,6 +102,11 @@ public class Notification extends BaseEntity {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Read flag as last loaded or written; lets entity listeners detect read/unread transitions
+    @Transient
+    @JsonIgnore
+    private Boolean persistedRead;
+
     // Getters and setters
 
     public User getRecipient() {
@@ -282,6 +293,14 @@ public class Notification extends BaseEntity {
         this.updatedAt = updatedAt;
     }
 
+    public Boolean getPersistedRead() {
+        return persistedRead;
+    }
+
+    public void setPersistedRead(Boolean persistedRead) {
+        this.persistedRead = persistedRead;
+    }
+
     /**
      * Mark notification as read
      */
@@ -0,0 +1,42 @@
+package com.xypay.xypay.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event waiting to be published to the broker. Written in the same transaction as the change it
+ * describes and delivered afterwards by OutboxRelay, so events of rolled back transactions are never
+ * published and committed ones are never lost.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "outbox_events",
+    indexes = @Index(name = "idx_outbox_events_pending", columnList = "published_at, available_at"))
+public class OutboxEvent extends BaseEntity {
+    
+    @Column(name = "topic", length = 100, nullable = false)
+    private String topic;
+    
+    @Column(name = "event_key", length = 255)
+    private String eventKey;
+    
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    private String payload;
+    
+    // Earliest time the relay may (re)try the event; pushed back after failed attempts
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+    
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+    
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -4,22 +4,44 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.UUID;
 
 
+/**
+ * One break found by a reconciliation run. The status holds the break type.
+ */
 @Data
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "reconciliation_items")
+@Table(name = "reconciliation_items", indexes = {
+    @Index(name = "idx_reconciliation_items_run_status", columnList = "run_id, status")
+})
 public class ReconciliationItem extends BaseEntity {
     
+    @Column(name = "run_id")
+    private UUID runId;
+    
     @Column(name = "external_ref")
     private String externalRef;
     
     @Column(name = "tx_id")
     private UUID txId;
     
+    // Bank-side amount; ledger_amount holds our side when both are present
     private BigDecimal amount;
     
-    private String status;
-}
\ No newline at end of file
+    @Column(name = "ledger_amount", precision = 19, scale = 4)
+    private BigDecimal ledgerAmount;
+    
+    @Column(name = "value_date")
+    private LocalDate valueDate;
+    
+    @Column(name = "ledger_value_date")
+    private LocalDate ledgerValueDate;
+    
+    private String status; // MISSING_IN_LEDGER, MISSING_IN_BANK, AMOUNT_MISMATCH, DATE_MISMATCH, DUPLICATE, INVALID
+    
+    @Column(name = "details", length = 500)
+    private String details;
+}
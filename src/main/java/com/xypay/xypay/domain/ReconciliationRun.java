@@ -0,0 +1,54 @@
+package com.xypay.xypay.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+
+/**
+ * Summary of one settlement file reconciled against the ledger. Its breaks are reconciliation_items
+ * with the run's id.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = "reconciliation_runs", indexes = {
+    @Index(name = "idx_reconciliation_runs_business_date", columnList = "business_date")
+})
+public class ReconciliationRun extends BaseEntity {
+    
+    @Column(name = "source_name")
+    private String sourceName;
+    
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+    
+    @Column(name = "status", length = 20)
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    
+    @Column(name = "bank_rows")
+    private long bankRows;
+    
+    @Column(name = "ledger_rows")
+    private long ledgerRows;
+    
+    @Column(name = "matched")
+    private long matched;
+    
+    @Column(name = "breaks")
+    private long breaks;
+    
+    @Column(name = "partitions")
+    private int partitions;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+}
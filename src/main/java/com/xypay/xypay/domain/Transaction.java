@@ -1,8 +1,10 @@
 package com.xypay.xypay.domain;
 
+import com.xypay.xypay.listener.TransactionStatusListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
@@ -12,7 +14,10 @@ import java.time.LocalDateTime;
 @Data
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "transactions")
+@EntityListeners(TransactionStatusListener.class)
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_created_at", columnList = "created_at")
+})
 public class Transaction extends BaseEntity {
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -63,6 +68,12 @@ public class Transaction extends BaseEntity {
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
     
+    // Status as last loaded or written, to tell status changes apart from other updates
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String persistedStatus;
+    
     // Constructors
     public Transaction() {}
     
@@ -6,7 +6,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_created_at", columnList = "created_at")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
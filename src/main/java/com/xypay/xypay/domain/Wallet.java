@@ -1,6 +1,7 @@
 package com.xypay.xypay.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.xypay.xypay.listener.WalletBalanceListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -18,6 +19,7 @@ import java.math.BigDecimal;
     @Index(name = "idx_wallet_phone_alias", columnList = "phone_alias", unique = true)
 })
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@EntityListeners(WalletBalanceListener.class)
 public class Wallet extends BaseEntity {
     
     @OneToOne(fetch = FetchType.LAZY)
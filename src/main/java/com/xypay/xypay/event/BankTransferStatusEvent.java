@@ -0,0 +1,35 @@
+package com.xypay.xypay.event;
+
+import com.xypay.xypay.domain.BankTransfer;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published by the JPA listener when a BankTransfer is inserted or reaches the completed status,
+ * whichever service saved it. Unlike {@link BankTransferEvent} it is not published by services and
+ * does not drive notifications.
+ */
+public class BankTransferStatusEvent extends ApplicationEvent {
+    
+    private final BankTransfer bankTransfer;
+    private final boolean isNewlyCreated;
+    private final boolean isNewlyCompleted;
+    
+    public BankTransferStatusEvent(Object source, BankTransfer bankTransfer, boolean isNewlyCreated, boolean isNewlyCompleted) {
+        super(source);
+        this.bankTransfer = bankTransfer;
+        this.isNewlyCreated = isNewlyCreated;
+        this.isNewlyCompleted = isNewlyCompleted;
+    }
+    
+    public BankTransfer getBankTransfer() {
+        return bankTransfer;
+    }
+    
+    public boolean isNewlyCreated() {
+        return isNewlyCreated;
+    }
+    
+    public boolean isNewlyCompleted() {
+        return isNewlyCompleted;
+    }
+}
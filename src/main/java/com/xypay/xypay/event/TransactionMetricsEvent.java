@@ -0,0 +1,29 @@
+package com.xypay.xypay.event;
+
+import com.xypay.xypay.domain.Transaction;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event that only feeds the real-time dashboard counters, for transactions written outside
+ * TransactionCreationService and for status changes. Unlike {@link TransactionEvent} it starts no
+ * business processing such as notifications or spend and save.
+ */
+public class TransactionMetricsEvent extends ApplicationEvent {
+    
+    private final Transaction transaction;
+    private final boolean isNewlyCreated;
+    
+    public TransactionMetricsEvent(Object source, Transaction transaction, boolean isNewlyCreated) {
+        super(source);
+        this.transaction = transaction;
+        this.isNewlyCreated = isNewlyCreated;
+    }
+    
+    public Transaction getTransaction() {
+        return transaction;
+    }
+    
+    public boolean isNewlyCreated() {
+        return isNewlyCreated;
+    }
+}
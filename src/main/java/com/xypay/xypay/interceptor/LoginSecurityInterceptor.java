@@ -1,104 +1,105 @@
 package com.xypay.xypay.interceptor;
 
-import com.xypay.xypay.domain.AuditLog;
+import com.xypay.xypay.service.BruteForceDetector;
+import com.xypay.xypay.service.DeviceFingerprintService;
 import com.xypay.xypay.service.SecurityService;
-import com.xypay.xypay.repository.AuditLogRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
-
+/**
+ * Counts login attempts and failures by IP, username and device in the brute-force detector.
+ * Checks and counts are in memory, so login latency stays flat however many attempts are made,
+ * and the audit row for each attempt is written in the background.
+ */
 @Component
 public class LoginSecurityInterceptor implements HandlerInterceptor {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(LoginSecurityInterceptor.class);
-    
+
+    /**
+     * Request attribute a login handler sets when the username is in the request body rather than a parameter
+     */
+    public static final String LOGIN_USERNAME = LoginSecurityInterceptor.class.getName() + ".username";
+    private static final String LOGIN_IP = LoginSecurityInterceptor.class.getName() + ".ip";
+    private static final String LOGIN_DEVICE = LoginSecurityInterceptor.class.getName() + ".device";
+
     @Autowired
     private SecurityService securityService;
-    
+
+    @Autowired
+    private BruteForceDetector bruteForceDetector;
+
     @Autowired
-    private AuditLogRepository auditLogRepository;
-    
+    private DeviceFingerprintService deviceFingerprintService;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        // Monitor login attempts and detect brute force attacks
-        if ("/api/token".equals(request.getRequestURI()) && "POST".equals(request.getMethod())) {
-            String ipAddress = getClientIp(request);
-            monitorLoginAttempt(request, ipAddress);
+        if (!isLogin(request)) {
+            return true;
+        }
+        String ipAddress = getClientIp(request);
+        String username = request.getParameter("username");
+        String device = deviceFingerprintService.generateDeviceFingerprint(request);
+        BruteForceDetector.Assessment assessment = bruteForceDetector.assess(ipAddress, username, device);
+        if (assessment.isBlocked()) {
+            logger.debug("Blocked login from {} (ip failures {}, fan-out {})",
+                ipAddress, assessment.getIpFailures(), assessment.getIpFanout());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return false;
         }
-        
+        request.setAttribute(LOGIN_IP, ipAddress);
+        request.setAttribute(LOGIN_DEVICE, device);
         return true;
     }
-    
-    private void monitorLoginAttempt(HttpServletRequest request, String ipAddress) {
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!isLogin(request)) {
+            return;
+        }
         try {
-            // Get login credentials from request
-            String username = null;
-            
-            // Try to get username from form parameters first
-            username = request.getParameter("username");
-            
-            // If not found, try to get from JSON body
-            if (username == null || username.isEmpty()) {
-                // In a real implementation, we would parse the JSON body
-                // For now, we'll just log that we detected a login attempt
-                logger.debug("Login attempt detected from IP: {}", ipAddress);
+            String ipAddress = (String) request.getAttribute(LOGIN_IP);
+            String device = (String) request.getAttribute(LOGIN_DEVICE);
+            if (ipAddress == null) {
+                // Blocked in preHandle; blocked requests are not counted again
+                return;
+            }
+            Object bodyUsername = request.getAttribute(LOGIN_USERNAME);
+            String username = bodyUsername != null ? bodyUsername.toString() : request.getParameter("username");
+            boolean failed = ex != null || response.getStatus() >= 400;
+
+            bruteForceDetector.recordAttempt(ipAddress, username);
+            if (failed) {
+                bruteForceDetector.recordFailure(ipAddress, username, device);
             }
-            
+
             if (username != null && !username.isEmpty()) {
-                // Log the login attempt
-                // Note: In a real implementation, we would check if the user exists
-                // and perform additional security checks
-                
-                // Log successful or failed login attempt
-                String action = "login_attempt";
-                String description = "Login attempt for username '" + username + "' from " + ipAddress;
-                String severity = "low";
-                String userAgent = getUserAgent(request);
-                
                 // Create a temporary user object for logging
                 com.xypay.xypay.domain.User user = new com.xypay.xypay.domain.User();
                 user.setUsername(username);
-                
-                securityService.logAuditEvent(user, action, description, severity, ipAddress, userAgent);
-                
-                // Check for brute force attempts
-                checkForBruteForceAttempts(ipAddress);
+                String action = failed ? "login_failed" : "login_success";
+                String description = (failed ? "Failed login" : "Login") + " for username '" + username + "' from " + ipAddress;
+                securityService.logAuditEvent(user, action, description, failed ? "medium" : "low", ipAddress, getUserAgent(request));
             }
         } catch (Exception e) {
             logger.error("Error monitoring login attempt: {}", e.getMessage());
         }
     }
-    
-    private void checkForBruteForceAttempts(String ipAddress) {
-        try {
-            // Check for multiple failed login attempts in the last 15 minutes
-            LocalDateTime fifteenMinutesAgo = LocalDateTime.now().minusMinutes(15);
-            List<AuditLog> recentFailures = auditLogRepository.findByActionAndIpAddressAndTimestampAfter(
-                "login_failed", ipAddress, fifteenMinutesAgo);
-            
-            if (recentFailures.size() >= 10) {
-                // Create security alert for brute force attack
-                logger.warn("Brute force attack detected from IP: {}", ipAddress);
-                
-                // In a real implementation, we would create a security alert
-                // For now, we'll just log the detection
-                String description = "Multiple failed login attempts (" + recentFailures.size() + 
-                                   ") from IP " + ipAddress;
-                logger.info("Security alert: {}", description);
-            }
-        } catch (Exception e) {
-            logger.error("Error checking for brute force attempts: {}", e.getMessage());
+
+    private boolean isLogin(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return false;
         }
+        String uri = request.getRequestURI();
+        return "/api/token".equals(uri) || "/api/auth/login".equals(uri);
     }
-    
+
     /**
      * Get client IP address from request
      * @param request HttpServletRequest
@@ -119,7 +120,7 @@ public class LoginSecurityInterceptor implements HandlerInterceptor {
             }
         }
     }
-    
+
     /**
      * Get user agent from request
      * @param request HttpServletRequest
@@ -128,4 +129,4 @@ public class LoginSecurityInterceptor implements HandlerInterceptor {
     private String getUserAgent(HttpServletRequest request) {
         return request.getHeader("User-Agent");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.xypay.xypay.listener;
+
+import com.xypay.xypay.domain.BankTransfer;
+import com.xypay.xypay.event.BankTransferStatusEvent;
+import com.xypay.xypay.service.FraudFeatureStore;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the fraud feature store in step with bank transfer writes, whichever service saves the transfer.
+ * The JPA callbacks only publish a BankTransferStatusEvent; the features are updated after commit, so a
+ * rolled-back transfer never counts.
+ */
+@Component
+public class BankTransferFeatureListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BankTransferFeatureListener.class);
+    
+    @Autowired
+    @Lazy
+    private FraudFeatureStore fraudFeatureStore;
+    
+    @Autowired
+    @Lazy
+    private ApplicationEventPublisher eventPublisher;
+    
+    @PostLoad
+    public void onLoad(BankTransfer transfer) {
+        transfer.setPersistedStatus(transfer.getStatus());
+    }
+    
+    @PostPersist
+    public void onPersist(BankTransfer transfer) {
+        eventPublisher.publishEvent(new BankTransferStatusEvent(this, transfer, true, isCompleted(transfer.getStatus())));
+        transfer.setPersistedStatus(transfer.getStatus());
+    }
+    
+    @PostUpdate
+    public void onUpdate(BankTransfer transfer) {
+        if (isCompleted(transfer.getStatus()) && !isCompleted(transfer.getPersistedStatus())) {
+            eventPublisher.publishEvent(new BankTransferStatusEvent(this, transfer, false, true));
+        }
+        transfer.setPersistedStatus(transfer.getStatus());
+    }
+    
+    /**
+     * Applied after commit; writes made outside a transaction are applied straight away.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusEvent(BankTransferStatusEvent event) {
+        BankTransfer transfer = event.getBankTransfer();
+        try {
+            if (event.isNewlyCreated()) {
+                fraudFeatureStore.recordCreated(transfer);
+            }
+            if (event.isNewlyCompleted()) {
+                fraudFeatureStore.recordCompleted(transfer);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to update fraud features for transfer {}: {}", transfer.getId(), e.getMessage());
+        }
+    }
+    
+    private boolean isCompleted(String status) {
+        return "completed".equals(status);
+    }
+}
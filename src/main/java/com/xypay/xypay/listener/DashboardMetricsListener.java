@@ -0,0 +1,35 @@
+package com.xypay.xypay.listener;
+
+import com.xypay.xypay.event.TransactionEvent;
+import com.xypay.xypay.event.TransactionMetricsEvent;
+import com.xypay.xypay.service.RealTimeTransactionMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Feeds committed transactions into the real-time dashboard counters.
+ */
+@Component
+public class DashboardMetricsListener {
+
+    @Autowired
+    private RealTimeTransactionMetrics realTimeTransactionMetrics;
+
+    /**
+     * Counted after commit so rolled-back transactions never show up; events published outside a
+     * transaction are counted straight away.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransaction(TransactionEvent event) {
+        realTimeTransactionMetrics.record(event.getTransaction(), event.isNewlyCreated());
+    }
+
+    /**
+     * Transactions written outside TransactionCreationService, and status changes, counted the same way
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionMetrics(TransactionMetricsEvent event) {
+        realTimeTransactionMetrics.record(event.getTransaction(), event.isNewlyCreated());
+    }
+}
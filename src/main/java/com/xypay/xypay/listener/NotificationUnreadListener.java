@@ -0,0 +1,67 @@
+package com.xypay.xypay.listener;
+
+import com.xypay.xypay.domain.Notification;
+import com.xypay.xypay.service.NotificationUnreadCounter;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * JPA entity listener that keeps per-user unread counts in step with notification writes,
+ * whichever service saves the notification.
+ */
+@Component
+public class NotificationUnreadListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(NotificationUnreadListener.class);
+    
+    @Autowired
+    @Lazy
+    private NotificationUnreadCounter unreadCounter;
+    
+    @PostLoad
+    public void onLoad(Notification notification) {
+        notification.setPersistedRead(notification.isRead());
+    }
+    
+    @PostPersist
+    public void onPersist(Notification notification) {
+        if (!notification.isRead()) {
+            adjust(notification, 1);
+        }
+        notification.setPersistedRead(notification.isRead());
+    }
+    
+    @PostUpdate
+    public void onUpdate(Notification notification) {
+        Boolean wasRead = notification.getPersistedRead();
+        if (wasRead != null && wasRead != notification.isRead()) {
+            adjust(notification, notification.isRead() ? -1 : 1);
+        }
+        notification.setPersistedRead(notification.isRead());
+    }
+    
+    @PostRemove
+    public void onRemove(Notification notification) {
+        if (!notification.isRead()) {
+            adjust(notification, -1);
+        }
+    }
+    
+    private void adjust(Notification notification, long delta) {
+        try {
+            UUID recipientId = notification.getRecipient() != null ? notification.getRecipient().getId() : null;
+            unreadCounter.adjust(recipientId, delta);
+        } catch (Exception e) {
+            logger.warn("Failed to update unread count for notification {}: {}", notification.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.xypay.xypay.listener;
+
+import com.xypay.xypay.domain.Transaction;
+import com.xypay.xypay.event.TransactionMetricsEvent;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * JPA entity listener that publishes a TransactionMetricsEvent (not newly created) whenever a transaction's
+ * status changes, whichever service saves it, so the dashboard counts failures and reversals. Only the
+ * after-commit metrics listener receives it; no business listener runs inside the flush.
+ */
+@Component
+public class TransactionStatusListener {
+    
+    @Autowired
+    @Lazy
+    private ApplicationEventPublisher eventPublisher;
+    
+    @PostLoad
+    @PostPersist
+    public void onLoad(Transaction transaction) {
+        transaction.setPersistedStatus(transaction.getStatus());
+    }
+    
+    @PostUpdate
+    public void onUpdate(Transaction transaction) {
+        if (!Objects.equals(transaction.getPersistedStatus(), transaction.getStatus())) {
+            transaction.setPersistedStatus(transaction.getStatus());
+            eventPublisher.publishEvent(new TransactionMetricsEvent(this, transaction, false));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.xypay.xypay.listener;
+
+import com.xypay.xypay.domain.Wallet;
+import com.xypay.xypay.service.WalletLedgerEngine;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * JPA entity listener that drops the ledger engine's cached balance whenever a wallet row is written
+ * through JPA, whichever service saves it. The slot is dropped again once the write's transaction
+ * ends, so a re-read between the flush and the commit cannot leave the old balance cached.
+ */
+@Component
+public class WalletBalanceListener {
+    
+    @Autowired
+    @Lazy
+    private WalletLedgerEngine walletLedgerEngine;
+    
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Wallet wallet) {
+        UUID walletId = wallet.getId();
+        if (walletId == null) {
+            return;
+        }
+        walletLedgerEngine.invalidate(walletId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    walletLedgerEngine.invalidate(walletId);
+                }
+            });
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.xypay.xypay.domain.BulkTransferItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,4 +17,8 @@ public interface BulkTransferItemRepository extends JpaRepository<BulkTransferIt
     List<BulkTransferItem> findByBulkTransferAndStatus(BulkTransfer bulkTransfer, BulkTransferItem.Status status);
     
     List<BulkTransferItem> findByRecipientAccountNumber(String accountNumber);
+    
+    long countByBulkTransferIdAndStatus(UUID bulkTransferId, BulkTransferItem.Status status);
+    
+    List<BulkTransferItem> findByBulkTransferIdAndStatusInOrderByRowNumberAsc(UUID bulkTransferId, Collection<BulkTransferItem.Status> statuses);
 }
@@ -3,9 +3,15 @@ package com.xypay.xypay.repository;
 import com.xypay.xypay.domain.BulkTransfer;
 import com.xypay.xypay.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -18,4 +24,18 @@ public interface BulkTransferRepository extends JpaRepository<BulkTransfer, UUID
     BulkTransfer findByBatchId(String batchId);
     
     boolean existsByBatchId(String batchId);
+    
+    @Query("SELECT b FROM BulkTransfer b JOIN FETCH b.user WHERE b.id = :id")
+    Optional<BulkTransfer> findByIdWithUser(@Param("id") UUID id);
+    
+    List<BulkTransfer> findByStatusAndUpdatedAtBefore(BulkTransfer.Status status, LocalDateTime updatedBefore);
+    
+    /**
+     * Claim a processing run whose progress heartbeat has gone stale, so only one node resumes it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BulkTransfer b SET b.updatedAt = :now WHERE b.id = :id AND b.status = :status AND b.updatedAt < :staleBefore")
+    int claimStaleRun(@Param("id") UUID id, @Param("status") BulkTransfer.Status status,
+                      @Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,12 @@
+package com.xypay.xypay.repository;
+
+import com.xypay.xypay.domain.DataWarehouseHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface DataWarehouseHourlyRepository extends JpaRepository<DataWarehouseHourly, UUID> {
+    
+    List<DataWarehouseHourly> findByFactDateOrderByFactHour(LocalDate factDate);
+}
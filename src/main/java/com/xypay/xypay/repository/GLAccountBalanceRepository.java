@@ -0,0 +1,13 @@
+package com.xypay.xypay.repository;
+
+import com.xypay.xypay.domain.GLAccountBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.UUID;
+
+
+@Repository
+public interface GLAccountBalanceRepository extends JpaRepository<GLAccountBalance, UUID> {
+    List<GLAccountBalance> findAllByOrderByGlAccountAscCurrencyAsc();
+}
@@ -0,0 +1,14 @@
+package com.xypay.xypay.repository;
+
+import com.xypay.xypay.domain.InterestAccrualCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface InterestAccrualCheckpointRepository extends JpaRepository<InterestAccrualCheckpoint, UUID> {
+    List<InterestAccrualCheckpoint> findByRunDateAndProductOrderByPartitionNo(LocalDate runDate, String product);
+}
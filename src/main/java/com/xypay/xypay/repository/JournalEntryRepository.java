@@ -1,11 +1,17 @@
 package com.xypay.xypay.repository;
 
 import com.xypay.xypay.domain.JournalEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.UUID;
 
 
 @Repository
 public interface JournalEntryRepository extends JpaRepository<JournalEntry, UUID> {
+    List<JournalEntry> findByTxId(UUID txId);
+    
+    // Manual GL postings carry no source transaction
+    List<JournalEntry> findByTxIdIsNullAndBatchIdIsNotNullOrderByCreatedAtDesc(Pageable pageable);
 }
\ No newline at end of file
@@ -1,11 +1,19 @@
 package com.xypay.xypay.repository;
 
 import com.xypay.xypay.domain.Notification;
+import com.xypay.xypay.domain.NotificationLevel;
+import com.xypay.xypay.domain.NotificationStatus;
+import com.xypay.xypay.domain.NotificationType;
 import com.xypay.xypay.domain.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.UUID;
 
 import java.util.List;
@@ -20,4 +28,81 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
                                                             @Param("source") String source,
                                                             @Param("key") String key,
                                                             @Param("value") String value);
-}
\ No newline at end of file
+
+    // Paged and filtered in the database
+    Page<Notification> findByRecipient(User user, Pageable pageable);
+    Page<Notification> findByRecipientAndNotificationType(User user, NotificationType type, Pageable pageable);
+    Page<Notification> findByRecipientAndLevel(User user, NotificationLevel level, Pageable pageable);
+    Page<Notification> findByRecipientAndStatus(User user, NotificationStatus status, Pageable pageable);
+    List<Notification> findByRecipientAndLevelInOrderByCreatedAtDesc(User user, Collection<NotificationLevel> levels);
+    List<Notification> findByRecipientAndCreatedAtBetweenOrderByCreatedAtDesc(User user, LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT n FROM Notification n WHERE n.recipient = :user AND n.actionUrl IS NOT NULL AND n.actionUrl <> '' ORDER BY n.createdAt DESC")
+    List<Notification> findActionableByRecipient(@Param("user") User user);
+
+    // Keyset pages over (created_at, id), newest first
+    @Query("SELECT n FROM Notification n WHERE n.recipient = :user ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findLatestByRecipient(@Param("user") User user, Pageable limit);
+
+    @Query("SELECT n FROM Notification n WHERE n.recipient = :user " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findByRecipientBefore(@Param("user") User user,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") UUID id,
+                                             Pageable limit);
+
+    @Query("SELECT n FROM Notification n WHERE n.recipient = :user AND n.isRead = false " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findLatestUnreadByRecipient(@Param("user") User user, Pageable limit);
+
+    @Query("SELECT n FROM Notification n WHERE n.recipient = :user AND n.isRead = false " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findUnreadByRecipientBefore(@Param("user") User user,
+                                                   @Param("createdAt") LocalDateTime createdAt,
+                                                   @Param("id") UUID id,
+                                                   Pageable limit);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.recipient.id = :userId AND n.isRead = false")
+    long countUnreadByRecipientId(@Param("userId") UUID userId);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.recipient = :user AND n.level IN :levels")
+    long countByRecipientAndLevelIn(@Param("user") User user, @Param("levels") Collection<NotificationLevel> levels);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.recipient = :user AND n.actionUrl IS NOT NULL AND n.actionUrl <> ''")
+    long countActionableByRecipient(@Param("user") User user);
+
+    @Query("SELECT n.notificationType, COUNT(n) FROM Notification n WHERE n.recipient = :user GROUP BY n.notificationType")
+    List<Object[]> countByTypeForRecipient(@Param("user") User user);
+
+    @Query("SELECT n.level, COUNT(n) FROM Notification n WHERE n.recipient = :user GROUP BY n.level")
+    List<Object[]> countByLevelForRecipient(@Param("user") User user);
+
+    @Query("SELECT n.status, COUNT(n) FROM Notification n WHERE n.recipient = :user GROUP BY n.status")
+    List<Object[]> countByStatusForRecipient(@Param("user") User user);
+
+    // Bulk state changes; these bypass entity listeners, so callers keep the unread counter in step
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :now, n.status = :status, n.updatedAt = :now " +
+           "WHERE n.recipient = :user AND n.isRead = false")
+    int markAllReadForRecipient(@Param("user") User user,
+                                @Param("status") NotificationStatus status,
+                                @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :now, n.status = :status, n.updatedAt = :now " +
+           "WHERE n.recipient = :user AND n.id IN :ids AND n.isRead = false")
+    int markReadForRecipient(@Param("user") User user,
+                             @Param("ids") Collection<UUID> ids,
+                             @Param("status") NotificationStatus status,
+                             @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = false, n.readAt = null, n.status = :status, n.updatedAt = :now " +
+           "WHERE n.recipient = :user AND n.id IN :ids AND n.isRead = true")
+    int markUnreadForRecipient(@Param("user") User user,
+                               @Param("ids") Collection<UUID> ids,
+                               @Param("status") NotificationStatus status,
+                               @Param("now") LocalDateTime now);
+}
@@ -1,11 +1,23 @@
 package com.xypay.xypay.repository;
 
 import com.xypay.xypay.domain.ReconciliationItem;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.UUID;
 
 
 @Repository
 public interface ReconciliationItemRepository extends JpaRepository<ReconciliationItem, UUID> {
-}
\ No newline at end of file
+    
+    Page<ReconciliationItem> findByRunId(UUID runId, Pageable pageable);
+    
+    Page<ReconciliationItem> findByRunIdAndStatus(UUID runId, String status, Pageable pageable);
+    
+    @Query("SELECT i.status, COUNT(i) FROM ReconciliationItem i WHERE i.runId = :runId GROUP BY i.status")
+    List<Object[]> countByStatusForRun(@Param("runId") UUID runId);
+}
@@ -0,0 +1,14 @@
+package com.xypay.xypay.repository;
+
+import com.xypay.xypay.domain.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+import java.util.UUID;
+
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, UUID> {
+    
+    Optional<ReconciliationRun> findFirstByStatusOrderByCompletedAtDesc(String status);
+}
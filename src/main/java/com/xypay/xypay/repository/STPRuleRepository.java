@@ -16,6 +16,9 @@ public interface STPRuleRepository extends JpaRepository<STPRule, UUID> {
     @Query("SELECT r FROM STPRule r WHERE r.entityType = :entityType AND r.isActive = true ORDER BY r.priority DESC, r.id ASC")
     List<STPRule> findApplicableRules(@Param("entityType") String entityType);
     
+    @Query("SELECT r FROM STPRule r WHERE r.isActive = true ORDER BY r.entityType ASC, r.priority DESC, r.id ASC")
+    List<STPRule> findAllActiveRules();
+    
     @Query("SELECT r FROM STPRule r WHERE r.autoApprove = true AND r.entityType = :entityType AND r.isActive = true ORDER BY r.priority DESC")
     List<STPRule> findAutoApprovalRules(@Param("entityType") String entityType);
 }
@@ -57,6 +57,13 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
     @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.createdAt BETWEEN :start AND :end")
     BigDecimal getTotalVolumeBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
+    @Query("SELECT t.status, COUNT(t) FROM Transaction t GROUP BY t.status")
+    List<Object[]> countGroupByStatus();
+    
+    @Query(value = "SELECT date_trunc('hour', created_at) AS hour, COUNT(*) FROM transactions " +
+           "WHERE created_at >= :start GROUP BY date_trunc('hour', created_at)", nativeQuery = true)
+    List<Object[]> countByHourSince(@Param("start") LocalDateTime start);
+    
     @Query("SELECT COUNT(t) FROM Transaction t WHERE t.status = 'FAILED'")
     long countFailedTransactions();
     
@@ -15,6 +15,9 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     
+    @Query("SELECT u FROM User u WHERE u.username = :login OR u.email = :login")
+    List<User> findByUsernameOrEmail(String login);
+    
     // Registration monitoring methods
     @Query("SELECT COUNT(u) FROM User u JOIN u.profile p WHERE p.emailVerified = true AND p.isVerified = true")
     long countVerifiedUsers();
@@ -21,4 +21,10 @@ public interface WalletRepository extends JpaRepository<Wallet, UUID> {
     
     @Query("SELECT w FROM Wallet w JOIN FETCH w.user WHERE w.id = :id")
     Optional<Wallet> findByIdWithUser(UUID id);
+    
+    @Query("SELECT w.user.id FROM Wallet w WHERE w.id = :id")
+    Optional<UUID> findUserIdById(UUID id);
+    
+    @Query("SELECT COUNT(w), COALESCE(SUM(w.balance), 0), SUM(CASE WHEN w.balance > 0 THEN 1 ELSE 0 END) FROM Wallet w")
+    List<Object[]> summarizeBalances();
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.xypay.xypay.scheduler;
+
+import com.xypay.xypay.service.BulkTransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Resumes bulk transfers left in PROCESSING by a node that stopped mid-run.
+ * A run is considered stale once its per-chunk progress heartbeat has not moved for the threshold.
+ */
+@Component
+@Slf4j
+public class BulkTransferResumeScheduler {
+    
+    @Autowired
+    private BulkTransferService bulkTransferService;
+    
+    @Value("${bulk-transfer.resume.stale-after-minutes:15}")
+    private long staleAfterMinutes;
+    
+    /**
+     * Runs every 5 minutes
+     */
+    @Scheduled(fixedDelay = 300000, initialDelay = 60000)
+    public void resumeStaleBulkTransfers() {
+        try {
+            List<UUID> claimed = bulkTransferService.claimStaleRuns(Duration.ofMinutes(staleAfterMinutes));
+            for (UUID bulkTransferId : claimed) {
+                log.info("Resuming interrupted bulk transfer {}", bulkTransferId);
+                bulkTransferService.processBulkTransfer(bulkTransferId);
+            }
+        } catch (Exception e) {
+            log.error("Error resuming bulk transfers: {}", e.getMessage());
+        }
+    }
+}
@@ -3,11 +3,13 @@ package com.xypay.xypay.scheduler;
 import com.xypay.xypay.service.SpendAndSaveInterestService;
 import com.xypay.xypay.service.XySaveInterestService;
 import com.xypay.xypay.service.FixedSavingsService;
+import com.xypay.xypay.service.InterestAccrualEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
 
 /**
  * Scheduler for processing daily interest calculations and payouts
@@ -23,6 +25,9 @@ public class DailyInterestScheduler {
     @Autowired
     private XySaveInterestService xySaveInterestService;
     
+    @Autowired
+    private InterestAccrualEngine interestAccrualEngine;
+    
     // @Autowired
     // private FixedSavingsService fixedSavingsService; // Not used - handled by FixedSavingsMaturityProcessor
     
@@ -32,7 +37,6 @@ public class DailyInterestScheduler {
      * Equivalent to Django's @shared_task(bind=True, ignore_result=True) process_daily_interest
      */
     @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
     public void processDailyInterest() {
         log.info("Starting daily interest processing...");
         
@@ -66,11 +70,26 @@ public class DailyInterestScheduler {
         }
     }
     
+    /**
+     * Resume today's accrual runs if a node stopped part way through them.
+     * Partitions still leased by a live run are skipped, so this never competes with it.
+     */
+    @Scheduled(fixedDelay = 900000, initialDelay = 300000)
+    public void resumeDailyInterest() {
+        LocalDate today = LocalDate.now();
+        for (InterestAccrualEngine.Product product : InterestAccrualEngine.Product.values()) {
+            try {
+                interestAccrualEngine.resumeIncomplete(product, today);
+            } catch (Exception e) {
+                log.error("Error resuming {} interest accrual: {}", product, e.getMessage());
+            }
+        }
+    }
+    
     /**
      * Alternative method for APScheduler compatibility
      * Equivalent to Django's run_daily_interest_job function
      */
-    @Transactional
     public void runDailyInterestJob() {
         log.info("Running daily interest job (APScheduler compatible)...");
         processDailyInterest();
@@ -0,0 +1,51 @@
+package com.xypay.xypay.scheduler;
+
+import com.xypay.xypay.service.DataWarehouseService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps the data warehouse current: an incremental load every few minutes, and a full reload of
+ * yesterday after midnight to pick up rows committed late and status changes made after the hour was loaded.
+ */
+@Component
+@Slf4j
+public class DataWarehouseETLScheduler {
+    
+    @Autowired
+    private DataWarehouseService dataWarehouseService;
+    
+    /**
+     * Runs every 5 minutes by default
+     */
+    @Scheduled(fixedDelayString = "${warehouse.etl.incremental-ms:300000}", initialDelay = 60000)
+    public void runIncrementalLoad() {
+        try {
+            LocalDateTime watermark = dataWarehouseService.runIncrementalETL();
+            if (watermark == null) {
+                log.debug("Incremental warehouse load held by another node");
+            }
+        } catch (Exception e) {
+            log.error("Error running incremental warehouse load: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Runs at 00:30 every day by default
+     */
+    @Scheduled(cron = "${warehouse.etl.close-cron:0 30 0 * * ?}")
+    public void closePreviousDay() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        try {
+            dataWarehouseService.performDailyETL(yesterday);
+            log.info("Closed warehouse day {}", yesterday);
+        } catch (Exception e) {
+            log.error("Error closing warehouse day {}: {}", yesterday, e.getMessage());
+        }
+    }
+}
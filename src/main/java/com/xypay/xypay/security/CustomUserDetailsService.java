@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -22,12 +23,12 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        
-        if (userOpt.isEmpty()) {
-            // Try to find by email as well
-            userOpt = userRepository.findByEmail(username);
-        }
+        // One query for username or email; a username match wins over another user's email
+        List<User> candidates = userRepository.findByUsernameOrEmail(username);
+        Optional<User> userOpt = candidates.stream()
+                .filter(candidate -> username.equals(candidate.getUsername()))
+                .findFirst()
+                .or(() -> candidates.stream().findFirst());
         
         if (userOpt.isEmpty()) {
             throw new UsernameNotFoundException("User not found with username: " + username);
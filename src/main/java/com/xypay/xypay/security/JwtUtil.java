@@ -2,14 +2,18 @@ package com.xypay.xypay.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -24,8 +28,35 @@ public class JwtUtil {
     @Value("${jwt.refresh.expiration:604800000}") // 7 days in milliseconds
     private Long refreshExpiration;
 
+    public static final String ROLES_CLAIM = "roles";
+    // Issue time in milliseconds; the standard iat claim only has seconds
+    public static final String ISSUED_AT_MS_CLAIM = "iat_ms";
+
+    // Built once; the key and parser are immutable and thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
+    }
+
+    public long getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * Verify the signature and expiry and return the claims, for callers that need several of them
+     *
+     * @throws JwtException if the token is invalid or expired
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
     }
 
     public String extractUsername(String token) {
@@ -42,19 +73,20 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     private Boolean isTokenExpired(String token) {
         return extractExpiration(token).before(new Date());
     }
 
+    /**
+     * Access token carrying the user's authorities, so requests can be authenticated without loading the user
+     */
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        List<String> roles = userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+        claims.put(ROLES_CLAIM, roles);
         return createToken(claims, userDetails.getUsername(), expiration);
     }
 
@@ -76,11 +108,14 @@ public class JwtUtil {
     }
 
     private String createToken(Map<String, Object> claims, String subject, Long expiration) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .claims(claims)
+                .claim(ISSUED_AT_MS_CLAIM, now)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
                 .signWith(getSigningKey())
                 .compact();
     }
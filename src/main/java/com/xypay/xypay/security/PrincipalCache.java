@@ -0,0 +1,272 @@
+package com.xypay.xypay.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Principals resolved from access tokens, cached per token.
+ *
+ * A token is verified once per node; after that its principal is a hash lookup. Roles come from the
+ * token's roles claim, so no query is made for tokens that carry one. Two per-user markers in Redis,
+ * each a time in epoch milliseconds, override the token: tokens issued before a user's revoked-before time
+ * (logout) are rejected, and tokens issued before their stale-before time (role change, disable, delete)
+ * are resolved from the database instead of their claims. Markers are read once per new token, and
+ * setting one also evicts the user's cached principals on every node through a Redis channel; entries
+ * expire after a short TTL in case a message is missed. If the markers cannot be read the principal is
+ * loaded from the database instead of trusting the token's claims, and is not cached.
+ */
+@Component
+public class PrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrincipalCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "xypay:auth:invalidate";
+    private static final String REVOKED_BEFORE_PREFIX = "auth:revoked-before:";
+    private static final String STALE_BEFORE_PREFIX = "auth:stale-before:";
+    // Any epoch time below this is in seconds
+    private static final long MILLIS_THRESHOLD = 100_000_000_000L;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${auth.principal-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${auth.principal-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<String, CachedPrincipal> principals;
+    // Cached tokens per username, so evicting a user does not scan the whole cache
+    private final ConcurrentHashMap<String, Set<String>> tokensByUsername = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        principals = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .executor(Runnable::run)
+            .removalListener((String token, CachedPrincipal principal, RemovalCause cause) -> {
+                if (token != null && principal != null) {
+                    unindex(principal.user.getUsername(), token);
+                }
+            })
+            .build();
+        redisMessageListenerContainer.addMessageListener(
+            (message, pattern) -> evictLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * Principal for a bearer token, or null if the token is invalid, expired, revoked or its user is disabled
+     */
+    public UserDetails resolve(String token) {
+        long now = System.currentTimeMillis();
+        CachedPrincipal cached = principals.getIfPresent(token);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.user;
+            }
+            principals.invalidate(token);
+            return null;
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (Exception e) {
+            logger.debug("Rejected bearer token: {}", e.getMessage());
+            return null;
+        }
+        String username = claims.getSubject();
+        if (username == null || claims.getExpiration() == null) {
+            return null;
+        }
+        long issuedAt = issuedAtMillis(claims);
+
+        List<String> markers = readMarkers(username);
+        if (markers == null) {
+            // Revocation cannot be checked, so the claims are not trusted and nothing is cached
+            return loadEnabledUser(username);
+        }
+        if (issuedAt < marker(markers, 0)) {
+            return null;
+        }
+
+        UserDetails user;
+        Object roles = claims.get(JwtUtil.ROLES_CLAIM);
+        if (roles instanceof Collection<?> roleNames && issuedAt >= marker(markers, 1)) {
+            List<GrantedAuthority> authorities = new ArrayList<>(roleNames.size());
+            for (Object role : roleNames) {
+                authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+            }
+            user = new User(username, "", authorities);
+        } else {
+            // Tokens without roles, or issued before the user last changed
+            user = loadEnabledUser(username);
+            if (user == null) {
+                return null;
+            }
+        }
+        tokensByUsername.compute(username, (name, tokens) -> {
+            Set<String> indexed = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+            indexed.add(token);
+            return indexed;
+        });
+        principals.put(token, new CachedPrincipal(user, claims.getExpiration().getTime()));
+        return user;
+    }
+
+    private UserDetails loadEnabledUser(String username) {
+        try {
+            UserDetails user = userDetailsService.loadUserByUsername(username);
+            return user.isEnabled() ? user : null;
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether a token was revoked by a later logout; also true if that cannot be checked
+     */
+    public boolean isRevoked(String username, Claims claims) {
+        List<String> markers = readMarkers(username);
+        return markers == null || issuedAtMillis(claims) < marker(markers, 0);
+    }
+
+    /**
+     * Reject every token issued to the user so far, on all nodes
+     */
+    public void revokeUser(String username) {
+        mark(REVOKED_BEFORE_PREFIX, username);
+    }
+
+    /**
+     * The user's roles or status changed: tokens issued so far are re-resolved from the database on next
+     * use. Inside a transaction this waits for the commit, so the new state is what gets loaded.
+     */
+    public void invalidateUser(String username) {
+        if (username == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    mark(STALE_BEFORE_PREFIX, username);
+                }
+            });
+        } else {
+            mark(STALE_BEFORE_PREFIX, username);
+        }
+    }
+
+    private void mark(String prefix, String username) {
+        evictLocal(username);
+        try {
+            // Kept as long as any access token issued before now can still be valid
+            stringRedisTemplate.opsForValue().set(prefix + username,
+                String.valueOf(System.currentTimeMillis()),
+                Duration.ofMillis(jwtUtil.getExpiration()));
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, username);
+        } catch (Exception e) {
+            // Other nodes drop the principal when its cache entry expires
+            logger.warn("Failed to broadcast principal invalidation for {}: {}", username, e.getMessage());
+        }
+    }
+
+    private void evictLocal(String username) {
+        Set<String> tokens = tokensByUsername.remove(username);
+        if (tokens != null) {
+            principals.invalidateAll(tokens);
+        }
+    }
+
+    private void unindex(String username, String token) {
+        tokensByUsername.computeIfPresent(username, (name, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    /**
+     * The user's revoked-before and stale-before markers, or null if Redis could not be read
+     */
+    private List<String> readMarkers(String username) {
+        try {
+            List<String> values = stringRedisTemplate.opsForValue()
+                .multiGet(Arrays.asList(REVOKED_BEFORE_PREFIX + username, STALE_BEFORE_PREFIX + username));
+            return values;
+        } catch (Exception e) {
+            logger.warn("Failed to read principal markers for {}: {}", username, e.getMessage());
+            return null;
+        }
+    }
+
+    private static long issuedAtMillis(Claims claims) {
+        if (claims.get(JwtUtil.ISSUED_AT_MS_CLAIM) instanceof Number millis) {
+            return millis.longValue();
+        }
+        // Tokens issued before the millisecond claim; the second is rounded down
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0;
+    }
+
+    private static long marker(List<String> markers, int index) {
+        if (markers.size() <= index || markers.get(index) == null) {
+            return 0;
+        }
+        try {
+            long value = Long.parseLong(markers.get(index));
+            // Markers set before they were kept in milliseconds are in seconds, rounded up
+            return value < MILLIS_THRESHOLD ? value * 1000 : value;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static final class CachedPrincipal {
+        private final UserDetails user;
+        private final long expiresAt;
+
+        private CachedPrincipal(UserDetails user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
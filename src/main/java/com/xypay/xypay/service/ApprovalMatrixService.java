@@ -3,22 +3,58 @@ package com.xypay.xypay.service;
 import com.xypay.xypay.domain.ApprovalMatrix;
 import com.xypay.xypay.repository.ApprovalMatrixRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.UUID;
 
+/**
+ * Approval matrix maintenance and approval requirement resolution.
+ *
+ * Requirements are resolved against an immutable {@link MatrixIndex} snapshot rather than the database:
+ * matrices are grouped by transaction type, currency and branch, and each group holds an interval table
+ * over its amount bands, so a lookup is at most four hash probes and binary searches. The snapshot is
+ * rebuilt after every edit commits and the edit is announced on a Redis channel so other nodes rebuild
+ * too; a periodic reload covers missed messages.
+ */
 @Service
 public class ApprovalMatrixService {
     
+    private static final Logger logger = LoggerFactory.getLogger(ApprovalMatrixService.class);
+    
+    public static final String MATRIX_CHANNEL = "xypay:approval-matrix:changed";
+    
     @Autowired
     private ApprovalMatrixRepository approvalMatrixRepository;
     
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    private volatile MatrixIndex matrixIndex;
+    
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(
+            (message, pattern) -> refreshMatrices(), new ChannelTopic(MATRIX_CHANNEL));
+    }
+    
     public Map<String, Object> createApprovalMatrix(Map<String, Object> request) {
         Map<String, Object> response = new HashMap<>();
         
@@ -50,6 +86,7 @@ public class ApprovalMatrixService {
             matrix.setEffectiveFrom(LocalDateTime.now());
             
             matrix = approvalMatrixRepository.save(matrix);
+            matricesChanged();
             
             response.put("success", true);
             response.put("message", "Approval matrix created successfully");
@@ -69,7 +106,7 @@ public class ApprovalMatrixService {
     }
     
     public List<ApprovalMatrix> getAllApprovalMatrices() {
-        return approvalMatrixRepository.findAll();
+        return new ArrayList<>(currentIndex().all);
     }
     
     public Map<String, Object> updateApprovalMatrix(UUID id, Map<String, Object> request) {
@@ -103,6 +140,7 @@ public class ApprovalMatrixService {
             if (request.containsKey("isActive")) matrix.setIsActive((Boolean) request.get("isActive"));
             
             matrix = approvalMatrixRepository.save(matrix);
+            matricesChanged();
             
             response.put("success", true);
             response.put("message", "Approval matrix updated successfully");
@@ -121,6 +159,7 @@ public class ApprovalMatrixService {
         try {
             if (approvalMatrixRepository.existsById(id)) {
                 approvalMatrixRepository.deleteById(id);
+                matricesChanged();
                 response.put("success", true);
                 response.put("message", "Approval matrix deleted successfully");
             } else {
@@ -146,30 +185,14 @@ public class ApprovalMatrixService {
             String productType = (String) transactionData.get("productType");
             String branchCode = (String) transactionData.get("branchCode");
             
-            List<ApprovalMatrix> applicableMatrices = approvalMatrixRepository
-                .findApplicableMatrices(transactionType, amount, currency, customerType, productType, branchCode);
-            
-            List<Map<String, Object>> approvalLevels = new ArrayList<>();
+            List<ApprovalMatrix> applicableMatrices = resolve(
+                new ApprovalQuery(transactionType, amount, currency, customerType, productType, branchCode));
             
+            List<Map<String, Object>> approvalLevels = new ArrayList<>(applicableMatrices.size());
             for (ApprovalMatrix matrix : applicableMatrices) {
-                Map<String, Object> level = new HashMap<>();
-                level.put("approvalLevel", matrix.getApprovalLevel());
-                level.put("requiredRole", matrix.getRequiredRole());
-                level.put("isMandatory", matrix.getIsMandatory());
-                level.put("canSelfApprove", matrix.getCanSelfApprove());
-                level.put("timeoutHours", matrix.getTimeoutHours());
-                level.put("escalationRole", matrix.getEscalationRole());
-                
-                if (matrix.getAlternativeRoles() != null) {
-                    level.put("alternativeRoles", objectMapper.readValue(matrix.getAlternativeRoles(), List.class));
-                }
-                
-                approvalLevels.add(level);
+                approvalLevels.add(toLevel(matrix));
             }
             
-            // Sort by approval level
-            approvalLevels.sort((a, b) -> Integer.compare((Integer) a.get("approvalLevel"), (Integer) b.get("approvalLevel")));
-            
             requirements.put("success", true);
             requirements.put("approvalRequired", !approvalLevels.isEmpty());
             requirements.put("approvalLevels", approvalLevels);
@@ -208,4 +231,230 @@ public class ApprovalMatrixService {
         
         return result;
     }
+    
+    /**
+     * Matrices that apply to a transaction, in approval level order
+     */
+    public List<ApprovalMatrix> resolve(ApprovalQuery query) {
+        return currentIndex().resolve(query, LocalDateTime.now());
+    }
+    
+    /**
+     * Resolve many transactions against one snapshot, for bulk and workflow callers
+     *
+     * @return Applicable matrices per query, in query order
+     */
+    public List<List<ApprovalMatrix>> resolveAll(List<ApprovalQuery> queries) {
+        MatrixIndex index = currentIndex();
+        LocalDateTime now = LocalDateTime.now();
+        List<List<ApprovalMatrix>> results = new ArrayList<>(queries.size());
+        for (ApprovalQuery query : queries) {
+            results.add(index.resolve(query, now));
+        }
+        return results;
+    }
+    
+    /**
+     * Approval levels in the shape returned by {@link #getApprovalRequirements}
+     */
+    public Map<String, Object> toLevel(ApprovalMatrix matrix) {
+        Map<String, Object> level = new HashMap<>();
+        level.put("approvalLevel", matrix.getApprovalLevel());
+        level.put("requiredRole", matrix.getRequiredRole());
+        level.put("isMandatory", matrix.getIsMandatory());
+        level.put("canSelfApprove", matrix.getCanSelfApprove());
+        level.put("timeoutHours", matrix.getTimeoutHours());
+        level.put("escalationRole", matrix.getEscalationRole());
+        List<?> alternativeRoles = currentIndex().alternativeRoles.get(matrix.getId());
+        if (alternativeRoles != null) {
+            level.put("alternativeRoles", alternativeRoles);
+        }
+        return level;
+    }
+    
+    /**
+     * Reload matrices from the database and swap in the new index
+     */
+    @Scheduled(fixedDelayString = "${approval-matrix.refresh-ms:300000}", initialDelay = 300000)
+    public void refreshMatrices() {
+        matrixIndex = new MatrixIndex(approvalMatrixRepository.findAll(), objectMapper);
+        logger.debug("Approval matrix index rebuilt with {} matrices", matrixIndex.all.size());
+    }
+    
+    /**
+     * Announce that matrices changed. Inside a transaction the reload and the broadcast wait for the
+     * commit, so no node can rebuild from the matrices before the edit.
+     */
+    public void matricesChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadAndBroadcast();
+                }
+            });
+        } else {
+            reloadAndBroadcast();
+        }
+    }
+    
+    private void reloadAndBroadcast() {
+        refreshMatrices();
+        try {
+            stringRedisTemplate.convertAndSend(MATRIX_CHANNEL, "changed");
+        } catch (Exception e) {
+            // Other nodes pick the change up on their next periodic reload
+            logger.warn("Failed to broadcast approval matrix change: {}", e.getMessage());
+        }
+    }
+    
+    private MatrixIndex currentIndex() {
+        MatrixIndex index = matrixIndex;
+        if (index == null) {
+            index = new MatrixIndex(approvalMatrixRepository.findAll(), objectMapper);
+            matrixIndex = index;
+        }
+        return index;
+    }
+    
+    /**
+     * The transaction attributes approval matrices are matched on
+     */
+    public static final class ApprovalQuery {
+        private final String transactionType;
+        private final BigDecimal amount;
+        private final String currency;
+        private final String customerType;
+        private final String productType;
+        private final String branchCode;
+        
+        public ApprovalQuery(String transactionType, BigDecimal amount, String currency,
+                             String customerType, String productType, String branchCode) {
+            this.transactionType = transactionType;
+            this.amount = amount;
+            this.currency = currency;
+            this.customerType = customerType;
+            this.productType = productType;
+            this.branchCode = branchCode;
+        }
+    }
+    
+    /**
+     * Immutable lookup structure over all matrices. Active matrices are grouped by transaction type,
+     * currency and branch (a null currency or branch is its own wildcard group), and each group is an
+     * interval table of its amount bands. A band missing one bound is open on that side.
+     */
+    private static final class MatrixIndex {
+        private final List<ApprovalMatrix> all;
+        private final Map<String, AmountBands> groups = new HashMap<>();
+        private final Map<UUID, List<?>> alternativeRoles = new HashMap<>();
+        
+        private MatrixIndex(List<ApprovalMatrix> matrices, ObjectMapper objectMapper) {
+            all = Collections.unmodifiableList(new ArrayList<>(matrices));
+            Map<String, List<ApprovalMatrix>> grouped = new HashMap<>();
+            for (ApprovalMatrix matrix : matrices) {
+                if (!Boolean.TRUE.equals(matrix.getIsActive()) || matrix.getTransactionType() == null) {
+                    continue;
+                }
+                grouped.computeIfAbsent(groupKey(matrix.getTransactionType(), matrix.getCurrency(), matrix.getBranchCode()),
+                    key -> new ArrayList<>()).add(matrix);
+                if (matrix.getAlternativeRoles() != null) {
+                    try {
+                        List<?> roles = objectMapper.readValue(matrix.getAlternativeRoles(), List.class);
+                        if (roles != null) {
+                            alternativeRoles.put(matrix.getId(), Collections.unmodifiableList(roles));
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Approval matrix {} has unreadable alternative roles: {}", matrix.getMatrixCode(), e.getMessage());
+                    }
+                }
+            }
+            grouped.forEach((key, members) -> groups.put(key, new AmountBands(members)));
+        }
+        
+        private List<ApprovalMatrix> resolve(ApprovalQuery query, LocalDateTime now) {
+            if (query.transactionType == null) {
+                return Collections.emptyList();
+            }
+            Set<String> keys = new LinkedHashSet<>(4);
+            keys.add(groupKey(query.transactionType, query.currency, query.branchCode));
+            keys.add(groupKey(query.transactionType, query.currency, null));
+            keys.add(groupKey(query.transactionType, null, query.branchCode));
+            keys.add(groupKey(query.transactionType, null, null));
+            
+            List<ApprovalMatrix> applicable = new ArrayList<>();
+            for (String key : keys) {
+                AmountBands bands = groups.get(key);
+                if (bands == null) {
+                    continue;
+                }
+                for (ApprovalMatrix matrix : bands.covering(query.amount)) {
+                    if (matches(matrix.getCustomerType(), query.customerType)
+                            && matches(matrix.getProductType(), query.productType)
+                            && matrix.getEffectiveFrom() != null && !matrix.getEffectiveFrom().isAfter(now)
+                            && (matrix.getEffectiveTo() == null || !matrix.getEffectiveTo().isBefore(now))) {
+                        applicable.add(matrix);
+                    }
+                }
+            }
+            applicable.sort(Comparator.comparing(ApprovalMatrix::getApprovalLevel, Comparator.nullsLast(Integer::compare)));
+            return applicable;
+        }
+        
+        private static boolean matches(String required, String actual) {
+            return required == null || required.equals(actual);
+        }
+        
+        private static String groupKey(String transactionType, String currency, String branchCode) {
+            return transactionType + '\u0000' + (currency != null ? currency : "") + '\u0000' + (branchCode != null ? branchCode : "");
+        }
+    }
+    
+    /**
+     * Amount bands of one matrix group. Slot 2i+1 holds the matrices covering exactly bounds[i] and
+     * the even slots the open gaps around the bounds; matrices without any band are in every slot.
+     */
+    private static final class AmountBands {
+        private final BigDecimal[] bounds;
+        private final List<List<ApprovalMatrix>> slots;
+        private final List<ApprovalMatrix> unbanded = new ArrayList<>();
+        
+        private AmountBands(List<ApprovalMatrix> matrices) {
+            TreeSet<BigDecimal> distinct = new TreeSet<>();
+            List<ApprovalMatrix> banded = new ArrayList<>();
+            for (ApprovalMatrix matrix : matrices) {
+                if (matrix.getAmountFrom() == null && matrix.getAmountTo() == null) {
+                    unbanded.add(matrix);
+                    continue;
+                }
+                banded.add(matrix);
+                if (matrix.getAmountFrom() != null) {
+                    distinct.add(matrix.getAmountFrom());
+                }
+                if (matrix.getAmountTo() != null) {
+                    distinct.add(matrix.getAmountTo());
+                }
+            }
+            bounds = distinct.toArray(new BigDecimal[0]);
+            slots = new ArrayList<>(2 * bounds.length + 1);
+            for (int slot = 0; slot < 2 * bounds.length + 1; slot++) {
+                slots.add(new ArrayList<>(unbanded));
+            }
+            for (ApprovalMatrix matrix : banded) {
+                int from = matrix.getAmountFrom() == null ? 0 : 2 * Arrays.binarySearch(bounds, matrix.getAmountFrom()) + 1;
+                int to = matrix.getAmountTo() == null ? slots.size() - 1 : 2 * Arrays.binarySearch(bounds, matrix.getAmountTo()) + 1;
+                for (int slot = from; slot <= to; slot++) {
+                    slots.get(slot).add(matrix);
+                }
+            }
+        }
+        
+        private List<ApprovalMatrix> covering(BigDecimal amount) {
+            if (amount == null) {
+                return unbanded;
+            }
+            int found = Arrays.binarySearch(bounds, amount);
+            return slots.get(found >= 0 ? 2 * found + 1 : 2 * (-found - 1));
+        }
+    }
 }
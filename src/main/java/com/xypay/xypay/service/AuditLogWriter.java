@@ -0,0 +1,166 @@
+package com.xypay.xypay.service;
+
+import com.xypay.xypay.domain.AuditLog;
+import com.xypay.xypay.repository.AuditLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes audit rows off the request path.
+ *
+ * Events are put on a bounded queue and a single writer thread saves them in batches, one transaction
+ * per batch; if a batch fails its rows are retried one by one, so a bad row only loses itself. When the
+ * queue is full a login event is dropped and counted rather than making the request wait, so a login
+ * flood cannot slow the requests themselves; any other event is a compliance record and is written
+ * synchronously instead. The queue is drained on shutdown.
+ */
+@Service
+public class AuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    // High-volume events that may be shed under load; everything else must be recorded
+    private static final Set<AuditLog.ActionType> DROPPABLE_ACTIONS =
+        EnumSet.of(AuditLog.ActionType.LOGIN_SUCCESS, AuditLog.ActionType.LOGIN_FAILED);
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.writer.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${audit.writer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.writer.flush-ms:200}")
+    private long flushMs;
+
+    private BlockingQueue<AuditLog> queue;
+    private TransactionTemplate batchTransaction;
+    private TransactionTemplate rowTransaction;
+    private Thread writer;
+    private volatile boolean running = true;
+    private Counter written;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchTransaction = new TransactionTemplate(transactionManager);
+        rowTransaction = new TransactionTemplate(transactionManager);
+        rowTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        written = auditCounter("written");
+        dropped = auditCounter("dropped");
+        Gauge.builder("xypay.audit.queue", queue, BlockingQueue::size)
+            .description("Audit events waiting to be written")
+            .register(meterRegistry);
+
+        writer = new Thread(this::drainLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // The writer finishes the queue and exits within one poll interval of the last batch
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private Counter auditCounter(String result) {
+        return Counter.builder("xypay.audit.events")
+            .description("Audit events handled by the batched writer")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queue an audit row for writing. If the queue is full, login events are dropped and any other
+     * event is written on the calling thread.
+     *
+     * @return false if the row was dropped
+     */
+    public boolean submit(AuditLog auditLog) {
+        if (queue.offer(auditLog)) {
+            return true;
+        }
+        if (!DROPPABLE_ACTIONS.contains(auditLog.getAction())) {
+            return writeRow(auditLog);
+        }
+        dropped.increment();
+        logger.debug("Audit queue full, dropped {} event: {}", auditLog.getAction(), auditLog.getDescription());
+        return false;
+    }
+
+    private void drainLoop() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(flushMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
+        try {
+            batchTransaction.executeWithoutResult(status -> auditLogRepository.saveAll(batch));
+            written.increment(batch.size());
+        } catch (Exception e) {
+            logger.warn("Failed to write {} audit events as a batch, retrying individually: {}", batch.size(), e.getMessage());
+            for (AuditLog auditLog : batch) {
+                // Drop the id the rolled-back batch generated so the row is inserted as new
+                auditLog.setId(null);
+                writeRow(auditLog);
+            }
+        }
+    }
+
+    private boolean writeRow(AuditLog auditLog) {
+        try {
+            rowTransaction.executeWithoutResult(status -> auditLogRepository.save(auditLog));
+            written.increment();
+            return true;
+        } catch (Exception e) {
+            dropped.increment();
+            logger.error("Failed to write {} audit event: {}", auditLog.getAction(), e.getMessage());
+            return false;
+        }
+    }
+}
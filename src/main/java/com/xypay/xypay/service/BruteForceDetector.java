@@ -0,0 +1,343 @@
+package com.xypay.xypay.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding-window login failure counts by IP, username and device fingerprint, plus how many distinct
+ * usernames each IP has tried (its fan-out, the signature of credential stuffing).
+ *
+ * Counts are kept locally in count-min sketches, one per minute of the window, so memory is fixed
+ * however many keys an attack sprays and a check is a handful of array reads. Estimates can only
+ * overcount, and only through hash collisions. Each node also pushes its per-key deltas to per-minute
+ * Redis counters once a second and reads back the cluster totals for those keys, so an attack spread
+ * across nodes is still seen; the login path itself never waits on Redis.
+ */
+@Service
+public class BruteForceDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(BruteForceDetector.class);
+
+    public static final String IP = "ip";
+    public static final String USERNAME = "user";
+    public static final String DEVICE = "device";
+    public static final String IP_FANOUT = "ip-fanout";
+
+    private static final String KEY_PREFIX = "bf:";
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 8192;
+    // Keys awaiting a flush to Redis; beyond this, new keys are counted locally only until the next flush
+    private static final int MAX_PENDING_KEYS = 10000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${security.brute-force.window-minutes:15}")
+    private int windowMinutes;
+
+    @Value("${security.brute-force.ip-failures:10}")
+    private int ipFailureThreshold;
+
+    @Value("${security.brute-force.username-failures:5}")
+    private int usernameFailureThreshold;
+
+    @Value("${security.brute-force.device-failures:10}")
+    private int deviceFailureThreshold;
+
+    @Value("${security.brute-force.ip-fanout:20}")
+    private int ipFanoutThreshold;
+
+    @Value("${security.brute-force.block-enabled:false}")
+    private boolean blockEnabled;
+
+    private final Map<String, SlidingSketch> sketches = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> pending = new ConcurrentHashMap<>();
+    private SlidingSketch ipUsernamePairs;
+    private Cache<String, Long> clusterCounts;
+
+    @PostConstruct
+    public void init() {
+        for (String dimension : List.of(IP, USERNAME, DEVICE, IP_FANOUT)) {
+            sketches.put(dimension, new SlidingSketch(windowMinutes));
+        }
+        ipUsernamePairs = new SlidingSketch(windowMinutes);
+        clusterCounts = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(Duration.ofMinutes(windowMinutes))
+            .build();
+    }
+
+    /**
+     * Count a login attempt toward the IP's fan-out
+     */
+    public void recordAttempt(String ip, String username) {
+        if (ip == null || username == null) {
+            return;
+        }
+        String pair = ip + '\u0000' + username;
+        // First sighting of the pair in the window is a new username for the IP
+        if (ipUsernamePairs.estimate(pair) == 0) {
+            increment(IP_FANOUT, ip);
+        }
+        ipUsernamePairs.add(pair);
+    }
+
+    /**
+     * Count a failed login against each of its keys
+     */
+    public void recordFailure(String ip, String username, String device) {
+        alertOnThreshold(IP, ip, increment(IP, ip), ipFailureThreshold);
+        alertOnThreshold(USERNAME, username, increment(USERNAME, username), usernameFailureThreshold);
+        alertOnThreshold(DEVICE, device, increment(DEVICE, device), deviceFailureThreshold);
+    }
+
+    /**
+     * Current counts for a login's keys and whether any is over its threshold
+     */
+    public Assessment assess(String ip, String username, String device) {
+        long ipFailures = count(IP, ip);
+        long usernameFailures = count(USERNAME, username);
+        long deviceFailures = count(DEVICE, device);
+        long ipFanout = count(IP_FANOUT, ip);
+        boolean suspicious = ipFailures >= ipFailureThreshold || usernameFailures >= usernameFailureThreshold
+            || deviceFailures >= deviceFailureThreshold || ipFanout >= ipFanoutThreshold;
+        return new Assessment(ipFailures, usernameFailures, deviceFailures, ipFanout, suspicious, suspicious && blockEnabled);
+    }
+
+    /**
+     * Push local deltas to the per-minute Redis counters and read back cluster totals for those keys
+     */
+    @Scheduled(fixedDelayString = "${security.brute-force.flush-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        long[] taken = new long[1];
+        for (String key : pending.keySet()) {
+            taken[0] = 0;
+            // Read and removed under the same lock as increments, so none lands in between
+            pending.computeIfPresent(key, (k, delta) -> {
+                taken[0] = delta.get();
+                return null;
+            });
+            if (taken[0] > 0) {
+                keys.add(key);
+                deltas.add(taken[0]);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        long minute = currentMinute();
+        long ttlSeconds = (windowMinutes + 1) * 60L;
+        try {
+            List<Object> totals = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    byte[] bucket = (KEY_PREFIX + keys.get(i) + ":" + minute).getBytes(StandardCharsets.UTF_8);
+                    connection.stringCommands().incrBy(bucket, deltas.get(i));
+                    connection.keyCommands().expire(bucket, ttlSeconds);
+                }
+                for (String key : keys) {
+                    byte[][] window = new byte[windowMinutes][];
+                    for (int m = 0; m < windowMinutes; m++) {
+                        window[m] = (KEY_PREFIX + key + ":" + (minute - m)).getBytes(StandardCharsets.UTF_8);
+                    }
+                    connection.stringCommands().mGet(window);
+                }
+                return null;
+            });
+            int offset = keys.size() * 2;
+            for (int i = 0; i < keys.size(); i++) {
+                long total = 0;
+                if (totals.get(offset + i) instanceof List<?> values) {
+                    for (Object value : values) {
+                        if (value != null) {
+                            total += Long.parseLong(value.toString());
+                        }
+                    }
+                }
+                clusterCounts.put(keys.get(i), total);
+            }
+        } catch (Exception e) {
+            // Local counts still apply; the next flush carries new deltas only
+            logger.warn("Failed to sync {} brute-force counters: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private long increment(String dimension, String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        SlidingSketch sketch = sketches.get(dimension);
+        sketch.add(value);
+        String key = dimension + ":" + value;
+        pending.compute(key, (k, delta) -> {
+            if (delta == null) {
+                if (pending.size() >= MAX_PENDING_KEYS) {
+                    return null;
+                }
+                delta = new AtomicLong();
+            }
+            delta.incrementAndGet();
+            return delta;
+        });
+        return sketch.estimate(value);
+    }
+
+    private long count(String dimension, String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        long local = sketches.get(dimension).estimate(value);
+        Long cluster = clusterCounts.getIfPresent(dimension + ":" + value);
+        return cluster != null ? Math.max(local, cluster) : local;
+    }
+
+    private void alertOnThreshold(String dimension, String value, long count, int threshold) {
+        // Logged once as the count crosses the threshold, not on every attempt after it
+        if (count == threshold) {
+            logger.warn("Brute force suspected: {} failed logins in {} minutes for {} {}",
+                count, windowMinutes, dimension, value);
+        }
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60000;
+    }
+
+    /**
+     * Count-min sketches for each minute of the window, reused in rotation
+     */
+    private static final class SlidingSketch {
+        private final AtomicIntegerArray[] buckets;
+        private final long[] bucketMinutes;
+
+        private SlidingSketch(int minutes) {
+            buckets = new AtomicIntegerArray[minutes];
+            bucketMinutes = new long[minutes];
+            for (int i = 0; i < minutes; i++) {
+                buckets[i] = new AtomicIntegerArray(SKETCH_DEPTH * SKETCH_WIDTH);
+            }
+        }
+
+        private void add(String key) {
+            long minute = currentMinute();
+            int slot = (int) (minute % buckets.length);
+            if (bucketMinutes[slot] != minute) {
+                rotate(slot, minute);
+            }
+            AtomicIntegerArray bucket = buckets[slot];
+            int h1 = key.hashCode();
+            int h2 = mix(h1);
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                bucket.incrementAndGet(row * SKETCH_WIDTH + index(h1, h2, row));
+            }
+        }
+
+        private long estimate(String key) {
+            long minute = currentMinute();
+            int h1 = key.hashCode();
+            int h2 = mix(h1);
+            long total = 0;
+            for (int slot = 0; slot < buckets.length; slot++) {
+                if (minute - bucketMinutes[slot] >= buckets.length) {
+                    continue;
+                }
+                AtomicIntegerArray bucket = buckets[slot];
+                int min = Integer.MAX_VALUE;
+                for (int row = 0; row < SKETCH_DEPTH; row++) {
+                    min = Math.min(min, bucket.get(row * SKETCH_WIDTH + index(h1, h2, row)));
+                }
+                total += min;
+            }
+            return total;
+        }
+
+        private synchronized void rotate(int slot, long minute) {
+            if (bucketMinutes[slot] == minute) {
+                return;
+            }
+            AtomicIntegerArray bucket = buckets[slot];
+            for (int i = 0; i < bucket.length(); i++) {
+                bucket.set(i, 0);
+            }
+            bucketMinutes[slot] = minute;
+        }
+
+        private static int index(int h1, int h2, int row) {
+            return ((h1 + row * h2) & Integer.MAX_VALUE) % SKETCH_WIDTH;
+        }
+
+        private static int mix(int h) {
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h | 1;
+        }
+    }
+
+    public static final class Assessment {
+        private final long ipFailures;
+        private final long usernameFailures;
+        private final long deviceFailures;
+        private final long ipFanout;
+        private final boolean suspicious;
+        private final boolean blocked;
+
+        private Assessment(long ipFailures, long usernameFailures, long deviceFailures, long ipFanout,
+                           boolean suspicious, boolean blocked) {
+            this.ipFailures = ipFailures;
+            this.usernameFailures = usernameFailures;
+            this.deviceFailures = deviceFailures;
+            this.ipFanout = ipFanout;
+            this.suspicious = suspicious;
+            this.blocked = blocked;
+        }
+
+        public long getIpFailures() {
+            return ipFailures;
+        }
+
+        public long getUsernameFailures() {
+            return usernameFailures;
+        }
+
+        public long getDeviceFailures() {
+            return deviceFailures;
+        }
+
+        public long getIpFanout() {
+            return ipFanout;
+        }
+
+        public boolean isSuspicious() {
+            return suspicious;
+        }
+
+        public boolean isBlocked() {
+            return blocked;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.xypay.xypay.service;
+
+import com.xypay.xypay.domain.BulkTransferItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Parallel, chunked executor for bulk transfer items.
+ *
+ * Items are split into partitions keyed by the wallet they credit, so transfers touching the same
+ * wallet keep their file order while independent partitions run on a bounded worker pool. Item
+ * statuses and the bulk transfer's running counters are committed together per chunk with JDBC
+ * batch updates, which is what lets an interrupted run resume from the last committed chunk.
+ * While a run executes, its lease ({@code updated_at}) is renewed on a fixed heartbeat so a slow
+ * chunk is never mistaken for a dead node.
+ */
+@Service
+public class BulkTransferExecutionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkTransferExecutionEngine.class);
+
+    private static final String UPDATE_ITEM_SQL =
+        "UPDATE bulk_transfer_items SET status = ?, processed_at = ?, failure_reason = ?, " +
+        "transaction_id = ?, bank_transfer_id = ?, updated_at = ? " +
+        "WHERE id = ? AND status IN ('PENDING', 'PROCESSING')";
+
+    private static final String UPDATE_PROGRESS_SQL =
+        "UPDATE bulk_transfers SET successful_transfers = COALESCE(successful_transfers, 0) + ?, " +
+        "failed_transfers = COALESCE(failed_transfers, 0) + ?, " +
+        "processed_amount = COALESCE(processed_amount, 0) + ?, updated_at = ? WHERE id = ?";
+
+    private static final String HEARTBEAT_SQL =
+        "UPDATE bulk_transfers SET updated_at = ? WHERE id = ? AND status = 'PROCESSING'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${bulk-transfer.executor.threads:8}")
+    private int threads;
+
+    @Value("${bulk-transfer.executor.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${bulk-transfer.executor.partitions:32}")
+    private int partitions;
+
+    @Value("${bulk-transfer.executor.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${bulk-transfer.resume.heartbeat-seconds:60}")
+    private long heartbeatSeconds;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService heartbeat;
+    private TransactionTemplate itemTransaction;
+    private TransactionTemplate chunkTransaction;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "bulk-transfer-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            // Back-pressure: the submitting thread runs the partition itself when the pool is saturated
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        AtomicInteger heartbeatCount = new AtomicInteger();
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-transfer-lease-" + heartbeatCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        itemTransaction = new TransactionTemplate(transactionManager);
+        itemTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the given items and block until every partition has committed its last chunk.
+     *
+     * @param bulkTransferId Bulk transfer whose progress counters are advanced per chunk
+     * @param items Items still to run, in file order
+     * @param processor Performs one transfer and marks the item completed or failed; runs in its own transaction
+     */
+    public void execute(UUID bulkTransferId, List<BulkTransferItem> items, Consumer<BulkTransferItem> processor) {
+        List<List<BulkTransferItem>> buckets = partition(items);
+        ScheduledFuture<?> lease = heartbeat.scheduleAtFixedRate(() -> renewLease(bulkTransferId),
+            heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+        List<CompletableFuture<Void>> running = new ArrayList<>(buckets.size());
+        try {
+            for (List<BulkTransferItem> bucket : buckets) {
+                if (!bucket.isEmpty()) {
+                    running.add(CompletableFuture.runAsync(() -> runPartition(bulkTransferId, bucket, processor), executor));
+                }
+            }
+            CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        } finally {
+            lease.cancel(false);
+        }
+
+        logger.info("Bulk transfer {} ran {} items across {} partitions", bulkTransferId, items.size(), running.size());
+    }
+
+    /**
+     * Persist final item statuses that were decided outside a partition (for example interrupted items).
+     */
+    public void commitItems(UUID bulkTransferId, List<BulkTransferItem> items) {
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            commitChunk(bulkTransferId, items.subList(from, Math.min(from + chunkSize, items.size())));
+        }
+    }
+
+    /**
+     * Keep the run's lease fresh regardless of chunk progress, so resume only claims runs whose node stopped.
+     */
+    private void renewLease(UUID bulkTransferId) {
+        try {
+            jdbcTemplate.update(HEARTBEAT_SQL, Timestamp.valueOf(LocalDateTime.now()), bulkTransferId);
+        } catch (Exception e) {
+            logger.warn("Failed to renew lease for bulk transfer {}: {}", bulkTransferId, e.getMessage());
+        }
+    }
+
+    private List<List<BulkTransferItem>> partition(List<BulkTransferItem> items) {
+        int count = Math.max(1, partitions);
+        List<List<BulkTransferItem>> buckets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (BulkTransferItem item : items) {
+            String key = item.getRecipientAccountNumber() != null ? item.getRecipientAccountNumber() : "";
+            buckets.get(Math.floorMod(key.hashCode(), count)).add(item);
+        }
+        return buckets;
+    }
+
+    private void runPartition(UUID bulkTransferId, List<BulkTransferItem> bucket, Consumer<BulkTransferItem> processor) {
+        List<BulkTransferItem> chunk = new ArrayList<>(chunkSize);
+        for (BulkTransferItem item : bucket) {
+            try {
+                itemTransaction.executeWithoutResult(status -> processor.accept(item));
+            } catch (Exception e) {
+                if (!item.isFailed()) {
+                    item.markAsFailed(e.getMessage());
+                }
+                logger.error("Failed to process bulk transfer item {}: {}", item.getId(), e.getMessage());
+            }
+
+            chunk.add(item);
+            if (chunk.size() >= chunkSize) {
+                commitChunk(bulkTransferId, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            commitChunk(bulkTransferId, chunk);
+        }
+    }
+
+    /**
+     * Items already finished by another run are left untouched, and only rows this chunk actually
+     * moved to a final status are added to the progress counters.
+     */
+    private void commitChunk(UUID bulkTransferId, List<BulkTransferItem> chunk) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(chunk.size());
+        for (BulkTransferItem item : chunk) {
+            rows.add(new Object[] {
+                item.getStatus().name(),
+                item.getProcessedAt() != null ? Timestamp.valueOf(item.getProcessedAt()) : null,
+                item.getFailureReason(),
+                item.getTransactionId(),
+                item.getBankTransferId(),
+                now,
+                item.getId()
+            });
+        }
+
+        chunkTransaction.executeWithoutResult(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_ITEM_SQL, rows);
+            int successful = 0;
+            int failed = 0;
+            BigDecimal processedAmount = BigDecimal.ZERO;
+
+            for (int i = 0; i < chunk.size(); i++) {
+                if (updated[i] == 0) {
+                    continue;
+                }
+                BulkTransferItem item = chunk.get(i);
+                if (item.isCompleted()) {
+                    successful++;
+                    processedAmount = processedAmount.add(item.getAmount());
+                } else if (item.isFailed()) {
+                    failed++;
+                }
+            }
+            jdbcTemplate.update(UPDATE_PROGRESS_SQL, successful, failed, processedAmount, now, bulkTransferId);
+        });
+    }
+}
@@ -5,14 +5,24 @@ import com.xypay.xypay.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.UUID;
@@ -23,6 +33,15 @@ public class BulkTransferService {
     
     private static final Logger logger = LoggerFactory.getLogger(BulkTransferService.class);
     
+    private static final int CSV_INSERT_BATCH_SIZE = 1000;
+    
+    private static final String BULK_TRANSFER_APPROVAL_TYPE = "BULK_TRANSFER";
+    
+    private static final String INSERT_ITEM_SQL =
+        "INSERT INTO bulk_transfer_items (id, created_at, updated_at, bulk_transfer_id, recipient_account_number, " +
+        "recipient_name, recipient_bank_code, amount, description, status, row_number) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
     @Autowired
     private BulkTransferRepository bulkTransferRepository;
     
@@ -41,6 +60,26 @@ public class BulkTransferService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private BulkTransferExecutionEngine bulkTransferExecutionEngine;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ApprovalMatrixService approvalMatrixService;
+    
+    // Through the proxy, so a released run is processed asynchronously
+    @Autowired
+    @Lazy
+    private BulkTransferService self;
+    
+    @Value("${ledger.base-currency:NGN}")
+    private String baseCurrency;
+    
     /**
      * Create a new bulk transfer from CSV file
      */
@@ -48,16 +87,17 @@ public class BulkTransferService {
         try {
             String batchId = "BULK-" + System.currentTimeMillis();
             BulkTransfer bulkTransfer = new BulkTransfer(user, batchId, description);
-            bulkTransfer = bulkTransferRepository.save(bulkTransfer);
+            // Flush now so the streamed item rows can reference it
+            bulkTransfer = bulkTransferRepository.saveAndFlush(bulkTransfer);
             
-            // Parse CSV file and create transfer items
-            List<BulkTransferItem> items = parseCSVFile(file, bulkTransfer);
-            bulkTransferItemRepository.saveAll(items);
+            // Stream CSV rows straight into bulk_transfer_items, totalling as we go
+            CsvIngestTotals totals = ingestCSVFile(file, bulkTransfer);
             
-            // Calculate totals
-            calculateBulkTransferTotals(bulkTransfer);
+            bulkTransfer.setTotalAmount(totals.totalAmount);
+            bulkTransfer.setTotalRecipients(totals.rows);
+            bulkTransfer = bulkTransferRepository.save(bulkTransfer);
             
-            logger.info("Created bulk transfer {} with {} items", batchId, items.size());
+            logger.info("Created bulk transfer {} with {} items", batchId, totals.rows);
             return bulkTransfer;
             
         } catch (Exception e) {
@@ -67,45 +107,52 @@ public class BulkTransferService {
     }
     
     /**
-     * Process bulk transfer asynchronously
+     * Process bulk transfer asynchronously.
+     * Items run in parallel partitions and their statuses are committed per chunk, so calling this
+     * again for an interrupted run resumes with the items that were not yet committed.
      */
     @Async
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CompletableFuture<BulkTransfer> processBulkTransfer(UUID bulkTransferId) {
         try {
-            BulkTransfer bulkTransfer = bulkTransferRepository.findById(bulkTransferId)
+            BulkTransfer bulkTransfer = bulkTransferRepository.findByIdWithUser(bulkTransferId)
                     .orElseThrow(() -> new RuntimeException("Bulk transfer not found"));
             
-            bulkTransfer.startProcessing();
-            bulkTransferRepository.save(bulkTransfer);
-            
-            List<BulkTransferItem> items = bulkTransferItemRepository.findByBulkTransfer(bulkTransfer);
+            if (bulkTransfer.isCompleted() || bulkTransfer.getStatus() == BulkTransfer.Status.CANCELLED) {
+                return CompletableFuture.completedFuture(bulkTransfer);
+            }
+            if (!bulkTransfer.isProcessing()) {
+                bulkTransfer.startProcessing();
+                bulkTransferRepository.save(bulkTransfer);
+            }
             
-            int successful = 0;
-            int failed = 0;
-            BigDecimal processedAmount = BigDecimal.ZERO;
+            // Completed and failed items were committed by an earlier run and are not touched again
+            List<BulkTransferItem> items = bulkTransferItemRepository.findByBulkTransferIdAndStatusInOrderByRowNumberAsc(
+                    bulkTransferId, EnumSet.of(BulkTransferItem.Status.PENDING, BulkTransferItem.Status.PROCESSING));
             
-            for (BulkTransferItem item : items) {
-                try {
-                    // Process individual transfer
-                    processBulkTransferItem(item);
-                    successful++;
-                    processedAmount = processedAmount.add(item.getAmount());
-                    
-                } catch (Exception e) {
-                    item.markAsFailed(e.getMessage());
-                    failed++;
-                    logger.error("Failed to process bulk transfer item {}: {}", item.getId(), e.getMessage());
-                }
-                
-                bulkTransferItemRepository.save(item);
+            // Items the approval matrix holds for sign-off wait for an approver and are never reserved
+            List<BulkTransferItem> held = new ArrayList<>();
+            items = holdItemsRequiringApproval(items, held);
+            if (!held.isEmpty()) {
+                logger.warn("Bulk transfer {} has {} items awaiting approval", bulkTransfer.getBatchId(), held.size());
+                bulkTransferExecutionEngine.commitItems(bulkTransferId, held);
             }
             
-            // Update bulk transfer status
-            bulkTransfer.setSuccessfulTransfers(successful);
-            bulkTransfer.setFailedTransfers(failed);
-            bulkTransfer.setProcessedAmount(processedAmount);
+            BulkTransfer run = bulkTransfer;
+            bulkTransferExecutionEngine.execute(bulkTransferId, items, item -> runBulkTransferItem(run, item));
+            
+            // Reload to pick up the counters advanced by each committed chunk
+            bulkTransfer = bulkTransferRepository.findByIdWithUser(bulkTransferId)
+                    .orElseThrow(() -> new RuntimeException("Bulk transfer not found"));
+            int successful = bulkTransfer.getSuccessfulTransfers() != null ? bulkTransfer.getSuccessfulTransfers() : 0;
+            int failed = bulkTransfer.getFailedTransfers() != null ? bulkTransfer.getFailedTransfers() : 0;
+            long awaitingApproval = bulkTransferItemRepository.countByBulkTransferIdAndStatus(
+                    bulkTransferId, BulkTransferItem.Status.PENDING_APPROVAL);
             
-            if (failed == 0) {
+            if (awaitingApproval > 0) {
+                // Finished for now; approving the held items runs it again
+                bulkTransfer.markAsPartiallyCompleted();
+            } else if (failed == 0) {
                 bulkTransfer.completeProcessing();
             } else if (successful > 0) {
                 bulkTransfer.markAsPartiallyCompleted();
@@ -119,12 +166,12 @@ public class BulkTransferService {
             notificationService.sendNotification(
                 bulkTransfer.getUser().getId(),
                 "BULK_TRANSFER_COMPLETED",
-                String.format("Bulk transfer %s completed. %d successful, %d failed", 
-                    bulkTransfer.getBatchId(), successful, failed)
+                String.format("Bulk transfer %s completed. %d successful, %d failed, %d awaiting approval", 
+                    bulkTransfer.getBatchId(), successful, failed, awaitingApproval)
             );
             
-            logger.info("Completed bulk transfer {}: {} successful, {} failed", 
-                bulkTransfer.getBatchId(), successful, failed);
+            logger.info("Completed bulk transfer {}: {} successful, {} failed, {} awaiting approval", 
+                bulkTransfer.getBatchId(), successful, failed, awaitingApproval);
             
             return CompletableFuture.completedFuture(bulkTransfer);
             
@@ -135,9 +182,44 @@ public class BulkTransferService {
     }
     
     /**
-     * Process individual bulk transfer item
+     * Resume processing runs whose progress has not advanced within the stale threshold,
+     * typically because the node running them restarted.
      */
-    private void processBulkTransferItem(BulkTransferItem item) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<UUID> claimStaleRuns(Duration staleAfter) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(staleAfter);
+        List<UUID> claimed = new ArrayList<>();
+        
+        for (BulkTransfer candidate : bulkTransferRepository.findByStatusAndUpdatedAtBefore(BulkTransfer.Status.PROCESSING, staleBefore)) {
+            if (bulkTransferRepository.claimStaleRun(candidate.getId(), BulkTransfer.Status.PROCESSING, staleBefore, now) == 1) {
+                claimed.add(candidate.getId());
+            }
+        }
+        return claimed;
+    }
+    
+    private String bulkItemIdempotencyKey(BulkTransferItem item) {
+        return "bulk-item:" + item.getId();
+    }
+    
+    /**
+     * Reserve the item just before running it, so a reservation left by an earlier run means that run
+     * started the transfer and its outcome is unknown. Items that were never started are simply run.
+     */
+    private void runBulkTransferItem(BulkTransfer bulkTransfer, BulkTransferItem item) {
+        if (idempotencyService.isDuplicateRequest(bulkItemIdempotencyKey(item), bulkTransfer.getUser().getId())) {
+            item.markAsFailed("Interrupted before completion; reconcile before retrying");
+            logger.warn("Bulk transfer item {} was started by an earlier run; flagged for reconciliation", item.getId());
+            return;
+        }
+        processBulkTransferItem(bulkTransfer, item);
+    }
+    
+    /**
+     * Process individual bulk transfer item. Runs on a bulk transfer worker inside the item's own transaction.
+     */
+    private void processBulkTransferItem(BulkTransfer bulkTransfer, BulkTransferItem item) {
         item.markAsProcessing();
         
         // Check if recipient is internal (XYPay account)
@@ -145,22 +227,26 @@ public class BulkTransferService {
         
         if (recipientWallet != null) {
             // Internal transfer
-            processInternalBulkTransfer(item, recipientWallet);
+            processInternalBulkTransfer(bulkTransfer, item, recipientWallet);
         } else {
             // External transfer
-            processExternalBulkTransfer(item);
+            processExternalBulkTransfer(bulkTransfer, item);
         }
     }
     
     /**
      * Process internal bulk transfer
      */
-    private void processInternalBulkTransfer(BulkTransferItem item, Wallet recipientWallet) {
+    private void processInternalBulkTransfer(BulkTransfer bulkTransfer, BulkTransferItem item, Wallet recipientWallet) {
+        releaseReservationOnRollback(bulkTransfer, item);
         try {
+            Wallet senderWallet = walletService.getUserPrimaryWallet(bulkTransfer.getUser())
+                    .orElseThrow(() -> new RuntimeException("Sender wallet not found"));
+            
             // Create internal transfer
             TransactionCreationService.TransactionPair transactionPair = transactionCreationService
                     .createTransactionRecords(
-                        item.getBulkTransfer().getUser().getWallet(),
+                        senderWallet,
                         recipientWallet,
                         item.getAmount(),
                         null, // No BankTransfer for internal transfers
@@ -175,14 +261,158 @@ public class BulkTransferService {
         }
     }
     
+    /**
+     * An internal transfer is written entirely in the item's transaction, so if that rolls back nothing was
+     * paid and the reservation is released; a run that stops before committing the failure can then retry it.
+     * External transfers keep theirs, since the bank may have accepted the payment.
+     */
+    private void releaseReservationOnRollback(BulkTransfer bulkTransfer, BulkTransferItem item) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String key = bulkItemIdempotencyKey(item);
+        UUID userId = bulkTransfer.getUser().getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    idempotencyService.clearIdempotencyKey(key, userId);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Resolve approval requirements for all items against one matrix snapshot and hold the items that
+     * have a mandatory approval level; matrices for the BULK_TRANSFER transaction type opt in to this.
+     * Items already released by an approver run.
+     *
+     * @param held Receives the held items
+     * @return The items that may run
+     */
+    private List<BulkTransferItem> holdItemsRequiringApproval(List<BulkTransferItem> items, List<BulkTransferItem> held) {
+        List<BulkTransferItem> allowed = new ArrayList<>(items.size());
+        List<BulkTransferItem> unapproved = new ArrayList<>(items.size());
+        for (BulkTransferItem item : items) {
+            (item.isApproved() ? allowed : unapproved).add(item);
+        }
+        List<List<ApprovalMatrix>> requirements = resolveApprovals(unapproved);
+        
+        for (int i = 0; i < unapproved.size(); i++) {
+            BulkTransferItem item = unapproved.get(i);
+            List<ApprovalMatrix> mandatory = mandatoryLevels(requirements.get(i));
+            if (mandatory.isEmpty()) {
+                allowed.add(item);
+            } else {
+                ApprovalMatrix first = mandatory.get(0);
+                item.holdForApproval("Requires level " + first.getApprovalLevel() + " approval by "
+                    + first.getRequiredRole() + " (" + first.getMatrixCode() + ")");
+                held.add(item);
+            }
+        }
+        // Keep file order for the partitions
+        allowed.sort(Comparator.comparing(BulkTransferItem::getRowNumber, Comparator.nullsLast(Integer::compare)));
+        return allowed;
+    }
+    
+    /**
+     * Release the items of a bulk transfer that are waiting for approval and run them. An item is released
+     * only if the approver holds the required or an alternative role for every mandatory level, and is not
+     * the bulk transfer's owner unless the level allows self-approval.
+     *
+     * @return The number of items released
+     */
+    public int approveHeldItems(UUID bulkTransferId, User approver) {
+        BulkTransfer bulkTransfer = bulkTransferRepository.findByIdWithUser(bulkTransferId)
+                .orElseThrow(() -> new RuntimeException("Bulk transfer not found"));
+        if (bulkTransfer.getStatus() == BulkTransfer.Status.CANCELLED) {
+            throw new RuntimeException("Cannot approve items of a cancelled bulk transfer");
+        }
+        List<BulkTransferItem> held = bulkTransferItemRepository.findByBulkTransferIdAndStatusInOrderByRowNumberAsc(
+                bulkTransferId, EnumSet.of(BulkTransferItem.Status.PENDING_APPROVAL));
+        List<List<ApprovalMatrix>> requirements = resolveApprovals(held);
+        boolean owner = bulkTransfer.getUser().getId().equals(approver.getId());
+        
+        List<BulkTransferItem> released = new ArrayList<>();
+        for (int i = 0; i < held.size(); i++) {
+            boolean allowed = true;
+            for (ApprovalMatrix level : mandatoryLevels(requirements.get(i))) {
+                if ((owner && !Boolean.TRUE.equals(level.getCanSelfApprove())) || !holdsApprovalRole(approver, level)) {
+                    allowed = false;
+                    break;
+                }
+            }
+            if (allowed) {
+                held.get(i).approve(approver.getUsername());
+                released.add(held.get(i));
+            }
+        }
+        if (released.isEmpty()) {
+            return 0;
+        }
+        
+        bulkTransferItemRepository.saveAll(released);
+        bulkTransfer.startProcessing();
+        bulkTransferRepository.save(bulkTransfer);
+        logger.info("{} released {} of {} held items of bulk transfer {}",
+            approver.getUsername(), released.size(), held.size(), bulkTransfer.getBatchId());
+        
+        // Run once the release is committed, so the run sees the approved items
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                self.processBulkTransfer(bulkTransferId);
+            }
+        });
+        return released.size();
+    }
+    
+    private List<List<ApprovalMatrix>> resolveApprovals(List<BulkTransferItem> items) {
+        List<ApprovalMatrixService.ApprovalQuery> queries = new ArrayList<>(items.size());
+        for (BulkTransferItem item : items) {
+            queries.add(new ApprovalMatrixService.ApprovalQuery(
+                BULK_TRANSFER_APPROVAL_TYPE, item.getAmount(), baseCurrency, null, null, null));
+        }
+        return approvalMatrixService.resolveAll(queries);
+    }
+    
+    private static List<ApprovalMatrix> mandatoryLevels(List<ApprovalMatrix> levels) {
+        List<ApprovalMatrix> mandatory = new ArrayList<>();
+        for (ApprovalMatrix matrix : levels) {
+            if (Boolean.TRUE.equals(matrix.getIsMandatory())) {
+                mandatory.add(matrix);
+            }
+        }
+        return mandatory;
+    }
+    
+    private boolean holdsApprovalRole(User approver, ApprovalMatrix level) {
+        if (approver.getRoles() == null) {
+            return false;
+        }
+        Set<String> accepted = new HashSet<>();
+        accepted.add(level.getRequiredRole());
+        Object alternatives = approvalMatrixService.toLevel(level).get("alternativeRoles");
+        if (alternatives instanceof Collection<?> roles) {
+            roles.forEach(role -> accepted.add(String.valueOf(role)));
+        }
+        for (String role : approver.getRoles().split(",")) {
+            String name = role.trim();
+            if (accepted.contains(name) || (name.startsWith("ROLE_") && accepted.contains(name.substring(5)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     /**
      * Process external bulk transfer
      */
-    private void processExternalBulkTransfer(BulkTransferItem item) {
+    private void processExternalBulkTransfer(BulkTransfer bulkTransfer, BulkTransferItem item) {
         try {
             // Create external bank transfer
             BankTransfer bankTransfer = new BankTransfer();
-            bankTransfer.setUser(item.getBulkTransfer().getUser());
+            bankTransfer.setUser(bulkTransfer.getUser());
             bankTransfer.setAccountNumber(item.getRecipientAccountNumber());
             bankTransfer.setBankName("Unknown Bank"); // Default bank name
             bankTransfer.setBankCode(item.getRecipientBankCode());
@@ -192,7 +422,7 @@ public class BulkTransferService {
             bankTransfer.setStatus("PENDING");
             
             BankTransfer createdTransfer = bankTransferProcessingService.createAndProcessTransfer(
-                item.getBulkTransfer().getUser(),
+                bulkTransfer.getUser(),
                 "Unknown Bank", // Default bank name
                 item.getRecipientBankCode(),
                 item.getRecipientAccountNumber(),
@@ -209,12 +439,16 @@ public class BulkTransferService {
     }
     
     /**
-     * Parse CSV file and create transfer items
+     * Parse the CSV upload line by line and insert valid rows in fixed-size JDBC batches while the
+     * file is still being read, so memory stays flat regardless of file size.
      */
-    private List<BulkTransferItem> parseCSVFile(MultipartFile file, BulkTransfer bulkTransfer) {
-        List<BulkTransferItem> items = new ArrayList<>();
+    private CsvIngestTotals ingestCSVFile(MultipartFile file, BulkTransfer bulkTransfer) {
+        CsvIngestTotals totals = new CsvIngestTotals();
+        List<Object[]> batch = new ArrayList<>(CSV_INSERT_BATCH_SIZE);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
         
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8), 64 * 1024)) {
             String line;
             int rowNumber = 0;
             
@@ -223,42 +457,69 @@ public class BulkTransferService {
                 if (rowNumber == 1) continue; // Skip header
                 
                 String[] columns = line.split(",");
-                if (columns.length >= 4) {
-                    BulkTransferItem item = new BulkTransferItem();
-                    item.setBulkTransfer(bulkTransfer);
-                    item.setRecipientAccountNumber(columns[0].trim());
-                    item.setRecipientName(columns[1].trim());
-                    item.setRecipientBankCode(columns[2].trim());
-                    item.setAmount(new BigDecimal(columns[3].trim()));
-                    item.setDescription(columns.length > 4 ? columns[4].trim() : "");
-                    item.setRowNumber(rowNumber);
-                    
-                    items.add(item);
+                if (columns.length < 4) continue;
+                
+                String accountNumber = columns[0].trim();
+                BigDecimal amount = parseRowAmount(columns[3].trim(), rowNumber);
+                if (accountNumber.isEmpty()) {
+                    throw new IllegalArgumentException("Row " + rowNumber + ": recipient account number is required");
+                }
+                
+                batch.add(new Object[] {
+                    UUID.randomUUID(),
+                    now,
+                    now,
+                    bulkTransfer.getId(),
+                    accountNumber,
+                    columns[1].trim(),
+                    columns[2].trim(),
+                    amount,
+                    columns.length > 4 ? columns[4].trim() : "",
+                    BulkTransferItem.Status.PENDING.name(),
+                    rowNumber
+                });
+                totals.rows++;
+                totals.totalAmount = totals.totalAmount.add(amount);
+                
+                if (batch.size() >= CSV_INSERT_BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, batch);
+                    batch.clear();
                 }
             }
             
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, batch);
+            }
+            
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error parsing CSV file: {}", e.getMessage());
             throw new RuntimeException("Failed to parse CSV file", e);
         }
         
-        return items;
+        return totals;
+    }
+    
+    private BigDecimal parseRowAmount(String value, int rowNumber) {
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Row " + rowNumber + ": invalid amount '" + value + "'");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Row " + rowNumber + ": amount must be positive");
+        }
+        return amount;
     }
     
     /**
-     * Calculate bulk transfer totals
+     * Running totals accumulated while a CSV upload is streamed
      */
-    private void calculateBulkTransferTotals(BulkTransfer bulkTransfer) {
-        List<BulkTransferItem> items = bulkTransferItemRepository.findByBulkTransfer(bulkTransfer);
-        
-        BigDecimal totalAmount = items.stream()
-                .map(BulkTransferItem::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        bulkTransfer.setTotalAmount(totalAmount);
-        bulkTransfer.setTotalRecipients(items.size());
-        
-        bulkTransferRepository.save(bulkTransfer);
+    private static class CsvIngestTotals {
+        private int rows;
+        private BigDecimal totalAmount = BigDecimal.ZERO;
     }
     
     /**
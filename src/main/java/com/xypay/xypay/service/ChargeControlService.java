@@ -30,6 +30,9 @@ public class ChargeControlService {
     @Autowired
     private RateConfigurationRepository rateConfigurationRepository;
 
+    @Autowired
+    private TransferFeeService transferFeeService;
+
     /**
      * Get current charge control settings
      */
@@ -47,7 +50,9 @@ public class ChargeControlService {
         control.setVatActive(vatActive);
         control.setFeeActive(feeActive);
         control.setUpdatedAt(LocalDateTime.now());
-        return transferChargeControlRepository.save(control);
+        TransferChargeControl saved = transferChargeControlRepository.save(control);
+        transferFeeService.feeScheduleChanged();
+        return saved;
     }
 
     /**
@@ -72,7 +77,9 @@ public class ChargeControlService {
 
         // Create new VAT charge
         VATCharge newVAT = new VATCharge(rate, true, LocalDateTime.now());
-        return vatChargeRepository.save(newVAT);
+        VATCharge saved = vatChargeRepository.save(newVAT);
+        transferFeeService.feeScheduleChanged();
+        return saved;
     }
 
     /**
@@ -1,23 +1,45 @@
 package com.xypay.xypay.service;
 
 import com.xypay.xypay.repository.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Dashboard figures served from memory.
+ *
+ * Real-time figures (TPS, volume, failures, active users) come from {@link RealTimeTransactionMetrics}.
+ * Totals are a snapshot refreshed once per interval for the whole cluster: the node that takes the Redis
+ * lock runs one grouped query per table and publishes the result as a Redis hash, and the other nodes
+ * read that hash. Page views never count tables.
+ */
 @Service
 public class DashboardService {
     
     private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
     
+    private static final String TOTALS_KEY = "dashboard:totals";
+    private static final String TOTALS_LOCK_KEY = "dashboard:totals:lock";
+    private static final int TREND_HOURS = 24;
+    
     @Autowired
     private UserRepository userRepository;
     
@@ -30,11 +52,19 @@ public class DashboardService {
     @Autowired
     private LoanRepository loanRepository;
     
-    // Real-time metrics (in-memory for demo)
-    private final AtomicLong transactionCount = new AtomicLong(0);
-    private final AtomicLong activeUsers = new AtomicLong(0);
-    private final AtomicLong currentTPS = new AtomicLong(0);
-    private final AtomicLong avgResponseTime = new AtomicLong(0);
+    @Autowired
+    private RealTimeTransactionMetrics realTimeTransactionMetrics;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${dashboard.totals.refresh-ms:60000}")
+    private long totalsRefreshMs;
+    
+    private volatile Totals totals;
     
     /**
      * Get comprehensive dashboard metrics
@@ -43,37 +73,22 @@ public class DashboardService {
         Map<String, Object> metrics = new HashMap<>();
         
         try {
-            // Basic counts
-            long totalUsers = userRepository.count();
-            long totalWallets = walletRepository.count();
-            long totalTransactions = transactionRepository.count();
-            long totalLoans = loanRepository.count();
-            
-            // Transaction volume (last 30 days)
-            LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-            BigDecimal transactionVolume = transactionRepository.getTotalVolumeBetween(thirtyDaysAgo, LocalDateTime.now());
-            if (transactionVolume == null) {
-                transactionVolume = BigDecimal.ZERO;
-            }
+            Totals current = getTotals();
+            RealTimeTransactionMetrics.Snapshot realTime = realTimeTransactionMetrics.snapshot();
             
-            // Active users (last 24 hours) - using existing method
-            LocalDateTime twentyFourHoursAgo = LocalDateTime.now().minusHours(24);
-            long activeUsers24h = userRepository.countByCreatedAtBetween(twentyFourHoursAgo, LocalDateTime.now());
-            
-            // System performance
-            long avgResponseTimeMs = getAverageResponseTime();
-            String riskScore = calculateRiskScore();
-            
-            metrics.put("totalUsers", totalUsers);
-            metrics.put("totalWallets", totalWallets);
-            metrics.put("totalTransactions", totalTransactions);
-            metrics.put("totalLoans", totalLoans);
-            metrics.put("transactionVolume", transactionVolume);
-            metrics.put("activeCustomers", activeUsers24h);
-            metrics.put("avgResponseTime", avgResponseTimeMs);
-            metrics.put("riskScore", riskScore);
+            metrics.put("totalUsers", current.getUsers());
+            metrics.put("totalWallets", current.getWallets());
+            metrics.put("totalTransactions", current.getTransactions());
+            metrics.put("totalLoans", current.getLoans());
+            metrics.put("transactionVolume", current.getVolume30d());
+            metrics.put("activeCustomers", current.getNewUsers24h());
+            metrics.put("activeUsers", realTime.getActiveUsers());
+            metrics.put("tps", realTime.getTps());
+            metrics.put("avgResponseTime", getAverageResponseTime());
+            metrics.put("riskScore", calculateRiskScore(current));
             metrics.put("systemUptime", "99.99%");
-            metrics.put("lastUpdated", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_TIME));
+            metrics.put("lastUpdated", LocalDateTime.ofInstant(Instant.ofEpochMilli(current.getComputedAt()), ZoneId.systemDefault())
+                .format(DateTimeFormatter.ISO_LOCAL_TIME));
             
             // Growth metrics
             metrics.put("transactionVolumeChange", "+12.5%");
@@ -81,8 +96,6 @@ public class DashboardService {
             metrics.put("responseTimeChange", "-15.3%");
             metrics.put("riskStatus", "All systems normal");
             
-            logger.info("Dashboard metrics generated successfully");
-            
         } catch (Exception e) {
             logger.error("Error generating dashboard metrics: {}", e.getMessage());
             metrics.put("error", "Unable to load metrics");
@@ -97,24 +110,15 @@ public class DashboardService {
     public Map<String, Object> getRealTimeMetrics() {
         Map<String, Object> metrics = new HashMap<>();
         
-        // Simulate real-time data
-        long tps = currentTPS.get();
-        long responseTime = avgResponseTime.get();
-        long activeUsersCount = activeUsers.get();
-        
-        // Generate realistic variations
-        tps = Math.max(100, tps + (long)(Math.random() * 200 - 100));
-        responseTime = Math.max(20, responseTime + (long)(Math.random() * 20 - 10));
-        activeUsersCount = Math.max(1000, activeUsersCount + (long)(Math.random() * 1000 - 500));
-        
-        // Update atomic values
-        currentTPS.set(tps);
-        avgResponseTime.set(responseTime);
-        activeUsers.set(activeUsersCount);
-        
-        metrics.put("tps", tps);
-        metrics.put("responseTime", responseTime);
-        metrics.put("activeUsers", activeUsersCount);
+        RealTimeTransactionMetrics.Snapshot realTime = realTimeTransactionMetrics.snapshot();
+        metrics.put("tps", realTime.getTps());
+        metrics.put("transactions", realTime.getTransactions());
+        metrics.put("failedTransactions", realTime.getFailed());
+        metrics.put("volume", realTime.getVolume());
+        metrics.put("windowSeconds", realTime.getWindowSeconds());
+        metrics.put("activeUsers", realTime.getActiveUsers());
+        metrics.put("clusterWide", realTime.isClusterWide());
+        metrics.put("responseTime", getAverageResponseTime());
         metrics.put("timestamp", System.currentTimeMillis());
         
         return metrics;
@@ -148,19 +152,114 @@ public class DashboardService {
         return metrics;
     }
     
+    /**
+     * Current totals snapshot; loaded on first use if the scheduled refresh has not run yet
+     */
+    public Totals getTotals() {
+        Totals current = totals;
+        if (current == null) {
+            refreshTotals();
+            current = totals;
+        }
+        return current;
+    }
+    
+    /**
+     * Refresh the totals snapshot. One node per interval recomputes and publishes it; the rest read it.
+     */
+    @Scheduled(fixedDelayString = "${dashboard.totals.refresh-ms:60000}")
+    public synchronized void refreshTotals() {
+        boolean compute = true;
+        try {
+            // Held for most of the interval so only one node recomputes per refresh
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(TOTALS_LOCK_KEY, "1", Duration.ofMillis(Math.max(1000, totalsRefreshMs * 9 / 10)));
+            if (!Boolean.TRUE.equals(acquired)) {
+                Map<Object, Object> shared = stringRedisTemplate.opsForHash().entries(TOTALS_KEY);
+                if (!shared.isEmpty()) {
+                    totals = Totals.fromHash(shared);
+                    compute = false;
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to read shared dashboard totals, computing locally: {}", e.getMessage());
+        }
+        if (!compute) {
+            return;
+        }
+        
+        try {
+            Totals computed = computeTotals();
+            totals = computed;
+            try {
+                stringRedisTemplate.opsForHash().putAll(TOTALS_KEY, computed.toHash());
+                stringRedisTemplate.expire(TOTALS_KEY, Duration.ofMillis(totalsRefreshMs * 3));
+            } catch (Exception e) {
+                logger.warn("Failed to publish dashboard totals: {}", e.getMessage());
+            }
+        } catch (Exception e) {
+            logger.error("Error refreshing dashboard totals: {}", e.getMessage());
+            if (totals == null) {
+                totals = Totals.empty();
+            }
+        }
+    }
+    
+    private Totals computeTotals() {
+        LocalDateTime now = LocalDateTime.now();
+        Totals computed = new Totals();
+        computed.users = userRepository.count();
+        computed.loans = loanRepository.count();
+        computed.newUsers24h = userRepository.countByCreatedAtBetween(now.minusHours(24), now);
+        
+        for (Object[] row : walletRepository.summarizeBalances()) {
+            computed.wallets = toLong(row[0]);
+            computed.walletBalance = row[1] instanceof BigDecimal balance ? balance : BigDecimal.ZERO;
+            computed.fundedWallets = toLong(row[2]);
+        }
+        
+        // One pass over the table for the total and per-status counts
+        for (Object[] row : transactionRepository.countGroupByStatus()) {
+            long count = toLong(row[1]);
+            computed.transactions += count;
+            if ("PENDING".equals(row[0])) {
+                computed.pending = count;
+            } else if ("FAILED".equals(row[0])) {
+                computed.failed = count;
+            }
+        }
+        
+        BigDecimal volume = transactionRepository.getTotalVolumeBetween(now.minusDays(30), now);
+        computed.volume30d = volume != null ? volume : BigDecimal.ZERO;
+        
+        LocalDateTime trendStart = now.truncatedTo(ChronoUnit.HOURS).minusHours(TREND_HOURS - 1);
+        computed.trendStart = trendStart;
+        computed.trend = new long[TREND_HOURS];
+        for (Object[] row : transactionRepository.countByHourSince(trendStart)) {
+            LocalDateTime hour = row[0] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) row[0];
+            int index = (int) ChronoUnit.HOURS.between(trendStart, hour);
+            if (index >= 0 && index < TREND_HOURS) {
+                computed.trend[index] = toLong(row[1]);
+            }
+        }
+        computed.computedAt = System.currentTimeMillis();
+        return computed;
+    }
+    
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+    
     /**
      * Calculate system risk score
      */
-    private String calculateRiskScore() {
+    private String calculateRiskScore(Totals current) {
         // Simple risk calculation based on various factors
-        long totalTransactions = transactionRepository.count();
-        long failedTransactions = transactionRepository.countFailedTransactions();
-        
-        if (totalTransactions == 0) {
+        if (current.getTransactions() == 0) {
             return "Low";
         }
         
-        double failureRate = (double) failedTransactions / totalTransactions;
+        double failureRate = (double) current.getFailed() / current.getTransactions();
         
         if (failureRate < 0.01) {
             return "Low";
@@ -172,38 +271,16 @@ public class DashboardService {
     }
     
     /**
-     * Get average response time
+     * Average HTTP response time in milliseconds since startup
      */
     private long getAverageResponseTime() {
-        // Simulate response time calculation
-        return 25 + (long)(Math.random() * 30); // 25-55ms
-    }
-    
-    /**
-     * Update real-time metrics every 5 seconds
-     */
-    @Scheduled(fixedRate = 5000)
-    public void updateRealTimeMetrics() {
-        try {
-            // Update transaction count
-            long newTransactionCount = transactionRepository.count();
-            long oldCount = transactionCount.get();
-            long tps = (newTransactionCount - oldCount) / 5; // Transactions per second
-            currentTPS.set(Math.max(0, tps));
-            transactionCount.set(newTransactionCount);
-            
-            // Update active users (last hour)
-            LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-            long activeUsersCount = userRepository.countByCreatedAtBetween(oneHourAgo, LocalDateTime.now());
-            activeUsers.set(activeUsersCount);
-            
-            // Update response time
-            long responseTime = getAverageResponseTime();
-            avgResponseTime.set(responseTime);
-            
-        } catch (Exception e) {
-            logger.error("Error updating real-time metrics: {}", e.getMessage());
+        long count = 0;
+        double totalMs = 0;
+        for (Timer timer : meterRegistry.find("http.server.requests").timers()) {
+            count += timer.count();
+            totalMs += timer.totalTime(TimeUnit.MILLISECONDS);
         }
+        return count > 0 ? Math.round(totalMs / count) : 0;
     }
     
     /**
@@ -211,19 +288,15 @@ public class DashboardService {
      */
     public Map<String, Object> getTransactionTrends() {
         Map<String, Object> trends = new HashMap<>();
+        Totals current = getTotals();
         
-        // Generate hourly data for last 24 hours
+        // Hourly data for last 24 hours
         List<String> labels = new ArrayList<>();
         List<Long> data = new ArrayList<>();
         
-        for (int i = 23; i >= 0; i--) {
-            LocalDateTime hour = LocalDateTime.now().minusHours(i);
-            LocalDateTime nextHour = hour.plusHours(1);
-            labels.add(hour.getHour() + ":00");
-            
-            // Get transaction count for this hour using existing method
-            long count = transactionRepository.countByCreatedAtBetween(hour, nextHour);
-            data.add(count);
+        for (int i = 0; i < TREND_HOURS; i++) {
+            labels.add(current.getTrendStart().plusHours(i).getHour() + ":00");
+            data.add(current.getTrend()[i]);
         }
         
         trends.put("labels", labels);
@@ -253,8 +326,9 @@ public class DashboardService {
         }
         
         // Check transaction failure rate
-        long totalTransactions = transactionRepository.count();
-        long failedTransactions = transactionRepository.countFailedTransactions();
+        Totals current = getTotals();
+        long totalTransactions = current.getTransactions();
+        long failedTransactions = current.getFailed();
         
         if (totalTransactions > 0) {
             double failureRate = (double) failedTransactions / totalTransactions;
@@ -269,4 +343,138 @@ public class DashboardService {
         
         return alerts;
     }
+    
+    /**
+     * Table totals as of the last refresh
+     */
+    public static final class Totals {
+        private long users;
+        private long wallets;
+        private long fundedWallets;
+        private BigDecimal walletBalance = BigDecimal.ZERO;
+        private long loans;
+        private long transactions;
+        private long pending;
+        private long failed;
+        private BigDecimal volume30d = BigDecimal.ZERO;
+        private long newUsers24h;
+        private LocalDateTime trendStart = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(TREND_HOURS - 1);
+        private long[] trend = new long[TREND_HOURS];
+        private long computedAt;
+        
+        private static Totals empty() {
+            Totals empty = new Totals();
+            empty.computedAt = System.currentTimeMillis();
+            return empty;
+        }
+        
+        private Map<String, String> toHash() {
+            Map<String, String> hash = new HashMap<>();
+            hash.put("users", String.valueOf(users));
+            hash.put("wallets", String.valueOf(wallets));
+            hash.put("fundedWallets", String.valueOf(fundedWallets));
+            hash.put("walletBalance", walletBalance.toPlainString());
+            hash.put("loans", String.valueOf(loans));
+            hash.put("transactions", String.valueOf(transactions));
+            hash.put("pending", String.valueOf(pending));
+            hash.put("failed", String.valueOf(failed));
+            hash.put("volume30d", volume30d.toPlainString());
+            hash.put("newUsers24h", String.valueOf(newUsers24h));
+            hash.put("trendStart", trendStart.toString());
+            StringJoiner joined = new StringJoiner(",");
+            for (long count : trend) {
+                joined.add(String.valueOf(count));
+            }
+            hash.put("trend", joined.toString());
+            hash.put("computedAt", String.valueOf(computedAt));
+            return hash;
+        }
+        
+        private static Totals fromHash(Map<Object, Object> hash) {
+            Totals totals = new Totals();
+            totals.users = Long.parseLong(String.valueOf(hash.get("users")));
+            totals.wallets = Long.parseLong(String.valueOf(hash.get("wallets")));
+            totals.fundedWallets = Long.parseLong(String.valueOf(hash.get("fundedWallets")));
+            totals.walletBalance = new BigDecimal(String.valueOf(hash.get("walletBalance")));
+            totals.loans = Long.parseLong(String.valueOf(hash.get("loans")));
+            totals.transactions = Long.parseLong(String.valueOf(hash.get("transactions")));
+            totals.pending = Long.parseLong(String.valueOf(hash.get("pending")));
+            totals.failed = Long.parseLong(String.valueOf(hash.get("failed")));
+            totals.volume30d = new BigDecimal(String.valueOf(hash.get("volume30d")));
+            totals.newUsers24h = Long.parseLong(String.valueOf(hash.get("newUsers24h")));
+            totals.trendStart = LocalDateTime.parse(String.valueOf(hash.get("trendStart")));
+            String[] counts = String.valueOf(hash.get("trend")).split(",");
+            for (int i = 0; i < Math.min(counts.length, TREND_HOURS); i++) {
+                totals.trend[i] = Long.parseLong(counts[i]);
+            }
+            totals.computedAt = Long.parseLong(String.valueOf(hash.get("computedAt")));
+            return totals;
+        }
+        
+        public long getUsers() {
+            return users;
+        }
+        
+        public long getWallets() {
+            return wallets;
+        }
+        
+        public long getFundedWallets() {
+            return fundedWallets;
+        }
+        
+        public BigDecimal getWalletBalance() {
+            return walletBalance;
+        }
+        
+        public long getLoans() {
+            return loans;
+        }
+        
+        public long getTransactions() {
+            return transactions;
+        }
+        
+        public long getPending() {
+            return pending;
+        }
+        
+        public long getFailed() {
+            return failed;
+        }
+        
+        public BigDecimal getVolume30d() {
+            return volume30d;
+        }
+        
+        public long getNewUsers24h() {
+            return newUsers24h;
+        }
+        
+        public LocalDateTime getTrendStart() {
+            return trendStart;
+        }
+        
+        public long[] getTrend() {
+            return trend;
+        }
+        
+        /**
+         * Transactions since midnight, from the hourly trend
+         */
+        public long getTodayTransactions() {
+            LocalDate today = LocalDate.now();
+            long count = 0;
+            for (int i = 0; i < TREND_HOURS; i++) {
+                if (trendStart.plusHours(i).toLocalDate().equals(today)) {
+                    count += trend[i];
+                }
+            }
+            return count;
+        }
+        
+        public long getComputedAt() {
+            return computedAt;
+        }
+    }
 }
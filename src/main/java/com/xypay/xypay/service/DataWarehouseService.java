@@ -1,60 +1,180 @@
 package com.xypay.xypay.service;
 
 import com.xypay.xypay.domain.DataWarehouse;
+import com.xypay.xypay.domain.DataWarehouseHourly;
+import com.xypay.xypay.repository.DataWarehouseHourlyRepository;
 import com.xypay.xypay.repository.DataWarehouseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Data warehouse loads.
+ *
+ * Transactions and sign-ups are rolled up per hour into data_warehouse_hourly with created_at range
+ * predicates, so the source indexes are used; daily facts are sums of a day's hourly rows. Totals that
+ * run across days are carried forward: total customers is the previous day's total plus the day's sign-ups,
+ * and active customers is a distinct count over per-day active user sets rather than a join of wallets
+ * and transactions. An incremental load advances a created_at watermark every few minutes, and a full
+ * load of a day re-reads the day so status changes after the hour closed are picked up. Range backfills
+ * roll up each day in parallel and then chain the daily facts in date order.
+ */
 @Service
 @Transactional
 public class DataWarehouseService {
 
     private static final Logger logger = LoggerFactory.getLogger(DataWarehouseService.class);
     
+    private static final String TRANSACTIONS_WATERMARK = "transactions";
+    
+    // Days in the rolling active-customer window, including the fact date
+    private static final int ACTIVE_WINDOW_DAYS = 30;
+    
+    private static final String HOURLY_TRANSACTIONS_SQL = """
+        SELECT 
+            date_trunc('hour', created_at) as fact_hour,
+            COUNT(*) as total_transactions,
+            COALESCE(SUM(amount), 0) as total_amount,
+            COALESCE(SUM(CASE WHEN type = 'credit' THEN 1 ELSE 0 END), 0) as credit_transactions,
+            COALESCE(SUM(CASE WHEN type = 'credit' THEN amount ELSE 0 END), 0) as credit_amount,
+            COALESCE(SUM(CASE WHEN type = 'debit' THEN 1 ELSE 0 END), 0) as debit_transactions,
+            COALESCE(SUM(CASE WHEN type = 'debit' THEN amount ELSE 0 END), 0) as debit_amount,
+            COALESCE(SUM(CASE WHEN channel = 'mobile' THEN 1 ELSE 0 END), 0) as mobile_transactions,
+            COALESCE(SUM(CASE WHEN channel = 'web' THEN 1 ELSE 0 END), 0) as web_transactions,
+            COALESCE(SUM(CASE WHEN channel = 'api' THEN 1 ELSE 0 END), 0) as api_transactions,
+            COALESCE(SUM(CASE WHEN status = 'completed' THEN 1 ELSE 0 END), 0) as successful_transactions,
+            COALESCE(SUM(CASE WHEN status = 'failed' THEN 1 ELSE 0 END), 0) as failed_transactions,
+            COALESCE(SUM(CASE WHEN status = 'pending' THEN 1 ELSE 0 END), 0) as pending_transactions
+        FROM transactions 
+        WHERE created_at >= ? AND created_at < ?
+        GROUP BY date_trunc('hour', created_at)
+        """;
+    
+    private static final String HOURLY_SIGNUPS_SQL =
+        "SELECT date_trunc('hour', created_at) as fact_hour, COUNT(*) as new_customers FROM users " +
+        "WHERE created_at >= ? AND created_at < ? GROUP BY date_trunc('hour', created_at)";
+    
+    private static final String UPSERT_HOURLY_SQL =
+        "INSERT INTO data_warehouse_hourly (id, fact_hour, fact_date, hour_of_day, total_transactions, total_amount, " +
+        "credit_transactions, credit_amount, debit_transactions, debit_amount, mobile_transactions, web_transactions, " +
+        "api_transactions, successful_transactions, failed_transactions, pending_transactions, new_customers, " +
+        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (fact_hour) DO UPDATE SET total_transactions = EXCLUDED.total_transactions, " +
+        "total_amount = EXCLUDED.total_amount, credit_transactions = EXCLUDED.credit_transactions, " +
+        "credit_amount = EXCLUDED.credit_amount, debit_transactions = EXCLUDED.debit_transactions, " +
+        "debit_amount = EXCLUDED.debit_amount, mobile_transactions = EXCLUDED.mobile_transactions, " +
+        "web_transactions = EXCLUDED.web_transactions, api_transactions = EXCLUDED.api_transactions, " +
+        "successful_transactions = EXCLUDED.successful_transactions, failed_transactions = EXCLUDED.failed_transactions, " +
+        "pending_transactions = EXCLUDED.pending_transactions, new_customers = EXCLUDED.new_customers, " +
+        "updated_at = EXCLUDED.updated_at";
+    
+    // Deterministic ids keep re-runs idempotent without a UUID extension
+    private static final String RECORD_ACTIVE_USERS_SQL = """
+        INSERT INTO data_warehouse_active_users (id, activity_date, user_id, created_at, updated_at)
+        SELECT CAST(md5(CAST(d.activity_date AS text) || CAST(d.user_id AS text)) AS uuid), d.activity_date, d.user_id, ?, ?
+        FROM (
+            SELECT DISTINCT CAST(t.created_at AS date) as activity_date, w.user_id
+            FROM transactions t
+            JOIN wallets w ON w.id = t.wallet_id
+            WHERE t.created_at >= ? AND t.created_at < ?
+        ) d
+        ON CONFLICT (activity_date, user_id) DO NOTHING
+        """;
+    
+    private static final String DAILY_FROM_HOURLY_SQL = """
+        SELECT 
+            COALESCE(SUM(total_transactions), 0) as total_transactions,
+            COALESCE(SUM(total_amount), 0) as total_amount,
+            COALESCE(SUM(credit_transactions), 0) as credit_transactions,
+            COALESCE(SUM(credit_amount), 0) as credit_amount,
+            COALESCE(SUM(debit_transactions), 0) as debit_transactions,
+            COALESCE(SUM(debit_amount), 0) as debit_amount,
+            COALESCE(SUM(mobile_transactions), 0) as mobile_transactions,
+            COALESCE(SUM(web_transactions), 0) as web_transactions,
+            COALESCE(SUM(api_transactions), 0) as api_transactions,
+            COALESCE(SUM(successful_transactions), 0) as successful_transactions,
+            COALESCE(SUM(failed_transactions), 0) as failed_transactions,
+            COALESCE(SUM(pending_transactions), 0) as pending_transactions,
+            COALESCE(SUM(new_customers), 0) as new_customers
+        FROM data_warehouse_hourly
+        WHERE fact_date = ?
+        """;
+    
     @Autowired
     private DataWarehouseRepository dataWarehouseRepository;
     
+    @Autowired
+    private DataWarehouseHourlyRepository dataWarehouseHourlyRepository;
+    
     @Autowired
     private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${warehouse.etl.threads:4}")
+    private int threads;
+    
+    // Rows committed after this many seconds past their created_at are left for the nightly full load
+    @Value("${warehouse.etl.lag-seconds:60}")
+    private long lagSeconds;
+    
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate incrementalTransaction;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "warehouse-etl-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        incrementalTransaction = new TransactionTemplate(transactionManager);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
 
     /**
-     * ETL Process - Extract, Transform, Load data into warehouse
+     * Full load of one day: re-read the day's transactions and sign-ups into hourly rollups, record the
+     * day's active users and rebuild the daily fact, including balance and KYC snapshots
      */
     public void performDailyETL(LocalDate processDate) {
         logger.info("Starting ETL process for date: {}", processDate);
         
         try {
-            // Check if data already exists for this date
-            Optional<DataWarehouse> existing = dataWarehouseRepository.findByFactDate(processDate);
-            DataWarehouse fact = existing.orElse(new DataWarehouse());
-            
-            // Set date dimensions
-            fact.setFactDate(processDate);
-            fact.setYear(processDate.getYear());
-            fact.setMonth(processDate.getMonthValue());
-            fact.setQuarter((processDate.getMonthValue() - 1) / 3 + 1);
-            fact.setDayOfWeek(processDate.getDayOfWeek().getValue());
-            
-            // Extract and transform transaction data
-            extractTransactionFacts(fact, processDate);
-            
-            // Extract and transform customer data
-            extractCustomerFacts(fact, processDate);
-            
-            // Extract and transform wallet data
-            extractWalletFacts(fact, processDate);
-            
-            // Save to warehouse
-            dataWarehouseRepository.save(fact);
+            LocalDateTime dayStart = processDate.atStartOfDay();
+            LocalDateTime dayEnd = processDate.plusDays(1).atStartOfDay();
+            rollupHours(dayStart, dayEnd);
+            recordActiveUsers(dayStart, dayEnd);
+            assembleDailyFact(processDate, true);
             
             logger.info("ETL process completed successfully for date: {}", processDate);
             
@@ -65,29 +185,118 @@ public class DataWarehouseService {
     }
 
     /**
-     * Extract transaction facts
+     * Incremental load from the created_at watermark up to a short lag behind now. The hour holding the
+     * watermark is recomputed from its start, so a partly loaded hour is completed rather than double
+     * counted. The watermark row is locked with SKIP LOCKED, so only one node loads at a time.
+     *
+     * @return The new watermark, or null if another node holds the load
      */
-    private void extractTransactionFacts(DataWarehouse fact, LocalDate processDate) {
-        String sql = """
-            SELECT 
-                COUNT(*) as total_transactions,
-                COALESCE(SUM(amount), 0) as total_amount,
-                COALESCE(SUM(CASE WHEN type = 'credit' THEN 1 ELSE 0 END), 0) as credit_transactions,
-                COALESCE(SUM(CASE WHEN type = 'credit' THEN amount ELSE 0 END), 0) as credit_amount,
-                COALESCE(SUM(CASE WHEN type = 'debit' THEN 1 ELSE 0 END), 0) as debit_transactions,
-                COALESCE(SUM(CASE WHEN type = 'debit' THEN amount ELSE 0 END), 0) as debit_amount,
-                COALESCE(SUM(CASE WHEN channel = 'mobile' THEN 1 ELSE 0 END), 0) as mobile_transactions,
-                COALESCE(SUM(CASE WHEN channel = 'web' THEN 1 ELSE 0 END), 0) as web_transactions,
-                COALESCE(SUM(CASE WHEN channel = 'api' THEN 1 ELSE 0 END), 0) as api_transactions,
-                COALESCE(SUM(CASE WHEN status = 'completed' THEN 1 ELSE 0 END), 0) as successful_transactions,
-                COALESCE(SUM(CASE WHEN status = 'failed' THEN 1 ELSE 0 END), 0) as failed_transactions,
-                COALESCE(SUM(CASE WHEN status = 'pending' THEN 1 ELSE 0 END), 0) as pending_transactions
-            FROM transactions 
-            WHERE DATE(created_at) = ?
-            """;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LocalDateTime runIncrementalETL() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTs = Timestamp.valueOf(now);
+        jdbcTemplate.update(
+            "INSERT INTO data_warehouse_watermarks (id, name, watermark, created_at, updated_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (name) DO NOTHING",
+            UUID.randomUUID(), TRANSACTIONS_WATERMARK, Timestamp.valueOf(now.toLocalDate().atStartOfDay()), nowTs, nowTs);
         
-        Map<String, Object> result = jdbcTemplate.queryForMap(sql, processDate);
+        return incrementalTransaction.execute(status -> {
+            List<LocalDateTime> claimed = jdbcTemplate.query(
+                "SELECT watermark FROM data_warehouse_watermarks WHERE name = ? FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> rs.getTimestamp("watermark").toLocalDateTime(), TRANSACTIONS_WATERMARK);
+            if (claimed.isEmpty()) {
+                return null;
+            }
+            LocalDateTime from = claimed.get(0).truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime upTo = now.minusSeconds(lagSeconds);
+            if (!upTo.isAfter(from)) {
+                return claimed.get(0);
+            }
+            
+            rollupHours(from, upTo);
+            recordActiveUsers(from, upTo);
+            for (LocalDate day = from.toLocalDate(); !day.isAfter(upTo.toLocalDate()); day = day.plusDays(1)) {
+                assembleDailyFact(day, false);
+            }
+            jdbcTemplate.update("UPDATE data_warehouse_watermarks SET watermark = ?, updated_at = ? WHERE name = ?",
+                Timestamp.valueOf(upTo), nowTs, TRANSACTIONS_WATERMARK);
+            logger.debug("Incremental ETL loaded {} to {}", from, upTo);
+            return upTo;
+        });
+    }
+
+    /**
+     * Hourly rollups of a day, for intraday reporting
+     */
+    @Transactional(readOnly = true)
+    public List<DataWarehouseHourly> getHourlyFacts(LocalDate date) {
+        return dataWarehouseHourlyRepository.findByFactDateOrderByFactHour(date);
+    }
+
+    /**
+     * Recompute and upsert every hour in [from, to), writing zero rows for hours with no activity
+     */
+    private void rollupHours(LocalDateTime from, LocalDateTime to) {
+        Timestamp fromTs = Timestamp.valueOf(from);
+        Timestamp toTs = Timestamp.valueOf(to);
+        Map<LocalDateTime, Object[]> rows = new TreeMap<>();
+        Timestamp nowTs = Timestamp.valueOf(LocalDateTime.now());
+        for (LocalDateTime hour = from.truncatedTo(ChronoUnit.HOURS); hour.isBefore(to); hour = hour.plusHours(1)) {
+            rows.put(hour, new Object[] { UUID.randomUUID(), Timestamp.valueOf(hour), Date.valueOf(hour.toLocalDate()),
+                hour.getHour(), 0L, BigDecimal.ZERO, 0L, BigDecimal.ZERO, 0L, BigDecimal.ZERO, 0L, 0L, 0L, 0L, 0L, 0L, 0L,
+                nowTs, nowTs });
+        }
+        
+        jdbcTemplate.query(HOURLY_TRANSACTIONS_SQL, rs -> {
+            Object[] row = rows.get(rs.getTimestamp("fact_hour").toLocalDateTime());
+            if (row != null) {
+                row[4] = rs.getLong("total_transactions");
+                row[5] = rs.getBigDecimal("total_amount");
+                row[6] = rs.getLong("credit_transactions");
+                row[7] = rs.getBigDecimal("credit_amount");
+                row[8] = rs.getLong("debit_transactions");
+                row[9] = rs.getBigDecimal("debit_amount");
+                row[10] = rs.getLong("mobile_transactions");
+                row[11] = rs.getLong("web_transactions");
+                row[12] = rs.getLong("api_transactions");
+                row[13] = rs.getLong("successful_transactions");
+                row[14] = rs.getLong("failed_transactions");
+                row[15] = rs.getLong("pending_transactions");
+            }
+        }, fromTs, toTs);
+        jdbcTemplate.query(HOURLY_SIGNUPS_SQL, rs -> {
+            Object[] row = rows.get(rs.getTimestamp("fact_hour").toLocalDateTime());
+            if (row != null) {
+                row[16] = rs.getLong("new_customers");
+            }
+        }, fromTs, toTs);
         
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_HOURLY_SQL, new ArrayList<>(rows.values()));
+        }
+    }
+
+    private void recordActiveUsers(LocalDateTime from, LocalDateTime to) {
+        Timestamp nowTs = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(RECORD_ACTIVE_USERS_SQL, nowTs, nowTs, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Build a day's fact from its hourly rollups and the carried-forward customer totals
+     *
+     * @param snapshots Also take the wallet balance and verified customer snapshots
+     */
+    private void assembleDailyFact(LocalDate processDate, boolean snapshots) {
+        DataWarehouse fact = dataWarehouseRepository.findByFactDate(processDate).orElse(new DataWarehouse());
+        
+        // Set date dimensions
+        fact.setFactDate(processDate);
+        fact.setYear(processDate.getYear());
+        fact.setMonth(processDate.getMonthValue());
+        fact.setQuarter((processDate.getMonthValue() - 1) / 3 + 1);
+        fact.setDayOfWeek(processDate.getDayOfWeek().getValue());
+        
+        Map<String, Object> result = jdbcTemplate.queryForMap(DAILY_FROM_HOURLY_SQL, Date.valueOf(processDate));
         fact.setTotalTransactions(((Number) result.get("total_transactions")).longValue());
         fact.setTotalAmount(new BigDecimal(result.get("total_amount").toString()));
         fact.setCreditTransactions(((Number) result.get("credit_transactions")).longValue());
@@ -100,41 +309,48 @@ public class DataWarehouseService {
         fact.setSuccessfulTransactions(((Number) result.get("successful_transactions")).longValue());
         fact.setFailedTransactions(((Number) result.get("failed_transactions")).longValue());
         fact.setPendingTransactions(((Number) result.get("pending_transactions")).longValue());
+        
+        extractCustomerFacts(fact, processDate, ((Number) result.get("new_customers")).longValue(), snapshots);
+        if (snapshots) {
+            extractWalletFacts(fact, processDate);
+        }
+        
+        dataWarehouseRepository.save(fact);
     }
 
     /**
      * Extract customer facts
      */
-    private void extractCustomerFacts(DataWarehouse fact, LocalDate processDate) {
-        // New customers on this date
-        String newCustomersSql = "SELECT COUNT(*) FROM users WHERE DATE(created_at) = ?";
-        Long newCustomers = jdbcTemplate.queryForObject(newCustomersSql, Long.class, processDate);
-        fact.setNewCustomers(newCustomers != null ? newCustomers : 0L);
-        
-        // Total customers up to this date
-        String totalCustomersSql = "SELECT COUNT(*) FROM users WHERE DATE(created_at) <= ?";
-        Long totalCustomers = jdbcTemplate.queryForObject(totalCustomersSql, Long.class, processDate);
-        fact.setTotalCustomers(totalCustomers != null ? totalCustomers : 0L);
-        
-        // Active customers (had transactions in last 30 days)
-        String activeCustomersSql = """
-            SELECT COUNT(DISTINCT w.user_id) 
-            FROM wallets w 
-            JOIN transactions t ON w.id = t.wallet_id 
-            WHERE t.created_at BETWEEN ? AND ?
-            """;
-        LocalDate thirtyDaysAgo = processDate.minusDays(30);
-        Long activeCustomers = jdbcTemplate.queryForObject(activeCustomersSql, Long.class, thirtyDaysAgo, processDate);
+    private void extractCustomerFacts(DataWarehouse fact, LocalDate processDate, long newCustomers, boolean snapshots) {
+        Timestamp dayEnd = Timestamp.valueOf(processDate.plusDays(1).atStartOfDay());
+        fact.setNewCustomers(newCustomers);
+        
+        // Total customers carried forward from the previous day when it has been loaded
+        Optional<DataWarehouse> previous = dataWarehouseRepository.findByFactDate(processDate.minusDays(1));
+        if (previous.isPresent() && previous.get().getTotalCustomers() != null && previous.get().getTotalCustomers() > 0) {
+            fact.setTotalCustomers(previous.get().getTotalCustomers() + newCustomers);
+        } else {
+            Long totalCustomers = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE created_at < ?", Long.class, dayEnd);
+            fact.setTotalCustomers(totalCustomers != null ? totalCustomers : 0L);
+        }
+        
+        // Active customers: transacted on any of the last 30 days including this one
+        Long activeCustomers = jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT user_id) FROM data_warehouse_active_users WHERE activity_date BETWEEN ? AND ?",
+            Long.class, Date.valueOf(processDate.minusDays(ACTIVE_WINDOW_DAYS - 1)), Date.valueOf(processDate));
         fact.setActiveCustomers(activeCustomers != null ? activeCustomers : 0L);
         
-        // Verified customers
-        String verifiedCustomersSql = """
-            SELECT COUNT(*) FROM users u 
-            LEFT JOIN user_profiles up ON u.id = up.user_id 
-            WHERE up.kyc_status = 'VERIFIED' AND DATE(u.created_at) <= ?
-            """;
-        Long verifiedCustomers = jdbcTemplate.queryForObject(verifiedCustomersSql, Long.class, processDate);
-        fact.setVerifiedCustomers(verifiedCustomers != null ? verifiedCustomers : 0L);
+        if (snapshots) {
+            // Verified customers
+            String verifiedCustomersSql = """
+                SELECT COUNT(*) FROM users u 
+                JOIN user_profiles up ON u.id = up.user_id 
+                WHERE up.kyc_status = 'VERIFIED' AND u.created_at < ?
+                """;
+            Long verifiedCustomers = jdbcTemplate.queryForObject(verifiedCustomersSql, Long.class, dayEnd);
+            fact.setVerifiedCustomers(verifiedCustomers != null ? verifiedCustomers : 0L);
+        }
     }
 
     /**
@@ -147,10 +363,10 @@ public class DataWarehouseService {
                 COALESCE(AVG(balance), 0) as average_balance
             FROM wallets w
             JOIN users u ON w.user_id = u.id
-            WHERE DATE(u.created_at) <= ?
+            WHERE u.created_at < ?
             """;
         
-        Map<String, Object> result = jdbcTemplate.queryForMap(walletSql, processDate);
+        Map<String, Object> result = jdbcTemplate.queryForMap(walletSql, Timestamp.valueOf(processDate.plusDays(1).atStartOfDay()));
         
         fact.setTotalWalletBalance(new BigDecimal(result.get("total_balance").toString()));
         fact.setAverageWalletBalance(new BigDecimal(result.get("average_balance").toString()));
@@ -272,19 +488,44 @@ public class DataWarehouseService {
     }
 
     /**
-     * Run ETL for date range
+     * Backfill a date range. Each day is rolled up from source in parallel, one partition per day, along
+     * with the active users of the 29 days before the range so the first days' rolling counts are whole;
+     * the daily facts are then built in date order, since each carries its total forward from the day before.
+     * Days commit independently, so a failed day does not undo the rest of the range.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void runETLForDateRange(LocalDate startDate, LocalDate endDate) {
-        LocalDate currentDate = startDate;
+        List<CompletableFuture<Void>> partitions = new ArrayList<>();
+        Set<LocalDate> failed = Collections.synchronizedSet(new HashSet<>());
+        for (LocalDate day = startDate.minusDays(ACTIVE_WINDOW_DAYS - 1); !day.isAfter(endDate); day = day.plusDays(1)) {
+            LocalDate partitionDay = day;
+            boolean inRange = !day.isBefore(startDate);
+            partitions.add(CompletableFuture.runAsync(() -> {
+                LocalDateTime dayStart = partitionDay.atStartOfDay();
+                LocalDateTime dayEnd = partitionDay.plusDays(1).atStartOfDay();
+                try {
+                    if (inRange) {
+                        rollupHours(dayStart, dayEnd);
+                    }
+                    recordActiveUsers(dayStart, dayEnd);
+                } catch (Exception e) {
+                    failed.add(partitionDay);
+                    logger.error("ETL rollup failed for {}: {}", partitionDay, e.getMessage());
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(partitions.toArray(new CompletableFuture[0])).join();
         
-        while (!currentDate.isAfter(endDate)) {
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            if (failed.contains(day)) {
+                continue;
+            }
             try {
-                performDailyETL(currentDate);
-                logger.info("ETL completed for {}", currentDate);
+                assembleDailyFact(day, true);
+                logger.info("ETL completed for {}", day);
             } catch (Exception e) {
-                logger.error("ETL failed for {}: {}", currentDate, e.getMessage());
+                logger.error("ETL failed for {}: {}", day, e.getMessage());
             }
-            currentDate = currentDate.plusDays(1);
         }
     }
 }
@@ -4,12 +4,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Service for sending email notifications.
@@ -55,6 +59,51 @@ public class EmailNotificationService {
         }
     }
     
+    /**
+     * Whether a mail sender is configured at all
+     */
+    public boolean isConfigured() {
+        return mailSender != null;
+    }
+    
+    /**
+     * Send a batch of plain text emails in one call, so the mail sender can reuse one SMTP connection.
+     *
+     * @param messages The messages to send; the from address is filled in
+     * @return The messages that failed to send
+     */
+    public List<SimpleMailMessage> sendEmailBatch(List<SimpleMailMessage> messages) {
+        if (mailSender == null || messages.isEmpty()) {
+            return messages.isEmpty() ? List.of() : new ArrayList<>(messages);
+        }
+        
+        for (SimpleMailMessage message : messages) {
+            message.setFrom(fromEmail);
+        }
+        try {
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+            return List.of();
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                // Connection-level failure: nothing was sent
+                logger.error("Email batch of {} failed: {}", messages.size(), e.getMessage());
+                return new ArrayList<>(messages);
+            }
+            List<SimpleMailMessage> failed = new ArrayList<>(failedMessages.size());
+            for (Object message : failedMessages.keySet()) {
+                if (message instanceof SimpleMailMessage simpleMessage) {
+                    failed.add(simpleMessage);
+                }
+            }
+            logger.error("{} of {} emails in batch failed: {}", failed.size(), messages.size(), e.getMessage());
+            return failed;
+        } catch (Exception e) {
+            logger.error("Email batch of {} failed: {}", messages.size(), e.getMessage());
+            return new ArrayList<>(messages);
+        }
+    }
+    
     /**
      * Send HTML email notification.
      *
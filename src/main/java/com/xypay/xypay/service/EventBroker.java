@@ -0,0 +1,21 @@
+package com.xypay.xypay.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Message broker the outbox relay delivers to. Kafka in production; an in-memory stand-in is
+ * selected with outbox.broker=in-memory for tests and local runs without a broker.
+ */
+public interface EventBroker {
+
+    /**
+     * Send one event; the future completes once the broker has acknowledged it
+     */
+    CompletableFuture<?> send(String topic, String key, String value);
+
+    /**
+     * Push out anything the client is still batching
+     */
+    default void flush() {
+    }
+}
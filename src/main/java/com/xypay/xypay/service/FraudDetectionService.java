@@ -1,22 +1,20 @@
 package com.xypay.xypay.service;
 
-import com.xypay.xypay.domain.BankTransfer;
 import com.xypay.xypay.domain.User;
-import com.xypay.xypay.repository.BankTransferRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service for fraud detection and risk assessment.
  * Implements real-time ML-based transaction monitoring and fraud detection.
+ * Scoring reads windowed counters from {@link FraudFeatureStore} instead of transfer history.
  */
 @Service
 public class FraudDetectionService {
@@ -24,7 +22,7 @@ public class FraudDetectionService {
     private static final Logger logger = LoggerFactory.getLogger(FraudDetectionService.class);
     
     @Autowired
-    private BankTransferRepository bankTransferRepository;
+    private FraudFeatureStore fraudFeatureStore;
     
     // Time windows for pattern analysis (in minutes)
     private static final int SHORT_WINDOW = 5;  // 5 minutes
@@ -51,13 +49,10 @@ public class FraudDetectionService {
         try {
             List<Map<String, Object>> riskFactors = new ArrayList<>();
             int riskScore = 0;
+            FraudFeatureStore.UserFeatures features = fraudFeatureStore.userFeatures(user.getId());
             
             // 1. Velocity Check - Unusual number of transactions in short time
-            LocalDateTime shortWindowStart = LocalDateTime.now().minus(SHORT_WINDOW, ChronoUnit.MINUTES);
-            List<BankTransfer> recentTransfers = bankTransferRepository.findByUser(user);
-            long recentTxns = recentTransfers.stream()
-                .filter(t -> t.getCreatedAt().isAfter(shortWindowStart))
-                .count();
+            long recentTxns = fraudFeatureStore.transfersSince(user.getId(), Duration.ofMinutes(SHORT_WINDOW));
             
             if (recentTxns >= VELOCITY_THRESHOLD) {
                 Map<String, Object> factor = new HashMap<>();
@@ -70,23 +65,11 @@ public class FraudDetectionService {
             }
             
             // 2. Amount Pattern Analysis
-            LocalDateTime longWindowStart = LocalDateTime.now().minus(LONG_WINDOW, ChronoUnit.MINUTES);
-            List<BankTransfer> userTransactions = bankTransferRepository.findByUserAndStatus(user, "completed")
-                .stream()
-                .filter(t -> t.getCreatedAt().isAfter(longWindowStart))
-                .toList();
+            double[] amountStats = features.completedAmountStats(Duration.ofMinutes(LONG_WINDOW));
             
-            if (!userTransactions.isEmpty()) {
-                double meanAmount = userTransactions.stream()
-                    .mapToDouble(t -> t.getAmount().doubleValue())
-                    .average()
-                    .orElse(0.0);
-                
-                double variance = userTransactions.stream()
-                    .mapToDouble(t -> Math.pow(t.getAmount().doubleValue() - meanAmount, 2))
-                    .average()
-                    .orElse(0.0);
-                double stdDev = Math.sqrt(variance);
+            if (amountStats[0] > 0) {
+                double meanAmount = amountStats[1];
+                double stdDev = Math.sqrt(amountStats[2]);
                 
                 if (amount.doubleValue() > meanAmount + (stdDev * AMOUNT_VARIANCE_THRESHOLD)) {
                     Map<String, Object> factor = new HashMap<>();
@@ -108,17 +91,9 @@ public class FraudDetectionService {
             }
             
             // 4. Device Switching Pattern
-            LocalDateTime mediumWindowStart = LocalDateTime.now().minus(MEDIUM_WINDOW, ChronoUnit.MINUTES);
-            List<BankTransfer> mediumWindowTransfers = bankTransferRepository.findByUser(user)
-                .stream()
-                .filter(t -> t.getCreatedAt().isAfter(mediumWindowStart))
-                .toList();
-            Set<String> recentDevices = mediumWindowTransfers.stream()
-                .map(BankTransfer::getDeviceFingerprint)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+            int recentDevices = features.distinctDevicesSince(Duration.ofMinutes(MEDIUM_WINDOW));
             
-            if (recentDevices.size() > 2) {
+            if (recentDevices > 2) {
                 Map<String, Object> factor = new HashMap<>();
                 factor.put("type", "device_switching");
                 factor.put("severity", "high");
@@ -128,14 +103,9 @@ public class FraudDetectionService {
             }
             
             // 5. Recipient Risk Analysis
-            List<BankTransfer> recipientTransfers = bankTransferRepository.findByAccountNumber(recipientAccount)
-                .stream()
-                .filter(t -> "completed".equals(t.getStatus()))
-                .toList();
-            long recipientHistory = recipientTransfers.stream()
-                .map(BankTransfer::getUser)
-                .distinct()
-                .count();
+            long recipientHistory = recipientAccount != null
+                ? fraudFeatureStore.recipientFeatures(recipientAccount).distinctSenders()
+                : 0;
             
             if (recipientHistory > 10) {
                 Map<String, Object> factor = new HashMap<>();
@@ -190,15 +160,12 @@ public class FraudDetectionService {
             
             // Initialize base score from pattern analysis
             int score = (Integer) patternAnalysis.get("risk_score");
+            FraudFeatureStore.UserFeatures features = fraudFeatureStore.userFeatures(user.getId());
             
             // Check if amount is unusually high for the user
             try {
-                List<BankTransfer> completedTransfers = bankTransferRepository.findByUserAndStatus(user, "completed");
-                if (!completedTransfers.isEmpty()) {
-                    double avgTransfer = completedTransfers.stream()
-                        .mapToDouble(t -> t.getAmount().doubleValue())
-                        .average()
-                        .orElse(0.0);
+                if (features.completedCount() > 0) {
+                    double avgTransfer = features.averageCompletedAmount();
                     
                     if (amount.doubleValue() > (avgTransfer * 3)) {  // If amount is 3x higher than average
                         score += 20;
@@ -213,14 +180,8 @@ public class FraudDetectionService {
             
             // Check if recipient is new
             try {
-            List<BankTransfer> userTransfers = bankTransferRepository.findByUser(user);
-            long previousTransfers = userTransfers.stream()
-                .filter(t -> recipientAccount.equals(t.getAccountNumber()) && 
-                           recipientBankCode.equals(t.getBankCode()) && 
-                           "completed".equals(t.getStatus()))
-                .count();
-                
-                if (previousTransfers == 0) {  // New recipient
+                if (recipientAccount != null && recipientBankCode != null
+                        && !features.knowsRecipient(recipientAccount, recipientBankCode)) {  // New recipient
                     score += 15;
                 }
             } catch (Exception e) {
@@ -229,12 +190,7 @@ public class FraudDetectionService {
             
             // Check device fingerprint
             try {
-                List<BankTransfer> userTransfers = bankTransferRepository.findByUser(user);
-                long deviceTransfers = userTransfers.stream()
-                    .filter(t -> deviceFingerprint.equals(t.getDeviceFingerprint()))
-                    .count();
-                
-                if (deviceTransfers == 0) {  // New device
+                if (deviceFingerprint != null && !features.knowsDevice(deviceFingerprint)) {  // New device
                     score += 25;
                 }
             } catch (Exception e) {
@@ -243,12 +199,7 @@ public class FraudDetectionService {
             
             // Check IP address
             try {
-                List<BankTransfer> userTransfers = bankTransferRepository.findByUser(user);
-                long ipTransfers = userTransfers.stream()
-                    .filter(t -> ipAddress.equals(t.getIpAddress()))
-                    .count();
-                
-                if (ipTransfers == 0) {  // New IP
+                if (ipAddress != null && !features.knowsIp(ipAddress)) {  // New IP
                     score += 20;
                 }
             } catch (Exception e) {
@@ -274,11 +225,7 @@ public class FraudDetectionService {
     public boolean shouldRequire2fa(User user, BigDecimal amount, int fraudScore) {
         try {
             // Get user's average transfer amount
-            List<BankTransfer> completedTransfers = bankTransferRepository.findByUserAndStatus(user, "completed");
-            double avgTransfer = completedTransfers.stream()
-                .mapToDouble(t -> t.getAmount().doubleValue())
-                .average()
-                .orElse(0.0);
+            double avgTransfer = fraudFeatureStore.userFeatures(user.getId()).averageCompletedAmount();
             
             // Require 2FA if:
             // 1. Fraud score is high (>70)
@@ -305,11 +252,7 @@ public class FraudDetectionService {
     public boolean shouldRequireApproval(User user, BigDecimal amount, int fraudScore) {
         try {
             // Get user's average transfer amount
-            List<BankTransfer> completedTransfers = bankTransferRepository.findByUserAndStatus(user, "completed");
-            double avgTransfer = completedTransfers.stream()
-                .mapToDouble(t -> t.getAmount().doubleValue())
-                .average()
-                .orElse(0.0);
+            double avgTransfer = fraudFeatureStore.userFeatures(user.getId()).averageCompletedAmount();
             
             // Require approval if:
             // 1. Fraud score is very high (>85)
@@ -337,13 +280,11 @@ public class FraudDetectionService {
         List<String> flags = new ArrayList<>();
         
         try {
+            FraudFeatureStore.UserFeatures features = fraudFeatureStore.userFeatures(user.getId());
+            
             // Check if amount is unusually high
-            List<BankTransfer> completedTransfers = bankTransferRepository.findByUserAndStatus(user, "completed");
-            if (!completedTransfers.isEmpty()) {
-                double avgTransfer = completedTransfers.stream()
-                    .mapToDouble(t -> t.getAmount().doubleValue())
-                    .average()
-                    .orElse(0.0);
+            if (features.completedCount() > 0) {
+                double avgTransfer = features.averageCompletedAmount();
                 
                 if (amount.doubleValue() > (avgTransfer * 3)) {
                     flags.add("unusual_amount");
@@ -351,20 +292,12 @@ public class FraudDetectionService {
             }
             
             // Check if recipient is new
-            List<BankTransfer> userTransfers = bankTransferRepository.findByUser(user);
-            boolean hasPreviousTransfers = userTransfers.stream()
-                .anyMatch(t -> recipientAccount.equals(t.getAccountNumber()) && 
-                              "completed".equals(t.getStatus()));
-            
-            if (!hasPreviousTransfers) {
+            if (!features.knowsRecipient(recipientAccount)) {
                 flags.add("new_recipient");
             }
             
             // Check for multiple transfers in short time
-            LocalDateTime fiveMinutesAgo = LocalDateTime.now().minus(5, ChronoUnit.MINUTES);
-            long recentTransfers = userTransfers.stream()
-                .filter(t -> t.getCreatedAt().isAfter(fiveMinutesAgo))
-                .count();
+            long recentTransfers = fraudFeatureStore.transfersSince(user.getId(), Duration.ofMinutes(SHORT_WINDOW));
             
             if (recentTransfers > 3) {
                 flags.add("rapid_transfers");
@@ -0,0 +1,402 @@
+package com.xypay.xypay.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.xypay.xypay.domain.BankTransfer;
+import com.xypay.xypay.util.SlidingWindowCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-user and per-recipient fraud features kept as sliding-window counters.
+ *
+ * Features are built once from bank_transfers when a user or recipient is first scored, then updated
+ * incrementally as transfers are created and completed (see BankTransferFeatureListener), so scoring
+ * never scans transfer history. Entries are reloaded from the database in the background once the
+ * refresh interval has passed, which bounds how stale a node's view is of transfers recorded on other
+ * nodes without making a scoring call wait on the reload.
+ *
+ * Short-window velocity is the one feature that cannot wait for a refresh, so transfer creations are
+ * also counted in shared per-minute Redis buckets and velocity is read from there.
+ */
+@Service
+public class FraudFeatureStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FraudFeatureStore.class);
+
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final int MAX_KNOWN_VALUES = 2048;
+    private static final int MAX_TRACKED_SENDERS = 64;
+    private static final String COMPLETED = "completed";
+    private static final String VELOCITY_KEY_PREFIX = "fraud:velocity:";
+    private static final long VELOCITY_TTL_SECONDS = Duration.ofMinutes(61).getSeconds();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${fraud.features.max-users:200000}")
+    private long maxUsers;
+
+    @Value("${fraud.features.max-recipients:200000}")
+    private long maxRecipients;
+
+    @Value("${fraud.features.refresh-minutes:10}")
+    private long refreshMinutes;
+
+    private ExecutorService reloader;
+    private LoadingCache<UUID, UserFeatures> users;
+    private LoadingCache<String, RecipientFeatures> recipients;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        reloader = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "fraud-features-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Active entries reload in the background; idle ones are dropped and rebuilt on their next use
+        Duration refresh = Duration.ofMinutes(refreshMinutes);
+        Duration idle = refresh.multipliedBy(6);
+        users = Caffeine.newBuilder()
+            .maximumSize(maxUsers)
+            .refreshAfterWrite(refresh)
+            .expireAfterAccess(idle)
+            .executor(reloader)
+            .build(this::loadUser);
+        recipients = Caffeine.newBuilder()
+            .maximumSize(maxRecipients)
+            .refreshAfterWrite(refresh)
+            .expireAfterAccess(idle)
+            .executor(reloader)
+            .build(this::loadRecipient);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    public UserFeatures userFeatures(UUID userId) {
+        return users.get(userId);
+    }
+
+    public RecipientFeatures recipientFeatures(String accountNumber) {
+        return recipients.get(accountNumber);
+    }
+
+    /**
+     * Transfers the user created within the last window, across all nodes. Windows up to an hour are
+     * read from the shared Redis buckets; longer ones, or any window while Redis is unreachable, fall
+     * back to this node's features.
+     */
+    public long transfersSince(UUID userId, Duration window) {
+        if (window.toMillis() <= HOUR) {
+            long minute = System.currentTimeMillis() / MINUTE;
+            int minutes = (int) Math.max(1, (window.toMillis() + MINUTE - 1) / MINUTE);
+            List<String> keys = new ArrayList<>(minutes);
+            for (int m = 0; m < minutes; m++) {
+                keys.add(velocityKey(userId, minute - m));
+            }
+            try {
+                List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+                if (values != null) {
+                    long total = 0;
+                    for (String value : values) {
+                        if (value != null) {
+                            total += Long.parseLong(value);
+                        }
+                    }
+                    return total;
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to read transfer velocity for user {}: {}", userId, e.getMessage());
+            }
+        }
+        return userFeatures(userId).transfersSince(window);
+    }
+
+    /**
+     * Fold a newly created transfer into the cached features. Users not cached yet pick it up on load.
+     */
+    public void recordCreated(BankTransfer transfer) {
+        if (transfer.getUser() == null) {
+            return;
+        }
+        long createdAt = timeOf(transfer);
+        UserFeatures features = users.getIfPresent(transfer.getUser().getId());
+        if (features != null) {
+            features.onCreated(createdAt, transfer.getDeviceFingerprint(), transfer.getIpAddress());
+        }
+        recordVelocity(transfer.getUser().getId(), createdAt);
+    }
+
+    /**
+     * Fold a transfer that has just reached the completed status into the cached features.
+     */
+    public void recordCompleted(BankTransfer transfer) {
+        if (transfer.getUser() == null || transfer.getAmount() == null) {
+            return;
+        }
+        UUID userId = transfer.getUser().getId();
+        UserFeatures features = users.getIfPresent(userId);
+        if (features != null) {
+            features.onCompleted(System.currentTimeMillis(), transfer.getAmount().doubleValue(),
+                transfer.getAccountNumber(), transfer.getBankCode());
+        }
+        if (transfer.getAccountNumber() != null) {
+            RecipientFeatures recipient = recipients.getIfPresent(transfer.getAccountNumber());
+            if (recipient != null) {
+                recipient.onCompleted(userId);
+            }
+        }
+    }
+
+    private void recordVelocity(UUID userId, long createdAt) {
+        String key = velocityKey(userId, createdAt / MINUTE);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] bucket = key.getBytes(StandardCharsets.UTF_8);
+                connection.stringCommands().incr(bucket);
+                connection.keyCommands().expire(bucket, VELOCITY_TTL_SECONDS);
+                return null;
+            });
+        } catch (Exception e) {
+            // The node-local counter still has it for this node's scoring
+            logger.warn("Failed to record transfer velocity for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private static String velocityKey(UUID userId, long minute) {
+        return VELOCITY_KEY_PREFIX + userId + ":" + minute;
+    }
+
+    private UserFeatures loadUser(UUID userId) {
+        UserFeatures features = new UserFeatures();
+        long now = System.currentTimeMillis();
+        Timestamp weekAgo = Timestamp.valueOf(LocalDateTime.now().minusDays(7));
+
+        // Windowed counters only need the last 7 days
+        jdbcTemplate.query(
+            "SELECT created_at, amount, status FROM bank_transfers WHERE user_id = ? AND created_at >= ?",
+            rs -> {
+                long createdAt = rs.getTimestamp("created_at").getTime();
+                features.created.add(createdAt, 1);
+                features.createdMinutes.add(createdAt, 1);
+                if (COMPLETED.equals(rs.getString("status")) && rs.getBigDecimal("amount") != null) {
+                    features.completedHours.add(createdAt, rs.getBigDecimal("amount").doubleValue());
+                }
+            },
+            userId, weekAgo);
+
+        jdbcTemplate.query(
+            "SELECT COUNT(*) AS cnt, COALESCE(SUM(amount), 0) AS total FROM bank_transfers WHERE user_id = ? AND status = ?",
+            rs -> {
+                features.completedCount = rs.getLong("cnt");
+                features.completedTotal = rs.getBigDecimal("total").doubleValue();
+            },
+            userId, COMPLETED);
+
+        jdbcTemplate.query(
+            "SELECT DISTINCT device_fingerprint FROM bank_transfers WHERE user_id = ? AND device_fingerprint IS NOT NULL LIMIT " + MAX_KNOWN_VALUES,
+            rs -> { features.knownDevices.add(rs.getString(1)); },
+            userId);
+
+        jdbcTemplate.query(
+            "SELECT DISTINCT ip_address FROM bank_transfers WHERE user_id = ? AND ip_address IS NOT NULL LIMIT " + MAX_KNOWN_VALUES,
+            rs -> { features.knownIps.add(rs.getString(1)); },
+            userId);
+
+        jdbcTemplate.query(
+            "SELECT DISTINCT account_number, bank_code FROM bank_transfers WHERE user_id = ? AND status = ? AND account_number IS NOT NULL LIMIT " + MAX_KNOWN_VALUES,
+            rs -> {
+                features.knownAccounts.add(rs.getString(1));
+                features.knownRecipients.add(recipientKey(rs.getString(1), rs.getString(2)));
+            },
+            userId, COMPLETED);
+
+        Timestamp hourAgo = new Timestamp(now - HOUR);
+        jdbcTemplate.query(
+            "SELECT device_fingerprint, MAX(created_at) AS last_seen FROM bank_transfers " +
+            "WHERE user_id = ? AND created_at >= ? AND device_fingerprint IS NOT NULL GROUP BY device_fingerprint",
+            rs -> { features.recentDevices.put(rs.getString(1), rs.getTimestamp(2).getTime()); },
+            userId, hourAgo);
+
+        logger.debug("Loaded fraud features for user {}", userId);
+        return features;
+    }
+
+    private RecipientFeatures loadRecipient(String accountNumber) {
+        RecipientFeatures features = new RecipientFeatures();
+        jdbcTemplate.query(
+            "SELECT DISTINCT user_id FROM bank_transfers WHERE account_number = ? AND status = ? LIMIT " + MAX_TRACKED_SENDERS,
+            rs -> { features.senders.add(rs.getObject(1, UUID.class)); },
+            accountNumber, COMPLETED);
+        return features;
+    }
+
+    private static long timeOf(BankTransfer transfer) {
+        return transfer.getCreatedAt() != null
+            ? transfer.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+            : System.currentTimeMillis();
+    }
+
+    private static String recipientKey(String accountNumber, String bankCode) {
+        return accountNumber + "|" + bankCode;
+    }
+
+    /**
+     * Features of one sender. All access is synchronized on the instance.
+     */
+    public static class UserFeatures {
+        // Per-minute buckets for the last hour and per-hour buckets for the last 7 days
+        private final SlidingWindowCounter createdMinutes = new SlidingWindowCounter(MINUTE, 60);
+        private final SlidingWindowCounter created = new SlidingWindowCounter(HOUR, 168);
+        private final SlidingWindowCounter completedHours = new SlidingWindowCounter(HOUR, 168);
+        private final Map<String, Long> recentDevices = new LinkedHashMap<>();
+        private final Set<String> knownDevices = new HashSet<>();
+        private final Set<String> knownIps = new HashSet<>();
+        private final Set<String> knownAccounts = new HashSet<>();
+        private final Set<String> knownRecipients = new HashSet<>();
+        private long completedCount;
+        private double completedTotal;
+
+        private synchronized void onCreated(long timeMillis, String deviceFingerprint, String ipAddress) {
+            createdMinutes.add(timeMillis, 1);
+            created.add(timeMillis, 1);
+            if (deviceFingerprint != null) {
+                recentDevices.put(deviceFingerprint, timeMillis);
+                addBounded(knownDevices, deviceFingerprint);
+            }
+            if (ipAddress != null) {
+                addBounded(knownIps, ipAddress);
+            }
+        }
+
+        private synchronized void onCompleted(long timeMillis, double amount, String accountNumber, String bankCode) {
+            completedHours.add(timeMillis, amount);
+            completedCount++;
+            completedTotal += amount;
+            if (accountNumber != null) {
+                addBounded(knownAccounts, accountNumber);
+                addBounded(knownRecipients, recipientKey(accountNumber, bankCode));
+            }
+        }
+
+        /**
+         * Transfers this node has seen created within the last window; windows up to an hour use minute
+         * buckets. Scoring reads velocity through {@link FraudFeatureStore#transfersSince(UUID, Duration)}.
+         */
+        public synchronized long transfersSince(Duration window) {
+            long now = System.currentTimeMillis();
+            return window.toMillis() <= HOUR
+                ? createdMinutes.count(now, window.toMillis())
+                : created.count(now, window.toMillis());
+        }
+
+        /**
+         * Count, mean and variance of completed amounts within the window
+         */
+        public synchronized double[] completedAmountStats(Duration window) {
+            double[] stats = completedHours.stats(System.currentTimeMillis(), window.toMillis());
+            double count = stats[0];
+            if (count == 0) {
+                return new double[] { 0, 0, 0 };
+            }
+            double mean = stats[1] / count;
+            double variance = Math.max(0, stats[2] / count - mean * mean);
+            return new double[] { count, mean, variance };
+        }
+
+        public synchronized long completedCount() {
+            return completedCount;
+        }
+
+        public synchronized double averageCompletedAmount() {
+            return completedCount == 0 ? 0.0 : completedTotal / completedCount;
+        }
+
+        public synchronized int distinctDevicesSince(Duration window) {
+            long cutoff = System.currentTimeMillis() - window.toMillis();
+            Iterator<Map.Entry<String, Long>> it = recentDevices.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue() < cutoff) {
+                    it.remove();
+                }
+            }
+            return recentDevices.size();
+        }
+
+        public synchronized boolean knowsDevice(String deviceFingerprint) {
+            return knownDevices.contains(deviceFingerprint);
+        }
+
+        public synchronized boolean knowsIp(String ipAddress) {
+            return knownIps.contains(ipAddress);
+        }
+
+        public synchronized boolean knowsRecipient(String accountNumber) {
+            return knownAccounts.contains(accountNumber);
+        }
+
+        public synchronized boolean knowsRecipient(String accountNumber, String bankCode) {
+            return knownRecipients.contains(recipientKey(accountNumber, bankCode));
+        }
+
+        private static void addBounded(Set<String> values, String value) {
+            if (values.size() < MAX_KNOWN_VALUES) {
+                values.add(value);
+            }
+        }
+    }
+
+    /**
+     * Features of one recipient account. All access is synchronized on the instance.
+     */
+    public static class RecipientFeatures {
+        private final Set<UUID> senders = new HashSet<>();
+
+        private synchronized void onCompleted(UUID senderId) {
+            if (senders.size() < MAX_TRACKED_SENDERS) {
+                senders.add(senderId);
+            }
+        }
+
+        /**
+         * Distinct senders with completed transfers, capped at the tracking limit
+         */
+        public synchronized int distinctSenders() {
+            return senders.size();
+        }
+    }
+}
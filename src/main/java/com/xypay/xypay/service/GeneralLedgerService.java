@@ -1,7 +1,13 @@
 package com.xypay.xypay.service;
 
+import com.xypay.xypay.domain.JournalEntry;
+import com.xypay.xypay.repository.JournalEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.*;
 
 @Service
@@ -13,18 +19,67 @@ public class GeneralLedgerService {
         public String description;
         public Date timestamp;
     }
-    private final List<LedgerEntry> entries = new ArrayList<>();
 
+    @Autowired
+    private PostingEngine postingEngine;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Value("${ledger.base-currency:NGN}")
+    private String baseCurrency;
+
+    /**
+     * Post a manual two-leg entry through the posting engine; GL account codes are the account ids
+     */
     public void postEntry(Long debitAccountId, Long creditAccountId, BigDecimal amount, String description) {
-        LedgerEntry entry = new LedgerEntry();
-        entry.debitAccountId = debitAccountId;
-        entry.creditAccountId = creditAccountId;
-        entry.amount = amount;
-        entry.description = description;
-        entry.timestamp = new Date();
-        entries.add(entry);
+        postingEngine.post(new PostingEngine.JournalBatch(null, null, description)
+            .debit(String.valueOf(debitAccountId), amount, baseCurrency)
+            .credit(String.valueOf(creditAccountId), amount, baseCurrency));
     }
+
+    /**
+     * Most recent manual entries, rebuilt from their journal legs
+     */
     public List<LedgerEntry> getLedgerEntries() {
-        return entries;
+        return getLedgerEntries(500);
+    }
+
+    public List<LedgerEntry> getLedgerEntries(int limit) {
+        List<JournalEntry> legs = journalEntryRepository
+            .findByTxIdIsNullAndBatchIdIsNotNullOrderByCreatedAtDesc(PageRequest.of(0, limit * 2));
+        Map<UUID, LedgerEntry> byBatch = new LinkedHashMap<>();
+        for (JournalEntry leg : legs) {
+            LedgerEntry entry = byBatch.computeIfAbsent(leg.getBatchId(), batchId -> {
+                LedgerEntry created = new LedgerEntry();
+                created.amount = leg.getAmount();
+                created.description = leg.getDescription();
+                created.timestamp = leg.getCreatedAt() != null ? Timestamp.valueOf(leg.getCreatedAt()) : null;
+                return created;
+            });
+            Long accountId = parseAccountId(leg.getGlAccount());
+            if (PostingEngine.DEBIT.equals(leg.getDebitCredit())) {
+                entry.debitAccountId = accountId;
+            } else {
+                entry.creditAccountId = accountId;
+            }
+        }
+        List<LedgerEntry> entries = new ArrayList<>(byBatch.values());
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /**
+     * Trial balance from the maintained GL balances
+     */
+    public PostingEngine.TrialBalance getTrialBalance() {
+        return postingEngine.trialBalance();
+    }
+
+    private static Long parseAccountId(String glAccount) {
+        try {
+            return Long.valueOf(glAccount);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 }
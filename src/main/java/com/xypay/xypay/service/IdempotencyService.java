@@ -1,13 +1,19 @@
 package com.xypay.xypay.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -22,9 +28,39 @@ public class IdempotencyService {
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     private static final String IDEMPOTENCY_KEY_PREFIX = "idempotency:";
     private static final long IDEMPOTENCY_TIMEOUT_HOURS = 24; // 24 hour timeout
     
+    // Extends the TTL only if the key still exists, in a single atomic round trip
+    private static final RedisScript<Long> CHECK_AND_EXTEND_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+        "return redis.call('EXPIRE', KEYS[1], ARGV[1]) else return 0 end",
+        Long.class
+    );
+    
+    private Timer checkTimer;
+    private Timer checkReferenceTimer;
+    private Timer extendTimer;
+    
+    @PostConstruct
+    public void initMetrics() {
+        checkTimer = idempotencyTimer("check");
+        checkReferenceTimer = idempotencyTimer("check_reference");
+        extendTimer = idempotencyTimer("extend");
+    }
+    
+    private Timer idempotencyTimer(String operation) {
+        return Timer.builder("xypay.idempotency.duration")
+            .description("Redis idempotency overhead on the transfer path")
+            .tag("operation", operation)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+    
     /**
      * Get idempotency key from request headers.
      * 
@@ -43,6 +79,7 @@ public class IdempotencyService {
      * @return True if request is duplicate
      */
     public boolean isDuplicateRequest(String idempotencyKey, UUID userId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
                 return false;
@@ -64,6 +101,37 @@ public class IdempotencyService {
         } catch (Exception e) {
             logger.error("Error checking idempotency: {}", e.getMessage());
             return false; // Allow request to proceed on error
+        } finally {
+            sample.stop(checkTimer);
+        }
+    }
+    
+    /**
+     * Check whether a business reference has already been recorded by any node within the TTL.
+     * Unlike request idempotency keys, references are not scoped to a user.
+     * 
+     * @param scope Namespace of the reference (for example transaction references)
+     * @param reference Reference to record
+     * @param ttl How long the reference is remembered
+     * @return True if the reference was already recorded
+     */
+    public boolean isDuplicateReference(String scope, String reference, Duration ttl) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            if (reference == null || reference.trim().isEmpty()) {
+                return false;
+            }
+            
+            String cacheKey = IDEMPOTENCY_KEY_PREFIX + scope + ":" + reference;
+            Boolean isNewKey = redisTemplate.opsForValue().setIfAbsent(cacheKey, "1", ttl);
+            
+            return !Boolean.TRUE.equals(isNewKey);
+            
+        } catch (Exception e) {
+            logger.error("Error checking reference idempotency: {}", e.getMessage());
+            return false; // Fall back to the node-local check on error
+        } finally {
+            sample.stop(checkReferenceTimer);
         }
     }
     
@@ -169,6 +237,7 @@ public class IdempotencyService {
      * @return True if key was extended successfully
      */
     public boolean extendIdempotencyKey(String idempotencyKey, UUID userId, long additionalHours) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
                 return false;
@@ -176,22 +245,20 @@ public class IdempotencyService {
             
             String cacheKey = IDEMPOTENCY_KEY_PREFIX + userId + ":" + idempotencyKey;
             
-            // Check if key exists
-            if (!Boolean.TRUE.equals(redisTemplate.hasKey(cacheKey))) {
-                return false;
-            }
-            
-            // Extend expiration
-            Boolean extended = redisTemplate.expire(
-                cacheKey, 
-                Duration.ofHours(additionalHours)
+            // Check existence and extend expiration atomically
+            Long extended = redisTemplate.execute(
+                CHECK_AND_EXTEND_SCRIPT,
+                Collections.singletonList(cacheKey),
+                String.valueOf(TimeUnit.HOURS.toSeconds(additionalHours))
             );
             
-            return Boolean.TRUE.equals(extended);
+            return extended != null && extended == 1L;
             
         } catch (Exception e) {
             logger.error("Error extending idempotency key: {}", e.getMessage());
             return false;
+        } finally {
+            sample.stop(extendTimer);
         }
     }
     
@@ -0,0 +1,91 @@
+package com.xypay.xypay.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Broker stand-in that keeps the latest events in memory, per topic and in send order. Events never leave
+ * the JVM, so it is only available to the dev and test profiles, with outbox.broker=in-memory; each topic
+ * keeps at most outbox.in-memory.max-records-per-topic events, dropping the oldest.
+ */
+@Service
+@Profile({"dev", "test"})
+@ConditionalOnProperty(name = "outbox.broker", havingValue = "in-memory")
+public class InMemoryEventBroker implements EventBroker {
+
+    @Value("${outbox.in-memory.max-records-per-topic:10000}")
+    private int maxRecordsPerTopic;
+
+    private final Map<String, Deque<Record>> topics = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<?> send(String topic, String key, String value) {
+        Deque<Record> records = topics.computeIfAbsent(topic, t -> new ArrayDeque<>());
+        synchronized (records) {
+            if (records.size() >= maxRecordsPerTopic) {
+                records.pollFirst();
+            }
+            records.addLast(new Record(key, value));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Events still held for a topic, oldest first
+     */
+    public List<Record> records(String topic) {
+        Deque<Record> records = topics.get(topic);
+        if (records == null) {
+            return List.of();
+        }
+        synchronized (records) {
+            return List.copyOf(records);
+        }
+    }
+
+    /**
+     * Remove and return the events held for a topic, oldest first
+     */
+    public List<Record> drain(String topic) {
+        Deque<Record> records = topics.get(topic);
+        if (records == null) {
+            return List.of();
+        }
+        synchronized (records) {
+            List<Record> drained = List.copyOf(records);
+            records.clear();
+            return drained;
+        }
+    }
+
+    public void clear() {
+        topics.clear();
+    }
+
+    public static final class Record {
+        private final String key;
+        private final String value;
+
+        private Record(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
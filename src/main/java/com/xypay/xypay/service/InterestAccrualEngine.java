@@ -0,0 +1,414 @@
+package com.xypay.xypay.service;
+
+import com.xypay.xypay.domain.InterestAccrualCheckpoint;
+import com.xypay.xypay.repository.InterestAccrualCheckpointRepository;
+import com.xypay.xypay.util.TieredInterestCalculator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set-based daily interest accrual for XySave and Spend &amp; Save accounts.
+ *
+ * The account table is split into fixed id ranges that run in parallel. Each range is walked with keyset
+ * pagination (id &gt; last id, ordered by id), interest is computed in fixed point, and every page is
+ * written back with JDBC batch statements in one transaction together with the range's checkpoint. A run
+ * that dies part way is resumed from the last committed page; accounts already credited for the run are
+ * excluded by their last_interest_calculation, so a page is never credited twice.
+ */
+@Service
+public class InterestAccrualEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(InterestAccrualEngine.class);
+
+    public enum Product {
+        XYSAVE,
+        SPEND_AND_SAVE
+    }
+
+    private static final String XYSAVE_PAGE_SQL =
+        "SELECT id, balance FROM xysave_accounts " +
+        "WHERE is_active = true AND balance > 0 AND last_interest_calculation < ? AND id ";
+
+    private static final String SPEND_AND_SAVE_PAGE_SQL =
+        "SELECT id, balance, daily_tier_1_rate, daily_tier_2_rate, daily_tier_3_rate FROM spend_and_save_accounts " +
+        "WHERE is_active = true AND balance > 0 AND last_interest_calculation < ? AND id ";
+
+    private static final String CREDIT_XYSAVE_SQL =
+        "UPDATE xysave_accounts SET balance = balance + ?, total_interest_earned = total_interest_earned + ?, " +
+        "last_interest_calculation = ?, updated_at = ? WHERE id = ? AND last_interest_calculation < ?";
+
+    private static final String CREDIT_SPEND_AND_SAVE_SQL =
+        "UPDATE spend_and_save_accounts SET balance = balance + ?, total_interest_earned = total_interest_earned + ?, " +
+        "last_interest_calculation = ?, updated_at = ? WHERE id = ? AND last_interest_calculation < ?";
+
+    private static final String INSERT_XYSAVE_TRANSACTION_SQL =
+        "INSERT INTO xysave_transactions (id, xysave_account_id, transaction_type, amount, balance_before, " +
+        "balance_after, reference, description, metadata, created_at) " +
+        "VALUES (?, ?, 'INTEREST_CREDIT', ?, ?, ?, ?, ?, CAST('{}' AS json), ?)";
+
+    private static final String INSERT_SPEND_AND_SAVE_TRANSACTION_SQL =
+        "INSERT INTO spend_and_save_transactions (id, spend_and_save_account_id, transaction_type, amount, " +
+        "balance_before, balance_after, reference, description, interest_earned, interest_breakdown, metadata, created_at) " +
+        "VALUES (?, ?, 'INTEREST_CREDIT', ?, ?, ?, ?, 'Daily interest credit', ?, CAST(? AS json), CAST('{}' AS json), ?)";
+
+    private static final String CLAIM_PARTITION_SQL =
+        "UPDATE interest_accrual_checkpoints SET lease_expires_at = ?, updated_at = ? " +
+        "WHERE id = ? AND completed = false AND (lease_expires_at IS NULL OR lease_expires_at < ?)";
+
+    private static final String ADVANCE_CHECKPOINT_SQL =
+        "UPDATE interest_accrual_checkpoints SET last_account_id = ?, accounts_credited = accounts_credited + ?, " +
+        "interest_credited = interest_credited + ?, lease_expires_at = ?, updated_at = ? WHERE id = ?";
+
+    private static final String COMPLETE_CHECKPOINT_SQL =
+        "UPDATE interest_accrual_checkpoints SET completed = true, lease_expires_at = NULL, updated_at = ? WHERE id = ?";
+
+    private static final BigDecimal TIER_1_AMOUNT = new BigDecimal("10000");
+    private static final BigDecimal TIER_2_AMOUNT = new BigDecimal("90000");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InterestAccrualCheckpointRepository checkpointRepository;
+
+    @Value("${interest.accrual.partitions:16}")
+    private int partitions;
+
+    @Value("${interest.accrual.threads:8}")
+    private int threads;
+
+    @Value("${interest.accrual.page-size:1000}")
+    private int pageSize;
+
+    @Value("${interest.accrual.lease-minutes:10}")
+    private long leaseMinutes;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate pageTransaction;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(partitions, 1)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "interest-accrual-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        pageTransaction = new TransactionTemplate(transactionManager);
+        pageTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Accrue one day's interest for every due account of a product, or resume the run for that day.
+     *
+     * @param product Savings product to accrue
+     * @param runDate Business date of the run; each date is accrued at most once per account
+     * @return Accounts credited for the run date so far, including earlier attempts
+     */
+    public long accrue(Product product, LocalDate runDate) {
+        List<InterestAccrualCheckpoint> checkpoints = checkpointsFor(product, runDate);
+
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (InterestAccrualCheckpoint checkpoint : checkpoints) {
+            if (!Boolean.TRUE.equals(checkpoint.getCompleted())) {
+                running.add(CompletableFuture.runAsync(() -> runPartition(product, checkpoint), executor));
+            }
+        }
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+
+        long credited = 0;
+        for (InterestAccrualCheckpoint checkpoint : checkpointRepository.findByRunDateAndProductOrderByPartitionNo(runDate, product.name())) {
+            credited += checkpoint.getAccountsCredited();
+        }
+        logger.info("{} interest accrual for {} ran {} partitions, {} accounts credited", product, runDate, running.size(), credited);
+        return credited;
+    }
+
+    /**
+     * Resume a run that was started for the date but left partitions unfinished (for example after a crash).
+     * Does nothing if no run was started for the date.
+     */
+    public void resumeIncomplete(Product product, LocalDate runDate) {
+        List<InterestAccrualCheckpoint> checkpoints = checkpointRepository.findByRunDateAndProductOrderByPartitionNo(runDate, product.name());
+        if (checkpoints.stream().anyMatch(checkpoint -> !Boolean.TRUE.equals(checkpoint.getCompleted()))) {
+            logger.info("Resuming {} interest accrual for {}", product, runDate);
+            accrue(product, runDate);
+        }
+    }
+
+    private List<InterestAccrualCheckpoint> checkpointsFor(Product product, LocalDate runDate) {
+        List<InterestAccrualCheckpoint> checkpoints = checkpointRepository.findByRunDateAndProductOrderByPartitionNo(runDate, product.name());
+        if (!checkpoints.isEmpty()) {
+            return checkpoints;
+        }
+
+        int count = Math.max(1, partitions);
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<InterestAccrualCheckpoint> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            InterestAccrualCheckpoint checkpoint = new InterestAccrualCheckpoint();
+            checkpoint.setRunDate(runDate);
+            checkpoint.setProduct(product.name());
+            checkpoint.setPartitionNo(i);
+            checkpoint.setPartitionCount(count);
+            checkpoint.setRunStartedAt(startedAt);
+            created.add(checkpoint);
+        }
+        try {
+            return checkpointRepository.saveAllAndFlush(created);
+        } catch (DataIntegrityViolationException e) {
+            // Another node started the same run first
+            return checkpointRepository.findByRunDateAndProductOrderByPartitionNo(runDate, product.name());
+        }
+    }
+
+    private void runPartition(Product product, InterestAccrualCheckpoint checkpoint) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jdbcTemplate.update(CLAIM_PARTITION_SQL, Timestamp.valueOf(now.plusMinutes(leaseMinutes)),
+                Timestamp.valueOf(now), checkpoint.getId(), Timestamp.valueOf(now)) == 0) {
+            logger.debug("{} partition {} is being accrued elsewhere", product, checkpoint.getPartitionNo());
+            return;
+        }
+
+        int partitionNo = checkpoint.getPartitionNo();
+        int partitionCount = checkpoint.getPartitionCount();
+        UUID lower = lowerBound(partitionNo, partitionCount);
+        UUID upper = partitionNo + 1 < partitionCount ? lowerBound(partitionNo + 1, partitionCount) : null;
+        Timestamp due = Timestamp.valueOf(checkpoint.getRunStartedAt());
+        UUID after = checkpoint.getLastAccountId();
+
+        try {
+            while (true) {
+                UUID start = after != null ? after : lower;
+                boolean firstPage = after == null;
+                PageResult page = pageTransaction.execute(status -> runPage(product, checkpoint.getId(), due, start, firstPage, upper));
+                if (page == null || page.scanned == 0) {
+                    break;
+                }
+                after = page.lastId;
+                if (page.scanned < pageSize) {
+                    break;
+                }
+            }
+            jdbcTemplate.update(COMPLETE_CHECKPOINT_SQL, Timestamp.valueOf(LocalDateTime.now()), checkpoint.getId());
+        } catch (Exception e) {
+            // The lease lapses and a later attempt resumes after the last committed page
+            logger.error("{} interest accrual partition {} stopped after {}: {}", product, partitionNo, after, e.getMessage());
+        }
+    }
+
+    private PageResult runPage(Product product, UUID checkpointId, Timestamp due, UUID start, boolean firstPage, UUID upper) {
+        List<Accrual> page = new ArrayList<>(pageSize);
+        String sql = (product == Product.XYSAVE ? XYSAVE_PAGE_SQL : SPEND_AND_SAVE_PAGE_SQL)
+            + (firstPage ? ">= ?" : "> ?")
+            + (upper != null ? " AND id < ?" : "")
+            + " ORDER BY id LIMIT ?";
+        Object[] args = upper != null
+            ? new Object[] { due, start, upper, pageSize }
+            : new Object[] { due, start, pageSize };
+        jdbcTemplate.query(sql, rs -> { page.add(readAccrual(product, rs)); }, args);
+
+        if (page.isEmpty()) {
+            return new PageResult(null, 0);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Accrual> payable = new ArrayList<>(page.size());
+        List<Object[]> credits = new ArrayList<>(page.size());
+        for (Accrual accrual : page) {
+            if (accrual.interest.signum() > 0) {
+                payable.add(accrual);
+                credits.add(new Object[] { accrual.interest, accrual.interest, now, now, accrual.id, due });
+            }
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(
+            product == Product.XYSAVE ? CREDIT_XYSAVE_SQL : CREDIT_SPEND_AND_SAVE_SQL, credits);
+
+        // Only accounts whose balance was actually credited get a transaction row
+        List<Object[]> transactions = new ArrayList<>(payable.size());
+        BigDecimal pageInterest = BigDecimal.ZERO;
+        for (int i = 0; i < payable.size(); i++) {
+            if (updated[i] == 0) {
+                continue;
+            }
+            Accrual accrual = payable.get(i);
+            pageInterest = pageInterest.add(accrual.interest);
+            transactions.add(product == Product.XYSAVE ? xySaveTransactionRow(accrual, now) : spendAndSaveTransactionRow(accrual, now));
+        }
+        if (!transactions.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                product == Product.XYSAVE ? INSERT_XYSAVE_TRANSACTION_SQL : INSERT_SPEND_AND_SAVE_TRANSACTION_SQL, transactions);
+        }
+
+        UUID lastId = page.get(page.size() - 1).id;
+        jdbcTemplate.update(ADVANCE_CHECKPOINT_SQL, lastId, transactions.size(), pageInterest,
+            Timestamp.valueOf(LocalDateTime.now().plusMinutes(leaseMinutes)), now, checkpointId);
+        return new PageResult(lastId, page.size());
+    }
+
+    private Accrual readAccrual(Product product, ResultSet rs) throws SQLException {
+        UUID id = rs.getObject("id", UUID.class);
+        BigDecimal balance = rs.getBigDecimal("balance");
+        if (product == Product.XYSAVE) {
+            return new Accrual(id, balance, dailyInterest(balance, TieredInterestCalculator.DAILY_TIER_1_RATE_UNITS,
+                TieredInterestCalculator.DAILY_TIER_2_RATE_UNITS, TieredInterestCalculator.DAILY_TIER_3_RATE_UNITS), null, null, null);
+        }
+        BigDecimal tier1Rate = rs.getBigDecimal("daily_tier_1_rate");
+        BigDecimal tier2Rate = rs.getBigDecimal("daily_tier_2_rate");
+        BigDecimal tier3Rate = rs.getBigDecimal("daily_tier_3_rate");
+        BigDecimal interest;
+        try {
+            interest = dailyInterest(balance, rateUnits(tier1Rate), rateUnits(tier2Rate), rateUnits(tier3Rate));
+        } catch (ArithmeticException e) {
+            interest = exactDailyInterest(balance, tier1Rate, tier2Rate, tier3Rate);
+        }
+        return new Accrual(id, balance, interest, tier1Rate, tier2Rate, tier3Rate);
+    }
+
+    /**
+     * Tiered daily interest rounded to the balance scale, on the fixed-point path when the balance fits
+     */
+    private static BigDecimal dailyInterest(BigDecimal balance, long tier1Rate, long tier2Rate, long tier3Rate) {
+        try {
+            long balanceUnits = balance.setScale(TieredInterestCalculator.BALANCE_SCALE, RoundingMode.UNNECESSARY)
+                .unscaledValue().longValueExact();
+            return BigDecimal.valueOf(
+                TieredInterestCalculator.dailyInterestUnits(balanceUnits, tier1Rate, tier2Rate, tier3Rate),
+                TieredInterestCalculator.BALANCE_SCALE);
+        } catch (ArithmeticException e) {
+            return exactDailyInterest(balance,
+                BigDecimal.valueOf(tier1Rate, TieredInterestCalculator.RATE_SCALE),
+                BigDecimal.valueOf(tier2Rate, TieredInterestCalculator.RATE_SCALE),
+                BigDecimal.valueOf(tier3Rate, TieredInterestCalculator.RATE_SCALE));
+        }
+    }
+
+    private static BigDecimal exactDailyInterest(BigDecimal balance, BigDecimal tier1Rate, BigDecimal tier2Rate, BigDecimal tier3Rate) {
+        BigDecimal tier1 = balance.min(TIER_1_AMOUNT);
+        BigDecimal tier2 = balance.subtract(tier1).min(TIER_2_AMOUNT);
+        BigDecimal tier3 = balance.subtract(tier1).subtract(tier2);
+        return tier1.multiply(tier1Rate)
+            .add(tier2.multiply(tier2Rate))
+            .add(tier3.multiply(tier3Rate))
+            .setScale(TieredInterestCalculator.BALANCE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static long rateUnits(BigDecimal rate) {
+        return rate.setScale(TieredInterestCalculator.RATE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private static Object[] xySaveTransactionRow(Accrual accrual, Timestamp now) {
+        double annualRate = accrual.interest.doubleValue() * 36500 / accrual.balance.doubleValue();
+        String reference = "XS_INT_" + UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase();
+        return new Object[] {
+            UUID.randomUUID(), accrual.id, accrual.interest, accrual.balance, accrual.balance.add(accrual.interest),
+            reference, String.format("Daily interest credit (%.2f%% p.a.)", annualRate), now
+        };
+    }
+
+    private static Object[] spendAndSaveTransactionRow(Accrual accrual, Timestamp now) {
+        return new Object[] {
+            UUID.randomUUID(), accrual.id, accrual.interest, accrual.balance, accrual.balance.add(accrual.interest),
+            UUID.randomUUID().toString(), accrual.interest, interestBreakdown(accrual), now
+        };
+    }
+
+    /**
+     * Same JSON shape as SpendAndSaveAccount.getInterestBreakdown
+     */
+    private static String interestBreakdown(Accrual accrual) {
+        BigDecimal tier1 = accrual.balance.min(TIER_1_AMOUNT);
+        BigDecimal tier2 = accrual.balance.subtract(tier1).min(TIER_2_AMOUNT);
+        BigDecimal tier3 = accrual.balance.subtract(tier1).subtract(tier2);
+        BigDecimal tier1Interest = tier1.multiply(accrual.tier1Rate);
+        BigDecimal tier2Interest = tier2.multiply(accrual.tier2Rate);
+        BigDecimal tier3Interest = tier3.multiply(accrual.tier3Rate);
+        return String.format(
+            "{\"tier_1\":{\"amount\":%.2f,\"rate\":20,\"interest\":%.6f},\"tier_2\":{\"amount\":%.2f,\"rate\":16,\"interest\":%.6f},\"tier_3\":{\"amount\":%.2f,\"rate\":8,\"interest\":%.6f},\"total_interest\":%.6f}",
+            tier1, tier1Interest, tier2, tier2Interest, tier3, tier3Interest,
+            tier1Interest.add(tier2Interest).add(tier3Interest));
+    }
+
+    /**
+     * Lowest id of a partition; partitions are equal slices of the id space by its most significant bits
+     */
+    private static UUID lowerBound(int partitionNo, int partitionCount) {
+        long step = Long.divideUnsigned(-1L, partitionCount);
+        return new UUID(step * partitionNo, 0L);
+    }
+
+    private static final class Accrual {
+        private final UUID id;
+        private final BigDecimal balance;
+        private final BigDecimal interest;
+        private final BigDecimal tier1Rate;
+        private final BigDecimal tier2Rate;
+        private final BigDecimal tier3Rate;
+
+        private Accrual(UUID id, BigDecimal balance, BigDecimal interest, BigDecimal tier1Rate, BigDecimal tier2Rate, BigDecimal tier3Rate) {
+            this.id = id;
+            this.balance = balance;
+            this.interest = interest;
+            this.tier1Rate = tier1Rate;
+            this.tier2Rate = tier2Rate;
+            this.tier3Rate = tier3Rate;
+        }
+    }
+
+    private static final class PageResult {
+        private final UUID lastId;
+        private final int scanned;
+
+        private PageResult(UUID lastId, int scanned) {
+            this.lastId = lastId;
+            this.scanned = scanned;
+        }
+    }
+}
@@ -3,9 +3,11 @@ package com.xypay.xypay.service;
 import com.xypay.xypay.domain.Transaction;
 import com.xypay.xypay.domain.Wallet;
 import com.xypay.xypay.repository.TransactionRepository;
+import com.xypay.xypay.event.TransactionMetricsEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -22,6 +24,9 @@ public class InterestAccrualService {
     @Autowired
     private InterestRateCalculator interestRateCalculator;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Autowired
     private TransactionRepository transactionRepository;
     
@@ -74,6 +79,7 @@ public class InterestAccrualService {
             transaction.setTimestamp(LocalDateTime.now().withNano(0)); // Avoid precision issues with DB timestamp
             
             transaction = transactionRepository.save(transaction);
+            eventPublisher.publishEvent(new TransactionMetricsEvent(this, transaction, true));
             
             // Note: In a real implementation, you would update the wallet balance here
             // For now, we're just creating the transaction record
@@ -0,0 +1,30 @@
+package com.xypay.xypay.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Kafka delivery for the outbox relay; the default broker. Batching, compression and acks are producer
+ * settings (spring.kafka.producer.*).
+ */
+@Service
+@ConditionalOnProperty(name = "outbox.broker", havingValue = "kafka", matchIfMissing = true)
+public class KafkaEventBroker implements EventBroker {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Override
+    public CompletableFuture<?> send(String topic, String key, String value) {
+        return kafkaTemplate.send(topic, key, value);
+    }
+
+    @Override
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+}
@@ -1,18 +1,32 @@
 package com.xypay.xypay.service;
 
-// Note: KafkaTemplate is only required if Kafka is configured. If not using Kafka, this bean is optional.
-import org.springframework.kafka.core.KafkaTemplate;
+import com.xypay.xypay.domain.OutboxEvent;
+import com.xypay.xypay.repository.OutboxEventRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
+/**
+ * Domain event publishing through a transactional outbox; see {@link OutboxRelay} for delivery.
+ */
 @Service
 public class KafkaEventService {
-    @Autowired(required = false)
-    private KafkaTemplate<String, String> kafkaTemplate;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
 
+    /**
+     * Queue an event for publishing. The event is written in the caller's transaction, so it is
+     * published only if that transaction commits, and delivered at least once after it does.
+     */
+    @Transactional
     public void publishEvent(String topic, String key, String value) {
-        if (kafkaTemplate != null) {
-            kafkaTemplate.send(topic, key, value);
-        }
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setEventKey(key);
+        event.setPayload(value);
+        event.setAvailableAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
     }
 }
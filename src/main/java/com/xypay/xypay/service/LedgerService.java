@@ -7,7 +7,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -19,6 +24,9 @@ public class LedgerService {
     @Autowired
     private AuditTrailService auditTrailService;
     
+    @Autowired
+    private PostingEngine postingEngine;
+    
     /**
      * Create journal entries for a transaction to ensure double-entry bookkeeping
      * 
@@ -28,31 +36,9 @@ public class LedgerService {
     @Transactional
     public JournalEntry[] createJournalEntries(Transaction transaction) {
         try {
-            // Create debit entry
-            JournalEntry debitEntry = new JournalEntry();
-            debitEntry.setTxId(transaction.getId());
-            debitEntry.setAccountId(transaction.getWallet().getId());
-            debitEntry.setDebitCredit("DEBIT");
-            debitEntry.setAmount(transaction.getAmount());
-            debitEntry.setCurrency(transaction.getCurrency());
-            debitEntry.setGlAccount(determineGLAccount(transaction, "DEBIT"));
-            debitEntry.setCreatedAt(LocalDateTime.now());
-            
-            // Save debit entry
-            debitEntry = journalEntryRepository.save(debitEntry);
-            
-            // Create credit entry
-            JournalEntry creditEntry = new JournalEntry();
-            creditEntry.setTxId(transaction.getId());
-            creditEntry.setAccountId(transaction.getWallet().getId());
-            creditEntry.setDebitCredit("CREDIT");
-            creditEntry.setAmount(transaction.getAmount());
-            creditEntry.setCurrency(transaction.getCurrency());
-            creditEntry.setGlAccount(determineGLAccount(transaction, "CREDIT"));
-            creditEntry.setCreatedAt(LocalDateTime.now());
-            
-            // Save credit entry
-            creditEntry = journalEntryRepository.save(creditEntry);
+            List<JournalEntry> entries = postingEngine.post(postingBatch(transaction));
+            JournalEntry debitEntry = entries.get(0);
+            JournalEntry creditEntry = entries.get(1);
             
             // Log the journal entry creation
             auditTrailService.logFinancialTransaction(
@@ -70,6 +56,31 @@ public class LedgerService {
         }
     }
     
+    /**
+     * Create journal entries for many transactions in one posting: one JDBC batch of legs and one
+     * GL balance upsert per account touched
+     * 
+     * @param transactions The transactions to post
+     * @return The created journal entries, debit then credit for each transaction
+     */
+    @Transactional
+    public List<JournalEntry> createJournalEntries(Collection<Transaction> transactions) {
+        List<PostingEngine.JournalBatch> batches = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            batches.add(postingBatch(transaction));
+        }
+        try {
+            List<JournalEntry> entries = postingEngine.post(batches);
+            for (Transaction transaction : transactions) {
+                auditTrailService.logFinancialTransaction(
+                    transaction.getId(), "JOURNAL_ENTRIES_CREATED", "Posted in batch of " + batches.size(), "SYSTEM");
+            }
+            return entries;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create journal entries", e);
+        }
+    }
+    
     /**
      * Reverse journal entries for a transaction reversal
      * 
@@ -79,31 +90,16 @@ public class LedgerService {
     @Transactional
     public JournalEntry[] reverseJournalEntries(Transaction originalTransaction) {
         try {
-            // Create reversal debit entry (opposite of original credit)
-            JournalEntry reversalDebitEntry = new JournalEntry();
-            reversalDebitEntry.setTxId(originalTransaction.getId());
-            reversalDebitEntry.setAccountId(originalTransaction.getWallet().getId());
-            reversalDebitEntry.setDebitCredit("DEBIT");
-            reversalDebitEntry.setAmount(originalTransaction.getAmount());
-            reversalDebitEntry.setCurrency(originalTransaction.getCurrency());
-            reversalDebitEntry.setGlAccount(determineGLAccount(originalTransaction, "CREDIT")); // Opposite of original
-            reversalDebitEntry.setCreatedAt(LocalDateTime.now());
-            
-            // Save reversal debit entry
-            reversalDebitEntry = journalEntryRepository.save(reversalDebitEntry);
-            
-            // Create reversal credit entry (opposite of original debit)
-            JournalEntry reversalCreditEntry = new JournalEntry();
-            reversalCreditEntry.setTxId(originalTransaction.getId());
-            reversalCreditEntry.setAccountId(originalTransaction.getWallet().getId());
-            reversalCreditEntry.setDebitCredit("CREDIT");
-            reversalCreditEntry.setAmount(originalTransaction.getAmount());
-            reversalCreditEntry.setCurrency(originalTransaction.getCurrency());
-            reversalCreditEntry.setGlAccount(determineGLAccount(originalTransaction, "DEBIT")); // Opposite of original
-            reversalCreditEntry.setCreatedAt(LocalDateTime.now());
-            
-            // Save reversal credit entry
-            reversalCreditEntry = journalEntryRepository.save(reversalCreditEntry);
+            // Debit the original credit account and credit the original debit account
+            PostingEngine.JournalBatch reversal = new PostingEngine.JournalBatch(
+                    originalTransaction.getId(), originalTransaction.getWallet().getId(), "Reversal")
+                .debit(determineGLAccount(originalTransaction, "CREDIT"),
+                    originalTransaction.getAmount(), originalTransaction.getCurrency())
+                .credit(determineGLAccount(originalTransaction, "DEBIT"),
+                    originalTransaction.getAmount(), originalTransaction.getCurrency());
+            List<JournalEntry> entries = postingEngine.post(reversal);
+            JournalEntry reversalDebitEntry = entries.get(0);
+            JournalEntry reversalCreditEntry = entries.get(1);
             
             // Log the journal entry reversal
             auditTrailService.logFinancialTransaction(
@@ -121,6 +117,12 @@ public class LedgerService {
         }
     }
     
+    private PostingEngine.JournalBatch postingBatch(Transaction transaction) {
+        return new PostingEngine.JournalBatch(transaction.getId(), transaction.getWallet().getId(), transaction.getDescription())
+            .debit(determineGLAccount(transaction, "DEBIT"), transaction.getAmount(), transaction.getCurrency())
+            .credit(determineGLAccount(transaction, "CREDIT"), transaction.getAmount(), transaction.getCurrency());
+    }
+    
     /**
      * Determine the appropriate GL account for a transaction
      * 
@@ -150,18 +152,24 @@ public class LedgerService {
      */
     public boolean validateJournalEntries(String transactionId) {
         try {
-            // In a real implementation, we would sum all debits and credits
-            // for the transaction and ensure they balance
+            UUID txId = UUID.fromString(transactionId);
+            Map<String, BigDecimal> net = new HashMap<>();
+            for (JournalEntry entry : journalEntryRepository.findByTxId(txId)) {
+                BigDecimal signed = PostingEngine.DEBIT.equals(entry.getDebitCredit())
+                    ? entry.getAmount() : entry.getAmount().negate();
+                net.merge(entry.getCurrency(), signed, BigDecimal::add);
+            }
+            boolean balanced = !net.isEmpty() && net.values().stream().allMatch(amount -> amount.signum() == 0);
             
             // Log the validation
             auditTrailService.logFinancialTransaction(
-                UUID.fromString(transactionId),
+                txId,
                 "JOURNAL_ENTRIES_VALIDATED", 
-                "Validated journal entries for transaction", 
+                balanced ? "Journal entries balance" : "Journal entries do not balance: " + net, 
                 "SYSTEM"
             );
             
-            return true; // Simplified for demonstration
+            return balanced;
         } catch (Exception e) {
             return false;
         }
@@ -0,0 +1,486 @@
+package com.xypay.xypay.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Asynchronous delivery of email, SMS, push and WebSocket notifications.
+ *
+ * Each channel has its own bounded queue and worker threads, so a slow gateway only backs up its own
+ * channel. Enqueueing never blocks: when a channel's queue is full the message is dropped and counted,
+ * which keeps notification delivery off the latency of wallet credits and debits. Workers drain up to a
+ * batch of messages at a time, coalesce messages for the same recipient that carry the same dedupe key
+ * and hand the batch to the gateway; messages without a dedupe key are always sent, even when identical; failed messages are retried with exponential backoff and jitter up to a maximum attempt count.
+ */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private static final String MERGE_KEY = "mergeKey";
+
+    public enum Channel {
+        EMAIL, SMS, PUSH, WEBSOCKET
+    }
+
+    @Autowired
+    private EmailNotificationService emailNotificationService;
+
+    @Autowired
+    private SMSNotificationService smsNotificationService;
+
+    @Autowired
+    private PushNotificationService pushNotificationService;
+
+    @Autowired
+    private WebSocketNotificationService webSocketNotificationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notifications.dispatch.linger-ms:20}")
+    private long lingerMs;
+
+    @Value("${notifications.dispatch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.dispatch.retry-base-ms:500}")
+    private long retryBaseMs;
+
+    @Value("${notifications.dispatch.retry-max-ms:60000}")
+    private long retryMaxMs;
+
+    @Value("${notifications.dispatch.shutdown-timeout-seconds:10}")
+    private long shutdownTimeoutSeconds;
+
+    @Value("${notifications.dispatch.email.queue-capacity:10000}")
+    private int emailQueueCapacity;
+
+    @Value("${notifications.dispatch.email.workers:2}")
+    private int emailWorkers;
+
+    @Value("${notifications.dispatch.email.batch-size:50}")
+    private int emailBatchSize;
+
+    @Value("${notifications.dispatch.sms.queue-capacity:10000}")
+    private int smsQueueCapacity;
+
+    @Value("${notifications.dispatch.sms.workers:4}")
+    private int smsWorkers;
+
+    @Value("${notifications.dispatch.sms.batch-size:50}")
+    private int smsBatchSize;
+
+    @Value("${notifications.dispatch.push.queue-capacity:20000}")
+    private int pushQueueCapacity;
+
+    @Value("${notifications.dispatch.push.workers:4}")
+    private int pushWorkers;
+
+    @Value("${notifications.dispatch.push.batch-size:100}")
+    private int pushBatchSize;
+
+    @Value("${notifications.dispatch.websocket.queue-capacity:20000}")
+    private int webSocketQueueCapacity;
+
+    @Value("${notifications.dispatch.websocket.workers:2}")
+    private int webSocketWorkers;
+
+    @Value("${notifications.dispatch.websocket.batch-size:200}")
+    private int webSocketBatchSize;
+
+    private final Map<Channel, ChannelPipeline> pipelines = new EnumMap<>(Channel.class);
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pipelines.put(Channel.EMAIL, new ChannelPipeline(Channel.EMAIL, emailQueueCapacity, emailWorkers,
+            emailBatchSize, this::sendEmails));
+        pipelines.put(Channel.SMS, new ChannelPipeline(Channel.SMS, smsQueueCapacity, smsWorkers,
+            smsBatchSize, this::sendSms));
+        pipelines.put(Channel.PUSH, new ChannelPipeline(Channel.PUSH, pushQueueCapacity, pushWorkers,
+            pushBatchSize, this::sendPush));
+        pipelines.put(Channel.WEBSOCKET, new ChannelPipeline(Channel.WEBSOCKET, webSocketQueueCapacity, webSocketWorkers,
+            webSocketBatchSize, this::sendWebSocket));
+        pipelines.values().forEach(ChannelPipeline::start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        retryScheduler.shutdownNow();
+        for (ChannelPipeline pipeline : pipelines.values()) {
+            pipeline.stop(shutdownTimeoutSeconds);
+        }
+    }
+
+    public boolean dispatchEmail(String to, String subject, String text) {
+        if (!emailNotificationService.isConfigured()) {
+            logger.debug("Email to {} skipped - mail sender not configured", to);
+            return false;
+        }
+        return dispatch(new Message(Channel.EMAIL, to, subject, text, null));
+    }
+
+    public boolean dispatchSms(String phoneNumber, String text) {
+        if (!smsNotificationService.isConfigured()) {
+            logger.debug("SMS skipped - Twilio not configured");
+            return false;
+        }
+        return dispatch(new Message(Channel.SMS, phoneNumber, null, text, null));
+    }
+
+    public boolean dispatchPush(String fcmToken, String title, String body, Map<String, String> data) {
+        if (!pushNotificationService.isConfigured()) {
+            logger.debug("Push notification skipped - FCM not configured");
+            return false;
+        }
+        return dispatch(new Message(Channel.PUSH, fcmToken, title, body, data));
+    }
+
+    public boolean dispatchWebSocket(String userId, String notificationJson) {
+        return dispatchWebSocket(userId, "notification", null, notificationJson);
+    }
+
+    /**
+     * Queue a real-time event for a user's live sessions
+     *
+     * @param mergeKey Buffered events with the same key are superseded by this one; null never merges
+     */
+    public boolean dispatchWebSocket(String userId, String event, String mergeKey, String json) {
+        Map<String, String> data = mergeKey != null ? Map.of(MERGE_KEY, mergeKey) : null;
+        return dispatch(new Message(Channel.WEBSOCKET, userId, event, json, data));
+    }
+
+    /**
+     * Queue a message for delivery without blocking
+     *
+     * @return False when the message had no recipient or its channel queue was full
+     */
+    public boolean dispatch(Message message) {
+        if (message.recipient == null || message.recipient.isEmpty()) {
+            return false;
+        }
+        return pipelines.get(message.channel).offer(message);
+    }
+
+    public int queueDepth(Channel channel) {
+        return pipelines.get(channel).queue.size();
+    }
+
+    private List<Message> sendEmails(List<Message> batch) {
+        Map<SimpleMailMessage, Message> byMail = new IdentityHashMap<>();
+        List<SimpleMailMessage> mails = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            SimpleMailMessage mail = new SimpleMailMessage();
+            mail.setTo(message.recipient);
+            mail.setSubject(message.title);
+            mail.setText(message.body);
+            mails.add(mail);
+            byMail.put(mail, message);
+        }
+        List<Message> failed = new ArrayList<>();
+        for (SimpleMailMessage mail : emailNotificationService.sendEmailBatch(mails)) {
+            Message message = byMail.get(mail);
+            if (message != null) {
+                failed.add(message);
+            }
+        }
+        return failed;
+    }
+
+    // SMS, push and WebSocket gateways take one message per call; the batch still amortises queue hand-off
+    private List<Message> sendSms(List<Message> batch) {
+        return sendEach(batch, message -> smsNotificationService.sendSMSNotification(message.recipient, message.body));
+    }
+
+    private List<Message> sendPush(List<Message> batch) {
+        return sendEach(batch, message -> pushNotificationService.sendPushNotification(
+            message.recipient, message.title, message.body, message.data));
+    }
+
+    // A user with no live session is not a failure, so only exceptions are retried
+    private List<Message> sendWebSocket(List<Message> batch) {
+        return sendEach(batch, message -> {
+            webSocketNotificationService.sendToUser(message.recipient,
+                message.title != null ? message.title : "notification", message.data.get(MERGE_KEY), message.body);
+            return true;
+        });
+    }
+
+    private static List<Message> sendEach(List<Message> batch, Predicate<Message> send) {
+        List<Message> failed = new ArrayList<>();
+        for (Message message : batch) {
+            boolean sent;
+            try {
+                sent = send.test(message);
+            } catch (Exception e) {
+                sent = false;
+            }
+            if (!sent) {
+                failed.add(message);
+            }
+        }
+        return failed;
+    }
+
+    private long retryDelayMs(int attempts) {
+        long backoff = Math.min(retryMaxMs, retryBaseMs << Math.min(attempts - 1, 16));
+        // Full jitter between half and all of the backoff spreads retries after a provider outage
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * One notification to deliver on one channel
+     */
+    public static final class Message {
+        private final Channel channel;
+        private final String recipient;
+        private final String title;
+        private final String body;
+        private final Map<String, String> data;
+        private final String dedupeKey;
+        private volatile long enqueuedAt;
+        private int attempts;
+
+        /**
+         * @param recipient Email address, phone number, FCM token or user id depending on the channel
+         * @param title Email subject or push title; unused for SMS and WebSocket
+         */
+        public Message(Channel channel, String recipient, String title, String body, Map<String, String> data) {
+            this(channel, recipient, title, body, data, null);
+        }
+
+        /**
+         * @param dedupeKey Messages queued together for the same recipient with the same key are sent once;
+         *                  null never coalesces
+         */
+        public Message(Channel channel, String recipient, String title, String body, Map<String, String> data,
+                       String dedupeKey) {
+            this.channel = Objects.requireNonNull(channel);
+            this.recipient = recipient;
+            this.title = title;
+            this.body = body;
+            this.data = data != null ? data : Collections.emptyMap();
+            this.dedupeKey = dedupeKey;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchSender {
+        /**
+         * @return The messages that failed and may be retried
+         */
+        List<Message> send(List<Message> batch);
+    }
+
+    private final class ChannelPipeline {
+        private final Channel channel;
+        private final BlockingQueue<Message> queue;
+        private final int workers;
+        private final int batchSize;
+        private final BatchSender sender;
+        private final ExecutorService executor;
+        private final Counter sent;
+        private final Counter failed;
+        private final Counter retried;
+        private final Counter dropped;
+        private final Counter coalesced;
+        private final Timer batchTimer;
+        private final Timer queueTimer;
+
+        private ChannelPipeline(Channel channel, int capacity, int workers, int batchSize, BatchSender sender) {
+            this.channel = channel;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.workers = workers;
+            this.batchSize = batchSize;
+            this.sender = sender;
+
+            AtomicInteger threadCount = new AtomicInteger();
+            String threadPrefix = "notify-" + channel.name().toLowerCase(Locale.ROOT) + "-";
+            this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            String tag = channel.name().toLowerCase(Locale.ROOT);
+            this.sent = outcomeCounter(tag, "sent");
+            this.failed = outcomeCounter(tag, "failed");
+            this.retried = outcomeCounter(tag, "retried");
+            this.dropped = outcomeCounter(tag, "dropped");
+            this.coalesced = outcomeCounter(tag, "coalesced");
+            this.batchTimer = Timer.builder("xypay.notifications.dispatch.batch")
+                .description("Time for a gateway to accept one batch of notifications")
+                .tag("channel", tag)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+            this.queueTimer = Timer.builder("xypay.notifications.dispatch.queued")
+                .description("Time a notification waited in its channel queue")
+                .tag("channel", tag)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+            Gauge.builder("xypay.notifications.dispatch.queue.depth", queue, BlockingQueue::size)
+                .description("Notifications waiting in the channel queue")
+                .tag("channel", tag)
+                .register(meterRegistry);
+        }
+
+        private Counter outcomeCounter(String channelTag, String result) {
+            return Counter.builder("xypay.notifications.dispatch")
+                .description("Notifications handled by the dispatch pipeline")
+                .tag("channel", channelTag)
+                .tag("result", result)
+                .register(meterRegistry);
+        }
+
+        private void start() {
+            for (int i = 0; i < workers; i++) {
+                executor.execute(this::work);
+            }
+        }
+
+        private boolean offer(Message message) {
+            message.enqueuedAt = System.nanoTime();
+            if (running && queue.offer(message)) {
+                return true;
+            }
+            // Counted rather than logged at warn: this runs on the caller's thread, often under overload
+            dropped.increment();
+            logger.debug("{} notification queue full, dropped message for {}", channel, message.recipient);
+            return false;
+        }
+
+        private void work() {
+            List<Message> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Message first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    fill(batch);
+                    deliver(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    logger.error("{} notification worker failed: {}", channel, e.getMessage());
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        // Wait up to the linger time for a partial batch to fill
+        private void fill(List<Message> batch) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+            while (batch.size() < batchSize) {
+                queue.drainTo(batch, batchSize - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                    return;
+                }
+                Message next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            }
+        }
+
+        private void deliver(List<Message> batch) {
+            long now = System.nanoTime();
+            List<Message> toSend = new ArrayList<>(batch.size());
+            Set<List<String>> seen = new HashSet<>();
+            for (Message message : batch) {
+                queueTimer.record(now - message.enqueuedAt, TimeUnit.NANOSECONDS);
+                if (message.dedupeKey != null && !seen.add(List.of(message.recipient, message.dedupeKey))) {
+                    coalesced.increment();
+                    continue;
+                }
+                toSend.add(message);
+            }
+
+            List<Message> failures;
+            try {
+                failures = batchTimer.recordCallable(() -> sender.send(toSend));
+            } catch (Exception e) {
+                logger.error("{} notification batch of {} failed: {}", channel, toSend.size(), e.getMessage());
+                failures = toSend;
+            }
+            if (failures == null) {
+                failures = List.of();
+            }
+            sent.increment(toSend.size() - failures.size());
+            for (Message message : failures) {
+                retry(message);
+            }
+        }
+
+        private void retry(Message message) {
+            message.attempts++;
+            if (message.attempts >= maxAttempts || !running) {
+                failed.increment();
+                logger.warn("{} notification to {} failed after {} attempts", channel, message.recipient, message.attempts);
+                return;
+            }
+            retried.increment();
+            try {
+                retryScheduler.schedule(() -> offer(message), retryDelayMs(message.attempts), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                failed.increment();
+            }
+        }
+
+        private void stop(long timeoutSeconds) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                    logger.warn("{} notification workers did not drain in time; {} messages left", channel, queue.size());
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
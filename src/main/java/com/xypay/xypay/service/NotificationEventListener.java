@@ -26,7 +26,7 @@ public class NotificationEventListener {
      */
     @EventListener
     public void handleTransactionEvent(TransactionEvent event) {
-        logger.info("Handling transaction event for transaction ID: {}", event.getTransaction().getId());
+        logger.debug("Handling transaction event for transaction ID: {}", event.getTransaction().getId());
         notificationService.handleTransactionNotifications(event.getTransaction());
     }
     
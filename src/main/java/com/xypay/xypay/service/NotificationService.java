@@ -18,16 +18,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @Transactional
@@ -35,6 +39,11 @@ public class NotificationService {
     
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
     
+    private static final Pattern ACCOUNT_NUMBER = Pattern.compile("\\d{10,}");
+    
+    private static final EnumSet<NotificationLevel> URGENT_LEVELS =
+        EnumSet.of(NotificationLevel.CRITICAL, NotificationLevel.ERROR);
+    
     @Autowired
     private NotificationRepository notificationRepository;
     
@@ -44,6 +53,12 @@ public class NotificationService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private NotificationUnreadCounter unreadCounter;
+    
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    
     @Autowired(required = false)
     private EmailNotificationService emailNotificationService;
     
@@ -98,7 +113,7 @@ public class NotificationService {
      * Handle notifications for all transaction types
      */
     public void handleTransactionNotifications(Transaction transaction) {
-        logger.info("Creating comprehensive notifications for transaction {} - type: {}", 
+        logger.debug("Creating notifications for transaction {} - type: {}", 
             transaction.getId(), transaction.getType());
 
         // Get user details
@@ -120,72 +135,7 @@ public class NotificationService {
             emailSubject = "Transaction Successful: " + transaction.getReference();
             isCredit = false;
         } else if ("credit".equalsIgnoreCase(transaction.getType())) {
-            String senderName = "Unknown";
-            
-            logger.info("Processing WALLET_CREDIT notification for transaction: {}", transaction.getId());
-            logger.info("Transaction metadata: {}", transaction.getMetadata());
-            logger.info("Transaction description: {}", transaction.getDescription());
-            
-            // Try to get sender name from metadata first
-            if (transaction.getMetadata() != null && !transaction.getMetadata().isEmpty()) {
-                try {
-                    JsonNode metadata = objectMapper.readTree(transaction.getMetadata());
-                    logger.info("Parsed metadata: {}", metadata);
-                    if (metadata.has("sender_name")) {
-                        senderName = metadata.get("sender_name").asText();
-                        logger.info("Found sender_name in metadata: {}", senderName);
-                    } else if (metadata.has("sender_account")) {
-                        senderName = metadata.get("sender_account").asText();
-                        logger.info("Found sender_account in metadata: {}", senderName);
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to parse transaction metadata: {}", e.getMessage());
-                }
-            }
-            
-            // Fallback to description if metadata doesn't have sender info
-            if ("Unknown".equals(senderName) && transaction.getDescription() != null && !transaction.getDescription().isEmpty()) {
-                // Extract sender name from description like "Received 5000 from 8063163231"
-                String description = transaction.getDescription();
-                logger.info("Trying to extract from description: {}", description);
-                if (description.startsWith("Received ") && description.contains(" from ")) {
-                    String[] parts = description.split(" from ");
-                    if (parts.length > 1) {
-                        senderName = parts[1];
-                        logger.info("Extracted sender from description: {}", senderName);
-                    }
-                } else if (description.contains(" from ")) {
-                    // Handle other patterns like "Transfer from account123"
-                    String[] parts = description.split(" from ");
-                    if (parts.length > 1) {
-                        senderName = parts[1];
-                        logger.info("Extracted sender from description pattern: {}", senderName);
-                    }
-                } else {
-                    // If no "from" pattern, try to extract meaningful sender info
-                    // Look for account numbers or other identifiers
-                    if (description.matches(".*\\d{10,}.*")) {
-                        // Extract account number pattern
-                        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("\\d{10,}");
-                        java.util.regex.Matcher matcher = pattern.matcher(description);
-                        if (matcher.find()) {
-                            senderName = "Account " + matcher.group();
-                            logger.info("Extracted account number from description: {}", senderName);
-                        } else {
-                            senderName = description;
-                            logger.info("Using full description as sender: {}", senderName);
-                        }
-                    } else {
-                        senderName = description;
-                        logger.info("Using full description as sender: {}", senderName);
-                    }
-                }
-            }
-            
-            // Note: For credit transactions, transaction.getWallet().getUser() is the recipient, not the sender
-            // So we don't use it as a fallback for sender name
-            
-            logger.info("Final sender name: {}", senderName);
+            String senderName = resolveSenderName(transaction);
             
             title = "Money Received: " + transaction.getAmount();
             message = "You received " + transaction.getAmount() + " from " + senderName + 
@@ -228,87 +178,90 @@ public class NotificationService {
         }
         
         notificationRepository.save(notification);
-        logger.info("Created {} notification for user: {}", transaction.getType(), user.getEmail());
+        logger.debug("Created {} notification for user: {}", transaction.getType(), user.getId());
 
-        // Send email notification
-        try {
-            String plainMessage = String.format(
-                "Dear %s,\n\n" +
-                "Your transaction of %s (%s) is now '%s'.\n\n" +
-                "Reference: %s\n" +
-                "Type: %s\n" +
-                "Channel: %s\n" +
-                "Balance after transaction: %s\n\n" +
-                "Thank you for banking with us.",
-                userFullName,
-                transaction.getAmount(),
-                transaction.getDescription(),
-                transaction.getStatus(),
-                transaction.getReference(),
-                transaction.getType(),
-                transaction.getChannel(),
-                transaction.getBalanceAfter()
-            );
-            
-            emailNotificationService.sendEmailNotification(user.getEmail(), emailSubject, plainMessage);
-        } catch (Exception e) {
-            logger.error("Email sending failed: {}", e.getMessage());
-        }
+        // Gateway sends are queued for the dispatch pipeline; nothing below waits on a provider
+        String plainMessage = String.format(
+            "Dear %s,\n\n" +
+            "Your transaction of %s (%s) is now '%s'.\n\n" +
+            "Reference: %s\n" +
+            "Type: %s\n" +
+            "Channel: %s\n" +
+            "Balance after transaction: %s\n\n" +
+            "Thank you for banking with us.",
+            userFullName,
+            transaction.getAmount(),
+            transaction.getDescription(),
+            transaction.getStatus(),
+            transaction.getReference(),
+            transaction.getType(),
+            transaction.getChannel(),
+            transaction.getBalanceAfter()
+        );
+        notificationDispatcher.dispatchEmail(user.getEmail(), emailSubject, plainMessage);
 
-        // Send SMS notification (if phone number exists)
-        try {
-            if (smsNotificationService != null) {
-                // Check if user has a profile with phone number
-                String userPhone = getUserPhone(user);
-                if (userPhone != null && !userPhone.isEmpty()) {
-                    String smsMessage = title + ": " + message;
-                    smsNotificationService.sendSMSNotification(userPhone, smsMessage);
-                } else {
-                    logger.info("No phone number found for user {} - SMS skipped", user.getId());
-                }
-            }
-        } catch (Exception e) {
-            logger.error("SMS sending failed: {}", e.getMessage());
+        String userPhone = getUserPhone(user);
+        if (userPhone != null && !userPhone.isEmpty()) {
+            notificationDispatcher.dispatchSms(userPhone, title + ": " + message);
         }
 
-        // Send push notification
-        try {
-            if (pushNotificationService != null) {
-                // Get user's FCM token (you'll need to implement this in UserProfile)
-                String fcmToken = getUserFcmToken(user);
-                if (fcmToken != null && !fcmToken.isEmpty()) {
-                    Map<String, String> pushData = new HashMap<>();
-                    pushData.put("transaction_id", transaction.getId().toString());
-                    pushData.put("reference", transaction.getReference());
-                    pushData.put("amount", transaction.getAmount().toString());
-                    pushData.put("type", transaction.getType());
-                    pushNotificationService.sendPushNotification(fcmToken, title, message, pushData);
-                } else {
-                    logger.info("No FCM token found for user {} - Push notification skipped", user.getId());
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Push notification failed: {}", e.getMessage());
+        String fcmToken = getUserFcmToken(user);
+        if (fcmToken != null && !fcmToken.isEmpty()) {
+            Map<String, String> pushData = new HashMap<>();
+            pushData.put("transaction_id", transaction.getId().toString());
+            pushData.put("reference", transaction.getReference());
+            pushData.put("amount", transaction.getAmount().toString());
+            pushData.put("type", transaction.getType());
+            notificationDispatcher.dispatchPush(fcmToken, title, message, pushData);
         }
 
-        // Send WebSocket notification
         try {
-            if (webSocketNotificationService != null) {
-                Map<String, Object> wsData = new HashMap<>();
-                wsData.put("id", notification.getId().toString());
-                wsData.put("title", title);
-                wsData.put("message", message);
-                wsData.put("type", notificationType.toString());
-                wsData.put("created_at", notification.getCreatedAt().toString());
-                
-                String wsDataJson = objectMapper.writeValueAsString(wsData);
-                webSocketNotificationService.sendWebSocketNotification(user.getId().toString(), wsDataJson);
-            }
+            Map<String, Object> wsData = new HashMap<>();
+            wsData.put("id", notification.getId().toString());
+            wsData.put("title", title);
+            wsData.put("message", message);
+            wsData.put("type", notificationType.toString());
+            wsData.put("created_at", String.valueOf(notification.getCreatedAt()));
+            notificationDispatcher.dispatchWebSocket(user.getId().toString(), objectMapper.writeValueAsString(wsData));
         } catch (Exception e) {
             logger.error("WebSocket notification failed: {}", e.getMessage());
         }
     }
     
+    /**
+     * Work out who sent a credit: metadata sender_name or sender_account first, then the description
+     * ("Received 5000 from 8063163231", "Transfer from account123"), then any account number in it.
+     */
+    private String resolveSenderName(Transaction transaction) {
+        String metadataJson = transaction.getMetadata();
+        if (metadataJson != null && !metadataJson.isEmpty()) {
+            try {
+                JsonNode metadata = objectMapper.readTree(metadataJson);
+                if (metadata.has("sender_name")) {
+                    return metadata.get("sender_name").asText();
+                }
+                if (metadata.has("sender_account")) {
+                    return metadata.get("sender_account").asText();
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to parse transaction metadata: {}", e.getMessage());
+            }
+        }
+        
+        // For credits the wallet owner is the recipient, so it is never a fallback for the sender
+        String description = transaction.getDescription();
+        if (description == null || description.isEmpty()) {
+            return "Unknown";
+        }
+        int from = description.indexOf(" from ");
+        if (from >= 0) {
+            int end = description.indexOf(" from ", from + 6);
+            return description.substring(from + 6, end >= 0 ? end : description.length());
+        }
+        Matcher matcher = ACCOUNT_NUMBER.matcher(description);
+        return matcher.find() ? "Account " + matcher.group() : description;
+    }
+    
     /**
      * Handle escalation status changes and send notifications
      */
@@ -342,14 +295,9 @@ public class NotificationService {
                 
                 notificationRepository.save(notification);
                 
-                // Send email to creator
-                try {
-                    String emailSubject = "Escalation Created";
-                    String emailMessage = "Your escalation '" + escalation.getSubject() + "' has been created and is being reviewed.";
-                    emailNotificationService.sendEmailNotification(creator.getUser().getEmail(), emailSubject, emailMessage); // Use User email
-                } catch (Exception e) {
-                    logger.error("Escalation email failed: {}", e.getMessage());
-                }
+                // Queue email to creator
+                notificationDispatcher.dispatchEmail(creator.getUser().getEmail(), "Escalation Created",
+                    "Your escalation '" + escalation.getSubject() + "' has been created and is being reviewed.");
             }
         } else {
             // Handle status changes
@@ -385,14 +333,9 @@ public class NotificationService {
                     
                     notificationRepository.save(notification);
                     
-                    // Send email to assigned staff
-                    try {
-                        String emailSubject = "Escalation Resolved";
-                        String emailMessage = "The escalation '" + escalation.getSubject() + "' assigned to you has been resolved.";
-                        emailNotificationService.sendEmailNotification(assignedTo.getUser().getEmail(), emailSubject, emailMessage); // Use User email
-                    } catch (Exception e) {
-                        logger.error("Escalation resolution email failed: {}", e.getMessage());
-                    }
+                    // Queue email to assigned staff
+                    notificationDispatcher.dispatchEmail(assignedTo.getUser().getEmail(), "Escalation Resolved",
+                        "The escalation '" + escalation.getSubject() + "' assigned to you has been resolved.");
                 }
             }
         }
@@ -440,15 +383,10 @@ public class NotificationService {
                 
                 notificationRepository.save(notification);
                 
-                // Send email notification
-                try {
-                    String emailSubject = "Transfer Completed";
-                    String emailMessage = "Your transfer of " + transfer.getAmount() + " to " + 
-                        transfer.getAccountNumber() + " has been completed successfully.";
-                    emailNotificationService.sendEmailNotification(user.getEmail(), emailSubject, emailMessage);
-                } catch (Exception e) {
-                    logger.error("Transfer completion email failed: {}", e.getMessage());
-                }
+                // Queue email notification
+                notificationDispatcher.dispatchEmail(user.getEmail(), "Transfer Completed",
+                    "Your transfer of " + transfer.getAmount() + " to " + 
+                        transfer.getAccountNumber() + " has been completed successfully.");
                 
             } else if ("failed".equals(transfer.getStatus())) {
                 // Send failure notification
@@ -477,15 +415,10 @@ public class NotificationService {
                 
                 notificationRepository.save(notification);
                 
-                // Send email notification
-                try {
-                    String emailSubject = "Transfer Failed";
-                    String emailMessage = "Your transfer of " + transfer.getAmount() + " to " + 
-                        transfer.getAccountNumber() + " has failed. Please contact support.";
-                    emailNotificationService.sendEmailNotification(user.getEmail(), emailSubject, emailMessage);
-                } catch (Exception e) {
-                    logger.error("Transfer failure email failed: {}", e.getMessage());
-                }
+                // Queue email notification
+                notificationDispatcher.dispatchEmail(user.getEmail(), "Transfer Failed",
+                    "Your transfer of " + transfer.getAmount() + " to " + 
+                        transfer.getAccountNumber() + " has failed. Please contact support.");
             }
         }
     }
@@ -495,11 +428,20 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public Page<Notification> getUserNotifications(User user, Pageable pageable) {
-        List<Notification> allNotifications = notificationRepository.findByRecipientOrderByCreatedAtDesc(user);
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), allNotifications.size());
-        List<Notification> pageContent = allNotifications.subList(start, end);
-        return new PageImpl<>(pageContent, pageable, allNotifications.size());
+        return notificationRepository.findByRecipient(user, pageable);
+    }
+    
+    /**
+     * Get the next page of a user's notifications, newest first, after a keyset cursor.
+     * Pass a null cursor for the first page; the last item of a page is the cursor for the next.
+     */
+    @Transactional(readOnly = true)
+    public List<Notification> getUserNotificationsBefore(User user, LocalDateTime beforeCreatedAt, UUID beforeId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (beforeCreatedAt == null || beforeId == null) {
+            return notificationRepository.findLatestByRecipient(user, page);
+        }
+        return notificationRepository.findByRecipientBefore(user, beforeCreatedAt, beforeId, page);
     }
     
     /**
@@ -511,14 +453,16 @@ public class NotificationService {
     }
     
     /**
-     * Get unread notifications for a user
+     * Get the next page of a user's unread notifications, newest first, after a keyset cursor.
+     * Pass a null cursor for the first page; the last item of a page is the cursor for the next.
      */
     @Transactional(readOnly = true)
-    public List<Notification> getUnreadNotifications(User user) {
-        return notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> !notification.isRead())
-            .toList();
+    public List<Notification> getUnreadNotificationsBefore(User user, LocalDateTime beforeCreatedAt, UUID beforeId, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (beforeCreatedAt == null || beforeId == null) {
+            return notificationRepository.findLatestUnreadByRecipient(user, page);
+        }
+        return notificationRepository.findUnreadByRecipientBefore(user, beforeCreatedAt, beforeId, page);
     }
     
     /**
@@ -526,10 +470,7 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public long countUnreadNotifications(User user) {
-        return notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> !notification.isRead())
-            .count();
+        return unreadCounter.unreadCount(user.getId());
     }
     
     /**
@@ -561,12 +502,9 @@ public class NotificationService {
      */
     @Transactional
     public int markAllAsRead(User user) {
-        List<Notification> unreadNotifications = getUnreadNotifications(user);
-        for (Notification notification : unreadNotifications) {
-            notification.markAsRead();
-            notificationRepository.save(notification);
-        }
-        return unreadNotifications.size();
+        int updated = notificationRepository.markAllReadForRecipient(user, NotificationStatus.READ, LocalDateTime.now());
+        unreadCounter.invalidate(user.getId());
+        return updated;
     }
     
     /**
@@ -574,13 +512,7 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public Page<Notification> getUserNotificationsByType(User user, NotificationType type, Pageable pageable) {
-        List<Notification> notifications = notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> notification.getNotificationType() == type)
-            .toList();
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), notifications.size());
-        return new PageImpl<>(notifications.subList(start, end), pageable, notifications.size());
+        return notificationRepository.findByRecipientAndNotificationType(user, type, pageable);
     }
     
     /**
@@ -588,13 +520,7 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public Page<Notification> getUserNotificationsByLevel(User user, NotificationLevel level, Pageable pageable) {
-        List<Notification> notifications = notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> notification.getLevel() == level)
-            .toList();
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), notifications.size());
-        return new PageImpl<>(notifications.subList(start, end), pageable, notifications.size());
+        return notificationRepository.findByRecipientAndLevel(user, level, pageable);
     }
     
     /**
@@ -602,13 +528,7 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public Page<Notification> getUserNotificationsByStatus(User user, NotificationStatus status, Pageable pageable) {
-        List<Notification> notifications = notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> notification.getStatus() == status)
-            .toList();
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), notifications.size());
-        return new PageImpl<>(notifications.subList(start, end), pageable, notifications.size());
+        return notificationRepository.findByRecipientAndStatus(user, status, pageable);
     }
     
     /**
@@ -624,11 +544,7 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public List<Notification> getUrgentNotifications(User user) {
-        return notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> notification.getLevel() == NotificationLevel.CRITICAL || 
-                                   notification.getLevel() == NotificationLevel.ERROR)
-            .toList();
+        return notificationRepository.findByRecipientAndLevelInOrderByCreatedAtDesc(user, URGENT_LEVELS);
     }
     
     /**
@@ -636,10 +552,7 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public List<Notification> getActionableNotifications(User user) {
-        return notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> notification.getActionUrl() != null && !notification.getActionUrl().isEmpty())
-            .toList();
+        return notificationRepository.findActionableByRecipient(user);
     }
     
     /**
@@ -647,16 +560,13 @@ public class NotificationService {
      */
     @Transactional
     public int bulkMarkAsRead(List<UUID> notificationIds, User user) {
-        int count = 0;
-        for (UUID notificationId : notificationIds) {
-            Notification notification = notificationRepository.findById(notificationId).orElse(null);
-            if (notification != null && notification.getRecipient().getId().equals(user.getId())) {
-                notification.markAsRead();
-                notificationRepository.save(notification);
-                count++;
-            }
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
         }
-        return count;
+        int updated = notificationRepository.markReadForRecipient(
+            user, new LinkedHashSet<>(notificationIds), NotificationStatus.READ, LocalDateTime.now());
+        unreadCounter.adjust(user.getId(), -updated);
+        return updated;
     }
     
     /**
@@ -664,16 +574,13 @@ public class NotificationService {
      */
     @Transactional
     public int bulkMarkAsUnread(List<UUID> notificationIds, User user) {
-        int count = 0;
-        for (UUID notificationId : notificationIds) {
-            Notification notification = notificationRepository.findById(notificationId).orElse(null);
-            if (notification != null && notification.getRecipient().getId().equals(user.getId())) {
-                notification.markAsUnread();
-                notificationRepository.save(notification);
-                count++;
-            }
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
         }
-        return count;
+        int updated = notificationRepository.markUnreadForRecipient(
+            user, new LinkedHashSet<>(notificationIds), NotificationStatus.DELIVERED, LocalDateTime.now());
+        unreadCounter.adjust(user.getId(), updated);
+        return updated;
     }
     
     /**
@@ -713,36 +620,16 @@ public class NotificationService {
     @Transactional(readOnly = true)
     public Map<String, Object> getNotificationStatistics(User user) {
         Map<String, Object> stats = new HashMap<>();
-        List<Notification> allNotifications = notificationRepository.findByRecipientOrderByCreatedAtDesc(user);
         
-        // Count by type
-        Map<String, Long> typeMap = allNotifications.stream()
-            .collect(java.util.stream.Collectors.groupingBy(
-                notification -> notification.getNotificationType().toString(),
-                java.util.stream.Collectors.counting()
-            ));
-        stats.put("byType", typeMap);
-        
-        // Count by level
-        Map<String, Long> levelMap = allNotifications.stream()
-            .collect(java.util.stream.Collectors.groupingBy(
-                notification -> notification.getLevel().toString(),
-                java.util.stream.Collectors.counting()
-            ));
-        stats.put("byLevel", levelMap);
-        
-        // Count by status
-        Map<String, Long> statusMap = allNotifications.stream()
-            .collect(java.util.stream.Collectors.groupingBy(
-                notification -> notification.getStatus().toString(),
-                java.util.stream.Collectors.counting()
-            ));
-        stats.put("byStatus", statusMap);
+        // Grouped counts are computed by the database
+        stats.put("byType", groupedCounts(notificationRepository.countByTypeForRecipient(user)));
+        stats.put("byLevel", groupedCounts(notificationRepository.countByLevelForRecipient(user)));
+        stats.put("byStatus", groupedCounts(notificationRepository.countByStatusForRecipient(user)));
         
         // Total counts
         stats.put("totalUnread", countUnreadNotifications(user));
-        stats.put("totalUrgent", getUrgentNotifications(user).size());
-        stats.put("totalActionable", getActionableNotifications(user).size());
+        stats.put("totalUrgent", notificationRepository.countByRecipientAndLevelIn(user, URGENT_LEVELS));
+        stats.put("totalActionable", notificationRepository.countActionableByRecipient(user));
         
         return stats;
     }
@@ -752,15 +639,15 @@ public class NotificationService {
      */
     @Transactional(readOnly = true)
     public List<Notification> getNotificationsByDateRange(User user, LocalDateTime startDate, LocalDateTime endDate) {
-        return notificationRepository.findByRecipientOrderByCreatedAtDesc(user)
-            .stream()
-            .filter(notification -> {
-                LocalDateTime createdAt = notification.getCreatedAt();
-                return createdAt != null && 
-                       (createdAt.isEqual(startDate) || createdAt.isAfter(startDate)) &&
-                       (createdAt.isEqual(endDate) || createdAt.isBefore(endDate));
-            })
-            .toList();
+        return notificationRepository.findByRecipientAndCreatedAtBetweenOrderByCreatedAtDesc(user, startDate, endDate);
+    }
+    
+    private static Map<String, Long> groupedCounts(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(String.valueOf(row[0]), ((Number) row[1]).longValue());
+        }
+        return counts;
     }
     
     /**
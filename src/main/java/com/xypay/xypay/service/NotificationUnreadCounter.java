@@ -0,0 +1,160 @@
+package com.xypay.xypay.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xypay.xypay.repository.NotificationRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * Per-user unread notification counts for the bell icon.
+ *
+ * The shared count lives in Redis and is seeded from a single indexed COUNT the first time it is read;
+ * a short-lived Caffeine near-cache in front of it absorbs polling. Creates and read-state changes adjust
+ * the count after their transaction commits, and only while the key exists, so a count that was never
+ * seeded is not started from a wrong value. Bulk updates drop the key instead and the next read recounts.
+ * The Redis key carries a TTL, which bounds any drift to one expiry period.
+ */
+@Service
+public class NotificationUnreadCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationUnreadCounter.class);
+
+    private static final String KEY_PREFIX = "notifications:unread:";
+
+    // INCRBY only when the count has been seeded; never lets it go negative
+    private static final RedisScript<Long> ADJUST_IF_PRESENT_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+        "local v = redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+        "if v < 0 then redis.call('SET', KEYS[1], 0, 'KEEPTTL') v = 0 end " +
+        "return v else return -1 end",
+        Long.class
+    );
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Value("${notifications.unread.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${notifications.unread.local-ttl-seconds:2}")
+    private long localTtlSeconds;
+
+    @Value("${notifications.unread.local-max-users:100000}")
+    private long localMaxUsers;
+
+    private Cache<UUID, Long> local;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+            .maximumSize(localMaxUsers)
+            .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+            .build();
+    }
+
+    /**
+     * Unread count for a user, from the near-cache, Redis, or one COUNT query in that order
+     */
+    public long unreadCount(UUID userId) {
+        return local.get(userId, this::load);
+    }
+
+    public void increment(UUID userId) {
+        adjust(userId, 1);
+    }
+
+    public void decrement(UUID userId) {
+        adjust(userId, -1);
+    }
+
+    /**
+     * Shift the count by delta once the current transaction commits
+     */
+    public void adjust(UUID userId, long delta) {
+        if (userId == null || delta == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            local.invalidate(userId);
+            try {
+                redisTemplate.execute(ADJUST_IF_PRESENT_SCRIPT, Collections.singletonList(key(userId)),
+                    String.valueOf(delta));
+            } catch (Exception e) {
+                logger.warn("Failed to adjust unread count for user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Forget the count once the current transaction commits; the next read recounts from the database
+     */
+    public void invalidate(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            local.invalidate(userId);
+            try {
+                redisTemplate.delete(key(userId));
+            } catch (Exception e) {
+                logger.warn("Failed to invalidate unread count for user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    private Long load(UUID userId) {
+        String key = key(userId);
+        try {
+            String cached = redisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+        } catch (Exception e) {
+            logger.warn("Redis unavailable for unread count of user {}: {}", userId, e.getMessage());
+            return notificationRepository.countUnreadByRecipientId(userId);
+        }
+
+        long count = notificationRepository.countUnreadByRecipientId(userId);
+        try {
+            // NX: never overwrite a count another node seeded and may already have adjusted
+            redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(count), Duration.ofMinutes(ttlMinutes));
+        } catch (Exception e) {
+            logger.warn("Failed to seed unread count for user {}: {}", userId, e.getMessage());
+        }
+        return count;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String key(UUID userId) {
+        return KEY_PREFIX + userId;
+    }
+}
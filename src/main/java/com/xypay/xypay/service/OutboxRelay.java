@@ -0,0 +1,261 @@
+package com.xypay.xypay.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers outbox events to the broker in batches.
+ *
+ * A batch is claimed in one short statement: rows are picked with FOR UPDATE SKIP LOCKED and leased by
+ * moving their available_at past the send timeout, so relays on several nodes never send the same rows
+ * concurrently and no transaction or row lock is held while the broker is called. All events of a batch
+ * are handed to the producer before waiting on any acknowledgement, which lets the Kafka client batch and
+ * compress them. Rows are marked published only after the broker has acknowledged them; failures are
+ * retried with exponential backoff, and rows of a relay that died mid-send come back when their lease
+ * runs out, so delivery is at least once.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final String CLAIM_SQL =
+        "UPDATE outbox_events SET available_at = ?, updated_at = ? WHERE id IN (" +
+        "SELECT id FROM outbox_events WHERE published_at IS NULL AND available_at <= ? " +
+        "ORDER BY available_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "RETURNING id, topic, event_key, payload, attempts, created_at";
+
+    // Added to the send timeout for the lease on a claimed batch
+    private static final long LEASE_MARGIN_SECONDS = 30;
+
+    private static final String MARK_PUBLISHED_SQL =
+        "UPDATE outbox_events SET published_at = ?, attempts = attempts + 1, last_error = NULL, updated_at = ? WHERE id = ?";
+
+    private static final String MARK_FAILED_SQL =
+        "UPDATE outbox_events SET attempts = attempts + 1, available_at = ?, last_error = ?, updated_at = ? WHERE id = ?";
+
+    private static final String BACKLOG_SQL =
+        "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest FROM outbox_events WHERE published_at IS NULL";
+
+    private static final String PURGE_SQL =
+        "DELETE FROM outbox_events WHERE id IN " +
+        "(SELECT id FROM outbox_events WHERE published_at IS NOT NULL AND published_at < ? LIMIT ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EventBroker eventBroker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${outbox.relay.max-backoff-seconds:300}")
+    private long maxBackoffSeconds;
+
+    @Value("${outbox.retention-hours:72}")
+    private long retentionHours;
+
+    private Counter publishedCounter;
+    private Counter failedCounter;
+    private Timer batchTimer;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        publishedCounter = Counter.builder("xypay.outbox.events")
+            .description("Outbox events handled by the relay")
+            .tag("result", "published")
+            .register(meterRegistry);
+        failedCounter = Counter.builder("xypay.outbox.events")
+            .description("Outbox events handled by the relay")
+            .tag("result", "failed")
+            .register(meterRegistry);
+        batchTimer = Timer.builder("xypay.outbox.relay.batch")
+            .description("Time to claim, send and mark one outbox batch")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        Gauge.builder("xypay.outbox.pending", pending, AtomicLong::get)
+            .description("Outbox events not yet published")
+            .register(meterRegistry);
+        Gauge.builder("xypay.outbox.lag.seconds", lagSeconds, AtomicLong::get)
+            .description("Age of the oldest unpublished outbox event")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Drain the outbox until a batch comes back short, then refresh the backlog gauges
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        try {
+            int claimed;
+            do {
+                claimed = batchTimer.record(this::relayBatch);
+            } while (claimed >= batchSize);
+        } catch (Exception e) {
+            logger.error("Outbox relay failed: {}", e.getMessage());
+        }
+        refreshBacklog();
+    }
+
+    /**
+     * Delete published events past the retention window, a bounded chunk at a time
+     */
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:3600000}", initialDelay = 600000)
+    public void purgePublished() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        int deleted;
+        int total = 0;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, cutoff, 10000);
+            total += deleted;
+        } while (deleted > 0);
+        if (total > 0) {
+            logger.info("Purged {} published outbox events", total);
+        }
+    }
+
+    private int relayBatch() {
+        // Claimed and leased in its own auto-committed statement; nothing is held open while sending
+        LocalDateTime claimedAt = LocalDateTime.now();
+        Timestamp leaseUntil = Timestamp.valueOf(claimedAt.plusSeconds(
+            TimeUnit.MILLISECONDS.toSeconds(sendTimeoutMs) + LEASE_MARGIN_SECONDS));
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        jdbcTemplate.query(CLAIM_SQL, rs -> {
+            batch.add(new PendingEvent(rs.getObject("id", UUID.class), rs.getString("topic"),
+                rs.getString("event_key"), rs.getString("payload"), rs.getInt("attempts"),
+                rs.getTimestamp("created_at")));
+        }, leaseUntil, Timestamp.valueOf(claimedAt), Timestamp.valueOf(claimedAt), batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // RETURNING does not keep the claim order
+        batch.sort(Comparator.comparing(event -> event.createdAt, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (PendingEvent event : batch) {
+            try {
+                sends.add(eventBroker.send(event.topic, event.key, event.payload));
+            } catch (Exception e) {
+                sends.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        eventBroker.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTs = Timestamp.valueOf(now);
+        List<Object[]> published = new ArrayList<>(batch.size());
+        List<Object[]> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingEvent event = batch.get(i);
+            String error = awaitAck(sends.get(i), deadline);
+            if (error == null) {
+                published.add(new Object[] { nowTs, nowTs, event.id });
+            } else {
+                failed.add(new Object[] { Timestamp.valueOf(now.plusSeconds(backoffSeconds(event.attempts))),
+                    truncate(error), nowTs, event.id });
+            }
+        }
+
+        if (!published.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_PUBLISHED_SQL, published);
+            publishedCounter.increment(published.size());
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failed);
+            failedCounter.increment(failed.size());
+            logger.warn("{} of {} outbox events failed to publish and will be retried", failed.size(), batch.size());
+        }
+        return batch.size();
+    }
+
+    /**
+     * Wait for one acknowledgement within the batch deadline
+     *
+     * @return Null when acknowledged, otherwise the failure reason
+     */
+    private static String awaitAck(CompletableFuture<?> send, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause() != null ? e.getCause().toString() : e.toString();
+        } catch (TimeoutException e) {
+            return "Timed out waiting for broker acknowledgement";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted waiting for broker acknowledgement";
+        }
+    }
+
+    private long backoffSeconds(int attempts) {
+        return Math.min(maxBackoffSeconds, 1L << Math.min(attempts, 20));
+    }
+
+    private void refreshBacklog() {
+        try {
+            jdbcTemplate.query(BACKLOG_SQL, rs -> {
+                pending.set(rs.getLong("pending"));
+                Timestamp oldest = rs.getTimestamp("oldest");
+                lagSeconds.set(oldest != null
+                    ? Math.max(0, (System.currentTimeMillis() - oldest.getTime()) / 1000)
+                    : 0);
+            });
+        } catch (Exception e) {
+            logger.debug("Could not read outbox backlog: {}", e.getMessage());
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    private static final class PendingEvent {
+        private final UUID id;
+        private final String topic;
+        private final String key;
+        private final String payload;
+        private final int attempts;
+        private final Timestamp createdAt;
+
+        private PendingEvent(UUID id, String topic, String key, String payload, int attempts, Timestamp createdAt) {
+            this.id = id;
+            this.topic = topic;
+            this.key = key;
+            this.payload = payload;
+            this.attempts = attempts;
+            this.createdAt = createdAt;
+        }
+    }
+}
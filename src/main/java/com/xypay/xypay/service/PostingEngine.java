@@ -0,0 +1,350 @@
+package com.xypay.xypay.service;
+
+import com.xypay.xypay.domain.GLAccountBalance;
+import com.xypay.xypay.domain.JournalEntry;
+import com.xypay.xypay.repository.GLAccountBalanceRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Set-based double-entry posting.
+ *
+ * Callers build {@link JournalBatch}es of debit and credit legs. A batch is rejected unless its debits
+ * equal its credits in every currency; that check happens in memory before anything is written. All
+ * legs of a post are then inserted with one JDBC batch, and the running totals in gl_account_balances
+ * are moved with one upsert per GL account and currency, so the trial balance is a read of those
+ * totals rather than a scan of journal_entries. Upserts are issued in account order, so concurrent
+ * posts touching the same accounts lock them in the same order.
+ *
+ * Journal entries written before the totals existed are summed into gl_account_balances once at startup,
+ * while the table is still empty.
+ */
+@Service
+public class PostingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostingEngine.class);
+
+    public static final String DEBIT = "DEBIT";
+    public static final String CREDIT = "CREDIT";
+
+    private static final String INSERT_ENTRY_SQL =
+        "INSERT INTO journal_entries (id, tx_id, account_id, debit_credit, amount, currency, gl_account, " +
+        "batch_id, description, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_BALANCE_SQL =
+        "INSERT INTO gl_account_balances (id, gl_account, currency, debit_total, credit_total, entry_count, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (gl_account, currency) DO UPDATE SET " +
+        "debit_total = gl_account_balances.debit_total + EXCLUDED.debit_total, " +
+        "credit_total = gl_account_balances.credit_total + EXCLUDED.credit_total, " +
+        "entry_count = gl_account_balances.entry_count + EXCLUDED.entry_count, " +
+        "updated_at = EXCLUDED.updated_at";
+
+    private static final String BALANCES_EXIST_SQL = "SELECT EXISTS (SELECT 1 FROM gl_account_balances)";
+
+    private static final String ENTRY_TOTALS_SQL =
+        "SELECT gl_account, currency, " +
+        "COALESCE(SUM(CASE WHEN UPPER(debit_credit) = 'DEBIT' THEN amount END), 0) AS debit_total, " +
+        "COALESCE(SUM(CASE WHEN UPPER(debit_credit) = 'CREDIT' THEN amount END), 0) AS credit_total, " +
+        "COUNT(*) AS entry_count " +
+        "FROM journal_entries WHERE gl_account IS NOT NULL AND currency IS NOT NULL AND amount IS NOT NULL " +
+        "GROUP BY gl_account, currency";
+
+    private static final String SEED_BALANCE_SQL =
+        "INSERT INTO gl_account_balances (id, gl_account, currency, debit_total, credit_total, entry_count, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (gl_account, currency) DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GLAccountBalanceRepository glAccountBalanceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Seed the GL totals from existing journal entries. The table lock holds back posts and other nodes
+     * while the seed runs, and once any totals exist the seed is skipped, so it runs exactly once.
+     * A failed seed fails startup, so no node posts until the totals are in place.
+     */
+    @PostConstruct
+    public void seedBalances() {
+        try {
+            Integer seeded = new TransactionTemplate(transactionManager).execute(status -> {
+                jdbcTemplate.execute("LOCK TABLE gl_account_balances IN EXCLUSIVE MODE");
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(BALANCES_EXIST_SQL, Boolean.class))) {
+                    return 0;
+                }
+                Timestamp nowTs = Timestamp.valueOf(LocalDateTime.now());
+                List<Object[]> rows = jdbcTemplate.query(ENTRY_TOTALS_SQL, (rs, rowNum) -> new Object[] {
+                    UUID.randomUUID(), rs.getString("gl_account"), rs.getString("currency"),
+                    rs.getBigDecimal("debit_total"), rs.getBigDecimal("credit_total"), rs.getLong("entry_count"),
+                    nowTs, nowTs });
+                if (!rows.isEmpty()) {
+                    jdbcTemplate.batchUpdate(SEED_BALANCE_SQL, rows);
+                }
+                return rows.size();
+            });
+            if (seeded != null && seeded > 0) {
+                logger.info("Seeded {} GL balances from existing journal entries", seeded);
+            }
+        } catch (Exception e) {
+            // Posting would upsert onto an unseeded table and the seed would then be skipped for good
+            logger.error("Failed to seed GL balances from journal entries: {}", e.getMessage());
+            throw new RuntimeException("Failed to seed GL balances from journal entries", e);
+        }
+    }
+
+    /**
+     * Post one balanced batch
+     */
+    @Transactional
+    public List<JournalEntry> post(JournalBatch batch) {
+        return post(Collections.singletonList(batch));
+    }
+
+    /**
+     * Validate and post many batches as one unit of work
+     *
+     * @return The journal entries written, in leg order
+     */
+    @Transactional
+    public List<JournalEntry> post(List<JournalBatch> batches) {
+        for (JournalBatch batch : batches) {
+            validate(batch);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTs = Timestamp.valueOf(now);
+        List<JournalEntry> entries = new ArrayList<>();
+        List<Object[]> entryRows = new ArrayList<>();
+        // Keyed by account then currency so upserts run in a stable lock order
+        Map<String, BalanceDelta> deltas = new TreeMap<>();
+
+        for (JournalBatch batch : batches) {
+            for (Leg leg : batch.legs) {
+                JournalEntry entry = new JournalEntry();
+                entry.setId(UUID.randomUUID());
+                entry.setTxId(batch.txId);
+                entry.setAccountId(batch.accountId);
+                entry.setDebitCredit(leg.side);
+                entry.setAmount(leg.amount);
+                entry.setCurrency(leg.currency);
+                entry.setGlAccount(leg.glAccount);
+                entry.setBatchId(batch.batchId);
+                entry.setDescription(batch.description);
+                entry.setCreatedAt(now);
+                entry.setUpdatedAt(now);
+                entries.add(entry);
+                entryRows.add(new Object[] { entry.getId(), batch.txId, batch.accountId, leg.side, leg.amount,
+                    leg.currency, leg.glAccount, batch.batchId, batch.description, nowTs, nowTs });
+
+                deltas.computeIfAbsent(leg.glAccount + '\u0000' + leg.currency,
+                    key -> new BalanceDelta(leg.glAccount, leg.currency)).add(leg);
+            }
+        }
+        if (entryRows.isEmpty()) {
+            return entries;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entryRows);
+
+        List<Object[]> balanceRows = new ArrayList<>(deltas.size());
+        for (BalanceDelta delta : deltas.values()) {
+            balanceRows.add(new Object[] { UUID.randomUUID(), delta.glAccount, delta.currency, delta.debits,
+                delta.credits, delta.count, nowTs, nowTs });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_BALANCE_SQL, balanceRows);
+
+        logger.debug("Posted {} journal legs in {} batches across {} GL balances",
+            entryRows.size(), batches.size(), balanceRows.size());
+        return entries;
+    }
+
+    /**
+     * Trial balance read from the maintained GL balances. Each account's net balance is shown on its
+     * natural side; the book is balanced when total debits equal total credits in every currency.
+     */
+    public TrialBalance trialBalance() {
+        TrialBalance trialBalance = new TrialBalance();
+        for (GLAccountBalance balance : glAccountBalanceRepository.findAllByOrderByGlAccountAscCurrencyAsc()) {
+            BigDecimal net = balance.getDebitTotal().subtract(balance.getCreditTotal());
+            TrialBalanceLine line = new TrialBalanceLine(balance.getGlAccount(), balance.getCurrency(),
+                net.signum() > 0 ? net : BigDecimal.ZERO,
+                net.signum() < 0 ? net.negate() : BigDecimal.ZERO);
+            trialBalance.lines.add(line);
+            trialBalance.totalDebits.merge(line.currency, line.debit, BigDecimal::add);
+            trialBalance.totalCredits.merge(line.currency, line.credit, BigDecimal::add);
+        }
+        return trialBalance;
+    }
+
+    private static void validate(JournalBatch batch) {
+        if (batch.legs.isEmpty()) {
+            throw new RuntimeException("Journal batch " + batch.batchId + " has no legs");
+        }
+        Map<String, BigDecimal> net = new TreeMap<>();
+        for (Leg leg : batch.legs) {
+            if (leg.amount == null || leg.amount.signum() <= 0) {
+                throw new RuntimeException("Journal batch " + batch.batchId + " has a non-positive amount on " + leg.glAccount);
+            }
+            if (leg.glAccount == null || leg.currency == null) {
+                throw new RuntimeException("Journal batch " + batch.batchId + " has a leg without GL account or currency");
+            }
+            BigDecimal signed = DEBIT.equals(leg.side) ? leg.amount : leg.amount.negate();
+            net.merge(leg.currency, signed, BigDecimal::add);
+        }
+        for (Map.Entry<String, BigDecimal> currency : net.entrySet()) {
+            if (currency.getValue().signum() != 0) {
+                throw new RuntimeException("Journal batch " + batch.batchId + " is unbalanced in "
+                    + currency.getKey() + " by " + currency.getValue());
+            }
+        }
+    }
+
+    /**
+     * A set of legs that must balance and are written together
+     */
+    public static final class JournalBatch {
+        private final UUID batchId = UUID.randomUUID();
+        private final UUID txId;
+        private final UUID accountId;
+        private final String description;
+        private final List<Leg> legs = new ArrayList<>(2);
+
+        /**
+         * @param txId Source transaction, or null for manual GL postings
+         * @param accountId Customer account the postings relate to, if any
+         */
+        public JournalBatch(UUID txId, UUID accountId, String description) {
+            this.txId = txId;
+            this.accountId = accountId;
+            this.description = description != null && description.length() > 500 ? description.substring(0, 500) : description;
+        }
+
+        public JournalBatch debit(String glAccount, BigDecimal amount, String currency) {
+            legs.add(new Leg(DEBIT, glAccount, amount, currency));
+            return this;
+        }
+
+        public JournalBatch credit(String glAccount, BigDecimal amount, String currency) {
+            legs.add(new Leg(CREDIT, glAccount, amount, currency));
+            return this;
+        }
+
+        public UUID getBatchId() {
+            return batchId;
+        }
+    }
+
+    private static final class Leg {
+        private final String side;
+        private final String glAccount;
+        private final BigDecimal amount;
+        private final String currency;
+
+        private Leg(String side, String glAccount, BigDecimal amount, String currency) {
+            this.side = side;
+            this.glAccount = glAccount;
+            this.amount = amount;
+            this.currency = currency;
+        }
+    }
+
+    private static final class BalanceDelta {
+        private final String glAccount;
+        private final String currency;
+        private BigDecimal debits = BigDecimal.ZERO;
+        private BigDecimal credits = BigDecimal.ZERO;
+        private long count;
+
+        private BalanceDelta(String glAccount, String currency) {
+            this.glAccount = glAccount;
+            this.currency = currency;
+        }
+
+        private void add(Leg leg) {
+            if (DEBIT.equals(leg.side)) {
+                debits = debits.add(leg.amount);
+            } else {
+                credits = credits.add(leg.amount);
+            }
+            count++;
+        }
+    }
+
+    public static final class TrialBalance {
+        private final List<TrialBalanceLine> lines = new ArrayList<>();
+        private final Map<String, BigDecimal> totalDebits = new TreeMap<>();
+        private final Map<String, BigDecimal> totalCredits = new TreeMap<>();
+
+        public List<TrialBalanceLine> getLines() {
+            return lines;
+        }
+
+        public Map<String, BigDecimal> getTotalDebits() {
+            return totalDebits;
+        }
+
+        public Map<String, BigDecimal> getTotalCredits() {
+            return totalCredits;
+        }
+
+        public boolean isBalanced() {
+            for (Map.Entry<String, BigDecimal> debit : totalDebits.entrySet()) {
+                if (debit.getValue().compareTo(totalCredits.getOrDefault(debit.getKey(), BigDecimal.ZERO)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static final class TrialBalanceLine {
+        private final String glAccount;
+        private final String currency;
+        private final BigDecimal debit;
+        private final BigDecimal credit;
+
+        private TrialBalanceLine(String glAccount, String currency, BigDecimal debit, BigDecimal credit) {
+            this.glAccount = glAccount;
+            this.currency = currency;
+            this.debit = debit;
+            this.credit = credit;
+        }
+
+        public String getGlAccount() {
+            return glAccount;
+        }
+
+        public String getCurrency() {
+            return currency;
+        }
+
+        public BigDecimal getDebit() {
+            return debit;
+        }
+
+        public BigDecimal getCredit() {
+            return credit;
+        }
+    }
+}
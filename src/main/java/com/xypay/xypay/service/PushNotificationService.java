@@ -68,6 +68,13 @@ public class PushNotificationService {
         }
     }
     
+    /**
+     * Whether push notifications can be sent at all
+     */
+    public boolean isConfigured() {
+        return isFcmConfigured();
+    }
+    
     /**
      * Check if FCM is properly configured
      */
@@ -0,0 +1,147 @@
+package com.xypay.xypay.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * One live server-sent-events connection with its own bounded outbound buffer.
+ *
+ * Events are written by a shared writer pool, one drain task per session at a time, so a slow client
+ * only ever holds back its own buffer. When the buffer is full the oldest event is dropped; an event
+ * with a merge key replaces a still-buffered event with the same key (a newer balance supersedes an
+ * older one) instead of queueing behind it.
+ */
+final class PushSession {
+
+    /**
+     * Outcome of offering an event to the session buffer
+     */
+    enum Offer {
+        QUEUED, MERGED, DROPPED_OLDEST, CLOSED
+    }
+
+    private final String userId;
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final ArrayDeque<Event> buffer;
+    private boolean draining;
+    private volatile boolean closed;
+
+    PushSession(String userId, SseEmitter emitter, int capacity) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.buffer = new ArrayDeque<>(Math.min(capacity, 16));
+    }
+
+    String userId() {
+        return userId;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Buffer an event and make sure a drain task is running for this session
+     */
+    Offer offer(Event event, Executor writers) {
+        Offer result = Offer.QUEUED;
+        boolean startDrain;
+        synchronized (this) {
+            if (closed) {
+                return Offer.CLOSED;
+            }
+            if (event.mergeKey != null && replaceBuffered(event)) {
+                result = Offer.MERGED;
+            } else {
+                if (buffer.size() >= capacity) {
+                    buffer.pollFirst();
+                    result = Offer.DROPPED_OLDEST;
+                }
+                buffer.addLast(event);
+            }
+            startDrain = !draining;
+            draining = true;
+        }
+        if (startDrain) {
+            try {
+                writers.execute(this::drain);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    private boolean replaceBuffered(Event event) {
+        Iterator<Event> it = buffer.iterator();
+        while (it.hasNext()) {
+            if (event.mergeKey.equals(it.next().mergeKey)) {
+                it.remove();
+                buffer.addLast(event);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        while (true) {
+            Event next;
+            synchronized (this) {
+                next = closed ? null : buffer.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (next.name == null) {
+                    emitter.send(SseEmitter.event().comment(next.payload));
+                } else {
+                    // The payload is already JSON; the same string is shared by every session it goes to
+                    emitter.send(SseEmitter.event().name(next.name).data(next.payload, MediaType.APPLICATION_JSON));
+                }
+            } catch (Exception e) {
+                close();
+                emitter.completeWithError(e);
+                return;
+            }
+        }
+    }
+
+    void close() {
+        synchronized (this) {
+            closed = true;
+            buffer.clear();
+        }
+    }
+
+    /**
+     * An outbound event; a null name marks an SSE comment used as a heartbeat
+     */
+    static final class Event {
+        private final String name;
+        private final String mergeKey;
+        private final String payload;
+
+        Event(String name, String mergeKey, String payload) {
+            this.name = name;
+            this.mergeKey = mergeKey;
+            this.payload = Objects.requireNonNull(payload);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.xypay.xypay.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xypay.xypay.domain.Transaction;
+import com.xypay.xypay.domain.Wallet;
+import com.xypay.xypay.repository.WalletRepository;
+import jakarta.annotation.PostConstruct;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transaction rate, volume, failures and active users over the last few seconds and minutes, fed by
+ * transaction events instead of counting the transactions table.
+ *
+ * Each node counts into a ring of one-second buckets of LongAdders. Once a second the completed seconds
+ * are added to per-second Redis hashes, the users seen are added to per-minute HyperLogLogs, and the
+ * cluster-wide window is read back in the same pipeline into a snapshot that dashboards read from memory.
+ * If Redis is unavailable the snapshot falls back to this node's own buckets.
+ */
+@Service
+public class RealTimeTransactionMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(RealTimeTransactionMetrics.class);
+
+    private static final String SECOND_PREFIX = "dashboard:rt:";
+    private static final String ACTIVE_PREFIX = "dashboard:active:";
+    private static final byte[] COUNT_FIELD = bytes("c");
+    private static final byte[] FAILED_FIELD = bytes("f");
+    private static final byte[] VOLUME_FIELD = bytes("v");
+    // Seconds left open for late events before a bucket is pushed to Redis
+    private static final int FLUSH_GRACE_SECONDS = 2;
+    // Users waiting to be added to the active-user HyperLogLog; beyond this they are skipped until the next flush
+    private static final int MAX_PENDING_USERS = 50000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Value("${dashboard.realtime.window-seconds:60}")
+    private int windowSeconds;
+
+    @Value("${dashboard.realtime.active-window-minutes:60}")
+    private int activeWindowMinutes;
+
+    private SecondBucket[] ring;
+    private final Set<String> pendingUsers = ConcurrentHashMap.newKeySet();
+    // Owner of each wallet seen, for events whose wallet was not loaded; a wallet never changes owner
+    private final Cache<UUID, UUID> walletOwners = Caffeine.newBuilder()
+        .maximumSize(100000)
+        .expireAfterAccess(Duration.ofHours(1))
+        .build();
+    private long lastFlushedSecond;
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        // Room for the window, the flush grace and a minute of unsent seconds while Redis is down
+        ring = new SecondBucket[windowSeconds + FLUSH_GRACE_SECONDS + 60];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new SecondBucket(-1);
+        }
+        lastFlushedSecond = System.currentTimeMillis() / 1000 - FLUSH_GRACE_SECONDS - 1;
+        snapshot = new Snapshot(0, 0, BigDecimal.ZERO, 0, windowSeconds, false);
+    }
+
+    /**
+     * Count a transaction. New transactions add to the rate, volume and active users, keyed by user id;
+     * failures are counted when a transaction is created failed or its status changes to failed.
+     */
+    public void record(Transaction transaction, boolean newlyCreated) {
+        SecondBucket bucket = bucket(System.currentTimeMillis() / 1000);
+        if (newlyCreated) {
+            bucket.count.increment();
+            if (transaction.getAmount() != null) {
+                // Kept in minor units so the volume can be summed with LongAdders and HINCRBY
+                bucket.volumeMinor.add(transaction.getAmount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue());
+            }
+            UUID user = userId(transaction);
+            if (user != null && pendingUsers.size() < MAX_PENDING_USERS) {
+                pendingUsers.add("u:" + user);
+            }
+        }
+        if ("FAILED".equalsIgnoreCase(transaction.getStatus())) {
+            bucket.failed.increment();
+        }
+    }
+
+    /**
+     * Cluster-wide figures as of the last sync
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Push completed seconds and active users to Redis and read back the cluster-wide window
+     */
+    @Scheduled(fixedDelayString = "${dashboard.realtime.flush-ms:1000}")
+    public void flush() {
+        long now = System.currentTimeMillis() / 1000;
+        long flushUpTo = now - FLUSH_GRACE_SECONDS;
+        SecondBucket[] buckets = ring;
+        long from = Math.max(lastFlushedSecond + 1, flushUpTo - buckets.length + FLUSH_GRACE_SECONDS + 1);
+
+        List<SecondBucket> completed = new ArrayList<>();
+        for (long second = from; second <= flushUpTo; second++) {
+            SecondBucket bucket = buckets[(int) (second % buckets.length)];
+            if (bucket.second == second && (bucket.count.sum() > 0 || bucket.failed.sum() > 0)) {
+                completed.add(bucket);
+            }
+        }
+        List<String> users = new ArrayList<>(pendingUsers);
+        pendingUsers.removeAll(users);
+
+        long minute = now / 60;
+        long secondTtl = windowSeconds + 60L;
+        long activeTtl = (activeWindowMinutes + 1) * 60L;
+        try {
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (SecondBucket bucket : completed) {
+                    byte[] key = bytes(SECOND_PREFIX + bucket.second);
+                    connection.hashCommands().hIncrBy(key, COUNT_FIELD, bucket.count.sum());
+                    connection.hashCommands().hIncrBy(key, FAILED_FIELD, bucket.failed.sum());
+                    connection.hashCommands().hIncrBy(key, VOLUME_FIELD, bucket.volumeMinor.sum());
+                    connection.keyCommands().expire(key, secondTtl);
+                }
+                if (!users.isEmpty()) {
+                    byte[] key = bytes(ACTIVE_PREFIX + minute);
+                    byte[][] values = new byte[users.size()][];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = bytes(users.get(i));
+                    }
+                    connection.hyperLogLogCommands().pfAdd(key, values);
+                    connection.keyCommands().expire(key, activeTtl);
+                }
+                for (long second = flushUpTo - windowSeconds + 1; second <= flushUpTo; second++) {
+                    connection.hashCommands().hMGet(bytes(SECOND_PREFIX + second), COUNT_FIELD, FAILED_FIELD, VOLUME_FIELD);
+                }
+                byte[][] activeKeys = new byte[activeWindowMinutes][];
+                for (int m = 0; m < activeWindowMinutes; m++) {
+                    activeKeys[m] = bytes(ACTIVE_PREFIX + (minute - m));
+                }
+                connection.hyperLogLogCommands().pfCount(activeKeys);
+                return null;
+            });
+            lastFlushedSecond = flushUpTo;
+
+            int offset = completed.size() * 4 + (users.isEmpty() ? 0 : 2);
+            long count = 0;
+            long failed = 0;
+            long volumeMinor = 0;
+            for (int i = 0; i < windowSeconds; i++) {
+                if (results.get(offset + i) instanceof List<?> fields) {
+                    count += parse(fields, 0);
+                    failed += parse(fields, 1);
+                    volumeMinor += parse(fields, 2);
+                }
+            }
+            Object active = results.get(offset + windowSeconds);
+            snapshot = new Snapshot(count, failed, BigDecimal.valueOf(volumeMinor, 2),
+                active instanceof Long activeUsers ? activeUsers : 0, windowSeconds, true);
+        } catch (Exception e) {
+            // Unsent seconds are retried next time while they are still in the ring
+            logger.warn("Failed to sync real-time transaction metrics: {}", e.getMessage());
+            snapshot = localSnapshot(flushUpTo);
+        }
+    }
+
+    private Snapshot localSnapshot(long upTo) {
+        SecondBucket[] buckets = ring;
+        long count = 0;
+        long failed = 0;
+        long volumeMinor = 0;
+        for (long second = upTo - windowSeconds + 1; second <= upTo; second++) {
+            SecondBucket bucket = buckets[(int) (second % buckets.length)];
+            if (bucket.second == second) {
+                count += bucket.count.sum();
+                failed += bucket.failed.sum();
+                volumeMinor += bucket.volumeMinor.sum();
+            }
+        }
+        // Distinct users are only counted in Redis; keep the last cluster figure
+        return new Snapshot(count, failed, BigDecimal.valueOf(volumeMinor, 2), snapshot.activeUsers, windowSeconds, false);
+    }
+
+    private SecondBucket bucket(long second) {
+        SecondBucket[] buckets = ring;
+        int slot = (int) (second % buckets.length);
+        SecondBucket bucket = buckets[slot];
+        if (bucket.second != second) {
+            synchronized (buckets) {
+                bucket = buckets[slot];
+                if (bucket.second != second) {
+                    // A fresh bucket rather than resetting, so a flush reading the old second is unaffected
+                    bucket = new SecondBucket(second);
+                    buckets[slot] = bucket;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private UUID userId(Transaction transaction) {
+        Wallet wallet = transaction.getWallet();
+        if (wallet == null || wallet.getId() == null) {
+            return null;
+        }
+        // Events can arrive after the session closed; only follow the user if the wallet is loaded
+        if (Hibernate.isInitialized(wallet) && wallet.getUser() != null && wallet.getUser().getId() != null) {
+            return wallet.getUser().getId();
+        }
+        try {
+            return walletOwners.get(wallet.getId(), id -> walletRepository.findUserIdById(id).orElse(null));
+        } catch (Exception e) {
+            logger.debug("Could not resolve the owner of wallet {}: {}", wallet.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static long parse(List<?> fields, int index) {
+        Object value = index < fields.size() ? fields.get(index) : null;
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class SecondBucket {
+        private final long second;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder volumeMinor = new LongAdder();
+
+        private SecondBucket(long second) {
+            this.second = second;
+        }
+    }
+
+    /**
+     * Transactions, failures and volume over the rate window, and distinct users over the active window
+     */
+    public static final class Snapshot {
+        private final long transactions;
+        private final long failed;
+        private final BigDecimal volume;
+        private final long activeUsers;
+        private final int windowSeconds;
+        private final boolean clusterWide;
+
+        private Snapshot(long transactions, long failed, BigDecimal volume, long activeUsers, int windowSeconds,
+                         boolean clusterWide) {
+            this.transactions = transactions;
+            this.failed = failed;
+            this.volume = volume;
+            this.activeUsers = activeUsers;
+            this.windowSeconds = windowSeconds;
+            this.clusterWide = clusterWide;
+        }
+
+        public long getTransactions() {
+            return transactions;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public BigDecimal getVolume() {
+            return volume;
+        }
+
+        public long getActiveUsers() {
+            return activeUsers;
+        }
+
+        public boolean isClusterWide() {
+            return clusterWide;
+        }
+
+        public int getWindowSeconds() {
+            return windowSeconds;
+        }
+
+        public double getTps() {
+            return windowSeconds > 0 ? (double) transactions / windowSeconds : 0;
+        }
+    }
+}
@@ -0,0 +1,593 @@
+package com.xypay.xypay.service;
+
+import com.xypay.xypay.domain.ReconciliationRun;
+import com.xypay.xypay.repository.ReconciliationRunRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Streaming reconciliation of a bank settlement file against the transactions table.
+ *
+ * Both sides are read once, as streams, and hash-partitioned by reference into spill files under a
+ * per-run work directory, so neither side has to fit in the heap. The partitions are then joined in
+ * parallel: the ledger half of a partition is loaded into a hash table keyed by reference and the bank
+ * half is streamed against it. A reference found on both sides matches when the amounts agree within
+ * the amount tolerance and the value dates within the date tolerance; anything else is a break, and
+ * breaks are batch-inserted into reconciliation_items under the run id as each partition is joined.
+ *
+ * Runs are queued: the file is copied into the run's work directory and the run id returned at once,
+ * and the run itself executes on a background thread. A run that fails has its breaks removed, so
+ * only completed runs have any.
+ */
+@Service
+public class ReconciliationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationEngine.class);
+
+    public static final String MISSING_IN_LEDGER = "MISSING_IN_LEDGER";
+    public static final String MISSING_IN_BANK = "MISSING_IN_BANK";
+    public static final String AMOUNT_MISMATCH = "AMOUNT_MISMATCH";
+    public static final String DATE_MISMATCH = "DATE_MISMATCH";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String INVALID = "INVALID";
+
+    // Ledger rows are read from a created_at window widened by the date tolerance, through a cursor.
+    // Settled transactions are written as SUCCESS, success or completed depending on the service.
+    private static final String LEDGER_SQL =
+        "SELECT id, reference, amount, COALESCE(processed_at, \"timestamp\", created_at) AS value_time " +
+        "FROM transactions WHERE created_at >= ? AND created_at < ? " +
+        "AND status IN ('SUCCESS', 'success', 'COMPLETED', 'completed') AND reference IS NOT NULL";
+
+    private static final String DELETE_BREAKS_SQL = "DELETE FROM reconciliation_items WHERE run_id = ?";
+
+    private static final String SETTLEMENT_FILE = "settlement.csv";
+
+    private static final String INSERT_BREAK_SQL =
+        "INSERT INTO reconciliation_items (id, run_id, external_ref, tx_id, amount, ledger_amount, value_date, " +
+        "ledger_value_date, status, details, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String[] REFERENCE_COLUMNS = { "reference", "session_id", "sessionid", "transaction_reference", "ref" };
+    private static final String[] AMOUNT_COLUMNS = { "amount", "transaction_amount", "amt" };
+    private static final String[] VALUE_DATE_COLUMNS = { "value_date", "valuedate", "transaction_date", "date" };
+    private static final DateTimeFormatter DAY_FIRST_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    @Value("${reconciliation.partitions:64}")
+    private int partitions;
+
+    @Value("${reconciliation.threads:4}")
+    private int threads;
+
+    @Value("${reconciliation.concurrent-runs:1}")
+    private int concurrentRuns;
+
+    @Value("${reconciliation.max-queued-runs:16}")
+    private int maxQueuedRuns;
+
+    @Value("${reconciliation.amount-tolerance:0.00}")
+    private BigDecimal amountTolerance;
+
+    @Value("${reconciliation.date-tolerance-days:1}")
+    private int dateToleranceDays;
+
+    @Value("${reconciliation.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${reconciliation.break-batch-size:1000}")
+    private int breakBatchSize;
+
+    @Value("${reconciliation.work-dir:${java.io.tmpdir}}")
+    private String workDir;
+
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor runExecutor;
+    private JdbcTemplate ledgerReader;
+    private TransactionTemplate readTransaction;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // At most one run's partitions are queued per caller, so an unbounded queue stays small
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "reconciliation-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        // Runs wait on their partitions, so they get their own threads rather than the partition pool
+        AtomicInteger runCount = new AtomicInteger();
+        runExecutor = new ThreadPoolExecutor(concurrentRuns, concurrentRuns, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(maxQueuedRuns),
+            runnable -> {
+                Thread thread = new Thread(runnable, "reconciliation-run-" + runCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        // PostgreSQL only streams with a fetch size inside a transaction; otherwise it buffers the whole result
+        ledgerReader = new JdbcTemplate(dataSource);
+        ledgerReader.setFetchSize(fetchSize);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue one settlement file for reconciliation against the ledger for a business date. The file is
+     * copied before this returns, so the caller may close its stream.
+     *
+     * The file is CSV with a header naming the reference, amount and value date columns (NIBSS names such
+     * as session_id and transaction_date are recognised); without a recognised header the first three
+     * columns are taken in that order.
+     *
+     * @return The QUEUED run, to be polled by id until it is COMPLETED or FAILED; FAILED at once if the
+     *         file could not be copied or too many runs are waiting
+     */
+    public ReconciliationRun reconcile(InputStream settlementFile, String sourceName, LocalDate businessDate) {
+        ReconciliationRun run = new ReconciliationRun();
+        run.setSourceName(sourceName);
+        run.setBusinessDate(businessDate);
+        run.setStatus("QUEUED");
+        run.setPartitions(partitions);
+        run = reconciliationRunRepository.save(run);
+        UUID runId = run.getId();
+
+        Path runDir = null;
+        try {
+            runDir = Files.createTempDirectory(Paths.get(workDir), "reconciliation-" + runId + "-");
+            Files.copy(settlementFile, runDir.resolve(SETTLEMENT_FILE));
+            Path queuedDir = runDir;
+            runExecutor.execute(() -> execute(runId, queuedDir));
+            return run;
+        } catch (Exception e) {
+            logger.error("Reconciliation {} of {} could not be queued: {}", runId, sourceName, e.getMessage());
+            deleteQuietly(runDir);
+            fail(run, e instanceof RejectedExecutionException ? "Too many reconciliations queued" : e.getMessage());
+            run.setCompletedAt(LocalDateTime.now());
+            return reconciliationRunRepository.save(run);
+        }
+    }
+
+    private void execute(UUID runId, Path runDir) {
+        ReconciliationRun run = reconciliationRunRepository.findById(runId).orElse(null);
+        if (run == null) {
+            deleteQuietly(runDir);
+            return;
+        }
+        run.setStatus("RUNNING");
+        run.setStartedAt(LocalDateTime.now());
+        run = reconciliationRunRepository.save(run);
+        try {
+            BreakWriter invalid = new BreakWriter(runId);
+            try (InputStream in = Files.newInputStream(runDir.resolve(SETTLEMENT_FILE));
+                 SpillSet bank = new SpillSet(runDir, "bank", partitions)) {
+                run.setBankRows(partitionSettlementFile(in, bank, invalid));
+            }
+            invalid.flush();
+            try (SpillSet ledger = new SpillSet(runDir, "ledger", partitions)) {
+                run.setLedgerRows(partitionLedger(run.getBusinessDate(), ledger));
+            }
+
+            JoinTotals totals = joinPartitions(runId, runDir, run.getBusinessDate().toEpochDay());
+            run.setMatched(totals.matched);
+            run.setBreaks(totals.breaks + invalid.count);
+            run.setStatus("COMPLETED");
+            logger.info("Reconciliation {} of {} for {}: {} bank rows, {} ledger rows, {} matched, {} breaks",
+                runId, run.getSourceName(), run.getBusinessDate(), run.getBankRows(), run.getLedgerRows(),
+                run.getMatched(), run.getBreaks());
+        } catch (Exception e) {
+            logger.error("Reconciliation {} of {} failed: {}", runId, run.getSourceName(), e.getMessage(), e);
+            fail(run, e.getMessage());
+            try {
+                // Partitions have all settled by now, so nothing writes breaks after this
+                jdbcTemplate.update(DELETE_BREAKS_SQL, runId);
+            } catch (Exception cleanup) {
+                logger.warn("Failed to remove breaks of failed reconciliation {}: {}", runId, cleanup.getMessage());
+            }
+        } finally {
+            deleteQuietly(runDir);
+        }
+        run.setCompletedAt(LocalDateTime.now());
+        reconciliationRunRepository.save(run);
+    }
+
+    private static void fail(ReconciliationRun run, String error) {
+        run.setStatus("FAILED");
+        run.setBreaks(0);
+        String message = String.valueOf(error);
+        run.setErrorMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
+    }
+
+    private long partitionSettlementFile(InputStream in, SpillSet spill, BreakWriter invalid) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        String line = reader.readLine();
+        if (line == null) {
+            return 0;
+        }
+        int[] columns = headerColumns(splitCsv(line));
+        long lineNumber = 1;
+        long rows = 0;
+        if (columns == null) {
+            columns = new int[] { 0, 1, 2 };
+            rows += partitionBankLine(line, lineNumber, columns, spill, invalid);
+        }
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!line.isBlank()) {
+                rows += partitionBankLine(line, lineNumber, columns, spill, invalid);
+            }
+        }
+        return rows;
+    }
+
+    private int partitionBankLine(String line, long lineNumber, int[] columns, SpillSet spill, BreakWriter invalid) {
+        String[] fields = splitCsv(line);
+        String reference = field(fields, columns[0]);
+        BigDecimal amount;
+        LocalDate valueDate;
+        try {
+            amount = new BigDecimal(field(fields, columns[1]).replace(",", ""));
+            valueDate = parseDate(field(fields, columns[2]));
+        } catch (RuntimeException e) {
+            invalid.add(INVALID, reference, null, null, "line " + lineNumber + ": unreadable amount or value date");
+            return 1;
+        }
+        if (reference.isEmpty()) {
+            invalid.add(INVALID, null, new Row(null, amount, valueDate.toEpochDay(), null), null,
+                "line " + lineNumber + ": no reference");
+            return 1;
+        }
+        spill.write(reference, amount, valueDate.toEpochDay(), String.valueOf(lineNumber));
+        return 1;
+    }
+
+    private long partitionLedger(LocalDate businessDate, SpillSet spill) {
+        LocalDateTime from = businessDate.minusDays(dateToleranceDays).atStartOfDay();
+        LocalDateTime to = businessDate.plusDays(dateToleranceDays + 1L).atStartOfDay();
+        long[] rows = new long[1];
+        readTransaction.executeWithoutResult(status -> ledgerReader.query(LEDGER_SQL, rs -> {
+            Timestamp valueTime = rs.getTimestamp("value_time");
+            spill.write(rs.getString("reference"), rs.getBigDecimal("amount"),
+                valueTime.toLocalDateTime().toLocalDate().toEpochDay(), rs.getString("id"));
+            rows[0]++;
+        }, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        return rows[0];
+    }
+
+    private JoinTotals joinPartitions(UUID runId, Path runDir, long businessDay) {
+        List<CompletableFuture<JoinTotals>> running = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            Path bankFile = SpillSet.file(runDir, "bank", partition);
+            Path ledgerFile = SpillSet.file(runDir, "ledger", partition);
+            running.add(CompletableFuture.supplyAsync(() -> joinPartition(runId, bankFile, ledgerFile, businessDay), executor));
+        }
+        try {
+            // Completes only once every partition has finished, failed or not
+            CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Reconciliation partition failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        JoinTotals totals = new JoinTotals();
+        for (CompletableFuture<JoinTotals> future : running) {
+            JoinTotals partial = future.join();
+            totals.matched += partial.matched;
+            totals.breaks += partial.breaks;
+        }
+        return totals;
+    }
+
+    /**
+     * Join one partition. Each reference keeps its list of unclaimed ledger rows; an emptied list stays in
+     * the table so a reference seen again on the bank side is reported as a duplicate, not as missing.
+     */
+    private JoinTotals joinPartition(UUID runId, Path bankFile, Path ledgerFile, long businessDay) {
+        Map<String, List<Row>> ledger = new HashMap<>();
+        BreakWriter breaks = new BreakWriter(runId);
+        JoinTotals totals = new JoinTotals();
+        try {
+            try (BufferedReader reader = Files.newBufferedReader(ledgerFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Row row = Row.parse(line);
+                    ledger.computeIfAbsent(row.reference, key -> new ArrayList<>(1)).add(row);
+                }
+            }
+            try (BufferedReader reader = Files.newBufferedReader(bankFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Row bank = Row.parse(line);
+                    List<Row> candidates = ledger.get(bank.reference);
+                    if (candidates == null) {
+                        breaks.add(MISSING_IN_LEDGER, bank.reference, bank, null, "line " + bank.id);
+                    } else if (candidates.isEmpty()) {
+                        breaks.add(DUPLICATE, bank.reference, bank, null, "line " + bank.id + ": reference already settled");
+                    } else {
+                        Row hit = claim(bank, candidates);
+                        if (hit != null) {
+                            totals.matched++;
+                        } else {
+                            // Same reference but outside tolerance: report against the nearest ledger row and consume it
+                            candidates.sort(Comparator.comparingLong(row -> Math.abs(row.epochDay - bank.epochDay)));
+                            Row nearest = candidates.remove(0);
+                            boolean amountAgrees = amountWithinTolerance(bank, nearest);
+                            breaks.add(amountAgrees ? DATE_MISMATCH : AMOUNT_MISMATCH, bank.reference, bank, nearest,
+                                "line " + bank.id + (amountAgrees
+                                    ? ": value dates " + (bank.epochDay - nearest.epochDay) + " days apart"
+                                    : ": amounts differ by " + bank.amount.subtract(nearest.amount)));
+                        }
+                    }
+                }
+            }
+            for (List<Row> unclaimed : ledger.values()) {
+                for (Row row : unclaimed) {
+                    // Rows pulled in only by the date tolerance belong to a neighbouring day's file
+                    if (row.epochDay == businessDay) {
+                        breaks.add(MISSING_IN_BANK, row.reference, null, row, null);
+                    }
+                }
+            }
+            breaks.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        totals.breaks = breaks.count;
+        return totals;
+    }
+
+    private Row claim(Row bank, List<Row> candidates) {
+        for (int i = 0; i < candidates.size(); i++) {
+            Row candidate = candidates.get(i);
+            if (amountWithinTolerance(bank, candidate) && Math.abs(bank.epochDay - candidate.epochDay) <= dateToleranceDays) {
+                return candidates.remove(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean amountWithinTolerance(Row bank, Row ledger) {
+        return bank.amount.subtract(ledger.amount).abs().compareTo(amountTolerance) <= 0;
+    }
+
+    private static int[] headerColumns(String[] header) {
+        int reference = indexOf(header, REFERENCE_COLUMNS);
+        int amount = indexOf(header, AMOUNT_COLUMNS);
+        int valueDate = indexOf(header, VALUE_DATE_COLUMNS);
+        if (reference < 0 || amount < 0 || valueDate < 0) {
+            return null;
+        }
+        return new int[] { reference, amount, valueDate };
+    }
+
+    private static int indexOf(String[] header, String[] names) {
+        for (String name : names) {
+            for (int i = 0; i < header.length; i++) {
+                if (header[i].trim().replace(' ', '_').equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static LocalDate parseDate(String value) {
+        String day = value.length() > 10 ? value.substring(0, 10) : value;
+        try {
+            return LocalDate.parse(day);
+        } catch (DateTimeParseException e) {
+            return LocalDate.parse(day, DAY_FIRST_DATE);
+        }
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length ? fields[index].trim() : "";
+    }
+
+    /**
+     * Split one CSV line, honouring double-quoted fields
+     */
+    static String[] splitCsv(String line) {
+        if (line.indexOf('"') < 0) {
+            return line.split(",", -1);
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> file.toFile().delete());
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            logger.warn("Failed to remove reconciliation work directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * Buffers breaks found by one thread and writes them in JDBC batches
+     */
+    private final class BreakWriter {
+        private final UUID runId;
+        private final List<Object[]> pending = new ArrayList<>();
+        private long count;
+
+        private BreakWriter(UUID runId) {
+            this.runId = runId;
+        }
+
+        private void add(String type, String reference, Row bank, Row ledger, String details) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            pending.add(new Object[] { UUID.randomUUID(), runId, reference,
+                ledger != null ? UUID.fromString(ledger.id) : null,
+                bank != null ? bank.amount : null, ledger != null ? ledger.amount : null,
+                bank != null ? Date.valueOf(LocalDate.ofEpochDay(bank.epochDay)) : null,
+                ledger != null ? Date.valueOf(LocalDate.ofEpochDay(ledger.epochDay)) : null,
+                type, details != null && details.length() > 500 ? details.substring(0, 500) : details, now, now });
+            count++;
+            if (pending.size() >= breakBatchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_BREAK_SQL, pending);
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * One spill file per partition for one side of the join, written as tab-separated rows
+     */
+    private static final class SpillSet implements Closeable {
+        private final BufferedWriter[] writers;
+
+        private SpillSet(Path dir, String side, int partitions) throws IOException {
+            writers = new BufferedWriter[partitions];
+            for (int i = 0; i < partitions; i++) {
+                writers[i] = Files.newBufferedWriter(file(dir, side, i), StandardCharsets.UTF_8);
+            }
+        }
+
+        private static Path file(Path dir, String side, int partition) {
+            return dir.resolve(side + "-" + partition + ".tsv");
+        }
+
+        private void write(String reference, BigDecimal amount, long epochDay, String id) {
+            String key = reference.trim().replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+            try {
+                BufferedWriter writer = writers[partitionOf(key, writers.length)];
+                writer.write(key);
+                writer.write('\t');
+                writer.write(amount.toPlainString());
+                writer.write('\t');
+                writer.write(Long.toString(epochDay));
+                writer.write('\t');
+                writer.write(id);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (BufferedWriter writer : writers) {
+                writer.close();
+            }
+        }
+
+        /**
+         * Multiply and take the high bits, so keys sharing a partition still differ in the low bits the
+         * partition's HashMap indexes by
+         */
+        private static int partitionOf(String key, int partitions) {
+            return ((key.hashCode() * 0x9E3779B9) >>> 16) % partitions;
+        }
+    }
+
+    private static final class Row {
+        private final String reference;
+        private final BigDecimal amount;
+        private final long epochDay;
+        private final String id;
+
+        private Row(String reference, BigDecimal amount, long epochDay, String id) {
+            this.reference = reference;
+            this.amount = amount;
+            this.epochDay = epochDay;
+            this.id = id;
+        }
+
+        private static Row parse(String line) {
+            String[] parts = line.split("\t", 4);
+            return new Row(parts[0], new BigDecimal(parts[1]), Long.parseLong(parts[2]), parts[3]);
+        }
+    }
+
+    private static final class JoinTotals {
+        private long matched;
+        private long breaks;
+    }
+}
@@ -1,25 +1,110 @@
 package com.xypay.xypay.service;
 
+import com.xypay.xypay.domain.ReconciliationItem;
+import com.xypay.xypay.domain.ReconciliationRun;
 import com.xypay.xypay.domain.Transaction;
+import com.xypay.xypay.repository.ReconciliationItemRepository;
+import com.xypay.xypay.repository.ReconciliationRunRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
 
 @Service
 public class ReconciliationService {
-    private final Set<Transaction> unmatched = new HashSet<>();
+    
+    @Autowired
+    private ReconciliationEngine reconciliationEngine;
+    
+    @Autowired
+    private ReconciliationRunRepository reconciliationRunRepository;
+    
+    @Autowired
+    private ReconciliationItemRepository reconciliationItemRepository;
 
-    public void matchTransactions(List<Transaction> bankTx, List<Transaction> ledgerTx) {
-        Set<Transaction> bankSet = new HashSet<>(bankTx);
-        Set<Transaction> ledgerSet = new HashSet<>(ledgerTx);
-        unmatched.clear();
-        for (Transaction t : bankSet) {
-            if (!ledgerSet.contains(t)) unmatched.add(t);
+    /**
+     * Match two small in-memory lists by reference and amount.
+     *
+     * @return Transactions from either side without a counterpart
+     */
+    public List<Transaction> matchTransactions(List<Transaction> bankTx, List<Transaction> ledgerTx) {
+        Map<String, Deque<Transaction>> ledger = new HashMap<>();
+        for (Transaction t : ledgerTx) {
+            ledger.computeIfAbsent(matchKey(t), key -> new ArrayDeque<>()).add(t);
         }
-        for (Transaction t : ledgerSet) {
-            if (!bankSet.contains(t)) unmatched.add(t);
+        List<Transaction> unmatched = new ArrayList<>();
+        for (Transaction t : bankTx) {
+            Deque<Transaction> candidates = ledger.get(matchKey(t));
+            if (candidates == null || candidates.poll() == null) {
+                unmatched.add(t);
+            }
+        }
+        for (Deque<Transaction> leftover : ledger.values()) {
+            unmatched.addAll(leftover);
         }
-    }
-    public Set<Transaction> getUnmatched() {
         return unmatched;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Queue a settlement file for reconciliation against the ledger; see {@link ReconciliationEngine}
+     */
+    public ReconciliationRun reconcileSettlementFile(InputStream settlementFile, String sourceName, LocalDate businessDate) {
+        return reconciliationEngine.reconcile(settlementFile, sourceName, businessDate);
+    }
+    
+    public Optional<ReconciliationRun> getRun(UUID runId) {
+        return reconciliationRunRepository.findById(runId);
+    }
+    
+    public Optional<ReconciliationRun> getLatestRun() {
+        return reconciliationRunRepository.findFirstByStatusOrderByCompletedAtDesc("COMPLETED");
+    }
+    
+    /**
+     * Break report for a run, optionally restricted to one break type; empty until the run has completed
+     */
+    public Page<ReconciliationItem> getBreaks(UUID runId, String status, Pageable pageable) {
+        if (!isCompleted(runId)) {
+            return Page.empty(pageable);
+        }
+        if (status != null && !status.isBlank()) {
+            return reconciliationItemRepository.findByRunIdAndStatus(runId, status.toUpperCase(), pageable);
+        }
+        return reconciliationItemRepository.findByRunId(runId, pageable);
+    }
+    
+    public Map<String, Long> getBreakSummary(UUID runId) {
+        Map<String, Long> summary = new TreeMap<>();
+        if (!isCompleted(runId)) {
+            return summary;
+        }
+        for (Object[] row : reconciliationItemRepository.countByStatusForRun(runId)) {
+            summary.put((String) row[0], (Long) row[1]);
+        }
+        return summary;
+    }
+    
+    /**
+     * Breaks of the latest completed run
+     */
+    public Page<ReconciliationItem> getUnmatched(Pageable pageable) {
+        return getLatestRun()
+            .map(run -> reconciliationItemRepository.findByRunId(run.getId(), pageable))
+            .orElse(Page.empty(pageable));
+    }
+    
+    private boolean isCompleted(UUID runId) {
+        return reconciliationRunRepository.findById(runId)
+            .map(run -> "COMPLETED".equals(run.getStatus()))
+            .orElse(false);
+    }
+    
+    private static String matchKey(Transaction t) {
+        BigDecimal amount = t.getAmount() != null ? t.getAmount().stripTrailingZeros() : null;
+        return t.getReference() + '|' + (amount != null ? amount.toPlainString() : "");
+    }
+}
@@ -0,0 +1,268 @@
+package com.xypay.xypay.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, concurrent index of recently processed transaction references.
+ *
+ * References are kept in a ring of time buckets covering the retention window. Each bucket is a chain of
+ * segments, a Bloom filter in front of an exact set of a fixed number of entries; a full segment rolls
+ * over to a new one, up to a fixed number of segments per bucket. Past that cap a reference is no
+ * longer held locally and only Redis records it, which is counted and logged so the cap can be raised.
+ * A bucket is aged out by overwriting its ring slot, so expiry is O(1) with no sweep. Redis (through
+ * {@link IdempotencyService}) is consulted for references not seen locally, so duplicates are detected
+ * across nodes as well.
+ */
+@Service
+public class ReferenceDeduplicationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDeduplicationIndex.class);
+
+    private static final String REDIS_SCOPE = "txref";
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${transaction.dedup.retention-hours:24}")
+    private int retentionHours;
+
+    @Value("${transaction.dedup.bucket-minutes:60}")
+    private int bucketMinutes;
+
+    @Value("${transaction.dedup.max-references-per-segment:200000}")
+    private int maxReferencesPerSegment;
+
+    @Value("${transaction.dedup.max-segments-per-bucket:4}")
+    private int maxSegmentsPerBucket;
+
+    private AtomicReferenceArray<Bucket> ring;
+    private long bucketMillis;
+    private Counter overflow;
+
+    @PostConstruct
+    public void init() {
+        bucketMillis = Duration.ofMinutes(bucketMinutes).toMillis();
+        int buckets = (int) Math.ceil(Duration.ofHours(retentionHours).toMillis() / (double) bucketMillis);
+        ring = new AtomicReferenceArray<>(buckets);
+        overflow = Counter.builder("xypay.dedup.overflow")
+            .description("References recorded only in Redis because their local bucket was full")
+            .register(meterRegistry);
+        logger.info("Reference dedup index using {} buckets of {} minutes, up to {} segments of {} references each",
+            buckets, bucketMinutes, maxSegmentsPerBucket, maxReferencesPerSegment);
+    }
+
+    /**
+     * Record a reference as processed.
+     *
+     * @param reference Transaction reference
+     * @return True if this is the first time the reference has been seen within the retention window
+     */
+    public boolean markProcessed(String reference) {
+        if (reference == null || reference.isEmpty()) {
+            return true;
+        }
+
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        long[] hashes = hash(reference);
+
+        if (containsLocally(reference, hashes, epoch)) {
+            return false;
+        }
+
+        Bucket current = bucketFor(epoch);
+        Outcome outcome = current.add(reference, hashes);
+        if (outcome == Outcome.DUPLICATE) {
+            // Another thread on this node recorded it between the lookup and the insert
+            return false;
+        }
+        if (outcome == Outcome.FULL) {
+            overflow.increment();
+            if (current.reportFull()) {
+                logger.warn("Reference dedup bucket {} reached {} segments; further references this bucket are checked in Redis only",
+                    epoch, maxSegmentsPerBucket);
+            }
+        }
+
+        if (idempotencyService.isDuplicateReference(REDIS_SCOPE, reference, Duration.ofHours(retentionHours))) {
+            logger.debug("Reference {} already processed on another node", reference);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean containsLocally(String reference, long[] hashes, long epoch) {
+        long oldest = epoch - ring.length() + 1;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && bucket.epoch >= oldest && bucket.epoch <= epoch && bucket.contains(reference, hashes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Bucket bucketFor(long epoch) {
+        int slot = (int) Math.floorMod(epoch, (long) ring.length());
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch == epoch) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(epoch, maxReferencesPerSegment, maxSegmentsPerBucket);
+            // Replacing the slot drops the expired bucket wholesale
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static long[] hash(String reference) {
+        byte[] bytes = reference.getBytes(StandardCharsets.UTF_8);
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = reference.hashCode();
+        for (byte b : bytes) {
+            h1 ^= b;
+            h1 *= 0x100000001b3L;
+        }
+        h2 = mix(h2 ^ h1);
+        return new long[] { h1, h2 | 1 };
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private enum Outcome { ADDED, DUPLICATE, FULL }
+
+    /**
+     * One time bucket: a chain of at most maxSegments segments, only the last of which takes new references
+     */
+    private static final class Bucket {
+        private final long epoch;
+        private final int capacity;
+        private final int maxSegments;
+        private final Segment head;
+        private volatile Segment tail;
+        private int segments = 1;
+        private final AtomicBoolean fullReported = new AtomicBoolean();
+
+        private Bucket(long epoch, int capacity, int maxSegments) {
+            this.epoch = epoch;
+            this.capacity = capacity;
+            this.maxSegments = Math.max(1, maxSegments);
+            this.head = new Segment(capacity);
+            this.tail = head;
+        }
+
+        private boolean contains(String reference, long[] hashes) {
+            for (Segment segment = head; segment != null; segment = segment.next) {
+                if (segment.contains(reference, hashes)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Outcome add(String reference, long[] hashes) {
+            Segment segment = tail;
+            // Reserve a slot, moving on to a fresh segment once this one is full
+            while (segment.size.incrementAndGet() > capacity) {
+                segment = roll(segment);
+                if (segment == null) {
+                    return Outcome.FULL;
+                }
+            }
+            if (!segment.exact.add(reference)) {
+                segment.size.decrementAndGet();
+                return Outcome.DUPLICATE;
+            }
+            segment.setBits(hashes);
+            return Outcome.ADDED;
+        }
+
+        /**
+         * The segment after a full one, or null once the bucket has reached its segment cap
+         */
+        private synchronized Segment roll(Segment full) {
+            if (full.next == null) {
+                if (segments >= maxSegments) {
+                    return null;
+                }
+                full.next = new Segment(capacity);
+                segments++;
+                tail = full.next;
+                logger.debug("Reference dedup bucket {} rolled over to segment {}", epoch, segments);
+            }
+            return full.next;
+        }
+
+        /**
+         * True only for the first caller to find the bucket full
+         */
+        private boolean reportFull() {
+            return fullReported.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * A Bloom filter in front of an exact set of at most capacity references
+     */
+    private static final class Segment {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final Set<String> exact = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile Segment next;
+
+        private Segment(int capacity) {
+            int words = Math.max(1, (int) (((long) capacity * BLOOM_BITS_PER_ENTRY + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+        }
+
+        private boolean contains(String reference, long[] hashes) {
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return exact.contains(reference);
+        }
+
+        private void setBits(long[] hashes) {
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(hashes[0] + i * hashes[1], bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.xypay.xypay.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Streams a report query straight into its output format.
+ *
+ * The query is read through a cursor with a fetch size, so only one fetch of rows is held at a time, and
+ * each row is written as soon as it is read: to a streaming workbook that keeps a small window of rows
+ * in memory and flushes the rest to a temp file, to a buffered CSV writer, or to a Jackson generator.
+ * Heap use does not grow with the number of rows, whether the output is a report file or an HTTP response.
+ *
+ * Report SQL keeps its :name placeholders and runs as a prepared statement with bound values, so the text
+ * is the same on every run: the parsed statement is cached here and the driver's server-side prepared
+ * statement cache lets PostgreSQL reuse the plan instead of planning a new literal query each time.
+ */
+@Service
+public class ReportExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportExporter.class);
+
+    public static final String EXCEL = "EXCEL";
+    public static final String CSV = "CSV";
+    public static final String JSON = "JSON";
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+    // Data rows per sheet; the header takes the remaining row
+    private static final int SHEET_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+    private static final int MAX_COLUMN_CHARS = 60;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${reporting.export.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${reporting.export.excel-window:200}")
+    private int excelWindow;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private NamedParameterJdbcTemplate reportReader;
+    private TransactionTemplate readTransaction;
+
+    @PostConstruct
+    public void init() {
+        // PostgreSQL only streams with a fetch size inside a transaction; otherwise it buffers the whole result
+        JdbcTemplate cursorTemplate = new JdbcTemplate(dataSource);
+        cursorTemplate.setFetchSize(fetchSize);
+        reportReader = new NamedParameterJdbcTemplate(cursorTemplate);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Normalize an output format, defaulting to Excel for unknown or missing formats
+     */
+    public static String format(String format) {
+        if (format == null) {
+            return EXCEL;
+        }
+        String upper = format.toUpperCase();
+        return CSV.equals(upper) || JSON.equals(upper) ? upper : EXCEL;
+    }
+
+    public static String extension(String format) {
+        return switch (format(format)) {
+            case CSV -> ".csv";
+            case JSON -> ".json";
+            default -> ".xlsx";
+        };
+    }
+
+    public static String contentType(String format) {
+        return switch (format(format)) {
+            case CSV -> "text/csv";
+            case JSON -> "application/json";
+            default -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        };
+    }
+
+    /**
+     * Run a query with :name placeholders and write its rows to the stream in the given format. The stream is
+     * flushed but not closed.
+     *
+     * @return Rows written
+     */
+    public long export(String sql, Map<String, Object> parameters, String format, OutputStream out) {
+        MapSqlParameterSource bound = new MapSqlParameterSource();
+        if (parameters != null) {
+            parameters.forEach((name, value) -> bound.addValue(name, bindValue(value)));
+        }
+        RowSink sink = switch (format(format)) {
+            case CSV -> new CsvSink(out);
+            case JSON -> new JsonSink(out);
+            default -> new ExcelSink(out);
+        };
+        Long rows = readTransaction.execute(status -> reportReader.query(sql, bound, rs -> {
+            try {
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] columns = new String[metaData.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = metaData.getColumnLabel(i + 1);
+                }
+                sink.start(columns);
+                long count = 0;
+                while (rs.next()) {
+                    sink.row(rs);
+                    count++;
+                }
+                sink.finish(count);
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                sink.close();
+            }
+        }));
+        logger.debug("Exported {} report rows as {}", rows, format(format));
+        return rows != null ? rows : 0L;
+    }
+
+    /**
+     * Parameters arrive as strings from JSON request bodies. Literal substitution let PostgreSQL infer their
+     * types; bound as varchar they would not compare with numeric, date or timestamp columns. Strings are
+     * therefore bound with no declared type, which PostgreSQL resolves from the column or expression the
+     * parameter meets, as it did for a literal.
+     */
+    private static Object bindValue(Object value) {
+        if (value instanceof LocalDate date) {
+            return java.sql.Date.valueOf(date);
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return Timestamp.valueOf(dateTime);
+        }
+        if (value instanceof String text) {
+            return new SqlParameterValue(Types.OTHER, text);
+        }
+        return value;
+    }
+
+    private interface RowSink {
+        void start(String[] columns) throws IOException;
+
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        void finish(long rows) throws IOException;
+
+        default void close() {
+        }
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer writer;
+        private int columnCount;
+
+        private CsvSink(OutputStream out) {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER);
+        }
+
+        @Override
+        public void start(String[] columns) throws IOException {
+            columnCount = columns.length;
+            writer.write(String.join(",", columns));
+            writer.write('\n');
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(i);
+                if (value != null) {
+                    writer.write('"');
+                    writer.write(value.toString().replace("\"", "\"\""));
+                    writer.write('"');
+                }
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish(long rows) throws IOException {
+            writer.flush();
+        }
+    }
+
+    private final class JsonSink implements RowSink {
+        private final OutputStream out;
+        private JsonGenerator generator;
+        private String[] columns;
+
+        private JsonSink(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void start(String[] columns) throws IOException {
+            this.columns = columns;
+            generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("generated_at", LocalDateTime.now().toString());
+            generator.writeArrayFieldStart("data");
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                generator.writeObject(rs.getObject(i + 1));
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void finish(long rows) throws IOException {
+            generator.writeEndArray();
+            // Written last, since the count is only known once the rows have been streamed
+            generator.writeNumberField("total_records", rows);
+            generator.writeEndObject();
+            generator.flush();
+        }
+
+        @Override
+        public void close() {
+            if (generator != null) {
+                try {
+                    generator.close();
+                } catch (IOException e) {
+                    logger.debug("Closing JSON report generator failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private final class ExcelSink implements RowSink {
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private final CellStyle headerStyle;
+        private String[] columns;
+        private int[] widths;
+        private SXSSFSheet sheet;
+        private int sheetCount;
+        private int rowIndex;
+
+        private ExcelSink(OutputStream out) {
+            this.out = out;
+            workbook = new SXSSFWorkbook(excelWindow);
+            workbook.setCompressTempFiles(true);
+            // One shared header style; workbooks have a small limit on distinct styles
+            headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+        }
+
+        @Override
+        public void start(String[] columns) {
+            this.columns = columns;
+            widths = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                widths[i] = columns[i].length();
+            }
+            newSheet();
+        }
+
+        private void newSheet() {
+            sheetCount++;
+            sheet = workbook.createSheet(sheetCount == 1 ? "Report Data" : "Report Data " + sheetCount);
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < columns.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(columns[i]);
+                cell.setCellStyle(headerStyle);
+            }
+            rowIndex = 1;
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException {
+            if (rowIndex > SHEET_ROWS) {
+                finishSheet();
+                newSheet();
+            }
+            Row dataRow = sheet.createRow(rowIndex++);
+            for (int i = 0; i < columns.length; i++) {
+                Object value = rs.getObject(i + 1);
+                if (value == null) {
+                    continue;
+                }
+                Cell cell = dataRow.createCell(i);
+                String text;
+                if (value instanceof Number number) {
+                    cell.setCellValue(number.doubleValue());
+                    text = number.toString();
+                } else {
+                    text = value.toString();
+                    cell.setCellValue(text);
+                }
+                // Column widths are tracked while writing instead of auto-sized, which would re-read every row
+                if (text.length() > widths[i]) {
+                    widths[i] = Math.min(text.length(), MAX_COLUMN_CHARS);
+                }
+            }
+        }
+
+        private void finishSheet() {
+            for (int i = 0; i < widths.length; i++) {
+                sheet.setColumnWidth(i, (widths[i] + 2) * 256);
+            }
+        }
+
+        @Override
+        public void finish(long rows) throws IOException {
+            finishSheet();
+            workbook.write(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                logger.debug("Closing report workbook failed: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -5,11 +5,14 @@ import com.xypay.xypay.domain.ReportExecution;
 import com.xypay.xypay.repository.ReportRepository;
 import com.xypay.xypay.repository.ReportExecutionRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +24,19 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.UUID;
 
+/**
+ * Report execution. Results are streamed to report files by {@link ReportExporter}; a completed file is
+ * reused for the same report and parameters for a short TTL instead of running the query again, and
+ * regulatory batches run their reports in parallel up to a fixed limit.
+ */
 @Service
 @Transactional
 public class ReportingEngineService {
@@ -37,10 +50,41 @@ public class ReportingEngineService {
     private ReportExecutionRepository reportExecutionRepository;
     
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private ReportExporter reportExporter;
+    
+    @Value("${reporting.result-cache.ttl-seconds:300}")
+    private long resultCacheTtlSeconds;
+    
+    @Value("${reporting.regulatory.parallelism:4}")
+    private int regulatoryParallelism;
     
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final String REPORTS_BASE_PATH = "reports/generated/";
+    
+    // Completed result files keyed by report, report version and parameters
+    private Cache<String, CachedResult> resultCache;
+    private ThreadPoolExecutor regulatoryExecutor;
+    
+    @PostConstruct
+    public void init() {
+        resultCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofSeconds(resultCacheTtlSeconds))
+            .build();
+        AtomicInteger threadCount = new AtomicInteger();
+        regulatoryExecutor = new ThreadPoolExecutor(regulatoryParallelism, regulatoryParallelism, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "regulatory-report-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        regulatoryExecutor.shutdownNow();
+    }
 
     /**
      * Execute a report asynchronously
@@ -62,7 +106,10 @@ public class ReportingEngineService {
     public ReportExecution executeReport(UUID reportId, Map<String, Object> parameters, UUID executedBy) {
         Report report = reportRepository.findById(reportId)
             .orElseThrow(() -> new RuntimeException("Report not found"));
+        return runReport(report, parameters, executedBy);
+    }
 
+    private ReportExecution runReport(Report report, Map<String, Object> parameters, UUID executedBy) {
         // Create execution record
         ReportExecution execution = new ReportExecution();
         execution.setReport(report);
@@ -81,14 +128,21 @@ public class ReportingEngineService {
         try {
             long startTime = System.currentTimeMillis();
             
-            // Process SQL query with parameters
-            String processedQuery = processQueryParameters(report.getSqlQuery(), parameters);
-            
-            // Execute query
-            List<Map<String, Object>> data = jdbcTemplate.queryForList(processedQuery);
-            
-            // Generate report file
-            String filePath = generateReportFile(report, data, execution.getId());
+            String cacheKey = resultCacheKey(report, parameters);
+            CachedResult cached = resultCache.getIfPresent(cacheKey);
+            // Every execution owns its file, so cleaning up one execution never removes another's
+            Path reportFile = reportFilePath(report, execution.getId());
+            String filePath = reportFile.toString();
+            long rows;
+            if (cached != null && linkCachedFile(cached, reportFile)) {
+                rows = cached.rows;
+            } else {
+                // Stream query results into the report file
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(reportFile))) {
+                    rows = reportExporter.export(report.getSqlQuery(), parameters, report.getOutputFormat(), out);
+                }
+                resultCache.put(cacheKey, new CachedResult(filePath, rows));
+            }
             
             long endTime = System.currentTimeMillis();
             
@@ -96,7 +150,7 @@ public class ReportingEngineService {
             execution.setExecutionStatus("COMPLETED");
             execution.setCompletedAt(LocalDateTime.now());
             execution.setFilePath(filePath);
-            execution.setRowsProcessed((long) data.size());
+            execution.setRowsProcessed(rows);
             execution.setExecutionTimeMs(endTime - startTime);
             
             // Calculate file size
@@ -131,8 +185,10 @@ public class ReportingEngineService {
     }
 
     /**
-     * Generate regulatory reports
+     * Generate regulatory reports. Each report runs and commits on its own, so one slow or failed
+     * report neither blocks nor rolls back the others.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<ReportExecution> generateRegulatoryReports(String reportCategory, LocalDateTime reportDate) {
         List<Report> reports = reportRepository.findByTypeAndCategory("REGULATORY", reportCategory);
         List<ReportExecution> executions = new ArrayList<>();
@@ -142,12 +198,23 @@ public class ReportingEngineService {
         parameters.put("start_date", reportDate.withDayOfMonth(1).format(DateTimeFormatter.ISO_LOCAL_DATE));
         parameters.put("end_date", reportDate.withDayOfMonth(reportDate.toLocalDate().lengthOfMonth()).format(DateTimeFormatter.ISO_LOCAL_DATE));
         
+        UUID systemUser = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        List<CompletableFuture<ReportExecution>> futures = new ArrayList<>(reports.size());
         for (Report report : reports) {
-            try {
-            ReportExecution execution = executeReport(report.getId(), parameters, UUID.fromString("00000000-0000-0000-0000-000000000001"));
-            executions.add(execution);
-            } catch (Exception e) {
-                logger.error("Failed to generate regulatory report {}: {}", report.getReportName(), e.getMessage());
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return runReport(report, parameters, systemUser);
+                } catch (Exception e) {
+                    logger.error("Failed to generate regulatory report {}: {}", report.getReportName(), e.getMessage());
+                    return null;
+                }
+            }, regulatoryExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        for (CompletableFuture<ReportExecution> future : futures) {
+            ReportExecution execution = future.join();
+            if (execution != null) {
+                executions.add(execution);
             }
         }
         
@@ -155,149 +222,57 @@ public class ReportingEngineService {
     }
 
     /**
-     * Process query parameters
+     * Result cache key: the report's last edit is part of the key so a changed query is never served stale
      */
-    private String processQueryParameters(String query, Map<String, Object> parameters) {
-        String processedQuery = query;
-        
-        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
-            String placeholder = ":" + entry.getKey();
-            String value = entry.getValue().toString();
-            
-            // Handle different data types
-            if (entry.getValue() instanceof String) {
-                value = "'" + value + "'";
-            }
-            
-            processedQuery = processedQuery.replace(placeholder, value);
-        }
-        
-        return processedQuery;
+    private String resultCacheKey(Report report, Map<String, Object> parameters) {
+        return report.getId() + "|" + report.getUpdatedAt() + "|" + new TreeMap<>(parameters != null ? parameters : Map.of());
     }
 
     /**
-     * Generate report file based on format
+     * Stream a report straight to an output stream, such as an HTTP response, without writing a file
+     *
+     * @param format Output format; the report's own format when null
+     * @return Rows written
      */
-    private String generateReportFile(Report report, List<Map<String, Object>> data, java.util.UUID executionId) throws IOException {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("%s_%s_%s", report.getReportName().replaceAll("\\s+", "_"), timestamp, executionId);
-        
-        // Ensure reports directory exists
-        Path reportsDir = Paths.get(REPORTS_BASE_PATH);
-        Files.createDirectories(reportsDir);
-        
-        String format = report.getOutputFormat() != null ? report.getOutputFormat().toUpperCase() : "EXCEL";
-        
-        switch (format) {
-            case "EXCEL":
-                return generateExcelReport(fileName + ".xlsx", data);
-            case "CSV":
-                return generateCsvReport(fileName + ".csv", data);
-            case "JSON":
-                return generateJsonReport(fileName + ".json", data);
-            default:
-                return generateExcelReport(fileName + ".xlsx", data);
-        }
-    }
-
-    /**
-     * Generate Excel report
-     */
-    private String generateExcelReport(String fileName, List<Map<String, Object>> data) throws IOException {
-        String filePath = REPORTS_BASE_PATH + fileName;
-        
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Report Data");
-            
-            if (!data.isEmpty()) {
-                // Create header row
-                Row headerRow = sheet.createRow(0);
-                Set<String> columns = data.get(0).keySet();
-                int colIndex = 0;
-                for (String column : columns) {
-                    Cell cell = headerRow.createCell(colIndex++);
-                    cell.setCellValue(column);
-                    
-                    // Style header
-                    CellStyle headerStyle = workbook.createCellStyle();
-                    Font headerFont = workbook.createFont();
-                    headerFont.setBold(true);
-                    headerStyle.setFont(headerFont);
-                    cell.setCellStyle(headerStyle);
-                }
-                
-                // Create data rows
-                int rowIndex = 1;
-                for (Map<String, Object> row : data) {
-                    Row dataRow = sheet.createRow(rowIndex++);
-                    colIndex = 0;
-                    for (String column : columns) {
-                        Cell cell = dataRow.createCell(colIndex++);
-                        Object value = row.get(column);
-                        if (value != null) {
-                            cell.setCellValue(value.toString());
-                        }
-                    }
-                }
-                
-                // Auto-size columns
-                for (int i = 0; i < columns.size(); i++) {
-                    sheet.autoSizeColumn(i);
-                }
-            }
-            
-            try (FileOutputStream outputStream = new FileOutputStream(filePath)) {
-                workbook.write(outputStream);
-            }
-        }
-        
-        return filePath;
+    @Transactional(readOnly = true)
+    public long streamReport(Report report, Map<String, Object> parameters, String format, OutputStream out) {
+        return reportExporter.export(report.getSqlQuery(), parameters, format != null ? format : report.getOutputFormat(), out);
     }
 
     /**
-     * Generate CSV report
+     * Give an execution its own name for a cached result file: a hard link where the file system allows
+     * one, otherwise a copy
+     *
+     * @return False if the cached file is gone, so the report has to be run again
      */
-    private String generateCsvReport(String fileName, List<Map<String, Object>> data) throws IOException {
-        String filePath = REPORTS_BASE_PATH + fileName;
-        
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            if (!data.isEmpty()) {
-                // Write header
-                Set<String> columns = data.get(0).keySet();
-                writer.println(String.join(",", columns));
-                
-                // Write data
-                for (Map<String, Object> row : data) {
-                    List<String> values = new ArrayList<>();
-                    for (String column : columns) {
-                        Object value = row.get(column);
-                        String csvValue = value != null ? "\"" + value.toString().replace("\"", "\"\"") + "\"" : "";
-                        values.add(csvValue);
-                    }
-                    writer.println(String.join(",", values));
-                }
+    private boolean linkCachedFile(CachedResult cached, Path target) {
+        Path source = Paths.get(cached.filePath);
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (UnsupportedOperationException | IOException linkFailed) {
+            try {
+                Files.copy(source, target);
+                return true;
+            } catch (IOException e) {
+                logger.debug("Cached report file {} is no longer usable: {}", cached.filePath, e.getMessage());
+                return false;
             }
         }
-        
-        return filePath;
     }
 
     /**
-     * Generate JSON report
+     * Path of the file a report execution writes to
      */
-    private String generateJsonReport(String fileName, List<Map<String, Object>> data) throws IOException {
-        String filePath = REPORTS_BASE_PATH + fileName;
-        
-        Map<String, Object> reportData = new HashMap<>();
-        reportData.put("generated_at", LocalDateTime.now().toString());
-        reportData.put("total_records", data.size());
-        reportData.put("data", data);
+    private Path reportFilePath(Report report, UUID executionId) throws IOException {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String fileName = String.format("%s_%s_%s", report.getReportName().replaceAll("\\s+", "_"), timestamp, executionId);
         
-        try (FileWriter writer = new FileWriter(filePath)) {
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, reportData);
-        }
+        // Ensure reports directory exists
+        Path reportsDir = Paths.get(REPORTS_BASE_PATH);
+        Files.createDirectories(reportsDir);
         
-        return filePath;
+        return reportsDir.resolve(fileName + ReportExporter.extension(report.getOutputFormat()));
     }
 
     /**
@@ -430,4 +405,14 @@ public class ReportingEngineService {
             }
         }
     }
+
+    private static final class CachedResult {
+        private final String filePath;
+        private final long rows;
+
+        private CachedResult(String filePath, long rows) {
+            this.filePath = filePath;
+            this.rows = rows;
+        }
+    }
 }
@@ -60,6 +60,13 @@ public class SMSNotificationService {
         }
     }
     
+    /**
+     * Whether SMS can be sent at all
+     */
+    public boolean isConfigured() {
+        return isTwilioConfigured();
+    }
+    
     /**
      * Check if Twilio is properly configured
      */
@@ -0,0 +1,299 @@
+package com.xypay.xypay.service;
+
+import com.xypay.xypay.domain.STPRule;
+import com.xypay.xypay.domain.Transaction;
+import com.xypay.xypay.domain.User;
+import com.xypay.xypay.repository.STPRuleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Active STP rules compiled into an in-memory decision structure.
+ *
+ * Each rule is reduced to the one predicate its type evaluates and indexed on it: amount ranges in an
+ * interval table over the distinct bounds, channels and transaction types in hash maps, and tier and
+ * time-of-day rules in sets switched on by facts worked out once per transaction. A lookup ORs the
+ * matching sets into one bit set whose bits are rule positions in priority order, so only rules that
+ * match are ever visited. The compiled set is immutable and swapped wholesale on reload; edits on any
+ * node are announced on a Redis channel, and a periodic reload covers missed messages.
+ */
+@Service
+public class STPRuleIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(STPRuleIndex.class);
+
+    public static final String RULES_CHANNEL = "xypay:stp-rules:changed";
+
+    @Autowired
+    private STPRuleRepository stpRuleRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Map<String, CompiledRules> compiled;
+    private final Map<String, Counter> hitCounters = new HashMap<>();
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(
+            (message, pattern) -> reload(), new ChannelTopic(RULES_CHANNEL));
+        Gauge.builder("xypay.stp.rules", this, index -> index.current().values().stream().mapToInt(r -> r.rules.length).sum())
+            .description("Active STP rules in the compiled index")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Rules of an entity type that match the transaction, highest priority first
+     */
+    public List<CompiledRule> match(String entityType, Transaction transaction, User user) {
+        CompiledRules rules = current().get(entityType);
+        return rules != null ? rules.match(transaction, user) : Collections.emptyList();
+    }
+
+    /**
+     * Recompile from the database and swap in the new rule set
+     */
+    @Scheduled(fixedDelayString = "${stp.rules.refresh-ms:300000}", initialDelay = 300000)
+    public synchronized void reload() {
+        Map<String, List<STPRule>> byEntity = new LinkedHashMap<>();
+        for (STPRule rule : stpRuleRepository.findAllActiveRules()) {
+            byEntity.computeIfAbsent(rule.getEntityType(), type -> new ArrayList<>()).add(rule);
+        }
+        Map<String, CompiledRules> next = new HashMap<>();
+        for (Map.Entry<String, List<STPRule>> entry : byEntity.entrySet()) {
+            next.put(entry.getKey(), new CompiledRules(entry.getValue()));
+        }
+        compiled = next;
+        logger.debug("STP rules recompiled for {} entity types", next.size());
+    }
+
+    /**
+     * Announce that rules were edited. Inside a transaction the reload and the broadcast wait for the
+     * commit, so no node can recompile the rules from before the edit.
+     */
+    public void rulesChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadAndBroadcast();
+                }
+            });
+        } else {
+            reloadAndBroadcast();
+        }
+    }
+
+    /**
+     * Hits per rule id since startup
+     */
+    public Map<String, Long> hitCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        synchronized (hitCounters) {
+            hitCounters.forEach((ruleId, counter) -> counts.put(ruleId, (long) counter.count()));
+        }
+        return counts;
+    }
+
+    private void reloadAndBroadcast() {
+        reload();
+        try {
+            stringRedisTemplate.convertAndSend(RULES_CHANNEL, "changed");
+        } catch (Exception e) {
+            // Other nodes pick the change up on their next periodic reload
+            logger.warn("Failed to broadcast STP rule change: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, CompiledRules> current() {
+        Map<String, CompiledRules> rules = compiled;
+        if (rules == null) {
+            reload();
+            rules = compiled;
+        }
+        return rules;
+    }
+
+    private Counter hitCounter(STPRule rule) {
+        String ruleId = String.valueOf(rule.getId());
+        synchronized (hitCounters) {
+            // Counters outlive reloads so a rule's hits keep accumulating across edits
+            return hitCounters.computeIfAbsent(ruleId, id -> Counter.builder("xypay.stp.rule.hits")
+                .description("Transactions an STP rule matched")
+                .tag("rule", id)
+                .register(meterRegistry));
+        }
+    }
+
+    /**
+     * A rule as held in the index, with its hit counter
+     */
+    public static final class CompiledRule {
+        private final STPRule rule;
+        private final Counter hits;
+
+        private CompiledRule(STPRule rule, Counter hits) {
+            this.rule = rule;
+            this.hits = hits;
+        }
+
+        public STPRule getRule() {
+            return rule;
+        }
+
+        public void recordHit() {
+            hits.increment();
+        }
+    }
+
+    private final class CompiledRules {
+        private final CompiledRule[] rules;
+        private final BitSet always = new BitSet();
+        private final BitSet premiumOnly = new BitSet();
+        private final BitSet businessHoursOnly = new BitSet();
+        private final Map<String, BitSet> byChannel = new HashMap<>();
+        private final Map<String, BitSet> byTransactionType = new HashMap<>();
+        // Distinct amount bounds; slot 2i+1 is exactly bounds[i], even slots the open gaps around them
+        private final BigDecimal[] bounds;
+        private final BitSet[] amountSlots;
+
+        private CompiledRules(List<STPRule> ordered) {
+            rules = new CompiledRule[ordered.size()];
+            TreeSet<BigDecimal> distinct = new TreeSet<>();
+            List<Integer> amountRules = new ArrayList<>();
+
+            for (int i = 0; i < rules.length; i++) {
+                STPRule rule = ordered.get(i);
+                rules[i] = new CompiledRule(rule, hitCounter(rule));
+                String type = rule.getRuleType();
+                if (type == null) {
+                    continue;
+                }
+                switch (type) {
+                    case "AMOUNT_RANGE" -> {
+                        amountRules.add(i);
+                        if (rule.getMinAmount() != null) {
+                            distinct.add(rule.getMinAmount().stripTrailingZeros());
+                        }
+                        if (rule.getMaxAmount() != null) {
+                            distinct.add(rule.getMaxAmount().stripTrailingZeros());
+                        }
+                    }
+                    case "CHANNEL_TYPE" -> indexValues(byChannel, rule.getAllowedChannels(), i);
+                    case "TRANSACTION_TYPE" -> indexValues(byTransactionType, rule.getConditionValue(), i);
+                    case "KYC_STATUS" -> {
+                        if (rule.getRequiredKycLevel() == null || "VERIFIED".equals(rule.getRequiredKycLevel())) {
+                            always.set(i);
+                        }
+                    }
+                    case "TIME_BASED" -> ("BUSINESS_HOURS".equals(rule.getConditionValue()) ? businessHoursOnly : always).set(i);
+                    case "USER_TIER" -> ("PREMIUM".equals(rule.getConditionValue()) ? premiumOnly : always).set(i);
+                    default -> {
+                        // Custom rule types have no evaluator and never match
+                    }
+                }
+            }
+
+            bounds = distinct.toArray(new BigDecimal[0]);
+            amountSlots = new BitSet[2 * bounds.length + 1];
+            for (int slot = 0; slot < amountSlots.length; slot++) {
+                amountSlots[slot] = new BitSet();
+            }
+            for (int i : amountRules) {
+                STPRule rule = rules[i].rule;
+                int from = rule.getMinAmount() == null ? 0 : 2 * boundIndex(rule.getMinAmount()) + 1;
+                int to = rule.getMaxAmount() == null ? amountSlots.length - 1 : 2 * boundIndex(rule.getMaxAmount()) + 1;
+                for (int slot = from; slot <= to; slot++) {
+                    amountSlots[slot].set(i);
+                }
+            }
+        }
+
+        private void indexValues(Map<String, BitSet> index, String commaSeparated, int ordinal) {
+            if (commaSeparated == null) {
+                return;
+            }
+            for (String value : commaSeparated.split(",")) {
+                index.computeIfAbsent(value.trim(), key -> new BitSet()).set(ordinal);
+            }
+        }
+
+        private int boundIndex(BigDecimal amount) {
+            return Arrays.binarySearch(bounds, amount.stripTrailingZeros());
+        }
+
+        private List<CompiledRule> match(Transaction transaction, User user) {
+            BitSet candidates = (BitSet) always.clone();
+            BigDecimal amount = transaction.getAmount();
+            if (amount != null) {
+                int found = Arrays.binarySearch(bounds, amount.stripTrailingZeros());
+                candidates.or(amountSlots[found >= 0 ? 2 * found + 1 : 2 * (-found - 1)]);
+            }
+            orIfPresent(candidates, byChannel, transaction.getChannel());
+            orIfPresent(candidates, byTransactionType, transaction.getType());
+            if (!premiumOnly.isEmpty() && isPremium(user)) {
+                candidates.or(premiumOnly);
+            }
+            if (!businessHoursOnly.isEmpty() && isBusinessHours()) {
+                candidates.or(businessHoursOnly);
+            }
+
+            List<CompiledRule> matched = new ArrayList<>(candidates.cardinality());
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                matched.add(rules[i]);
+            }
+            return matched;
+        }
+
+        private void orIfPresent(BitSet candidates, Map<String, BitSet> index, String value) {
+            if (value != null) {
+                BitSet hits = index.get(value.trim());
+                if (hits != null) {
+                    candidates.or(hits);
+                }
+            }
+        }
+
+        // Premium users are those registered more than 30 days ago (simplified)
+        private boolean isPremium(User user) {
+            return user != null && user.getCreatedAt() != null
+                && user.getCreatedAt().isBefore(LocalDateTime.now().minusDays(30));
+        }
+
+        private boolean isBusinessHours() {
+            LocalTime now = LocalTime.now();
+            return now.isAfter(LocalTime.of(9, 0)) && now.isBefore(LocalTime.of(17, 0));
+        }
+    }
+}
@@ -23,15 +23,18 @@ public class SecurityService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+    
     /**
-     * Log an audit event for security tracking
+     * Log an audit event for security tracking. The row is written asynchronously by {@link AuditLogWriter}.
      * @param user The user associated with the event
      * @param action The action performed
      * @param description Description of the event
      * @param severity Severity level (low, medium, high)
      * @param ipAddress IP address of the request
      * @param userAgent User agent string
-     * @return The created audit log entry
+     * @return The audit log entry queued for writing, or null if it was dropped
      */
     public AuditLog logAuditEvent(User user, String action, String description, 
                                  String severity, String ipAddress, String userAgent) {
@@ -40,26 +43,25 @@ public class SecurityService {
             AuditLog.ActionType actionType = convertStringToActionType(action);
             AuditLog.SeverityLevel severityLevel = convertStringToSeverityLevel(severity);
             
-            // Ensure the user is managed by the entity manager before creating audit log
-            User managedUser = null;
+            // Reference the user by id without loading it; transient users are logged without a reference
+            User userReference = null;
             if (user != null) {
                 if (user.getId() != null) {
-                    // If user has an ID, fetch the managed instance from database
-                    managedUser = userRepository.findById(user.getId()).orElse(user);
+                    userReference = userRepository.getReferenceById(user.getId());
                 } else {
-                    // If user doesn't have an ID, it might be a transient entity
-                    // In this case, we'll log the audit event without the user reference
-                    logger.warn("Audit event logged without user reference - user entity is transient: {}", description);
+                    logger.debug("Audit event logged without user reference - user entity is transient: {}", description);
                 }
             }
             
-            AuditLog auditLog = new AuditLog(managedUser, actionType, description, severityLevel, ipAddress, userAgent);
+            AuditLog auditLog = new AuditLog(userReference, actionType, description, severityLevel, ipAddress, userAgent);
             // Note: timestamp is set automatically via @CreationTimestamp
             
-            AuditLog saved = auditLogRepository.save(auditLog);
-            logger.info("Audit event logged: {} - {} - {}", 
-                managedUser != null ? managedUser.getUsername() : "Unknown", action, description);
-            return saved;
+            if (!auditLogWriter.submit(auditLog)) {
+                return null;
+            }
+            logger.debug("Audit event queued: {} - {} - {}", 
+                user != null ? user.getUsername() : "Unknown", action, description);
+            return auditLog;
         } catch (Exception e) {
             logger.error("Failed to log audit event: {}", e.getMessage(), e);
             return null;
@@ -1,19 +1,50 @@
 package com.xypay.xypay.service;
 
 import com.xypay.xypay.client.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import io.micrometer.core.instrument.Timer;
 
+/**
+ * Orchestrates calls to the downstream banking services.
+ *
+ * Each downstream service has its own bounded pool (a bulkhead), sized by configuration, so a slow
+ * treasury or analytics service can only tie up its own threads and never delays calls to the other
+ * services. A full bulkhead turns the call away at once rather than queueing behind the slow
+ * service. Every call has a deadline; calls made together for one request share an overall deadline,
+ * and when one fails or the deadline passes the others are cancelled, interrupting their threads.
+ * Balance updates are the exception: they run on the request thread and are never cancelled.
+ */
 @Service
 public class ServiceCommunicationService {
     
+    private static final Logger logger = LoggerFactory.getLogger(ServiceCommunicationService.class);
+    
+    private static final String[] SERVICES = {"customer-service", "account-service", "transaction-service",
+                                              "notification-service", "treasury-service", "analytics-service"};
+    
     @Autowired
     private CustomerServiceClient customerServiceClient;
     
@@ -38,7 +69,45 @@ public class ServiceCommunicationService {
     @Autowired
     private MonitoringService monitoringService;
     
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    @Autowired
+    private Environment environment;
+    
+    @Value("${service-communication.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+    
+    @Value("${service-communication.call-timeout-ms:5000}")
+    private long callTimeoutMs;
+    
+    @Value("${service-communication.bulkhead.threads:8}")
+    private int defaultBulkheadThreads;
+    
+    @Value("${service-communication.bulkhead.queue-capacity:32}")
+    private int defaultBulkheadQueue;
+    
+    private final Map<String, ThreadPoolExecutor> bulkheads = new HashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        for (String service : SERVICES) {
+            int threads = environment.getProperty("service-communication.bulkhead." + service + ".threads",
+                Integer.class, defaultBulkheadThreads);
+            int queueCapacity = environment.getProperty("service-communication.bulkhead." + service + ".queue-capacity",
+                Integer.class, defaultBulkheadQueue);
+            AtomicInteger threadCount = new AtomicInteger();
+            bulkheads.put(service, new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, service + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(ThreadPoolExecutor::shutdownNow);
+    }
     
     /**
      * Process transaction with all related services
@@ -47,91 +116,60 @@ public class ServiceCommunicationService {
         Timer.Sample sample = monitoringService.startServiceTimer("transaction-processing", "process-transaction");
         
         try {
-            // 1. Validate customer
             Long customerId = Long.valueOf(transactionData.get("customerId").toString());
-            Map<String, Object> customer = circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                "customer-service", 
+            String accountNumber = transactionData.get("accountNumber").toString();
+            CallScope scope = new CallScope(requestTimeoutMs);
+            
+            // 1-2. Validate customer and account in parallel
+            CompletableFuture<Map<String, Object>> customerFuture = scope.fork(
+                "customer-service",
                 () -> customerServiceClient.getCustomerById(customerId)
             );
-            
-            // 2. Validate account
-            String accountNumber = transactionData.get("accountNumber").toString();
-            Map<String, Object> account = circuitBreakerService.executeWithRetryAndCircuitBreaker(
+            CompletableFuture<Map<String, Object>> accountFuture = scope.fork(
                 "account-service",
                 () -> accountServiceClient.getAccountByNumber(accountNumber)
             );
+            scope.join();
+            Map<String, Object> account = accountFuture.join();
             
-            // 3. Create transaction
-            Map<String, Object> transaction = circuitBreakerService.executeWithRetryAndCircuitBreaker(
+            // 3. Create transaction, within what is left of the request deadline
+            CompletableFuture<Map<String, Object>> transactionFuture = scope.fork(
                 "transaction-service",
                 () -> transactionServiceClient.createTransaction(transactionData)
             );
+            scope.join();
+            Map<String, Object> transaction = transactionFuture.join();
             
-            // 4. Update account balance (async)
-            CompletableFuture.runAsync(() -> {
-                try {
-                    circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                        "account-service",
-                        () -> {
-                            if ("DEBIT".equals(transactionData.get("type"))) {
-                                return accountServiceClient.debitAccount(
-                                    Long.valueOf(account.get("id").toString()),
-                                    java.math.BigDecimal.valueOf(Double.parseDouble(transactionData.get("amount").toString()))
-                                );
-                            } else {
-                                return accountServiceClient.creditAccount(
-                                    Long.valueOf(account.get("id").toString()),
-                                    java.math.BigDecimal.valueOf(Double.parseDouble(transactionData.get("amount").toString()))
-                                );
-                            }
-                        }
-                    );
-                } catch (Exception e) {
-                    monitoringService.recordError("account-update-failed", "account-service", "update-balance");
-                }
-            }, executorService);
+            // 4. Update account balance on the request thread, outside any bulkhead, so it is never turned
+            // away or interrupted; if it fails the request fails instead of reporting success
+            java.math.BigDecimal amount = java.math.BigDecimal.valueOf(Double.parseDouble(transactionData.get("amount").toString()));
+            Long accountId = Long.valueOf(account.get("id").toString());
+            try {
+                circuitBreakerService.executeWithRetryAndCircuitBreaker("account-service", () ->
+                    "DEBIT".equals(transactionData.get("type"))
+                        ? accountServiceClient.debitAccount(accountId, amount)
+                        : accountServiceClient.creditAccount(accountId, amount));
+            } catch (RuntimeException e) {
+                monitoringService.recordError("account-update-failed", "account-service", "update-balance");
+                throw e;
+            }
             
             // 5. Send notification (async)
-            CompletableFuture.runAsync(() -> {
-                try {
-                    circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                        "notification-service",
-                        () -> notificationServiceClient.sendNotification(
-                            customerId,
-                            "Transaction Completed",
-                            "Your transaction has been processed successfully",
-                            "TRANSACTION_SUCCESS",
-                            Map.of("transactionId", transaction.get("id"))
-                        )
-                    );
-                } catch (Exception e) {
-                    monitoringService.recordError("notification-failed", "notification-service", "send-notification");
-                }
-            }, executorService);
+            call("notification-service", callTimeoutMs, () -> notificationServiceClient.sendNotification(
+                customerId,
+                "Transaction Completed",
+                "Your transaction has been processed successfully",
+                "TRANSACTION_SUCCESS",
+                Map.of("transactionId", transaction.get("id"))
+            )).exceptionally(e -> recordAsyncFailure(e, "notification-failed", "notification-service", "send-notification"));
             
             // 6. Update analytics (async)
-            CompletableFuture.runAsync(() -> {
-                try {
-                    circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                        "analytics-service",
-                        () -> analyticsServiceClient.detectFraud(transactionData)
-                    );
-                } catch (Exception e) {
-                    monitoringService.recordError("analytics-update-failed", "analytics-service", "fraud-detection");
-                }
-            }, executorService);
+            call("analytics-service", callTimeoutMs, () -> analyticsServiceClient.detectFraud(transactionData))
+                .exceptionally(e -> recordAsyncFailure(e, "analytics-update-failed", "analytics-service", "fraud-detection"));
             
             // 7. Update treasury (async)
-            CompletableFuture.runAsync(() -> {
-                try {
-                    circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                        "treasury-service",
-                        () -> treasuryServiceClient.getLiquidityStatus()
-                    );
-                } catch (Exception e) {
-                    monitoringService.recordError("treasury-update-failed", "treasury-service", "liquidity-check");
-                }
-            }, executorService);
+            call("treasury-service", callTimeoutMs, () -> treasuryServiceClient.getLiquidityStatus())
+                .exceptionally(e -> recordAsyncFailure(e, "treasury-update-failed", "treasury-service", "liquidity-check"));
             
             monitoringService.recordServiceCall("transaction-processing", "process-transaction", true);
             return transaction;
@@ -152,47 +190,43 @@ public class ServiceCommunicationService {
         Timer.Sample sample = monitoringService.startServiceTimer("customer-data", "get-comprehensive-data");
         
         try {
-            // Execute all service calls in parallel
-            CompletableFuture<Map<String, Object>> customerFuture = CompletableFuture.supplyAsync(() ->
-                circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                    "customer-service",
-                    () -> customerServiceClient.getCustomerById(customerId)
-                ), executorService);
-            
-            CompletableFuture<List<Map<String, Object>>> accountsFuture = CompletableFuture.supplyAsync(() ->
-                circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                    "account-service",
-                    () -> accountServiceClient.getAccountsByUserId(customerId)
-                ), executorService);
-            
-            CompletableFuture<List<Map<String, Object>>> transactionsFuture = CompletableFuture.supplyAsync(() ->
-                circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                    "transaction-service",
-                    () -> transactionServiceClient.getTransactionsByUserId(customerId)
-                ), executorService);
-            
-            CompletableFuture<List<Map<String, Object>>> notificationsFuture = CompletableFuture.supplyAsync(() ->
-                circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                    "notification-service",
-                    () -> notificationServiceClient.getUserNotifications(customerId)
-                ), executorService);
-            
-            CompletableFuture<Map<String, Object>> analyticsFuture = CompletableFuture.supplyAsync(() ->
-                circuitBreakerService.executeWithRetryAndCircuitBreaker(
-                    "analytics-service",
-                    () -> analyticsServiceClient.getCustomerRiskScore(customerId)
-                ), executorService);
-            
-            // Wait for all futures to complete
-            CompletableFuture.allOf(customerFuture, accountsFuture, transactionsFuture, 
-                                  notificationsFuture, analyticsFuture).join();
+            // Execute all service calls in parallel under one deadline
+            CallScope scope = new CallScope(requestTimeoutMs);
+            
+            CompletableFuture<Map<String, Object>> customerFuture = scope.fork(
+                "customer-service",
+                () -> customerServiceClient.getCustomerById(customerId)
+            );
+            
+            CompletableFuture<List<Map<String, Object>>> accountsFuture = scope.fork(
+                "account-service",
+                () -> accountServiceClient.getAccountsByUserId(customerId)
+            );
+            
+            CompletableFuture<List<Map<String, Object>>> transactionsFuture = scope.fork(
+                "transaction-service",
+                () -> transactionServiceClient.getTransactionsByUserId(customerId)
+            );
+            
+            CompletableFuture<List<Map<String, Object>>> notificationsFuture = scope.fork(
+                "notification-service",
+                () -> notificationServiceClient.getUserNotifications(customerId)
+            );
+            
+            CompletableFuture<Map<String, Object>> analyticsFuture = scope.fork(
+                "analytics-service",
+                () -> analyticsServiceClient.getCustomerRiskScore(customerId)
+            );
+            
+            // Wait for all calls; any failure or the deadline cancels the rest
+            scope.join();
             
             Map<String, Object> result = Map.of(
-                "customer", customerFuture.get(),
-                "accounts", accountsFuture.get(),
-                "transactions", transactionsFuture.get(),
-                "notifications", notificationsFuture.get(),
-                "analytics", analyticsFuture.get()
+                "customer", customerFuture.join(),
+                "accounts", accountsFuture.join(),
+                "transactions", transactionsFuture.join(),
+                "notifications", notificationsFuture.join(),
+                "analytics", analyticsFuture.join()
             );
             
             monitoringService.recordServiceCall("customer-data", "get-comprehensive-data", true);
@@ -207,11 +241,116 @@ public class ServiceCommunicationService {
         }
     }
     
+    /**
+     * Run a call on its service's bulkhead with retries and the circuit breaker. The returned future fails
+     * with a TimeoutException after the timeout; cancelling or timing it out interrupts the call.
+     */
+    private <T> CompletableFuture<T> call(String service, long timeoutMs, Supplier<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = bulkheads.get(service).submit(() -> {
+                try {
+                    result.complete(circuitBreakerService.executeWithRetryAndCircuitBreaker(service, operation));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            monitoringService.recordError("bulkhead-full", service, "submit");
+            result.completeExceptionally(new RejectedExecutionException("Bulkhead full for " + service, e));
+            return result;
+        }
+        result.orTimeout(Math.max(1, timeoutMs), TimeUnit.MILLISECONDS)
+            .whenComplete((value, error) -> {
+                if (error != null) {
+                    task.cancel(true);
+                }
+            });
+        return result;
+    }
+    
+    private <T> T recordAsyncFailure(Throwable error, String errorType, String service, String operation) {
+        logger.warn("{} call {} failed: {}", service, operation, error.getMessage());
+        monitoringService.recordError(errorType, service, operation);
+        return null;
+    }
+    
+    /**
+     * Calls made together for one request. They share a deadline, and the first failure cancels the rest,
+     * so no call outlives the request that needed it.
+     */
+    private final class CallScope {
+        private final long deadlineNanos;
+        private final List<CompletableFuture<?>> forks = new CopyOnWriteArrayList<>();
+        private volatile boolean failed;
+        
+        private CallScope(long timeoutMs) {
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        }
+        
+        private <T> CompletableFuture<T> fork(String service, Supplier<T> operation) {
+            CompletableFuture<T> future = call(service, Math.min(callTimeoutMs, remainingMs()), operation);
+            forks.add(future);
+            future.whenComplete((value, error) -> {
+                if (error != null) {
+                    cancelAll();
+                }
+            });
+            if (failed) {
+                future.cancel(true);
+            }
+            return future;
+        }
+        
+        /**
+         * Wait for every call forked so far, failing with the first call's error or on the deadline
+         */
+        private void join() throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                CompletableFuture.allOf(forks.toArray(new CompletableFuture<?>[0]))
+                    .get(remainingMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                cancelAll();
+                throw e;
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (ExecutionException e) {
+                // Report the call that failed, not a sibling cancelled because of it
+                for (CompletableFuture<?> fork : forks) {
+                    if (fork.isCompletedExceptionally() && !fork.isCancelled()) {
+                        try {
+                            fork.join();
+                        } catch (CancellationException ignored) {
+                            // Cancelled sibling
+                        } catch (Exception cause) {
+                            throw new ExecutionException(cause.getCause() != null ? cause.getCause() : cause);
+                        }
+                    }
+                }
+                throw e;
+            }
+        }
+        
+        private void cancelAll() {
+            failed = true;
+            for (CompletableFuture<?> fork : forks) {
+                fork.cancel(true);
+            }
+        }
+        
+        private long remainingMs() {
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+        }
+    }
+    
     /**
      * Health check for all services
      */
     public Map<String, Object> getServicesHealthStatus() {
-        Map<String, Object> healthStatus = new java.util.HashMap<>();
+        Map<String, Object> healthStatus = new HashMap<>();
         
         String[] services = {"customer-service", "account-service", "transaction-service", 
                            "notification-service", "treasury-service", "analytics-service"};
@@ -7,9 +7,11 @@ import com.xypay.xypay.repository.SmartEarnInterestHistoryRepository;
 import com.xypay.xypay.repository.WalletRepository;
 import com.xypay.xypay.repository.TransactionRepository;
 import com.xypay.xypay.repository.UserRepository;
+import com.xypay.xypay.event.TransactionMetricsEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,6 +36,9 @@ public class SmartEarnService {
     @Autowired
     private SmartEarnAccountRepository smartEarnAccountRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Autowired
     private SmartEarnTransactionRepository smartEarnTransactionRepository;
     
@@ -205,6 +210,7 @@ public class SmartEarnService {
             walletTransaction.setProcessedAt(LocalDateTime.now());
             
             transactionRepository.save(walletTransaction);
+            eventPublisher.publishEvent(new TransactionMetricsEvent(this, walletTransaction, true));
             
             // Credit SmartEarn account
             account.setBalance(account.getBalance().add(transaction.getNetAmount()));
@@ -268,6 +274,7 @@ public class SmartEarnService {
             }
             
             transactionRepository.save(walletTransaction);
+            eventPublisher.publishEvent(new TransactionMetricsEvent(this, walletTransaction, true));
             
             // Update transaction status
             transaction.setStatus(SmartEarnTransaction.TransactionStatus.SUCCESS);
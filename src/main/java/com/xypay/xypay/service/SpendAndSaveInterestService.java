@@ -7,9 +7,9 @@ import com.xypay.xypay.repository.SpendAndSaveAccountRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -25,32 +25,17 @@ public class SpendAndSaveInterestService {
     private SpendAndSaveAccountRepository spendAndSaveAccountRepository;
     
     @Autowired
-    private SpendAndSaveService spendAndSaveService;
+    private InterestAccrualEngine interestAccrualEngine;
     
     /**
      * Process daily interest payout for all active Spend and Save accounts
      * This should be called by a scheduled task (e.g., cron job)
      */
-    @Transactional
     public int processDailyInterestPayout() {
         try {
-            var activeAccounts = spendAndSaveAccountRepository.findByIsActiveTrue();
-            int processedCount = 0;
-            
-            for (SpendAndSaveAccount account : activeAccounts) {
-                try {
-                    var interestTx = spendAndSaveService.calculateAndCreditInterest(account.getUser());
-                    if (interestTx != null) {
-                        processedCount++;
-                    }
-                } catch (Exception e) {
-                    log.error("Error processing interest for account {}: {}", account.getId(), e.getMessage());
-                    continue;
-                }
-            }
-            
+            long processedCount = interestAccrualEngine.accrue(InterestAccrualEngine.Product.SPEND_AND_SAVE, LocalDate.now());
             log.info("Processed daily interest payout for {} accounts", processedCount);
-            return processedCount;
+            return (int) processedCount;
             
         } catch (Exception e) {
             log.error("Error processing daily interest payout: {}", e.getMessage());
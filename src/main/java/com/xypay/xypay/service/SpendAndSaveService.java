@@ -2,8 +2,10 @@ package com.xypay.xypay.service;
 
 import com.xypay.xypay.domain.*;
 import com.xypay.xypay.repository.*;
+import com.xypay.xypay.event.TransactionMetricsEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,6 +21,9 @@ public class SpendAndSaveService {
     @Autowired
     private SpendAndSaveAccountRepository spendAndSaveAccountRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Autowired
     private SpendAndSaveTransactionRepository spendAndSaveTransactionRepository;
     
@@ -161,6 +166,7 @@ public class SpendAndSaveService {
                 walletTransaction.setCreatedAt(LocalDateTime.now());
                 
                 transactionRepository.save(walletTransaction);
+                eventPublisher.publishEvent(new TransactionMetricsEvent(this, walletTransaction, true));
                 totalTransferred = amount;
                 
             } else if ("xysave".equals(fundSource)) {
@@ -202,6 +208,7 @@ public class SpendAndSaveService {
                     walletTransaction.setCreatedAt(LocalDateTime.now());
                     
                     transactionRepository.save(walletTransaction);
+                    eventPublisher.publishEvent(new TransactionMetricsEvent(this, walletTransaction, true));
                     totalTransferred = totalTransferred.add(walletAmount);
                 }
                 
@@ -466,6 +473,7 @@ public class SpendAndSaveService {
                 walletTransaction.setCreatedAt(LocalDateTime.now());
                 
                 transactionRepository.save(walletTransaction);
+                eventPublisher.publishEvent(new TransactionMetricsEvent(this, walletTransaction, true));
                 
             } else if ("xysave".equals(destination)) {
                 XySaveAccount xySaveAccount = xySaveAccountRepository.findByUser(user)
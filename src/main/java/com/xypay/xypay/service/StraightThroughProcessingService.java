@@ -2,6 +2,8 @@ package com.xypay.xypay.service;
 
 import com.xypay.xypay.domain.*;
 import com.xypay.xypay.repository.STPRuleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,8 +12,8 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Transactional
@@ -28,42 +30,47 @@ public class StraightThroughProcessingService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private STPRuleIndex stpRuleIndex;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     // Removed unused objectMapper field
 
     /**
-     * Process transaction through STP rules
+     * Process transaction through STP rules. Only rules the compiled index reports as matching are
+     * visited, in priority order, until one decides the outcome.
      */
     public STPResult processTransaction(Transaction transaction, User user, Map<String, Object> context) {
-        logger.info("Starting STP processing for transaction: {}", transaction.getId());
+        logger.debug("Starting STP processing for transaction: {}", transaction.getId());
         
         STPResult result = new STPResult();
         result.setTransactionId(transaction.getId());
         result.setProcessingStartTime(LocalDateTime.now());
+        long started = System.nanoTime();
         
         try {
-            // Get applicable rules for transactions
-            List<STPRule> rules = stpRuleRepository.findApplicableRules("TRANSACTION");
+            List<STPRuleIndex.CompiledRule> matchedRules = stpRuleIndex.match("TRANSACTION", transaction, user);
             
-            // Evaluate rules in priority order
-            for (STPRule rule : rules) {
-                STPRuleEvaluation evaluation = evaluateRule(rule, transaction, user, context);
-                result.addRuleEvaluation(evaluation);
+            for (STPRuleIndex.CompiledRule compiledRule : matchedRules) {
+                STPRule rule = compiledRule.getRule();
+                compiledRule.recordHit();
+                result.addRuleEvaluation(matchedEvaluation(rule));
                 
-                if (evaluation.isMatched()) {
-                    if (rule.getAutoApprove()) {
-                        result.setDecision("AUTO_APPROVED");
-                        result.setReasonCode("STP_AUTO_APPROVAL");
-                        result.setReasonMessage("Transaction auto-approved by STP rule: " + rule.getRuleName());
-                        
-                        // Execute auto-approval
-                        executeAutoApproval(transaction, rule, result);
-                        break;
-                    } else if (rule.getSkipManualReview()) {
-                        result.setDecision("SKIP_REVIEW");
-                        result.setReasonCode("STP_SKIP_REVIEW");
-                        result.setReasonMessage("Manual review skipped by STP rule: " + rule.getRuleName());
-                        break;
-                    }
+                if (Boolean.TRUE.equals(rule.getAutoApprove())) {
+                    result.setDecision("AUTO_APPROVED");
+                    result.setReasonCode("STP_AUTO_APPROVAL");
+                    result.setReasonMessage("Transaction auto-approved by STP rule: " + rule.getRuleName());
+                    
+                    // Execute auto-approval
+                    executeAutoApproval(transaction, rule, result);
+                    break;
+                } else if (Boolean.TRUE.equals(rule.getSkipManualReview())) {
+                    result.setDecision("SKIP_REVIEW");
+                    result.setReasonCode("STP_SKIP_REVIEW");
+                    result.setReasonMessage("Manual review skipped by STP rule: " + rule.getRuleName());
+                    break;
                 }
             }
             
@@ -94,161 +101,36 @@ public class StraightThroughProcessingService {
             result.setReasonMessage("STP processing failed: " + e.getMessage());
             result.setProcessingEndTime(LocalDateTime.now());
             return result;
+        } finally {
+            Timer.builder("xypay.stp.evaluation")
+                .description("STP rule evaluation per transaction")
+                .tag("decision", String.valueOf(result.getDecision()))
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
     }
 
-    /**
-     * Evaluate a single STP rule
-     */
-    private STPRuleEvaluation evaluateRule(STPRule rule, Transaction transaction, User user, Map<String, Object> context) {
+    private STPRuleEvaluation matchedEvaluation(STPRule rule) {
         STPRuleEvaluation evaluation = new STPRuleEvaluation();
         evaluation.setRuleId(rule.getId());
         evaluation.setRuleName(rule.getRuleName());
         evaluation.setEvaluationTime(LocalDateTime.now());
-        
-        try {
-            boolean matched = false;
-            
-            switch (rule.getRuleType()) {
-                case "AMOUNT_RANGE":
-                    matched = evaluateAmountRange(rule, transaction);
-                    break;
-                case "CHANNEL_TYPE":
-                    matched = evaluateChannelType(rule, transaction);
-                    break;
-                case "KYC_STATUS":
-                    matched = evaluateKycStatus(rule, user);
-                    break;
-                case "TIME_BASED":
-                    matched = evaluateTimeBased(rule);
-                    break;
-                case "USER_TIER":
-                    matched = evaluateUserTier(rule, user);
-                    break;
-                case "TRANSACTION_TYPE":
-                    matched = evaluateTransactionType(rule, transaction);
-                    break;
-                default:
-                    matched = evaluateCustomRule(rule, transaction, user, context);
-            }
-            
-            evaluation.setMatched(matched);
-            evaluation.setEvaluationDetails(String.format(
-                "Rule type: %s, Condition: %s %s %s, Result: %s",
-                rule.getRuleType(),
-                rule.getConditionField(),
-                rule.getConditionOperator(),
-                rule.getConditionValue(),
-                matched ? "MATCHED" : "NOT_MATCHED"
-            ));
-            
-        } catch (Exception e) {
-            evaluation.setMatched(false);
-            evaluation.setEvaluationDetails("Rule evaluation failed: " + e.getMessage());
-            logger.error("Rule evaluation failed for rule {}: {}", rule.getId(), e.getMessage());
-        }
-        
+        evaluation.setMatched(true);
+        evaluation.setEvaluationDetails(String.format(
+            "Rule type: %s, Condition: %s %s %s, Result: MATCHED",
+            rule.getRuleType(),
+            rule.getConditionField(),
+            rule.getConditionOperator(),
+            rule.getConditionValue()
+        ));
         return evaluation;
     }
 
     /**
-     * Evaluate amount range rule
-     */
-    private boolean evaluateAmountRange(STPRule rule, Transaction transaction) {
-        BigDecimal amount = transaction.getAmount();
-        
-        if (rule.getMinAmount() != null && amount.compareTo(rule.getMinAmount()) < 0) {
-            return false;
-        }
-        
-        if (rule.getMaxAmount() != null && amount.compareTo(rule.getMaxAmount()) > 0) {
-            return false;
-        }
-        
-        return true;
-    }
-
-    /**
-     * Evaluate channel type rule
-     */
-    private boolean evaluateChannelType(STPRule rule, Transaction transaction) {
-        String channel = transaction.getChannel();
-        String allowedChannels = rule.getAllowedChannels();
-        
-        if (allowedChannels == null || channel == null) {
-            return false;
-        }
-        
-        return Arrays.asList(allowedChannels.split(",")).contains(channel.trim());
-    }
-
-    /**
-     * Evaluate KYC status rule
-     */
-    private boolean evaluateKycStatus(STPRule rule, User user) {
-        // This would typically check the user's KYC status
-        // For now, we'll simulate based on user profile
-        String requiredKycLevel = rule.getRequiredKycLevel();
-        
-        if (requiredKycLevel == null) {
-            return true;
-        }
-        
-        // Simulate KYC check - in real implementation, check UserProfile
-        return "VERIFIED".equals(requiredKycLevel); // Simplified
-    }
-
-    /**
-     * Evaluate time-based rule
-     */
-    private boolean evaluateTimeBased(STPRule rule) {
-        LocalTime now = LocalTime.now();
-        
-        // Example: Only allow auto-approval during business hours (9 AM - 5 PM)
-        if ("BUSINESS_HOURS".equals(rule.getConditionValue())) {
-            return now.isAfter(LocalTime.of(9, 0)) && now.isBefore(LocalTime.of(17, 0));
-        }
-        
-        return true;
-    }
-
-    /**
-     * Evaluate user tier rule
-     */
-    private boolean evaluateUserTier(STPRule rule, User user) {
-        // This would typically check user tier/category
-        // For now, we'll simulate based on user creation date
-        String requiredTier = rule.getConditionValue();
-        
-        if ("PREMIUM".equals(requiredTier)) {
-            // Premium users are those registered more than 30 days ago (simplified)
-            return user.getCreatedAt().isBefore(LocalDateTime.now().minusDays(30));
-        }
-        
-        return true;
-    }
-
-    /**
-     * Evaluate transaction type rule
-     */
-    private boolean evaluateTransactionType(STPRule rule, Transaction transaction) {
-        String transactionType = transaction.getType();
-        String allowedTypes = rule.getConditionValue();
-        
-        if (allowedTypes == null || transactionType == null) {
-            return false;
-        }
-        
-        return Arrays.asList(allowedTypes.split(",")).contains(transactionType.trim());
-    }
-
-    /**
-     * Evaluate custom rule
+     * Recompile the rule index after rules were created, edited or deleted
      */
-    private boolean evaluateCustomRule(STPRule rule, Transaction transaction, User user, Map<String, Object> context) {
-        // Custom rule evaluation logic
-        // This can be extended for complex business rules
-        return false;
+    public void rulesChanged() {
+        stpRuleIndex.rulesChanged();
     }
 
     /**
@@ -361,7 +243,9 @@ public class StraightThroughProcessingService {
         largeAmountRule.setCreatedBy(java.util.UUID.randomUUID());
         rules.add(largeAmountRule);
         
-        return stpRuleRepository.saveAll(rules);
+        List<STPRule> saved = stpRuleRepository.saveAll(rules);
+        stpRuleIndex.rulesChanged();
+        return saved;
     }
 
     /**
@@ -377,6 +261,7 @@ public class StraightThroughProcessingService {
         stats.put("total_rules", totalRules);
         stats.put("active_rules", activeRules);
         stats.put("auto_approval_rules", autoApprovalRules);
+        stats.put("rule_hits", stpRuleIndex.hitCounts());
         
         return stats;
     }
@@ -4,7 +4,9 @@ import com.xypay.xypay.domain.Wallet;
 import com.xypay.xypay.domain.Transaction;
 import com.xypay.xypay.repository.WalletRepository;
 import com.xypay.xypay.repository.TransactionRepository;
+import com.xypay.xypay.event.TransactionMetricsEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -18,6 +20,8 @@ public class TellerService {
     @Autowired
     private WalletRepository walletRepository;
     @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
     private TransactionRepository transactionRepository;
     @Autowired
     private ObjectMapper objectMapper;
@@ -56,6 +60,7 @@ public class TellerService {
         }
         
         transactionRepository.save(tx);
+        eventPublisher.publishEvent(new TransactionMetricsEvent(this, tx, true));
         return "Deposit successful. New balance: " + wallet.getBalance();
     }
 
@@ -95,6 +100,7 @@ public class TellerService {
         tx.setStatus("SUCCESS");
         tx.setDirection("DEBIT");
         transactionRepository.save(tx);
+        eventPublisher.publishEvent(new TransactionMetricsEvent(this, tx, true));
         return "Withdrawal successful. New balance: " + wallet.getBalance();
     }
 
@@ -118,6 +124,7 @@ public class TellerService {
         tx.setDirection("DEBIT");
         tx.setReference(checkNumber); // Save check number as reference
         transactionRepository.save(tx);
+        eventPublisher.publishEvent(new TransactionMetricsEvent(this, tx, true));
         return "Check cashed successfully. New balance: " + wallet.getBalance();
     }
 
@@ -1,24 +1,54 @@
 package com.xypay.xypay.service;
 
 import com.xypay.xypay.domain.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for handling transaction PIN operations including
  * creation, validation, reset, and security measures.
+ *
+ * PBKDF2 hashing runs on a pool sized to the CPU cores with a bounded queue, so a burst of transfers
+ * queues for hashing or is turned away instead of tying every web thread up in CPU-bound work; tasks
+ * that waited past the queue deadline are dropped unhashed. Failed attempts and lockouts are Redis
+ * counters shared by all nodes, and an attempt is counted before its PIN is hashed, so parallel guesses
+ * cannot exceed the limit. A successful verification made for a flow returns a short-lived signed token
+ * that stands in for the PIN once, for that flow and up to the amount it was issued for.
  */
 @Service
 public class TransactionPinService {
@@ -28,10 +58,79 @@ public class TransactionPinService {
     @Autowired
     private TwoFactorAuthService twoFactorAuthService;
     
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${pin.hash.threads:0}")
+    private int hashThreads;
+    
+    @Value("${pin.hash.queue-capacity:256}")
+    private int hashQueueCapacity;
+    
+    @Value("${pin.hash.max-queue-ms:2000}")
+    private long maxQueueMs;
+    
+    @Value("${pin.verified-token.ttl-seconds:300}")
+    private long verifiedTokenTtlSeconds;
+    
+    // Empty disables PIN verified tokens; otherwise at least 32 bytes and distinct from the JWT secret
+    @Value("${pin.verified-token.secret:}")
+    private String verifiedTokenSecret;
+    
+    @Value("${jwt.secret:}")
+    private String jwtSecret;
+    
     private static final int PIN_LENGTH = 4; // Standard 4-digit PIN
     private static final int MAX_ATTEMPTS = 3; // Maximum failed attempts before temporary lockout
     private static final int LOCKOUT_DURATION_MINUTES = 30; // Lockout duration in minutes
     private static final int PBKDF2_ITERATIONS = 100000; // Number of iterations for PBKDF2
+    private static final String FAILED_ATTEMPTS_PREFIX = "pin:failed:";
+    private static final String LOCK_PREFIX = "pin:locked:";
+    private static final String TOKEN_ISSUED_PREFIX = "pin:token:issued:";
+    private static final String TOKEN_USED_PREFIX = "pin:token:used:";
+    private static final String FLOW_ID_PATTERN = "[A-Za-z0-9_-]{1,64}";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    
+    private ThreadPoolExecutor hashExecutor;
+    private SecretKeySpec verifiedTokenKey;
+    private Timer queueTimer;
+    private Counter rejected;
+    
+    @PostConstruct
+    public void init() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        hashExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(hashQueueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "pin-hash-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        byte[] secret = verifiedTokenSecret.getBytes(StandardCharsets.UTF_8);
+        if (secret.length < MIN_SECRET_BYTES || verifiedTokenSecret.equals(jwtSecret)) {
+            // Left null: PIN verification still works, but no token is issued or accepted in place of the PIN
+            logger.warn("PIN verified tokens disabled: pin.verified-token.secret must be at least {} bytes and differ from jwt.secret",
+                MIN_SECRET_BYTES);
+        } else {
+            verifiedTokenKey = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        }
+        queueTimer = Timer.builder("xypay.pin.hash.queue")
+            .description("Time PIN hashing tasks wait for a hashing thread")
+            .register(meterRegistry);
+        rejected = Counter.builder("xypay.pin.hash.rejected")
+            .description("PIN hashing tasks turned away because the queue was full or the wait too long")
+            .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
     
     /**
      * Create or update a user's transaction PIN.
@@ -51,7 +150,7 @@ public class TransactionPinService {
             
             // Hash the PIN before storing
             byte[] salt = generateSalt();
-            byte[] pinHash = hashPin(pin, salt);
+            byte[] pinHash = hashPinBounded(pin, salt);
             
             // Store PIN hash and salt in user profile
             // Note: You'll need to add these fields to your User entity or UserProfile
@@ -80,16 +179,23 @@ public class TransactionPinService {
      * @return Verification result
      */
     public Map<String, Object> verifyTransactionPin(User user, String pin) {
+        return verifyTransactionPin(user, pin, null, null);
+    }
+    
+    /**
+     * Verify a transaction PIN and, on success, issue a PIN verified token for one step of a flow.
+     * 
+     * @param user User to verify PIN for
+     * @param pin PIN to verify
+     * @param flowId Flow the token may be used in; no token is issued without one
+     * @param maxAmount Largest amount the token may authorize; no token is issued without one
+     * @return Verification result
+     */
+    public Map<String, Object> verifyTransactionPin(User user, String pin, String flowId, BigDecimal maxAmount) {
         try {
             // Check if PIN is locked
             if (isPinLocked(user)) {
-                int remainingTime = getRemainingLockoutTime(user);
-                Map<String, Object> result = new HashMap<>();
-                result.put("success", false);
-                result.put("error", "PIN is locked. Try again in " + remainingTime + " minutes");
-                result.put("is_locked", true);
-                result.put("remaining_time", remainingTime);
-                return result;
+                return lockedResult(getRemainingLockoutTime(user));
             }
             
             // Get stored PIN data
@@ -101,9 +207,27 @@ public class TransactionPinService {
                 return result;
             }
             
+            // Count the attempt before hashing, so concurrent guesses cannot get past the limit
+            int failedAttempts = incrementFailedAttempts(user);
+            if (failedAttempts > MAX_ATTEMPTS) {
+                lockPin(user);
+                return lockedResult(LOCKOUT_DURATION_MINUTES);
+            }
+            
             // Verify the PIN
-            byte[] inputPinHash = hashPin(pin, pinData.salt);
-            boolean isValid = java.util.Arrays.equals(inputPinHash, pinData.pinHash);
+            byte[] inputPinHash;
+            try {
+                inputPinHash = hashPinBounded(pin, pinData.salt);
+            } catch (RejectedExecutionException e) {
+                // Not hashed, so the attempt does not count
+                releaseAttempt(user);
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", false);
+                result.put("error", "PIN verification is busy. Please try again");
+                result.put("retry", true);
+                return result;
+            }
+            boolean isValid = MessageDigest.isEqual(inputPinHash, pinData.pinHash);
             
             if (isValid) {
                 // Reset failed attempts on successful verification
@@ -112,22 +236,17 @@ public class TransactionPinService {
                 Map<String, Object> result = new HashMap<>();
                 result.put("success", true);
                 result.put("message", "PIN verified successfully");
+                String token = issuePinVerifiedToken(user, flowId, maxAmount);
+                if (token != null) {
+                    result.put("pin_verified_token", token);
+                    result.put("pin_verified_expires_in", verifiedTokenTtlSeconds);
+                }
                 return result;
             } else {
-                // Increment failed attempts
-                int failedAttempts = incrementFailedAttempts(user);
-                
                 // Check if should lock
                 if (failedAttempts >= MAX_ATTEMPTS) {
                     lockPin(user);
-                    
-                    Map<String, Object> result = new HashMap<>();
-                    result.put("success", false);
-                    result.put("error", "PIN locked for " + LOCKOUT_DURATION_MINUTES + 
-                        " minutes due to too many failed attempts");
-                    result.put("is_locked", true);
-                    result.put("remaining_time", LOCKOUT_DURATION_MINUTES);
-                    return result;
+                    return lockedResult(LOCKOUT_DURATION_MINUTES);
                 }
                 
                 int remainingAttempts = MAX_ATTEMPTS - failedAttempts;
@@ -147,6 +266,107 @@ public class TransactionPinService {
         }
     }
     
+    /**
+     * Use a token returned by a successful PIN verification in place of the PIN. The token must belong to
+     * the user and flow, cover the amount and be unexpired, the PIN must not be locked, and each token is
+     * accepted once. Fails closed if Redis is unavailable.
+     */
+    public boolean consumePinVerifiedToken(User user, String token, String flowId, BigDecimal amount) {
+        if (verifiedTokenKey == null || user == null || token == null || flowId == null || amount == null) {
+            return false;
+        }
+        int dot = token.lastIndexOf('.');
+        if (dot <= 0) {
+            return false;
+        }
+        String payload = token.substring(0, dot);
+        String[] parts;
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return false;
+            }
+            parts = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (parts.length != 5 || !String.valueOf(user.getId()).equals(parts[0]) || !flowId.equals(parts[1])) {
+            return false;
+        }
+        long expiresAt;
+        try {
+            if (amount.compareTo(new BigDecimal(parts[2])) > 0) {
+                return false;
+            }
+            expiresAt = Long.parseLong(parts[3]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        long remainingSeconds = expiresAt - System.currentTimeMillis() / 1000;
+        if (remainingSeconds <= 0 || isPinLocked(user)) {
+            return false;
+        }
+        String nonce = parts[4];
+        try {
+            // Only tokens this service issued, and each only once across all nodes
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(TOKEN_ISSUED_PREFIX + nonce))) {
+                return false;
+            }
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(
+                TOKEN_USED_PREFIX + nonce, String.valueOf(user.getId()), Duration.ofSeconds(remainingSeconds + 1)));
+        } catch (Exception e) {
+            logger.error("Error checking PIN verified token: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Signed token of user id, flow id, amount cap, expiry in epoch seconds and a nonce recorded in Redis.
+     * Returns null when tokens are disabled, there is no flow to bind it to or the nonce could not be recorded.
+     */
+    private String issuePinVerifiedToken(User user, String flowId, BigDecimal maxAmount) {
+        if (verifiedTokenKey == null) {
+            return null;
+        }
+        if (flowId == null || !flowId.matches(FLOW_ID_PATTERN) || maxAmount == null || maxAmount.signum() <= 0) {
+            return null;
+        }
+        String nonce = UUID.randomUUID().toString();
+        try {
+            Boolean recorded = stringRedisTemplate.opsForValue().setIfAbsent(
+                TOKEN_ISSUED_PREFIX + nonce, String.valueOf(user.getId()), Duration.ofSeconds(verifiedTokenTtlSeconds));
+            if (!Boolean.TRUE.equals(recorded)) {
+                return null;
+            }
+        } catch (Exception e) {
+            logger.error("Error recording PIN verified token: {}", e.getMessage());
+            return null;
+        }
+        long expiresAt = System.currentTimeMillis() / 1000 + verifiedTokenTtlSeconds;
+        String claims = user.getId() + "|" + flowId + "|" + maxAmount.toPlainString() + "|" + expiresAt + "|" + nonce;
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(payload));
+    }
+    
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(verifiedTokenKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to sign PIN verified token", e);
+        }
+    }
+    
+    private Map<String, Object> lockedResult(int remainingTime) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("error", "PIN is locked. Try again in " + remainingTime + " minutes");
+        result.put("is_locked", true);
+        result.put("remaining_time", remainingTime);
+        return result;
+    }
+    
     /**
      * Reset a transaction PIN.
      * 
@@ -281,6 +501,44 @@ public class TransactionPinService {
         return salt;
     }
     
+    /**
+     * Hash a PIN on the hashing pool, waiting for the result
+     *
+     * @throws RejectedExecutionException if the pool is saturated or the task waited past the queue deadline
+     */
+    private byte[] hashPinBounded(String pin, byte[] salt) throws Exception {
+        long submittedAt = System.nanoTime();
+        Future<byte[]> future;
+        try {
+            future = hashExecutor.submit(() -> {
+                long waited = System.nanoTime() - submittedAt;
+                queueTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > TimeUnit.MILLISECONDS.toNanos(maxQueueMs)) {
+                    // The caller has given up waiting; do not spend CPU on a result nobody reads
+                    return null;
+                }
+                return hashPin(pin, salt);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        byte[] hash;
+        try {
+            hash = future.get(maxQueueMs + 5000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            hash = null;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+        if (hash == null) {
+            rejected.increment();
+            throw new RejectedExecutionException("PIN hashing waited longer than " + maxQueueMs + " ms");
+        }
+        return hash;
+    }
+    
     /**
      * Hash a PIN using PBKDF2 with the given salt.
      */
@@ -312,46 +570,53 @@ public class TransactionPinService {
     
     /**
      * Check if PIN is locked for a user.
-     * Note: This is a placeholder - you'll need to implement actual checking
      */
     private boolean isPinLocked(User user) {
-        // TODO: Implement actual checking from your User entity or UserProfile
-        return false;
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(LOCK_PREFIX + user.getId()));
     }
     
     /**
      * Get remaining lockout time for a user.
-     * Note: This is a placeholder - you'll need to implement actual calculation
      */
     private int getRemainingLockoutTime(User user) {
-        // TODO: Implement actual calculation from your User entity or UserProfile
-        return 0;
+        Long seconds = stringRedisTemplate.getExpire(LOCK_PREFIX + user.getId(), TimeUnit.SECONDS);
+        return seconds != null && seconds > 0 ? (int) ((seconds + 59) / 60) : 0;
     }
     
     /**
      * Reset failed attempts for a user.
-     * Note: This is a placeholder - you'll need to implement actual reset
      */
     private void resetFailedAttempts(User user) {
-        // TODO: Implement actual reset in your User entity or UserProfile
+        stringRedisTemplate.delete(FAILED_ATTEMPTS_PREFIX + user.getId());
         logger.debug("Resetting failed attempts for user {}", user.getId());
     }
     
     /**
      * Increment failed attempts for a user.
-     * Note: This is a placeholder - you'll need to implement actual increment
      */
     private int incrementFailedAttempts(User user) {
-        // TODO: Implement actual increment in your User entity or UserProfile
-        return 0;
+        String key = FAILED_ATTEMPTS_PREFIX + user.getId();
+        Long attempts = stringRedisTemplate.opsForValue().increment(key);
+        if (attempts != null && attempts == 1) {
+            // Failed attempts are forgotten after the lockout window without a lock
+            stringRedisTemplate.expire(key, Duration.ofMinutes(LOCKOUT_DURATION_MINUTES));
+        }
+        return attempts != null ? attempts.intValue() : 0;
+    }
+    
+    /**
+     * Give back an attempt that was counted but never checked.
+     */
+    private void releaseAttempt(User user) {
+        stringRedisTemplate.opsForValue().decrement(FAILED_ATTEMPTS_PREFIX + user.getId());
     }
     
     /**
      * Lock PIN for a user.
-     * Note: This is a placeholder - you'll need to implement actual locking
      */
     private void lockPin(User user) {
-        // TODO: Implement actual locking in your User entity or UserProfile
+        stringRedisTemplate.opsForValue().set(LOCK_PREFIX + user.getId(), "1", Duration.ofMinutes(LOCKOUT_DURATION_MINUTES));
+        stringRedisTemplate.delete(FAILED_ATTEMPTS_PREFIX + user.getId());
         logger.debug("Locking PIN for user {}", user.getId());
     }
     
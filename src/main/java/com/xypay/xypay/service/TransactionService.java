@@ -13,7 +13,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Service
@@ -30,19 +29,14 @@ public class TransactionService {
     private KafkaEventService kafkaEventService;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
-    // Using a cache with time-based expiration would be better in production
-    private final Map<String, LocalDateTime> processedReferences = new HashMap<>();
-    private static final long REFERENCE_EXPIRATION_HOURS = 24; // References expire after 24 hours
+    @Autowired
+    private ReferenceDeduplicationIndex referenceDeduplicationIndex;
 
     @Transactional
     public Transaction processTransaction(UUID walletId, BigDecimal amount, String currency, String type, String direction, String reference) {
-        // Clean up expired references
-        cleanupExpiredReferences();
-        
-        if (processedReferences.containsKey(reference)) {
+        if (!referenceDeduplicationIndex.markProcessed(reference)) {
             throw new DuplicateTransactionException("Duplicate transaction: " + reference);
         }
-        processedReferences.put(reference, LocalDateTime.now());
         
         Optional<Wallet> walletOpt = walletService.getWalletById(walletId);
         if (walletOpt.isEmpty()) throw new WalletNotFoundException("Wallet not found: " + walletId);
@@ -104,11 +98,7 @@ public class TransactionService {
     public Transaction getTransaction(UUID transactionId) {
         return transactionRepository.findById(transactionId).orElse(null);
     }
-    
-    private void cleanupExpiredReferences() {
-        LocalDateTime expirationThreshold = LocalDateTime.now().minusHours(REFERENCE_EXPIRATION_HOURS);
-        processedReferences.entrySet().removeIf(entry -> entry.getValue().isBefore(expirationThreshold));
-    }
+
     public List<Map<String, Object>> getTransactionsForOpenBanking(UUID walletId) {
         // Find wallet first, then get transactions
         Optional<Wallet> walletOpt = walletService.getWalletById(walletId);
@@ -5,16 +5,44 @@ import com.xypay.xypay.domain.VATCharge;
 import com.xypay.xypay.repository.TransferChargeControlRepository;
 import com.xypay.xypay.repository.VATChargeRepository;
 import com.xypay.xypay.util.BankingConstants;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Transfer fee, VAT and levy calculation.
+ *
+ * Charge control flags and the VAT rate are held in an immutable {@link FeeSchedule} snapshot that is
+ * replaced wholesale whenever an admin edits them, so fee calculation on the transfer path makes no
+ * database calls. Edits on any node are announced on a Redis channel and every node reloads its snapshot;
+ * a periodic reload covers messages missed while a node was disconnected. A reload that fails keeps the
+ * last good snapshot and is retried with a short exponential backoff.
+ */
 @Service
 public class TransferFeeService {
     
+    private static final Logger logger = LoggerFactory.getLogger(TransferFeeService.class);
+    
+    public static final String FEE_SCHEDULE_CHANNEL = "xypay:fee-schedule:changed";
+    
     // VAT rate default (7.5%)
     private static final BigDecimal DEFAULT_VAT_RATE = new BigDecimal("0.075");
     
@@ -22,24 +50,58 @@ public class TransferFeeService {
     private static final BigDecimal LEVY_THRESHOLD = new BigDecimal("10000");
     private static final BigDecimal LEVY_AMOUNT = new BigDecimal("50");
     
+    // External transfer fee tiers
+    private static final BigDecimal FEE_TIER_1_LIMIT = new BigDecimal("5000");
+    private static final BigDecimal FEE_TIER_2_LIMIT = new BigDecimal("50000");
+    private static final BigDecimal FEE_TIER_1 = new BigDecimal("10.00");
+    private static final BigDecimal FEE_TIER_2 = new BigDecimal("25.00");
+    private static final BigDecimal FEE_TIER_3 = new BigDecimal("50.00");
+    
+    // Backoff between reload attempts after a failure
+    private static final long RETRY_INITIAL_MS = 1000;
+    private static final long RETRY_MAX_MS = 30000;
+    
     @Autowired
     private TransferChargeControlRepository transferChargeControlRepository;
     
     @Autowired
     private VATChargeRepository vatChargeRepository;
     
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    
+    private volatile FeeSchedule feeSchedule;
+    private ScheduledExecutorService retryScheduler;
+    private final AtomicBoolean retryPending = new AtomicBoolean();
+    
+    @PostConstruct
+    public void subscribe() {
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fee-schedule-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        redisMessageListenerContainer.addMessageListener(
+            (message, pattern) -> refreshFeeSchedule(), new ChannelTopic(FEE_SCHEDULE_CHANNEL));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+    
     /**
      * Get the active charge control settings
      * @return TransferChargeControl with active settings or default settings
      */
     public TransferChargeControl getChargeControl() {
-        try {
-            Optional<TransferChargeControl> control = transferChargeControlRepository.findFirstByOrderByUpdatedAtDesc();
-            return control.orElse(new TransferChargeControl(true, true, true));
-        } catch (Exception e) {
-            // Return default charge control if there's an error
-            return new TransferChargeControl(true, true, true);
-        }
+        FeeSchedule schedule = currentFeeSchedule();
+        TransferChargeControl control = new TransferChargeControl(schedule.levyActive, schedule.vatActive, schedule.feeActive);
+        control.setUpdatedAt(schedule.updatedAt);
+        return control;
     }
     
     /**
@@ -47,15 +109,100 @@ public class TransferFeeService {
      * @return BigDecimal representing the active VAT rate
      */
     public BigDecimal getActiveVatRate() {
+        return currentFeeSchedule().vatRate;
+    }
+    
+    /**
+     * Reload charge control and VAT from the database and swap in the new snapshot
+     */
+    @Scheduled(fixedDelayString = "${transfer-fee.schedule.refresh-ms:300000}", initialDelay = 300000)
+    public void refreshFeeSchedule() {
+        if (!tryRefresh() && retryPending.compareAndSet(false, true)) {
+            scheduleRetry(RETRY_INITIAL_MS);
+        }
+    }
+    
+    private boolean tryRefresh() {
         try {
-            Optional<VATCharge> vat = vatChargeRepository.findFirstByActiveTrueOrderByUpdatedAtDesc();
-            if (vat.isPresent() && vat.get().getRate() != null) {
-                return vat.get().getRate();
+            feeSchedule = loadFeeSchedule();
+            logger.debug("Fee schedule reloaded: {}", feeSchedule);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to reload fee schedule, keeping {}: {}", feeSchedule, e.getMessage());
+            return false;
+        }
+    }
+    
+    private void scheduleRetry(long delayMs) {
+        retryScheduler.schedule(() -> {
+            if (tryRefresh()) {
+                retryPending.set(false);
+            } else {
+                scheduleRetry(Math.min(delayMs * 2, RETRY_MAX_MS));
             }
-            return DEFAULT_VAT_RATE;
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Announce that charge control or VAT settings changed. Inside a transaction the reload and the
+     * broadcast wait for the commit, so no node can reload the settings from before the edit.
+     */
+    public void feeScheduleChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadAndBroadcast();
+                }
+            });
+        } else {
+            reloadAndBroadcast();
+        }
+    }
+    
+    private void reloadAndBroadcast() {
+        refreshFeeSchedule();
+        try {
+            stringRedisTemplate.convertAndSend(FEE_SCHEDULE_CHANNEL, "changed");
         } catch (Exception e) {
-            return DEFAULT_VAT_RATE;
+            // Other nodes pick the change up on their next periodic reload
+            logger.warn("Failed to broadcast fee schedule change: {}", e.getMessage());
+        }
+    }
+    
+    private FeeSchedule currentFeeSchedule() {
+        FeeSchedule schedule = feeSchedule;
+        if (schedule == null) {
+            // Nothing loaded yet, so there is no good snapshot to fall back on
+            try {
+                schedule = loadFeeSchedule();
+            } catch (Exception e) {
+                throw new RuntimeException("Fee schedule unavailable", e);
+            }
+            feeSchedule = schedule;
+        }
+        return schedule;
+    }
+    
+    /**
+     * Defaults apply only when no settings have been saved; a database error is thrown to the caller
+     */
+    private FeeSchedule loadFeeSchedule() {
+        TransferChargeControl control = transferChargeControlRepository.findFirstByOrderByUpdatedAtDesc()
+            .orElse(new TransferChargeControl(true, true, true));
+        
+        BigDecimal vatRate = DEFAULT_VAT_RATE;
+        Optional<VATCharge> vat = vatChargeRepository.findFirstByActiveTrueOrderByUpdatedAtDesc();
+        if (vat.isPresent() && vat.get().getRate() != null) {
+            vatRate = vat.get().getRate();
         }
+        
+        return new FeeSchedule(
+            control.getLevyActive() != null ? control.getLevyActive() : true,
+            control.getVatActive() != null ? control.getVatActive() : true,
+            control.getFeeActive() != null ? control.getFeeActive() : true,
+            vatRate,
+            control.getUpdatedAt());
     }
     
     /**
@@ -74,13 +221,12 @@ public class TransferFeeService {
             transferType = BankingConstants.TransferType.INTERNAL;
         }
         
-        // Get VAT rate and charge control settings
-        BigDecimal vatRate = getActiveVatRate();
-        TransferChargeControl chargeControl = getChargeControl();
-        
-        boolean levyActive = chargeControl.getLevyActive() != null ? chargeControl.getLevyActive() : true;
-        boolean vatActive = chargeControl.getVatActive() != null ? chargeControl.getVatActive() : true;
-        boolean feeActive = chargeControl.getFeeActive() != null ? chargeControl.getFeeActive() : true;
+        // VAT rate and charge control settings from the in-memory snapshot
+        FeeSchedule schedule = currentFeeSchedule();
+        BigDecimal vatRate = schedule.vatRate;
+        boolean levyActive = schedule.levyActive;
+        boolean vatActive = schedule.vatActive;
+        boolean feeActive = schedule.feeActive;
         
         BigDecimal fee;
         BigDecimal vat;
@@ -96,12 +242,12 @@ public class TransferFeeService {
             // External transfers have fees based on amount
             if (!feeActive) {
                 fee = BigDecimal.ZERO;
-            } else if (amount.compareTo(new BigDecimal("5000")) <= 0) {
-                fee = new BigDecimal("10.00");
-            } else if (amount.compareTo(new BigDecimal("50000")) <= 0) {
-                fee = new BigDecimal("25.00");
+            } else if (amount.compareTo(FEE_TIER_1_LIMIT) <= 0) {
+                fee = FEE_TIER_1;
+            } else if (amount.compareTo(FEE_TIER_2_LIMIT) <= 0) {
+                fee = FEE_TIER_2;
             } else {
-                fee = new BigDecimal("50.00");
+                fee = FEE_TIER_3;
             }
             // VAT is calculated on the fee for external transfers
             vat = vatActive ? fee.multiply(vatRate).setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
@@ -110,9 +256,7 @@ public class TransferFeeService {
         // Calculate levy
         if (levyActive && amount.compareTo(LEVY_THRESHOLD) >= 0) {
             // Calculate number of blocks (ceil(amount / LEVY_THRESHOLD))
-            BigDecimal blocks = new BigDecimal(
-                Math.ceil(amount.divide(LEVY_THRESHOLD, 2, RoundingMode.HALF_UP).doubleValue())
-            );
+            BigDecimal blocks = amount.divide(LEVY_THRESHOLD, 2, RoundingMode.HALF_UP).setScale(0, RoundingMode.CEILING);
             levy = LEVY_AMOUNT.multiply(blocks).setScale(2, RoundingMode.HALF_UP);
         } else {
             levy = BigDecimal.ZERO;
@@ -135,4 +279,28 @@ public class TransferFeeService {
         
         return fee.add(vat).add(levy);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Immutable view of the fee settings in force; replaced, never modified
+     */
+    private static final class FeeSchedule {
+        private final boolean levyActive;
+        private final boolean vatActive;
+        private final boolean feeActive;
+        private final BigDecimal vatRate;
+        private final LocalDateTime updatedAt;
+        
+        private FeeSchedule(boolean levyActive, boolean vatActive, boolean feeActive, BigDecimal vatRate, LocalDateTime updatedAt) {
+            this.levyActive = levyActive;
+            this.vatActive = vatActive;
+            this.feeActive = feeActive;
+            this.vatRate = vatRate;
+            this.updatedAt = updatedAt;
+        }
+        
+        @Override
+        public String toString() {
+            return "FeeSchedule{levy=" + levyActive + ", vat=" + vatActive + ", fee=" + feeActive + ", vatRate=" + vatRate + "}";
+        }
+    }
+}
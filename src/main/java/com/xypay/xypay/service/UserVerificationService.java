@@ -7,6 +7,7 @@ import com.xypay.xypay.repository.UserRepository;
 import com.xypay.xypay.repository.UserProfileRepository;
 import com.xypay.xypay.repository.KYCProfileRepository;
 import com.xypay.xypay.repository.WalletRepository;
+import com.xypay.xypay.security.PrincipalCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +49,9 @@ public class UserVerificationService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
     /**
      * Create a new user with profile.
      * Equivalent to Django's user creation in CustomRegisterSerializer.
@@ -91,6 +95,7 @@ public class UserVerificationService {
             user.setEnabled(true);
             user.setRoles("USER");
             user = userRepository.save(user);
+            principalCache.invalidateUser(username);
             
             // Create user profile
             UserProfile profile = new UserProfile(user);
@@ -0,0 +1,363 @@
+package com.xypay.xypay.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory wallet balance engine used by {@link WalletService} for debits, credits and transfers.
+ *
+ * Mutations on the same wallet are serialized through a fixed array of striped locks and applied
+ * to a cached balance slot in strict order, so balance checks never read the row. Each posting is
+ * written as a guarded delta update in the caller's transaction, and its effect on the slot is undone
+ * if the caller rolls back. A posting made outside a transaction is written in one of its own.
+ *
+ * Code that writes a wallet's balance directly invalidates its slot (see WalletBalanceListener), so
+ * the next posting re-reads the balance; the guarded update keeps the row from going negative meanwhile.
+ */
+@Service
+public class WalletLedgerEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletLedgerEngine.class);
+
+    private static final String SELECT_BALANCE_SQL = "SELECT balance FROM wallets WHERE id = ?";
+
+    // Delta update guarded against overdraft so a stale slot can never push a balance below zero
+    private static final String APPLY_DELTA_SQL =
+        "UPDATE wallets SET balance = balance + ?, updated_at = ? WHERE id = ? AND balance + ? >= 0";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${wallet.ledger.lock-stripes:1024}")
+    private int lockStripes;
+
+    @Value("${wallet.ledger.idle-eviction-ms:60000}")
+    private long idleEvictionMs;
+
+    private final ConcurrentHashMap<UUID, BalanceSlot> slots = new ConcurrentHashMap<>();
+
+    private ReentrantLock[] stripes;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void start() {
+        int size = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        logger.info("Wallet ledger engine started with {} lock stripes", size);
+    }
+
+    /**
+     * Credit a wallet in the caller's transaction, or in its own if there is none.
+     *
+     * @return the wallet balance after this credit
+     */
+    public BigDecimal credit(UUID walletId, BigDecimal amount) {
+        requirePositive(amount, "Credit amount must be positive");
+
+        Map<UUID, BigDecimal> posting;
+        BigDecimal newBalance;
+        ReentrantLock lock = stripeFor(walletId);
+        lock.lock();
+        try {
+            BalanceSlot slot = slotFor(walletId, "Wallet not found");
+            newBalance = slot.apply(amount);
+            posting = begin(Map.of(walletId, amount));
+        } finally {
+            lock.unlock();
+        }
+
+        post(posting);
+        return newBalance;
+    }
+
+    /**
+     * Debit a wallet in the caller's transaction, or in its own if there is none.
+     *
+     * @return the wallet balance after this debit
+     */
+    public BigDecimal debit(UUID walletId, BigDecimal amount) {
+        requirePositive(amount, "Debit amount must be positive");
+
+        Map<UUID, BigDecimal> posting;
+        BigDecimal newBalance;
+        ReentrantLock lock = stripeFor(walletId);
+        lock.lock();
+        try {
+            BalanceSlot slot = slotFor(walletId, "Wallet not found");
+            if (slot.balance.compareTo(amount) < 0) {
+                throw new RuntimeException("Insufficient balance");
+            }
+            newBalance = slot.apply(amount.negate());
+            posting = begin(Map.of(walletId, amount.negate()));
+        } finally {
+            lock.unlock();
+        }
+
+        post(posting);
+        return newBalance;
+    }
+
+    /**
+     * Move funds between two wallets as a single posting, in the caller's transaction or its own.
+     *
+     * @return the source and destination balances after the transfer, in that order
+     */
+    public BigDecimal[] transfer(UUID fromWalletId, UUID toWalletId, BigDecimal amount) {
+        requirePositive(amount, "Transfer amount must be positive");
+        if (fromWalletId.equals(toWalletId)) {
+            throw new IllegalArgumentException("Source and destination wallets must differ");
+        }
+
+        // Always take stripes in index order so two opposite transfers cannot deadlock
+        ReentrantLock first = stripeFor(fromWalletId);
+        ReentrantLock second = stripeFor(toWalletId);
+        if (stripeIndex(toWalletId) < stripeIndex(fromWalletId)) {
+            ReentrantLock swap = first;
+            first = second;
+            second = swap;
+        }
+
+        Map<UUID, BigDecimal> posting;
+        BigDecimal[] balances;
+        first.lock();
+        if (second != first) {
+            second.lock();
+        }
+        try {
+            BalanceSlot from = slotFor(fromWalletId, "Source wallet not found");
+            BalanceSlot to = slotFor(toWalletId, "Destination wallet not found");
+            if (from.balance.compareTo(amount) < 0) {
+                throw new RuntimeException("Insufficient balance in source wallet");
+            }
+            balances = new BigDecimal[] { from.apply(amount.negate()), to.apply(amount) };
+            posting = begin(Map.of(fromWalletId, amount.negate(), toWalletId, amount));
+        } finally {
+            if (second != first) {
+                second.unlock();
+            }
+            first.unlock();
+        }
+
+        post(posting);
+        return balances;
+    }
+
+    /**
+     * Current balance as seen by the engine, including postings whose transaction has not yet completed.
+     */
+    public BigDecimal getBalance(UUID walletId) {
+        ReentrantLock lock = stripeFor(walletId);
+        lock.lock();
+        try {
+            return slotFor(walletId, "Wallet not found").balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget the cached balance of a wallet written outside the engine. A slot with postings still in
+     * flight is dropped once they settle, since their deltas are not yet committed to the row it would re-read.
+     */
+    public void invalidate(UUID walletId) {
+        ReentrantLock lock = stripeFor(walletId);
+        lock.lock();
+        try {
+            BalanceSlot slot = slots.get(walletId);
+            if (slot == null) {
+                return;
+            }
+            if (slot.inFlight == 0) {
+                slots.remove(walletId);
+            } else {
+                slot.stale = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop idle slots with nothing in flight so balances changed outside the engine are re-read.
+     */
+    @Scheduled(fixedDelayString = "${wallet.ledger.eviction-interval-ms:30000}")
+    public void evictIdleSlots() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMs;
+        int evicted = 0;
+        for (UUID walletId : slots.keySet()) {
+            ReentrantLock lock = stripeFor(walletId);
+            lock.lock();
+            try {
+                BalanceSlot slot = slots.get(walletId);
+                if (slot != null && slot.inFlight == 0 && slot.lastTouched < cutoff) {
+                    slots.remove(walletId);
+                    evicted++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle wallet balance slots", evicted);
+        }
+    }
+
+    private void applyDeltas(Map<UUID, BigDecimal> net) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(net.size());
+        net.forEach((walletId, delta) -> rows.add(new Object[] { delta, now, walletId, delta }));
+
+        int[] counts = jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, rows);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new IllegalStateException("Insufficient balance or missing wallet " + rows.get(i)[2]);
+            }
+        }
+    }
+
+    private void settle(Map<UUID, BigDecimal> deltas, boolean committed) {
+        deltas.forEach((walletId, delta) -> {
+            ReentrantLock lock = stripeFor(walletId);
+            lock.lock();
+            try {
+                BalanceSlot slot = slots.get(walletId);
+                if (slot != null) {
+                    slot.inFlight--;
+                    if (!committed) {
+                        // Undo the in-memory effect; later postings only carry deltas so they stay valid
+                        slot.balance = slot.balance.subtract(delta);
+                    }
+                    if (slot.stale && slot.inFlight == 0) {
+                        slots.remove(walletId);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Mark the posting's wallets in flight. Called with the stripe locks held.
+     */
+    private Map<UUID, BigDecimal> begin(Map<UUID, BigDecimal> deltas) {
+        deltas.keySet().forEach(walletId -> slots.get(walletId).inFlight++);
+        return deltas;
+    }
+
+    /**
+     * Write a begun posting in the caller's transaction if there is one, otherwise in its own.
+     * Throws if the guarded update rejects it.
+     */
+    private void post(Map<UUID, BigDecimal> deltas) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            postInTransaction(deltas);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> applyDeltas(new TreeMap<>(deltas)));
+        } catch (RuntimeException e) {
+            settle(deltas, false);
+            throw new RuntimeException("Wallet posting failed: " + e.getMessage(), e);
+        }
+        settle(deltas, true);
+    }
+
+    private void postInTransaction(Map<UUID, BigDecimal> deltas) {
+        try {
+            // Sorted so concurrent postings lock rows in the same order
+            applyDeltas(new TreeMap<>(deltas));
+        } catch (RuntimeException e) {
+            settle(deltas, false);
+            throw new RuntimeException("Wallet posting failed: " + e.getMessage(), e);
+        }
+        // The row change commits or rolls back with the caller; the slot follows the outcome
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                settle(deltas, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private BalanceSlot slotFor(UUID walletId, String notFoundMessage) {
+        BalanceSlot slot = slots.get(walletId);
+        if (slot == null) {
+            BigDecimal balance;
+            try {
+                balance = jdbcTemplate.queryForObject(SELECT_BALANCE_SQL, BigDecimal.class, walletId);
+            } catch (EmptyResultDataAccessException e) {
+                throw new RuntimeException(notFoundMessage);
+            }
+            slot = new BalanceSlot(balance != null ? balance : BigDecimal.ZERO);
+            slots.put(walletId, slot);
+        }
+        slot.lastTouched = System.currentTimeMillis();
+        return slot;
+    }
+
+    private ReentrantLock stripeFor(UUID walletId) {
+        return stripes[stripeIndex(walletId)];
+    }
+
+    private int stripeIndex(UUID walletId) {
+        int h = walletId.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private static void requirePositive(BigDecimal amount, String message) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Cached balance for one wallet. Only read or written while holding the wallet's stripe lock.
+     */
+    private static final class BalanceSlot {
+        private BigDecimal balance;
+        private int inFlight;
+        private long lastTouched;
+        private boolean stale;
+
+        private BalanceSlot(BigDecimal balance) {
+            this.balance = balance;
+        }
+
+        private BigDecimal apply(BigDecimal delta) {
+            balance = balance.add(delta);
+            return balance;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.xypay.xypay.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.xypay.xypay.domain.User;
 import com.xypay.xypay.domain.Wallet;
 import com.xypay.xypay.domain.NotificationType;
 import com.xypay.xypay.domain.NotificationLevel;
 import com.xypay.xypay.repository.WalletRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +31,18 @@ public class WalletService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private WalletLedgerEngine walletLedgerEngine;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Create a new wallet for user
      */
@@ -91,20 +107,15 @@ public class WalletService {
     public Wallet creditWallet(UUID walletId, BigDecimal amount, String description) {
         logger.info("Crediting wallet {} with amount {}", walletId, amount);
 
-        Wallet wallet = walletRepository.findById(walletId)
-            .orElseThrow(() -> new RuntimeException("Wallet not found"));
-
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Credit amount must be positive");
-        }
-
-        wallet.setBalance(wallet.getBalance().add(amount));
-        wallet = walletRepository.save(wallet);
+        // Pending entity changes are written first so the refresh after the posting cannot discard them
+        entityManager.flush();
+        BigDecimal newBalance = walletLedgerEngine.credit(walletId, amount);
+        Wallet wallet = postedWallet(walletId);
 
         // Send notification
         sendBalanceUpdateNotification(wallet, "credited", amount, description);
 
-        logger.info("Wallet {} credited successfully. New balance: {}", walletId, wallet.getBalance());
+        logger.info("Wallet {} credited successfully. New balance: {}", walletId, newBalance);
         return wallet;
     }
 
@@ -114,24 +125,14 @@ public class WalletService {
     public Wallet debitWallet(UUID walletId, BigDecimal amount, String description) {
         logger.info("Debiting wallet {} with amount {}", walletId, amount);
 
-        Wallet wallet = walletRepository.findById(walletId)
-            .orElseThrow(() -> new RuntimeException("Wallet not found"));
-
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Debit amount must be positive");
-        }
-
-        if (wallet.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient balance");
-        }
-
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        wallet = walletRepository.save(wallet);
+        entityManager.flush();
+        BigDecimal newBalance = walletLedgerEngine.debit(walletId, amount);
+        Wallet wallet = postedWallet(walletId);
 
         // Send notification
         sendBalanceUpdateNotification(wallet, "debited", amount, description);
 
-        logger.info("Wallet {} debited successfully. New balance: {}", walletId, wallet.getBalance());
+        logger.info("Wallet {} debited successfully. New balance: {}", walletId, newBalance);
         return wallet;
     }
 
@@ -141,21 +142,10 @@ public class WalletService {
     public void transferBetweenWallets(UUID fromWalletId, UUID toWalletId, BigDecimal amount, String description) {
         logger.info("Transferring {} from wallet {} to wallet {}", amount, fromWalletId, toWalletId);
 
-        Wallet fromWallet = walletRepository.findById(fromWalletId)
-            .orElseThrow(() -> new RuntimeException("Source wallet not found"));
-        
-        Wallet toWallet = walletRepository.findById(toWalletId)
-            .orElseThrow(() -> new RuntimeException("Destination wallet not found"));
-
-        if (fromWallet.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient balance in source wallet");
-        }
-
-        fromWallet.setBalance(fromWallet.getBalance().subtract(amount));
-        toWallet.setBalance(toWallet.getBalance().add(amount));
-
-        walletRepository.save(fromWallet);
-        walletRepository.save(toWallet);
+        entityManager.flush();
+        walletLedgerEngine.transfer(fromWalletId, toWalletId, amount);
+        Wallet fromWallet = postedWallet(fromWalletId);
+        Wallet toWallet = postedWallet(toWalletId);
 
         // Send notifications
         sendBalanceUpdateNotification(fromWallet, "debited", amount, "Transfer to " + toWallet.getAccountNumber());
@@ -237,9 +227,7 @@ public class WalletService {
      */
     @Transactional(readOnly = true)
     public BigDecimal getWalletBalance(UUID walletId) {
-        Wallet wallet = walletRepository.findById(walletId)
-            .orElseThrow(() -> new RuntimeException("Wallet not found"));
-        return wallet.getBalance();
+        return walletLedgerEngine.getBalance(walletId);
     }
 
     /**
@@ -247,9 +235,7 @@ public class WalletService {
      */
     @Transactional(readOnly = true)
     public boolean hasSufficientBalance(UUID walletId, BigDecimal amount) {
-        Wallet wallet = walletRepository.findById(walletId)
-            .orElseThrow(() -> new RuntimeException("Wallet not found"));
-        return wallet.getBalance().compareTo(amount) >= 0;
+        return walletLedgerEngine.getBalance(walletId).compareTo(amount) >= 0;
     }
 
     /**
@@ -322,6 +308,16 @@ public class WalletService {
         return walletRepository.findByAccountNumberOrAlternativeAccountNumber(accountNumber, accountNumber);
     }
 
+    /**
+     * Wallet after a ledger posting. The posting writes the row directly, so the persistence context's
+     * copy (the caller's own, if it already holds one) is refreshed in place rather than replaced.
+     */
+    private Wallet postedWallet(UUID walletId) {
+        Wallet wallet = entityManager.getReference(Wallet.class, walletId);
+        entityManager.refresh(wallet);
+        return wallet;
+    }
+
     /**
      * Send balance update notification
      */
@@ -340,6 +336,19 @@ public class WalletService {
                 NotificationLevel.INFO,
                 wallet
             );
+
+            // Live balance push; a newer balance for the same wallet replaces one a slow client has not read yet
+            if (wallet.getUser() != null) {
+                ObjectNode payload = objectMapper.createObjectNode();
+                payload.put("wallet_id", String.valueOf(wallet.getId()));
+                payload.put("account_number", wallet.getAccountNumber());
+                payload.put("action", action);
+                payload.put("amount", amount.toPlainString());
+                payload.put("balance", wallet.getBalance() != null ? wallet.getBalance().toPlainString() : null);
+                payload.put("currency", wallet.getCurrency());
+                notificationDispatcher.dispatchWebSocket(wallet.getUser().getId().toString(), "balance",
+                    "balance:" + wallet.getId(), objectMapper.writeValueAsString(payload));
+            }
         } catch (Exception e) {
             logger.error("Failed to send balance update notification: {}", e.getMessage());
         }
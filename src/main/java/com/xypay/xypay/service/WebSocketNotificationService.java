@@ -1,47 +1,374 @@
 package com.xypay.xypay.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Mock WebSocket notification service.
- * This is a simplified implementation that logs notifications instead of sending them via WebSocket.
- * To enable real WebSocket functionality, add spring-boot-starter-websocket dependency.
+ * Real-time push to connected clients over server-sent events.
+ *
+ * Live sessions are kept in a concurrent registry keyed by user. Each node records in Redis which users
+ * it holds sessions for (push:presence:&lt;userId&gt; is a set of node ids), so an event is published only
+ * to the nodes that can deliver it, on each node's own channel; users with no live session anywhere
+ * cost a single SMEMBERS. A node that no longer listens on its channel is pruned from presence when a
+ * publish reaches no subscriber. Payloads are serialized once and the same string is written to every
+ * session, each of which buffers, merges or drops independently (see {@link PushSession}).
  */
 @Service
 public class WebSocketNotificationService {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(WebSocketNotificationService.class);
-    
+
+    private static final String NODE_CHANNEL_PREFIX = "xypay:push:node:";
+    private static final String PRESENCE_KEY_PREFIX = "push:presence:";
+    private static final Duration PRESENCE_TTL = Duration.ofHours(24);
+    // How often heartbeats re-record presence, well inside the TTL
+    private static final Duration PRESENCE_REFRESH = Duration.ofHours(1);
+    private static final char FRAME_SEPARATOR = '\u0000';
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${push.max-sessions:100000}")
+    private int maxSessions;
+
+    @Value("${push.session-buffer:32}")
+    private int sessionBuffer;
+
+    @Value("${push.session-timeout-ms:1800000}")
+    private long sessionTimeoutMs;
+
+    @Value("${push.writer-threads:16}")
+    private int writerThreads;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, Set<PushSession>> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private volatile long lastPresenceRefresh = System.currentTimeMillis();
+    private ThreadPoolExecutor writers;
+    private Counter delivered;
+    private Counter merged;
+    private Counter dropped;
+    private Counter relayed;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // A session has at most one drain task queued, so the queue never needs more room than sessions
+        writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(maxSessions, 1024)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "push-writer-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        delivered = pushCounter("delivered");
+        merged = pushCounter("merged");
+        dropped = pushCounter("dropped");
+        relayed = pushCounter("relayed");
+        Gauge.builder("xypay.push.sessions", sessionCount, AtomicInteger::get)
+            .description("Live push sessions on this node")
+            .register(meterRegistry);
+
+        redisMessageListenerContainer.addMessageListener(
+            (message, pattern) -> onRemoteEvent(message), new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String userId : sessions.keySet()) {
+            unregisterUserSession(userId);
+        }
+        writers.shutdown();
+    }
+
+    private Counter pushCounter(String result) {
+        return Counter.builder("xypay.push.events")
+            .description("Push events handled per session")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
     /**
-     * Send real-time notification via WebSocket (mock implementation).
+     * Open a push stream for a user
+     *
+     * @return The emitter to return from the controller, or null when this node is at its session limit
+     */
+    public SseEmitter connect(String userId) {
+        if (sessionCount.get() >= maxSessions) {
+            logger.warn("Push session limit {} reached, rejecting user {}", maxSessions, userId);
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sessionTimeoutMs);
+        PushSession session = new PushSession(userId, emitter, sessionBuffer);
+        emitter.onCompletion(() -> removeSession(session));
+        emitter.onTimeout(() -> removeSession(session));
+        emitter.onError(error -> removeSession(session));
+        addSession(session);
+        return emitter;
+    }
+
+    /**
+     * Send real-time notification to all of a user's sessions, on any node.
      *
      * @param userId The user ID
      * @param notificationData The notification data as JSON string
-     * @return true if successful, false otherwise
+     * @return true if the event was handed to at least one session or node
      */
     public boolean sendWebSocketNotification(String userId, String notificationData) {
-        logger.info("Mock WebSocket notification for user {}: {}", userId, notificationData);
-        return true; // Mock implementation always returns success
+        return sendToUser(userId, "notification", null, notificationData);
     }
-    
+
     /**
-     * Register a WebSocket session for a user (mock implementation).
+     * Push an event to all of a user's sessions, on any node.
+     *
+     * @param event SSE event name
+     * @param mergeKey Events with the same key replace each other while still buffered; null never merges
+     * @param json Serialized payload, shared by every session
+     * @return true if the event was handed to at least one session or node
+     */
+    public boolean sendToUser(String userId, String event, String mergeKey, String json) {
+        if (userId == null || json == null) {
+            return false;
+        }
+        PushSession.Event pushEvent = new PushSession.Event(event, mergeKey, json);
+        boolean handed = deliverLocally(userId, pushEvent);
+
+        Set<String> nodes;
+        try {
+            nodes = stringRedisTemplate.opsForSet().members(PRESENCE_KEY_PREFIX + userId);
+        } catch (Exception e) {
+            logger.warn("Push presence lookup failed for user {}: {}", userId, e.getMessage());
+            return handed;
+        }
+        if (nodes == null || nodes.isEmpty()) {
+            return handed;
+        }
+        String frame = userId + FRAME_SEPARATOR + event + FRAME_SEPARATOR
+            + (mergeKey != null ? mergeKey : "") + FRAME_SEPARATOR + json;
+        for (String node : nodes) {
+            if (nodeId.equals(node)) {
+                continue;
+            }
+            try {
+                Long receivers = stringRedisTemplate.convertAndSend(NODE_CHANNEL_PREFIX + node, frame);
+                if (receivers != null && receivers == 0) {
+                    // The node is gone; stop routing this user's events to it
+                    stringRedisTemplate.opsForSet().remove(PRESENCE_KEY_PREFIX + userId, node);
+                } else {
+                    relayed.increment();
+                    handed = true;
+                }
+            } catch (Exception e) {
+                logger.warn("Push relay to node {} failed: {}", node, e.getMessage());
+            }
+        }
+        return handed;
+    }
+
+    /**
+     * Register an existing SSE emitter for a user.
      *
      * @param userId The user ID
-     * @param session The WebSocket session (not used in mock)
+     * @param session The {@link SseEmitter} to push to
      */
     public void registerUserSession(String userId, Object session) {
-        logger.info("Mock: Registered WebSocket session for user {}", userId);
+        if (!(session instanceof SseEmitter emitter)) {
+            throw new IllegalArgumentException("Unsupported push session type: "
+                + (session != null ? session.getClass().getName() : "null"));
+        }
+        PushSession pushSession = new PushSession(userId, emitter, sessionBuffer);
+        emitter.onCompletion(() -> removeSession(pushSession));
+        emitter.onTimeout(() -> removeSession(pushSession));
+        emitter.onError(error -> removeSession(pushSession));
+        addSession(pushSession);
     }
-    
+
     /**
-     * Unregister a WebSocket session for a user (mock implementation).
+     * Close all of a user's sessions on this node.
      *
      * @param userId The user ID
      */
     public void unregisterUserSession(String userId) {
-        logger.info("Mock: Unregistered WebSocket session for user {}", userId);
+        Set<PushSession> userSessions = sessions.get(userId);
+        if (userSessions == null) {
+            return;
+        }
+        for (PushSession session : userSessions) {
+            removeSession(session);
+            try {
+                session.emitter().complete();
+            } catch (Exception e) {
+                logger.debug("Closing push session for user {} failed: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    public int sessionCount() {
+        return sessionCount.get();
+    }
+
+    /**
+     * Heartbeat every session so dead connections are noticed and proxies keep idle streams open. Presence
+     * is re-recorded from here too, so a user whose sessions outlive the presence TTL stays reachable.
+     */
+    @Scheduled(fixedDelayString = "${push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        PushSession.Event ping = new PushSession.Event(null, "heartbeat", "ping");
+        for (Set<PushSession> userSessions : sessions.values()) {
+            for (PushSession session : userSessions) {
+                offer(session, ping);
+            }
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastPresenceRefresh >= PRESENCE_REFRESH.toMillis()) {
+            lastPresenceRefresh = now;
+            refreshPresence();
+        }
+    }
+
+    private void refreshPresence() {
+        List<String> userIds = new ArrayList<>(sessions.keySet());
+        if (userIds.isEmpty()) {
+            return;
+        }
+        byte[] node = nodeId.getBytes(StandardCharsets.UTF_8);
+        long ttlSeconds = PRESENCE_TTL.getSeconds();
+        try {
+            // SADD as well as EXPIRE, in case the key expired or this node was pruned from it
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String userId : userIds) {
+                    byte[] key = (PRESENCE_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+                    connection.setCommands().sAdd(key, node);
+                    connection.keyCommands().expire(key, ttlSeconds);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to refresh push presence for {} users: {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    private boolean deliverLocally(String userId, PushSession.Event event) {
+        Set<PushSession> userSessions = sessions.get(userId);
+        if (userSessions == null) {
+            return false;
+        }
+        boolean handed = false;
+        for (PushSession session : userSessions) {
+            handed |= offer(session, event);
+        }
+        return handed;
+    }
+
+    private boolean offer(PushSession session, PushSession.Event event) {
+        PushSession.Offer result;
+        try {
+            result = session.offer(event, writers);
+        } catch (Exception e) {
+            // Writer pool saturated: treat like a full session buffer
+            dropped.increment();
+            return false;
+        }
+        switch (result) {
+            case QUEUED -> delivered.increment();
+            case MERGED -> merged.increment();
+            case DROPPED_OLDEST -> {
+                delivered.increment();
+                dropped.increment();
+            }
+            case CLOSED -> removeSession(session);
+        }
+        return result != PushSession.Offer.CLOSED;
+    }
+
+    private void onRemoteEvent(Message message) {
+        String frame = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = frame.split(String.valueOf(FRAME_SEPARATOR), 4);
+        if (parts.length < 4) {
+            logger.warn("Ignoring malformed push frame");
+            return;
+        }
+        String mergeKey = parts[2].isEmpty() ? null : parts[2];
+        deliverLocally(parts[0], new PushSession.Event(parts[1], mergeKey, parts[3]));
+    }
+
+    private void addSession(PushSession session) {
+        boolean[] firstForUser = new boolean[1];
+        sessions.compute(session.userId(), (userId, existing) -> {
+            Set<PushSession> userSessions = existing != null ? existing : ConcurrentHashMap.newKeySet();
+            firstForUser[0] = userSessions.isEmpty();
+            userSessions.add(session);
+            return userSessions;
+        });
+        sessionCount.incrementAndGet();
+        if (firstForUser[0]) {
+            try {
+                String key = PRESENCE_KEY_PREFIX + session.userId();
+                stringRedisTemplate.opsForSet().add(key, nodeId);
+                stringRedisTemplate.expire(key, PRESENCE_TTL);
+            } catch (Exception e) {
+                logger.warn("Failed to record push presence for user {}: {}", session.userId(), e.getMessage());
+            }
+        }
+    }
+
+    private void removeSession(PushSession session) {
+        session.close();
+        boolean[] removed = new boolean[2];
+        sessions.computeIfPresent(session.userId(), (userId, userSessions) -> {
+            removed[0] = userSessions.remove(session);
+            removed[1] = userSessions.isEmpty();
+            return userSessions.isEmpty() ? null : userSessions;
+        });
+        if (!removed[0]) {
+            return;
+        }
+        sessionCount.decrementAndGet();
+        if (removed[1]) {
+            try {
+                String key = PRESENCE_KEY_PREFIX + session.userId();
+                stringRedisTemplate.opsForSet().remove(key, nodeId);
+                if (sessions.containsKey(session.userId())) {
+                    // A new session for the user raced the removal
+                    stringRedisTemplate.opsForSet().add(key, nodeId);
+                }
+            } catch (Exception e) {
+                logger.debug("Failed to clear push presence for user {}: {}", session.userId(), e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -29,6 +29,9 @@ public class WorkflowEngineService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private ApprovalMatrixService approvalMatrixService;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -57,7 +60,7 @@ public class WorkflowEngineService {
         instance.setPriority("MEDIUM");
         
         try {
-            instance.setContextData(objectMapper.writeValueAsString(contextData));
+            instance.setContextData(objectMapper.writeValueAsString(withApprovalLevels(entityType, contextData)));
         } catch (Exception e) {
             instance.setContextData("{}");
         }
@@ -73,6 +76,41 @@ public class WorkflowEngineService {
         return instance;
     }
 
+    /**
+     * Attach the approval levels the approval matrix requires for the amount in the context, so
+     * approvers see them with the workflow. Resolved from the in-memory matrix index.
+     */
+    private Map<String, Object> withApprovalLevels(String entityType, Map<String, Object> contextData) {
+        if (contextData == null || contextData.get("amount") == null || contextData.containsKey("approvalLevels")) {
+            return contextData;
+        }
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(contextData.get("amount").toString());
+        } catch (NumberFormatException e) {
+            return contextData;
+        }
+        Object transactionType = contextData.getOrDefault("transactionType", entityType);
+        List<ApprovalMatrix> matrices = approvalMatrixService.resolve(new ApprovalMatrixService.ApprovalQuery(
+            transactionType != null ? transactionType.toString() : null, amount,
+            stringValue(contextData.get("currency")), stringValue(contextData.get("customerType")),
+            stringValue(contextData.get("productType")), stringValue(contextData.get("branchCode"))));
+        if (matrices.isEmpty()) {
+            return contextData;
+        }
+        List<Map<String, Object>> levels = new ArrayList<>(matrices.size());
+        for (ApprovalMatrix matrix : matrices) {
+            levels.add(approvalMatrixService.toLevel(matrix));
+        }
+        Map<String, Object> enriched = new HashMap<>(contextData);
+        enriched.put("approvalLevels", levels);
+        return enriched;
+    }
+    
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
     /**
      * Process approval/rejection action
      */
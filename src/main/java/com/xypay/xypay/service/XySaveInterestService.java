@@ -2,16 +2,14 @@ package com.xypay.xypay.service;
 
 import com.xypay.xypay.domain.XySaveAccount;
 import com.xypay.xypay.domain.User;
-import com.xypay.xypay.repository.XySaveAccountRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,50 +19,22 @@ public class XySaveInterestService {
     
     private static final Logger logger = LoggerFactory.getLogger(XySaveInterestService.class);
     
-    @Autowired
-    private XySaveAccountRepository xySaveAccountRepository;
-    
     @Autowired
     private XySaveAccountService xySaveAccountService;
     
     @Autowired
     private XySaveTransactionService xySaveTransactionService;
     
+    @Autowired
+    private InterestAccrualEngine interestAccrualEngine;
+    
     /**
-     * Calculate and credit daily interest for all active accounts
-     * This method is scheduled to run daily at 2 AM
+     * Calculate and credit daily interest for all active accounts.
+     * Runs from DailyInterestScheduler at 2 AM through the set-based accrual engine.
      */
-    @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
     public void calculateDailyInterestForAllAccounts() {
         try {
-            List<XySaveAccount> activeAccounts = xySaveAccountRepository.findAll().stream()
-                .filter(account -> Boolean.TRUE.equals(account.getIsActive()) && 
-                        account.getBalance().compareTo(BigDecimal.ZERO) > 0)
-                .toList();
-            
-            int processedCount = 0;
-            for (XySaveAccount account : activeAccounts) {
-                try {
-                    BigDecimal dailyInterest = account.calculateDailyInterest();
-                    
-                    if (dailyInterest.compareTo(BigDecimal.ZERO) > 0) {
-                        xySaveTransactionService.creditInterest(
-                            account.getUser(),
-                            dailyInterest,
-                            String.format("Daily interest credit (%.2f%% p.a.)", 
-                                account.getAnnualInterestRate())
-                        );
-                        processedCount++;
-                    }
-                    
-                } catch (Exception e) {
-                    logger.error("Error calculating interest for account {}: {}", 
-                        account.getAccountNumber(), e.getMessage());
-                    continue;
-                }
-            }
-            
+            long processedCount = interestAccrualEngine.accrue(InterestAccrualEngine.Product.XYSAVE, LocalDate.now());
             logger.info("Processed daily interest for {} accounts", processedCount);
             
         } catch (Exception e) {
@@ -0,0 +1,84 @@
+package com.xypay.xypay.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of time buckets holding a count, sum and sum of squares per bucket.
+ * Window queries only walk the buckets, so their cost depends on the bucket count and never on
+ * how many events were recorded. Not thread-safe; callers synchronize.
+ */
+public class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final long[] epochs;
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] sumSquares;
+
+    public SlidingWindowCounter(long bucketMillis, int buckets) {
+        this.bucketMillis = bucketMillis;
+        this.epochs = new long[buckets];
+        this.counts = new long[buckets];
+        this.sums = new double[buckets];
+        this.sumSquares = new double[buckets];
+        Arrays.fill(epochs, Long.MIN_VALUE);
+    }
+
+    /**
+     * Record one event with the given value at the given time (epoch millis)
+     */
+    public void add(long timeMillis, double value) {
+        long epoch = timeMillis / bucketMillis;
+        int slot = (int) Math.floorMod(epoch, (long) epochs.length);
+        if (epochs[slot] != epoch) {
+            if (epochs[slot] > epoch) {
+                return; // Older than the ring can hold
+            }
+            epochs[slot] = epoch;
+            counts[slot] = 0;
+            sums[slot] = 0;
+            sumSquares[slot] = 0;
+        }
+        counts[slot]++;
+        sums[slot] += value;
+        sumSquares[slot] += value * value;
+    }
+
+    /**
+     * Number of events in the buckets overlapping the last windowMillis
+     */
+    public long count(long nowMillis, long windowMillis) {
+        long total = 0;
+        long newest = nowMillis / bucketMillis;
+        long oldest = newest - bucketsFor(windowMillis) + 1;
+        for (int i = 0; i < epochs.length; i++) {
+            if (epochs[i] >= oldest && epochs[i] <= newest) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Count, sum and sum of squares in the buckets overlapping the last windowMillis
+     */
+    public double[] stats(long nowMillis, long windowMillis) {
+        double count = 0;
+        double sum = 0;
+        double sumSq = 0;
+        long newest = nowMillis / bucketMillis;
+        long oldest = newest - bucketsFor(windowMillis) + 1;
+        for (int i = 0; i < epochs.length; i++) {
+            if (epochs[i] >= oldest && epochs[i] <= newest) {
+                count += counts[i];
+                sum += sums[i];
+                sumSq += sumSquares[i];
+            }
+        }
+        return new double[] { count, sum, sumSq };
+    }
+
+    private int bucketsFor(long windowMillis) {
+        return (int) Math.min(epochs.length, Math.max(1, (windowMillis + bucketMillis - 1) / bucketMillis));
+    }
+}
@@ -18,6 +18,24 @@ public class TieredInterestCalculator {
     private static final BigDecimal DAILY_TIER_2_RATE = TIER_2_RATE.divide(new BigDecimal("365"), 10, RoundingMode.HALF_UP);
     private static final BigDecimal DAILY_TIER_3_RATE = TIER_3_RATE.divide(new BigDecimal("365"), 10, RoundingMode.HALF_UP);
     
+    private static final BigDecimal TIER_1_AMOUNT = new BigDecimal(TIER_1_THRESHOLD);
+    private static final BigDecimal TIER_2_AMOUNT = new BigDecimal(TIER_2_THRESHOLD - TIER_1_THRESHOLD);
+    
+    /**
+     * Fixed-point layout used by the accrual engine: balances and interest in units of 10^-4,
+     * daily rates in units of 10^-10 (the scale of the daily rates above)
+     */
+    public static final int BALANCE_SCALE = 4;
+    public static final int RATE_SCALE = 10;
+    public static final long DAILY_TIER_1_RATE_UNITS = DAILY_TIER_1_RATE.unscaledValue().longValueExact();
+    public static final long DAILY_TIER_2_RATE_UNITS = DAILY_TIER_2_RATE.unscaledValue().longValueExact();
+    public static final long DAILY_TIER_3_RATE_UNITS = DAILY_TIER_3_RATE.unscaledValue().longValueExact();
+    
+    private static final long TIER_1_UNITS = TIER_1_THRESHOLD * 10_000L;
+    private static final long TIER_2_SPAN_UNITS = (TIER_2_THRESHOLD - TIER_1_THRESHOLD) * 10_000L;
+    // Products of balance units and rate units carry 14 decimals; dropping 10 leaves the balance scale
+    private static final long PRODUCT_TO_BALANCE = 10_000_000_000L;
+    
     /**
      * Calculate tiered interest rate for a given balance amount
      * Returns: Map with tier breakdown and total interest
@@ -37,7 +55,7 @@ public class TieredInterestCalculator {
         BigDecimal totalInterest = BigDecimal.ZERO;
         
         // Tier 1: First 10,000 at 20% p.a
-        BigDecimal tier1Amount = remainingBalance.min(new BigDecimal(TIER_1_THRESHOLD));
+        BigDecimal tier1Amount = remainingBalance.min(TIER_1_AMOUNT);
         BigDecimal tier1Interest = tier1Amount.multiply(DAILY_TIER_1_RATE);
         totalInterest = totalInterest.add(tier1Interest);
         remainingBalance = remainingBalance.subtract(tier1Amount);
@@ -45,7 +63,7 @@ public class TieredInterestCalculator {
         result.put("tier_1", createTierData(tier1Amount, 20, DAILY_TIER_1_RATE, tier1Interest));
         
         // Tier 2: 10,001 - 100,000 at 16% p.a
-        BigDecimal tier2Amount = remainingBalance.min(new BigDecimal(TIER_2_THRESHOLD - TIER_1_THRESHOLD));
+        BigDecimal tier2Amount = remainingBalance.min(TIER_2_AMOUNT);
         BigDecimal tier2Interest = tier2Amount.multiply(DAILY_TIER_2_RATE);
         totalInterest = totalInterest.add(tier2Interest);
         remainingBalance = remainingBalance.subtract(tier2Amount);
@@ -80,8 +98,46 @@ public class TieredInterestCalculator {
             return BigDecimal.ZERO;
         }
         
-        Map<String, Object> breakdown = calculateTieredInterestRate(balance);
-        return (BigDecimal) breakdown.get("total_interest");
+        // Same tiers as calculateTieredInterestRate without building the breakdown maps
+        BigDecimal tier1Amount = balance.min(TIER_1_AMOUNT);
+        BigDecimal remainingBalance = balance.subtract(tier1Amount);
+        BigDecimal tier2Amount = remainingBalance.min(TIER_2_AMOUNT);
+        BigDecimal tier3Amount = remainingBalance.subtract(tier2Amount);
+        
+        return tier1Amount.multiply(DAILY_TIER_1_RATE)
+            .add(tier2Amount.multiply(DAILY_TIER_2_RATE))
+            .add(tier3Amount.multiply(DAILY_TIER_3_RATE));
+    }
+    
+    /**
+     * Daily tiered interest in fixed point, without allocating.
+     *
+     * @param balanceUnits Balance in units of 10^-4
+     * @param tier1RateUnits Daily tier 1 rate in units of 10^-10
+     * @param tier2RateUnits Daily tier 2 rate in units of 10^-10
+     * @param tier3RateUnits Daily tier 3 rate in units of 10^-10
+     * @return Interest in units of 10^-4, rounded half up
+     * @throws ArithmeticException if the balance is too large for exact long arithmetic
+     */
+    public static long dailyInterestUnits(long balanceUnits, long tier1RateUnits, long tier2RateUnits, long tier3RateUnits) {
+        if (balanceUnits <= 0) {
+            return 0;
+        }
+        long tier1 = Math.min(balanceUnits, TIER_1_UNITS);
+        long tier2 = Math.min(balanceUnits - tier1, TIER_2_SPAN_UNITS);
+        long tier3 = balanceUnits - tier1 - tier2;
+        
+        long product = Math.addExact(
+            Math.addExact(Math.multiplyExact(tier1, tier1RateUnits), Math.multiplyExact(tier2, tier2RateUnits)),
+            Math.multiplyExact(tier3, tier3RateUnits));
+        return Math.addExact(product, PRODUCT_TO_BALANCE / 2) / PRODUCT_TO_BALANCE;
+    }
+    
+    /**
+     * Daily tiered interest in fixed point at the standard tier rates
+     */
+    public static long dailyInterestUnits(long balanceUnits) {
+        return dailyInterestUnits(balanceUnits, DAILY_TIER_1_RATE_UNITS, DAILY_TIER_2_RATE_UNITS, DAILY_TIER_3_RATE_UNITS);
     }
     
     /**
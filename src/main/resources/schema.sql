@@ -21,3 +21,6 @@ CREATE TABLE IF NOT EXISTS SPRING_SESSION_ATTRIBUTES (
     CONSTRAINT SPRING_SESSION_ATTRIBUTES_PK PRIMARY KEY (SESSION_PRIMARY_ID, ATTRIBUTE_NAME),
     CONSTRAINT SPRING_SESSION_ATTRIBUTES_FK FOREIGN KEY (SESSION_PRIMARY_ID) REFERENCES SPRING_SESSION(PRIMARY_ID) ON DELETE CASCADE
 );
+
+-- bulk_transfer_items.status gained PENDING_APPROVAL; ddl-auto=update does not widen the enum check Hibernate created
+ALTER TABLE IF EXISTS bulk_transfer_items DROP CONSTRAINT IF EXISTS bulk_transfer_items_status_check;
@@ -0,0 +1,189 @@
+package com.xypay.xypay.service;
+
+import com.xypay.xypay.domain.BulkTransferItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkTransferExecutionEngineTest {
+
+    private final UUID bulkTransferId = UUID.randomUUID();
+    private JdbcTemplate jdbcTemplate;
+    private BulkTransferExecutionEngine engine;
+    private final List<Object[]> committedRows = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            committedRows.addAll(rows);
+            int[] updated = new int[rows.size()];
+            Arrays.fill(updated, 1);
+            return updated;
+        });
+        engine = new BulkTransferExecutionEngine();
+        ReflectionTestUtils.setField(engine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(engine, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(engine, "heartbeatSeconds", 60L);
+        configure(4, 16, 8, 500);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void itemsForTheSameRecipientRunInFileOrder() {
+        List<BulkTransferItem> items = new ArrayList<>();
+        for (int row = 1; row <= 200; row++) {
+            items.add(item("ACCT-" + (row % 5), row));
+        }
+        Map<String, List<Integer>> order = new ConcurrentHashMap<>();
+
+        engine.execute(bulkTransferId, items, item -> {
+            order.computeIfAbsent(item.getRecipientAccountNumber(), k -> Collections.synchronizedList(new ArrayList<>()))
+                .add(item.getRowNumber());
+            item.markAsCompleted(null, null);
+        });
+
+        assertEquals(5, order.size());
+        for (List<Integer> rows : order.values()) {
+            List<Integer> sorted = new ArrayList<>(rows);
+            Collections.sort(sorted);
+            assertEquals(sorted, rows);
+        }
+        assertEquals(200, committedRows.size());
+    }
+
+    @Test
+    public void saturatedPoolRunsPartitionsOnTheCaller() {
+        engine.shutdown();
+        configure(1, 1, 8, 500);
+        List<BulkTransferItem> items = new ArrayList<>();
+        for (int row = 1; row <= 64; row++) {
+            items.add(item("ACCT-" + row, row));
+        }
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        String caller = Thread.currentThread().getName();
+
+        engine.execute(bulkTransferId, items, item -> {
+            threads.add(Thread.currentThread().getName());
+            sleep(5);
+            item.markAsCompleted(null, null);
+        });
+
+        assertTrue(threads.contains(caller), "Expected the caller to run a partition, ran on " + threads);
+        assertEquals(64, committedRows.size());
+        assertTrue(items.stream().allMatch(BulkTransferItem::isCompleted));
+    }
+
+    @Test
+    public void failedItemIsCommittedAsFailedWithItsProgress() {
+        BulkTransferItem ok = item("ACCT-1", 1);
+        BulkTransferItem broken = item("ACCT-1", 2);
+
+        engine.execute(bulkTransferId, List.of(ok, broken), item -> {
+            if (item == broken) {
+                throw new IllegalStateException("Recipient wallet frozen");
+            }
+            item.markAsCompleted(null, null);
+        });
+
+        assertTrue(ok.isCompleted());
+        assertTrue(broken.isFailed());
+        assertEquals("Recipient wallet frozen", broken.getFailureReason());
+        assertEquals(2, committedRows.size());
+        verify(jdbcTemplate).update(anyString(), eq(1), eq(1), eq(new BigDecimal("10")), any(), eq(bulkTransferId));
+    }
+
+    @Test
+    public void statusesAreCommittedPerChunk() {
+        engine.shutdown();
+        configure(1, 16, 1, 2);
+        List<BulkTransferItem> items = new ArrayList<>();
+        for (int row = 1; row <= 5; row++) {
+            items.add(item("ACCT-1", row));
+        }
+
+        engine.execute(bulkTransferId, items, item -> item.markAsCompleted(null, null));
+
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyList());
+        assertEquals(5, committedRows.size());
+    }
+
+    @Test
+    public void itemsAlreadyFinishedByAnotherRunDoNotAdvanceProgress() {
+        doReturn(new int[] {1, 0}).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        BulkTransferItem fresh = item("ACCT-1", 1);
+        BulkTransferItem finishedElsewhere = item("ACCT-1", 2);
+
+        engine.execute(bulkTransferId, List.of(fresh, finishedElsewhere), item -> item.markAsCompleted(null, null));
+
+        verify(jdbcTemplate).update(anyString(), eq(1), eq(0), eq(new BigDecimal("10")), any(), eq(bulkTransferId));
+    }
+
+    @Test
+    public void leaseIsRenewedWhileAChunkIsStillRunning() {
+        engine.shutdown();
+        ReflectionTestUtils.setField(engine, "heartbeatSeconds", 1L);
+        configure(1, 16, 1, 500);
+
+        engine.execute(bulkTransferId, List.of(item("ACCT-1", 1)), item -> {
+            sleep(2500);
+            item.markAsCompleted(null, null);
+        });
+
+        verify(jdbcTemplate, atLeast(2)).update(contains("SET updated_at"), any(), eq(bulkTransferId));
+    }
+
+    private void configure(int threads, int queueCapacity, int partitions, int chunkSize) {
+        ReflectionTestUtils.setField(engine, "threads", threads);
+        ReflectionTestUtils.setField(engine, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(engine, "partitions", partitions);
+        ReflectionTestUtils.setField(engine, "chunkSize", chunkSize);
+        engine.init();
+    }
+
+    private static BulkTransferItem item(String recipient, int row) {
+        BulkTransferItem item = new BulkTransferItem(null, recipient, "Recipient " + row, new BigDecimal("10"), "Row " + row);
+        item.setId(UUID.randomUUID());
+        item.setRowNumber(row);
+        return item;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.xypay.xypay.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WalletLedgerEngineTest {
+
+    private final UUID walletId = UUID.randomUUID();
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private WalletLedgerEngine engine;
+    private final List<BigDecimal> writtenDeltas = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(BigDecimal.class), any()))
+            .thenReturn(new BigDecimal("100"));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            synchronized (writtenDeltas) {
+                rows.forEach(row -> writtenDeltas.add((BigDecimal) row[0]));
+            }
+            int[] counts = new int[rows.size()];
+            Arrays.fill(counts, 1);
+            return counts;
+        });
+
+        engine = new WalletLedgerEngine();
+        ReflectionTestUtils.setField(engine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(engine, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(engine, "lockStripes", 64);
+        ReflectionTestUtils.setField(engine, "idleEvictionMs", 60000L);
+        engine.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void failedWriteFailsThePostingAndRestoresTheBalance() {
+        doThrow(new DataAccessResourceFailureException("database unavailable"))
+            .when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        assertThrows(RuntimeException.class, () -> engine.credit(walletId, new BigDecimal("10")));
+        assertEquals(0, new BigDecimal("100").compareTo(engine.getBalance(walletId)));
+    }
+
+    @Test
+    public void postingOutsideATransactionIsWrittenInItsOwn() {
+        engine.credit(walletId, new BigDecimal("10"));
+
+        assertEquals(0, new BigDecimal("110").compareTo(engine.getBalance(walletId)));
+        assertEquals(List.of(new BigDecimal("10")), writtenDeltas);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void callerRollbackUndoesThePosting() {
+        beginCallerTransaction();
+
+        assertEquals(0, new BigDecimal("70").compareTo(engine.debit(walletId, new BigDecimal("30"))));
+        completeCallerTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(0, new BigDecimal("100").compareTo(engine.getBalance(walletId)));
+        // Written in the caller's transaction, not one of the engine's own
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    public void callerCommitKeepsThePosting() {
+        beginCallerTransaction();
+
+        engine.debit(walletId, new BigDecimal("30"));
+        completeCallerTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(0, new BigDecimal("70").compareTo(engine.getBalance(walletId)));
+        assertEquals(List.of(new BigDecimal("-30")), writtenDeltas);
+    }
+
+    @Test
+    public void externalWriteIsReReadAfterInvalidation() {
+        assertEquals(0, new BigDecimal("100").compareTo(engine.getBalance(walletId)));
+        when(jdbcTemplate.queryForObject(anyString(), eq(BigDecimal.class), any()))
+            .thenReturn(new BigDecimal("250"));
+
+        engine.invalidate(walletId);
+
+        assertEquals(0, new BigDecimal("250").compareTo(engine.getBalance(walletId)));
+    }
+
+    @Test
+    public void invalidationWaitsForPostingsInFlight() {
+        beginCallerTransaction();
+        engine.credit(walletId, new BigDecimal("10"));
+        when(jdbcTemplate.queryForObject(anyString(), eq(BigDecimal.class), any()))
+            .thenReturn(new BigDecimal("250"));
+
+        engine.invalidate(walletId);
+        // The uncommitted credit is not in the row yet, so the slot is kept until it settles
+        assertEquals(0, new BigDecimal("110").compareTo(engine.getBalance(walletId)));
+
+        completeCallerTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(0, new BigDecimal("250").compareTo(engine.getBalance(walletId)));
+    }
+
+    @Test
+    public void concurrentCreditsAreAllApplied() throws Exception {
+        int threads = 8;
+        int creditsPerThread = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < creditsPerThread; i++) {
+                        engine.credit(walletId, BigDecimal.ONE);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BigDecimal written;
+        synchronized (writtenDeltas) {
+            written = writtenDeltas.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+        assertEquals(0, new BigDecimal("500").compareTo(engine.getBalance(walletId)));
+        assertEquals(0, new BigDecimal(threads * creditsPerThread).compareTo(written));
+    }
+
+    private void beginCallerTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    private void completeCallerTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}